@@ -7,6 +7,7 @@ import java.io.Serializable;
 import java.time.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Classe que representa um Cartão de Crédito
 public class CartaoCredito implements ContaFinanceira, Serializable {
@@ -15,11 +16,11 @@ public class CartaoCredito implements ContaFinanceira, Serializable {
     private String numeroConta;
     private Usuario titular;
     private double limite;
-    private double limiteDisponivel;
-    private double faturaAtual;
+    private volatile double limiteDisponivel;
+    private volatile double faturaAtual;
     private LocalDate dataFechamento;
     private LocalDate dataVencimento;
-    private boolean ativa;
+    private volatile boolean ativa;
     
     // CONSTRUTOR
     public CartaoCredito(String numeroConta, Usuario titular, double limite, 
@@ -34,43 +35,66 @@ public class CartaoCredito implements ContaFinanceira, Serializable {
         this.ativa = true;
     }
     
+    // Reconstrói um cartão gravado em arquivo com a fatura e o limite disponível atuais
+    public static CartaoCredito restaurar(String numeroConta, Usuario titular, double limite,
+                                          double limiteDisponivel, double faturaAtual,
+                                          LocalDate dataFechamento, LocalDate dataVencimento, boolean ativa) {
+        CartaoCredito cartao = new CartaoCredito(numeroConta, titular, limite, dataFechamento, dataVencimento);
+        cartao.limiteDisponivel = limiteDisponivel;
+        cartao.faturaAtual = faturaAtual;
+        cartao.ativa = ativa;
+        return cartao;
+    }
+    
     @Override
     public void depositar(double valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do pagamento deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Cartão inativo. Não é possível realizar pagamentos.");
-        }
-        
-        // Pagamento da fatura libera o limite
-        if (valor <= faturaAtual) {
-            faturaAtual -= valor;
-            limiteDisponivel += valor;
-        } else {
-            // Pagamento maior que a fatura
-            limiteDisponivel += faturaAtual;
-            faturaAtual = 0.0;
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do pagamento deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Cartão inativo. Não é possível realizar pagamentos.");
+            }
+            
+            // Pagamento da fatura libera o limite
+            if (valor <= faturaAtual) {
+                faturaAtual -= valor;
+                limiteDisponivel += valor;
+            } else {
+                // Pagamento maior que a fatura
+                limiteDisponivel += faturaAtual;
+                faturaAtual = 0.0;
+            }
+        } finally {
+            trava.unlock();
         }
     }
     
     @Override
     public boolean sacar(double valor) throws Exception {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor da compra deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Cartão inativo. Não é possível realizar compras.");
-        }
-        
-        if (valor > limiteDisponivel) {
-            throw new Exception("LimiteExcedidoException: Limite do cartão excedido! Disponível: R$ " 
-                    + String.format("%.2f", limiteDisponivel));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor da compra deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Cartão inativo. Não é possível realizar compras.");
+            }
+            
+            if (valor > limiteDisponivel) {
+                throw new Exception("LimiteExcedidoException: Limite do cartão excedido! Disponível: R$ " 
+                        + String.format("%.2f", limiteDisponivel));
+            }
+            
+            limiteDisponivel -= valor;
+            faturaAtual += valor;
+            return true;
+        } finally {
+            trava.unlock();
         }
-        
-        limiteDisponivel -= valor;
-        faturaAtual += valor;
-        return true;
     }
     
     @Override
@@ -118,9 +142,9 @@ public class CartaoCredito implements ContaFinanceira, Serializable {
         extrato.append("=== EXTRATO CARTÃO DE CRÉDITO ===\n");
         extrato.append("Número: ").append(numeroConta).append("\n");
         extrato.append("Titular: ").append(titular.getNome()).append("\n");
-        extrato.append("Limite Total: R$ ").append(String.format("%.2f", limite)).append("\n");
-        extrato.append("Limite Disponível: R$ ").append(String.format("%.2f", limiteDisponivel)).append("\n");
-        extrato.append("Fatura Atual: R$ ").append(String.format("%.2f", faturaAtual)).append("\n");
+        Formatacao.anexarValor(extrato.append("Limite Total: R$ "), limite).append("\n");
+        Formatacao.anexarValor(extrato.append("Limite Disponível: R$ "), limiteDisponivel).append("\n");
+        Formatacao.anexarValor(extrato.append("Fatura Atual: R$ "), faturaAtual).append("\n");
         extrato.append("Data Fechamento: ").append(dataFechamento).append("\n");
         extrato.append("Data Vencimento: ").append(dataVencimento).append("\n");
         extrato.append("Status: ").append(ativa ? "Ativa" : "Inativa").append("\n");
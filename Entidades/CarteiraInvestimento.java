@@ -6,6 +6,7 @@ import Interfaces.*;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Classe que representa uma Carteira de Investimentos
 // Com diferentes perfis de risco e rentabilidade
@@ -14,10 +15,10 @@ public class CarteiraInvestimento implements ContaFinanceira, Serializable {
     
     private String numeroConta;
     private Usuario titular;
-    private double saldo;
+    private volatile double saldo;
     private String tipo; // "Conservador", "Moderado", "Arrojado"
     private double rentabilidade;
-    private boolean ativa;
+    private volatile boolean ativa;
     
     // CONSTRUTOR
     public CarteiraInvestimento(String numeroConta, Usuario titular, String tipo) {
@@ -29,6 +30,15 @@ public class CarteiraInvestimento implements ContaFinanceira, Serializable {
         this.ativa = true;
     }
     
+    // Reconstrói uma carteira gravada em arquivo com o saldo atual
+    public static CarteiraInvestimento restaurar(String numeroConta, Usuario titular, double saldo,
+                                                 String tipo, boolean ativa) {
+        CarteiraInvestimento carteira = new CarteiraInvestimento(numeroConta, titular, tipo);
+        carteira.saldo = saldo;
+        carteira.ativa = ativa;
+        return carteira;
+    }
+    
     private double calcularRentabilidade(String tipo) {
         return switch (tipo.toLowerCase()) {
             case "conservador" -> 0.5;
@@ -40,31 +50,43 @@ public class CarteiraInvestimento implements ContaFinanceira, Serializable {
     
     @Override
     public void depositar(double valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do aporte deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Carteira inativa. Não é possível realizar aportes.");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do aporte deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Carteira inativa. Não é possível realizar aportes.");
+            }
+            this.saldo += valor;
+        } finally {
+            trava.unlock();
         }
-        this.saldo += valor;
     }
     
     @Override
     public boolean sacar(double valor) throws Exception {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do resgate deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Carteira inativa. Não é possível realizar resgates.");
-        }
-        
-        if (valor > saldo) {
-            throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
-                    + String.format("%.2f", saldo));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do resgate deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Carteira inativa. Não é possível realizar resgates.");
+            }
+            
+            if (valor > saldo) {
+                throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
+                        + String.format("%.2f", saldo));
+            }
+            
+            this.saldo -= valor;
+            return true;
+        } finally {
+            trava.unlock();
         }
-        
-        this.saldo -= valor;
-        return true;
     }
     
     @Override
@@ -73,10 +95,16 @@ public class CarteiraInvestimento implements ContaFinanceira, Serializable {
     }
     
     public void aplicarRentabilidade() {
-        if (ativa && saldo > 0) {
-            double valorRentabilidade = saldo * (rentabilidade / 100);
-            saldo += valorRentabilidade;
-            System.out.println("Rentabilidade aplicada: R$ " + String.format("%.2f", valorRentabilidade));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (ativa && saldo > 0) {
+                double valorRentabilidade = saldo * (rentabilidade / 100);
+                saldo += valorRentabilidade;
+                System.out.println("Rentabilidade aplicada: R$ " + String.format("%.2f", valorRentabilidade));
+            }
+        } finally {
+            trava.unlock();
         }
     }
     
@@ -112,8 +140,8 @@ public class CarteiraInvestimento implements ContaFinanceira, Serializable {
         extrato.append("Número: ").append(numeroConta).append("\n");
         extrato.append("Titular: ").append(titular.getNome()).append("\n");
         extrato.append("Tipo: ").append(tipo).append("\n");
-        extrato.append("Saldo Investido: R$ ").append(String.format("%.2f", saldo)).append("\n");
-        extrato.append("Rentabilidade: ").append(String.format("%.2f", rentabilidade)).append("% a.m.\n");
+        Formatacao.anexarValor(extrato.append("Saldo Investido: R$ "), saldo).append("\n");
+        Formatacao.anexarValor(extrato.append("Rentabilidade: "), rentabilidade).append("% a.m.\n");
         extrato.append("Status: ").append(ativa ? "Ativa" : "Inativa").append("\n");
         return extrato.toString();
     }
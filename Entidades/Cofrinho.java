@@ -7,18 +7,19 @@ import java.io.Serializable;
 import java.time.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Classe que representa um cofrinho ou poupança virtual
 public class Cofrinho implements ContaFinanceira, Serializable {
     private static final long serialVersionUID = 1L;
     private String numeroConta;
     private Usuario titular;
-    private double saldo;
+    private volatile double saldo;
     private String objetivo;
     private double metaValor;
     private LocalDate dataCriacao;
     private LocalDate dataMetaPrazo;
-    private boolean ativa;
+    private volatile boolean ativa;
     
     // CONSTRUTOR
     public Cofrinho(String numeroConta, Usuario titular, String objetivo, double metaValor) {
@@ -38,31 +39,53 @@ public class Cofrinho implements ContaFinanceira, Serializable {
         this.dataMetaPrazo = dataMetaPrazo;
     }
     
+    // Reconstrói um cofrinho gravado em arquivo com o saldo e a data de criação originais
+    public static Cofrinho restaurar(String numeroConta, Usuario titular, double saldo, String objetivo,
+                                     double metaValor, LocalDate dataCriacao, LocalDate dataMetaPrazo, boolean ativa) {
+        Cofrinho cofrinho = new Cofrinho(numeroConta, titular, objetivo, metaValor, dataMetaPrazo);
+        cofrinho.saldo = saldo;
+        cofrinho.dataCriacao = dataCriacao;
+        cofrinho.ativa = ativa;
+        return cofrinho;
+    }
+    
     @Override
     public void depositar(double valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor de depósito deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Cofrinho está inativo");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor de depósito deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Cofrinho está inativo");
+            }
+            this.saldo += valor;
+        } finally {
+            trava.unlock();
         }
-        this.saldo += valor;
     }
     
     @Override
     public boolean sacar(double valor) throws Exception {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor de saque deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Cofrinho está inativo");
-        }
-        if (valor > saldo) {
-            throw new Exception("Saldo insuficiente no cofrinho");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor de saque deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Cofrinho está inativo");
+            }
+            if (valor > saldo) {
+                throw new Exception("Saldo insuficiente no cofrinho");
+            }
+            
+            this.saldo -= valor;
+            return true;
+        } finally {
+            trava.unlock();
         }
-        
-        this.saldo -= valor;
-        return true;
     }
     
     @Override
@@ -102,9 +125,9 @@ public class Cofrinho implements ContaFinanceira, Serializable {
         sb.append("Número: ").append(numeroConta).append("\n");
         sb.append("Titular: ").append(titular.getNome()).append("\n");
         sb.append("Objetivo: ").append(objetivo).append("\n");
-        sb.append("Saldo Atual: R$ ").append(String.format("%.2f", saldo)).append("\n");
-        sb.append("Meta: R$ ").append(String.format("%.2f", metaValor)).append("\n");
-        sb.append("Progresso: ").append(String.format("%.1f", getPercentualMeta())).append("%\n");
+        Formatacao.anexarValor(sb.append("Saldo Atual: R$ "), saldo).append("\n");
+        Formatacao.anexarValor(sb.append("Meta: R$ "), metaValor).append("\n");
+        Formatacao.anexarDecimal(sb.append("Progresso: "), getPercentualMeta(), 1, 0).append("%\n");
         sb.append("Status: ").append(ativa ? "Ativo" : "Inativo").append("\n");
         
         if (dataMetaPrazo != null) {
@@ -148,14 +171,20 @@ public class Cofrinho implements ContaFinanceira, Serializable {
     
     // "Quebrar" o cofrinho - saca todo o valor
     public double quebrarCofrinho() throws Exception {
-        if (!ativa) {
-            throw new IllegalStateException("Cofrinho já está inativo");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (!ativa) {
+                throw new IllegalStateException("Cofrinho já está inativo");
+            }
+            
+            double valorTotal = saldo;
+            saldo = 0;
+            ativa = false;
+            return valorTotal;
+        } finally {
+            trava.unlock();
         }
-        
-        double valorTotal = saldo;
-        saldo = 0;
-        ativa = false;
-        return valorTotal;
     }
     
     @Override
@@ -6,6 +6,7 @@ import Interfaces.*;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Classe que representa uma Conta Corrente tradicional
 // Possui saldo e limite de cheque especial
@@ -14,9 +15,9 @@ public class ContaCorrente implements ContaFinanceira, Serializable {
     
     private String numeroConta;
     private Usuario titular;
-    private double saldo;
+    private volatile double saldo;
     private double limiteChequeEspecial;
-    private boolean ativa;
+    private volatile boolean ativa;
     private double tarifaMensal;
     
     // CONSTRUTOR
@@ -29,36 +30,58 @@ public class ContaCorrente implements ContaFinanceira, Serializable {
         this.tarifaMensal = 15.90;
     }
     
+    // Reconstrói uma conta gravada em arquivo com o saldo e a configuração atuais
+    public static ContaCorrente restaurar(String numeroConta, Usuario titular, double saldo,
+                                          double limiteChequeEspecial, double tarifaMensal, boolean ativa) {
+        ContaCorrente conta = new ContaCorrente(numeroConta, titular, limiteChequeEspecial);
+        conta.saldo = saldo;
+        conta.tarifaMensal = tarifaMensal;
+        conta.ativa = ativa;
+        return conta;
+    }
+    
     @Override
     public void depositar(double valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do depósito deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Conta inativa. Não é possível realizar depósitos.");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do depósito deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Conta inativa. Não é possível realizar depósitos.");
+            }
+            this.saldo += valor;
+        } finally {
+            trava.unlock();
         }
-        this.saldo += valor;
     }
     
     @Override
     public boolean sacar(double valor) throws Exception {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do saque deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Conta inativa. Não é possível realizar saques.");
-        }
-        
-        // Verifica se há saldo disponível (saldo + cheque especial)
-        double saldoDisponivel = saldo + limiteChequeEspecial;
-        
-        if (valor > saldoDisponivel) {
-            throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
-                    + String.format("%.2f", saldoDisponivel));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do saque deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Conta inativa. Não é possível realizar saques.");
+            }
+            
+            // Verifica se há saldo disponível (saldo + cheque especial)
+            double saldoDisponivel = saldo + limiteChequeEspecial;
+            
+            if (valor > saldoDisponivel) {
+                throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
+                        + String.format("%.2f", saldoDisponivel));
+            }
+            
+            this.saldo -= valor;
+            return true;
+        } finally {
+            trava.unlock();
         }
-        
-        this.saldo -= valor;
-        return true;
     }
     
     @Override
@@ -109,11 +132,11 @@ public class ContaCorrente implements ContaFinanceira, Serializable {
         extrato.append("=== EXTRATO CONTA CORRENTE ===\n");
         extrato.append("Número: ").append(numeroConta).append("\n");
         extrato.append("Titular: ").append(titular.getNome()).append("\n");
-        extrato.append("Saldo: R$ ").append(String.format("%.2f", saldo)).append("\n");
-        extrato.append("Limite Cheque Especial: R$ ").append(String.format("%.2f", limiteChequeEspecial)).append("\n");
-        extrato.append("Saldo Disponível: R$ ").append(String.format("%.2f", getSaldoDisponivel())).append("\n");
+        Formatacao.anexarValor(extrato.append("Saldo: R$ "), saldo).append("\n");
+        Formatacao.anexarValor(extrato.append("Limite Cheque Especial: R$ "), limiteChequeEspecial).append("\n");
+        Formatacao.anexarValor(extrato.append("Saldo Disponível: R$ "), getSaldoDisponivel()).append("\n");
         extrato.append("Status: ").append(ativa ? "ATIVA" : "INATIVA").append("\n");
-        extrato.append("Tarifa Mensal: R$ ").append(String.format("%.2f", tarifaMensal)).append("\n");
+        Formatacao.anexarValor(extrato.append("Tarifa Mensal: R$ "), tarifaMensal).append("\n");
         extrato.append("==============================");
         return extrato.toString();
     }
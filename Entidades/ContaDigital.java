@@ -6,6 +6,7 @@ import Interfaces.*;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 // Classe que representa uma Conta Digital (como Nubank, Inter, etc)
 // Possui rendimento automático no saldo
@@ -14,9 +15,9 @@ public class ContaDigital implements ContaFinanceira, Serializable {
     
     private String numeroConta;
     private Usuario titular;
-    private double saldo;
+    private volatile double saldo;
     private double rendimento; // Percentual de rendimento mensal
-    private boolean ativa;
+    private volatile boolean ativa;
     
     // CONSTRUTOR
     public ContaDigital(String numeroConta, Usuario titular, double rendimento) {
@@ -27,33 +28,54 @@ public class ContaDigital implements ContaFinanceira, Serializable {
         this.ativa = true;
     }
     
+    // Reconstrói uma conta gravada em arquivo com o saldo atual
+    public static ContaDigital restaurar(String numeroConta, Usuario titular, double saldo,
+                                         double rendimento, boolean ativa) {
+        ContaDigital conta = new ContaDigital(numeroConta, titular, rendimento);
+        conta.saldo = saldo;
+        conta.ativa = ativa;
+        return conta;
+    }
+    
     @Override
     public void depositar(double valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do depósito deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Conta inativa. Não é possível realizar depósitos.");
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do depósito deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Conta inativa. Não é possível realizar depósitos.");
+            }
+            this.saldo += valor;
+        } finally {
+            trava.unlock();
         }
-        this.saldo += valor;
     }
     
     @Override
     public boolean sacar(double valor) throws Exception {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor do saque deve ser positivo");
-        }
-        if (!ativa) {
-            throw new IllegalStateException("Conta inativa. Não é possível realizar saques.");
-        }
-        
-        if (valor > saldo) {
-            throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
-                    + String.format("%.2f", saldo));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (valor <= 0) {
+                throw new IllegalArgumentException("Valor do saque deve ser positivo");
+            }
+            if (!ativa) {
+                throw new IllegalStateException("Conta inativa. Não é possível realizar saques.");
+            }
+            
+            if (valor > saldo) {
+                throw new Exception("SaldoInsuficienteException: Saldo insuficiente. Disponível: R$ " 
+                        + String.format("%.2f", saldo));
+            }
+            
+            this.saldo -= valor;
+            return true;
+        } finally {
+            trava.unlock();
         }
-        
-        this.saldo -= valor;
-        return true;
     }
     
     @Override
@@ -63,10 +85,16 @@ public class ContaDigital implements ContaFinanceira, Serializable {
     
     // Aplica o rendimento mensal no saldo
     public void aplicarRendimento() {
-        if (ativa && saldo > 0) {
-            double valorRendimento = saldo * (rendimento / 100);
-            saldo += valorRendimento;
-            System.out.println("Rendimento aplicado: R$ " + String.format("%.2f", valorRendimento));
+        ReentrantLock trava = TravasContas.trava(this);
+        trava.lock();
+        try {
+            if (ativa && saldo > 0) {
+                double valorRendimento = saldo * (rendimento / 100);
+                saldo += valorRendimento;
+                System.out.println("Rendimento aplicado: R$ " + String.format("%.2f", valorRendimento));
+            }
+        } finally {
+            trava.unlock();
         }
     }
     
@@ -101,8 +129,8 @@ public class ContaDigital implements ContaFinanceira, Serializable {
         extrato.append("=== EXTRATO CONTA DIGITAL ===\n");
         extrato.append("Número: ").append(numeroConta).append("\n");
         extrato.append("Titular: ").append(titular.getNome()).append("\n");
-        extrato.append("Saldo: R$ ").append(String.format("%.2f", saldo)).append("\n");
-        extrato.append("Rendimento: ").append(String.format("%.2f", rendimento)).append("% a.m.\n");
+        Formatacao.anexarValor(extrato.append("Saldo: R$ "), saldo).append("\n");
+        Formatacao.anexarValor(extrato.append("Rendimento: "), rendimento).append("% a.m.\n");
         extrato.append("Status: ").append(ativa ? "Ativa" : "Inativa").append("\n");
         return extrato.toString();
     }
@@ -0,0 +1,211 @@
+package Entidades;
+
+import java.io.*;
+import java.math.*;
+import java.text.DecimalFormatSymbols;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+// Formatação de valores e datas direto num StringBuilder, sem passar pelo Formatter:
+// String.format monta um Formatter, faz o parse do padrão e cria as strings
+// intermediárias a cada chamada, o que pesa em relatórios e listagens com milhares de
+// linhas. A saída é a mesma de String.format no locale padrão: "%.2f" vira
+// anexarValor, "%9.2f" anexarValor com largura 9, "%-12s" anexarTexto com largura -12.
+// As datas dd/MM/yyyy ficam guardadas por dia (epoch day) depois da primeira vez.
+public final class Formatacao {
+    private static final DateTimeFormatter DIA_MES_ANO = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    
+    // Dias guardados: de 1900 a 2199, em blocos de 512 criados quando usados
+    private static final long PRIMEIRO_DIA = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final long ULTIMO_DIA = LocalDate.of(2199, 12, 31).toEpochDay();
+    private static final int BITS_BLOCO = 9;
+    private static final String[][] datas = new String[(int) ((ULTIMO_DIA - PRIMEIRO_DIA) >> BITS_BLOCO) + 1][];
+    
+    // Com o valor já escalado abaixo disso, o erro da multiplicação e a distância até a
+    // representação decimal mais curta somam menos de 2e-5 unidades, longe da
+    // TOLERANCIA; acima (ou perto do meio) o arredondamento vai pelo BigDecimal
+    private static final double LIMITE_RAPIDO = 1e11;
+    private static final double TOLERANCIA = 1e-4;
+    private static final long[] POTENCIAS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+    
+    // Separador decimal do locale de formatação; refeito se o locale padrão mudar
+    private record Simbolos(Locale locale, char separador, boolean digitosLatinos) {}
+    
+    private static volatile Simbolos simbolos;
+    
+    private Formatacao() {
+    }
+    
+    // Como String.format("%.2f", valor)
+    public static StringBuilder anexarValor(StringBuilder sb, double valor) {
+        return anexarDecimal(sb, valor, 2, 0);
+    }
+    
+    // Como String.format("%<largura>.2f", valor): alinhado à direita com espaços
+    public static StringBuilder anexarValor(StringBuilder sb, double valor, int largura) {
+        return anexarDecimal(sb, valor, 2, largura);
+    }
+    
+    // Como String.format("%<largura>.<casas>f", valor), para 0 a 6 casas
+    public static StringBuilder anexarDecimal(StringBuilder sb, double valor, int casas, int largura) {
+        if (casas < 0 || casas >= POTENCIAS.length) {
+            throw new IllegalArgumentException("Casas decimais fora do intervalo: " + casas);
+        }
+        Simbolos s = simbolos();
+        double absoluto = Math.abs(valor);
+        long unidades = Double.isFinite(valor) && s.digitosLatinos() ? arredondar(absoluto, casas) : -1;
+        if (unidades < 0) {
+            // NaN, infinito, valores enormes ou dígitos não latinos: fica com o Formatter
+            return anexarTexto(sb, String.format(casas == 2 ? "%.2f" : "%." + casas + "f", valor), largura);
+        }
+        long escala = POTENCIAS[casas];
+        long inteiro = unidades / escala;
+        long fracao = unidades % escala;
+        // O Formatter mantém o sinal de -0.0 e de negativos que arredondam para zero
+        boolean negativo = valor < 0 || Double.doubleToRawLongBits(valor) == Long.MIN_VALUE;
+        int tamanho = (negativo ? 1 : 0) + digitos(inteiro) + (casas > 0 ? casas + 1 : 0);
+        completar(sb, largura - tamanho);
+        if (negativo) {
+            sb.append('-');
+        }
+        sb.append(inteiro);
+        if (casas > 0) {
+            sb.append(s.separador());
+            for (long p = escala / 10; p > 0; p /= 10) {
+                sb.append((char) ('0' + fracao / p % 10));
+            }
+        }
+        return sb;
+    }
+    
+    // Como %-<n>s (largura negativa) ou %<n>s (positiva); 0 é só o texto
+    public static StringBuilder anexarTexto(StringBuilder sb, CharSequence texto, int largura) {
+        CharSequence t = texto == null ? "null" : texto;
+        if (largura > 0) {
+            completar(sb, largura - t.length());
+        }
+        sb.append(t);
+        if (largura < 0) {
+            completar(sb, -largura - t.length());
+        }
+        return sb;
+    }
+    
+    // Como %-<n>d ou %<n>d
+    public static StringBuilder anexarInteiro(StringBuilder sb, long valor, int largura) {
+        if (valor == Long.MIN_VALUE) {
+            return anexarTexto(sb, Long.toString(valor), largura);
+        }
+        int tamanho = digitos(Math.abs(valor)) + (valor < 0 ? 1 : 0);
+        if (largura > 0) {
+            completar(sb, largura - tamanho);
+        }
+        sb.append(valor);
+        if (largura < 0) {
+            completar(sb, -largura - tamanho);
+        }
+        return sb;
+    }
+    
+    // dd/MM/yyyy, a mesma string para o mesmo dia
+    public static String data(LocalDate data) {
+        long dia = data.toEpochDay();
+        if (dia < PRIMEIRO_DIA || dia > ULTIMO_DIA) {
+            return data.format(DIA_MES_ANO);
+        }
+        int posicao = (int) (dia - PRIMEIRO_DIA);
+        String[] bloco = datas[posicao >> BITS_BLOCO];
+        if (bloco == null) {
+            bloco = new String[1 << BITS_BLOCO];
+            datas[posicao >> BITS_BLOCO] = bloco;
+        }
+        // Corrida entre threads só faz a mesma string ser montada duas vezes
+        String texto = bloco[posicao & ((1 << BITS_BLOCO) - 1)];
+        if (texto == null) {
+            char[] c = new char[10];
+            doisDigitos(c, 0, data.getDayOfMonth());
+            c[2] = '/';
+            doisDigitos(c, 3, data.getMonthValue());
+            c[5] = '/';
+            doisDigitos(c, 6, data.getYear() / 100);
+            doisDigitos(c, 8, data.getYear() % 100);
+            texto = new String(c);
+            bloco[posicao & ((1 << BITS_BLOCO) - 1)] = texto;
+        }
+        return texto;
+    }
+    
+    // yyyy-MM-dd, como LocalDate.toString, escrito direto no StringBuilder
+    public static StringBuilder anexarDataIso(StringBuilder sb, LocalDate data) {
+        if (data == null || data.getYear() < 1000 || data.getYear() > 9999) {
+            return sb.append(data);
+        }
+        int ano = data.getYear();
+        sb.append(ano).append('-');
+        if (data.getMonthValue() < 10) {
+            sb.append('0');
+        }
+        sb.append(data.getMonthValue()).append('-');
+        if (data.getDayOfMonth() < 10) {
+            sb.append('0');
+        }
+        return sb.append(data.getDayOfMonth());
+    }
+    
+    // Copia o texto para a saída; num Writer passa pelo vetor de apoio em vez de criar
+    // uma String (Writer.append(CharSequence) chama toString)
+    public static void escrever(StringBuilder sb, Appendable saida, char[] apoio) throws IOException {
+        if (saida instanceof Writer writer && apoio.length >= sb.length()) {
+            sb.getChars(0, sb.length(), apoio, 0);
+            writer.write(apoio, 0, sb.length());
+        } else {
+            saida.append(sb);
+        }
+    }
+    
+    // Unidades da última casa (centavos com 2 casas) arredondadas como o Formatter:
+    // meio para cima sobre a representação decimal mais curta do double. Longe do
+    // meio a conta em double decide igual; perto dele vai pelo BigDecimal. -1 quando
+    // não cabe num long.
+    private static long arredondar(double absoluto, int casas) {
+        double escalado = absoluto * POTENCIAS[casas];
+        double resto = escalado - Math.floor(escalado);
+        if (escalado < LIMITE_RAPIDO && Math.abs(resto - 0.5) > TOLERANCIA) {
+            return (long) Math.floor(escalado + 0.5);
+        }
+        BigInteger unidades = new BigDecimal(Double.toString(absoluto)).setScale(casas, RoundingMode.HALF_UP)
+            .unscaledValue();
+        return unidades.bitLength() < 63 ? unidades.longValue() : -1;
+    }
+    
+    private static Simbolos simbolos() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Simbolos s = simbolos;
+        if (s == null || s.locale() != locale) {
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(locale);
+            s = new Simbolos(locale, dfs.getDecimalSeparator(), dfs.getZeroDigit() == '0');
+            simbolos = s;
+        }
+        return s;
+    }
+    
+    private static int digitos(long valor) {
+        int n = 1;
+        for (long v = valor; v >= 10; v /= 10) {
+            n++;
+        }
+        return n;
+    }
+    
+    private static void doisDigitos(char[] c, int posicao, int valor) {
+        c[posicao] = (char) ('0' + valor / 10);
+        c[posicao + 1] = (char) ('0' + valor % 10);
+    }
+    
+    private static void completar(StringBuilder sb, int espacos) {
+        for (int i = 0; i < espacos; i++) {
+            sb.append(' ');
+        }
+    }
+}
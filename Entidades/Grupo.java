@@ -33,6 +33,23 @@ public class Grupo extends Usuario {
         this.quantidadeMembros = 0;
     }
 
+    // Reconstrói um grupo gravado em arquivo; os membros vêm depois, em restaurarMembros,
+    // porque podem ter sido gravados depois do grupo
+    public static Grupo restaurar(String id, String nome, String email, int limiteMaximoMembros) {
+        Grupo grupo = new Grupo(nome, nome);
+        grupo.setEmail(email);
+        grupo.restaurarId(id);
+        grupo.limiteMaximoMembros = limiteMaximoMembros;
+        grupo.membros = new UsuarioIndividual[limiteMaximoMembros];
+        return grupo;
+    }
+
+    public void restaurarMembros(UsuarioIndividual administrador, UsuarioIndividual[] membros) {
+        this.administrador = administrador;
+        this.membros = Arrays.copyOf(membros, Math.max(limiteMaximoMembros, membros.length));
+        this.quantidadeMembros = membros.length;
+    }
+
     @Override
     public boolean podeCriarLancamento() {
         // Grupo pode criar lançamento se tiver pelo menos um membro ativo
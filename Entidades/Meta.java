@@ -23,6 +23,9 @@ public class Meta implements Serializable, Calculavel, Exportavel {
     private Usuario responsavel;
     private boolean alcancada;
     
+    // Conta as alterações feitas depois da criação (usada pelo snapshot incremental)
+    private transient volatile int versaoAlteracao;
+    
     // CONSTRUTOR
     public Meta(String nome, Categoria categoria, double valorAlvo, 
                 LocalDate prazo, Usuario responsavel) {
@@ -36,6 +39,16 @@ public class Meta implements Serializable, Calculavel, Exportavel {
         this.alcancada = false;
     }
     
+    // Reconstrói uma meta gravada em arquivo com o progresso já acumulado
+    public static Meta restaurar(String nome, Categoria categoria, double valorAlvo, double valorAtual,
+                                 LocalDate dataInicio, LocalDate prazo, Usuario responsavel, boolean alcancada) {
+        Meta meta = new Meta(nome, categoria, valorAlvo, prazo, responsavel);
+        meta.valorAtual = valorAtual;
+        meta.dataInicio = dataInicio;
+        meta.alcancada = alcancada;
+        return meta;
+    }
+    
     // Atualiza o progresso da meta
     public void atualizarProgresso(double valor) {
         if (valor < 0) {
@@ -46,6 +59,7 @@ public class Meta implements Serializable, Calculavel, Exportavel {
         if (valorAtual >= valorAlvo) {
             alcancada = true;
         }
+        versaoAlteracao++;
     }
     
     // Retorna o percentual de conclusão da meta
@@ -124,11 +138,12 @@ public class Meta implements Serializable, Calculavel, Exportavel {
     public LocalDate getDataInicio() { return dataInicio; }
     public LocalDate getPrazo() { return prazo; }
     public Usuario getResponsavel() { return responsavel; }
+    public int getVersaoAlteracao() { return versaoAlteracao; }
     
     // SETTERS
-    public void setNome(String nome) { this.nome = nome; }
-    public void setValorAlvo(double valorAlvo) { this.valorAlvo = valorAlvo; }
-    public void setPrazo(LocalDate prazo) { this.prazo = prazo; }
+    public void setNome(String nome) { this.nome = nome; versaoAlteracao++; }
+    public void setValorAlvo(double valorAlvo) { this.valorAlvo = valorAlvo; versaoAlteracao++; }
+    public void setPrazo(LocalDate prazo) { this.prazo = prazo; versaoAlteracao++; }
 
     // IMPLEMENTAÇÃO DE INTERFACES
     @Override
@@ -23,6 +23,9 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
     private boolean alertaEnviado;
     private double percentualAlerta; // Percentual para enviar alerta (ex: 80% = 0.8)
     
+    // Conta as alterações feitas depois da criação (usada pelo snapshot incremental)
+    private transient volatile int versaoAlteracao;
+    
     // CONSTRUTOR
     public Orcamento(String nome, Categoria categoria, double limiteValor, 
                      YearMonth mesReferencia, Usuario responsavel) {
@@ -41,12 +44,24 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
         this(nome, categoria, limiteValor, YearMonth.now(), responsavel);
     }
     
+    // Reconstrói um orçamento gravado em arquivo com o gasto já acumulado
+    public static Orcamento restaurar(String nome, Categoria categoria, double limiteValor, double valorGasto,
+                                      YearMonth mesReferencia, Usuario responsavel,
+                                      boolean alertaEnviado, double percentualAlerta) {
+        Orcamento orcamento = new Orcamento(nome, categoria, limiteValor, mesReferencia, responsavel);
+        orcamento.valorGasto = valorGasto;
+        orcamento.alertaEnviado = alertaEnviado;
+        orcamento.percentualAlerta = percentualAlerta;
+        return orcamento;
+    }
+    
     // Adiciona um gasto ao orçamento
     public void adicionarGasto(double valor) {
         if (valor <= 0) {
             throw new IllegalArgumentException("Valor deve ser positivo");
         }
         this.valorGasto += valor;
+        versaoAlteracao++;
     }
     
     // Remove um gasto (caso de estorno)
@@ -55,6 +70,7 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
             throw new IllegalArgumentException("Valor deve ser positivo");
         }
         this.valorGasto = Math.max(0, this.valorGasto - valor);
+        versaoAlteracao++;
     }
     
     // Retorna o valor disponível no orçamento
@@ -86,11 +102,13 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
     // Marca que o alerta foi enviado
     public void marcarAlertaEnviado() {
         this.alertaEnviado = true;
+        versaoAlteracao++;
     }
     
     // Reseta o alerta (para permitir novo envio se necessário)
     public void resetarAlerta() {
         this.alertaEnviado = false;
+        versaoAlteracao++;
     }
     
     // Verifica se o orçamento pertence ao mês atual
@@ -111,6 +129,7 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
     public void resetar() {
         this.valorGasto = 0.0;
         this.alertaEnviado = false;
+        versaoAlteracao++;
     }
 
     public String gerarRelatorio() {
@@ -135,20 +154,23 @@ public class Orcamento implements Serializable, Calculavel, Exportavel {
     public Usuario getResponsavel() { return responsavel; }
     public boolean isAlertaEnviado() { return alertaEnviado; }
     public double getPercentualAlerta() { return percentualAlerta; }
+    public int getVersaoAlteracao() { return versaoAlteracao; }
     
     // SETTERS
-    public void setNome(String nome) { this.nome = nome; }
+    public void setNome(String nome) { this.nome = nome; versaoAlteracao++; }
     public void setLimiteValor(double limiteValor) { 
         if (limiteValor < 0) {
             throw new IllegalArgumentException("Limite deve ser positivo");
         }
         this.limiteValor = limiteValor; 
+        versaoAlteracao++;
     }
     public void setPercentualAlerta(double percentualAlerta) {
         if (percentualAlerta < 0 || percentualAlerta > 1) {
             throw new IllegalArgumentException("Percentual deve estar entre 0 e 1");
         }
         this.percentualAlerta = percentualAlerta;
+        versaoAlteracao++;
     }
 
     // IMPLEMENTAÇÃO DE INTERFACES
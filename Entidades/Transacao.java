@@ -9,11 +9,12 @@ import java.time.LocalDate;
 import java.util.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Classe que representa uma transação financeira
 public class Transacao implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int contadorId = 1;
+    private static final AtomicInteger contadorId = new AtomicInteger(1);
     private int id;
     private TipoTransacao tipo;
     private Categoria categoria;
@@ -31,10 +32,14 @@ public class Transacao implements Serializable {
     private List<String> anexos; // Lista de caminhos de arquivos anexados (simulado)
     private boolean estornada;
     
+    // Conta as alterações feitas depois da criação; o snapshot incremental compara
+    // a soma destas versões para saber quais meses precisa regravar
+    private transient volatile int versaoAlteracao;
+    
     // CONSTRUTOR principal
     public Transacao(TipoTransacao tipo, Categoria categoria, double valor, 
                      String descricao, Usuario pagador, ContaFinanceira contaOrigem) {
-        this.id = contadorId++;
+        this.id = contadorId.getAndIncrement();
         this.tipo = tipo;
         this.categoria = categoria;
         this.subcategoria = null;
@@ -53,7 +58,7 @@ public class Transacao implements Serializable {
     // CONSTRUTOR para transferências
     public Transacao(double valor, String descricao, Usuario pagador, 
                      ContaFinanceira contaOrigem, ContaFinanceira contaDestino) {
-        this.id = contadorId++;
+        this.id = contadorId.getAndIncrement();
         this.tipo = TipoTransacao.TRANSFERENCIA;
         this.categoria = Categoria.OUTROS;
         this.subcategoria = null;
@@ -70,8 +75,53 @@ public class Transacao implements Serializable {
         this.estornada = false;
     }
     
-    // Executa a transação
+    // CONSTRUTOR usado na restauração: recebe id e data gravados, sem consumir
+    // um id novo do contador
+    private Transacao(int id, TipoTransacao tipo, Categoria categoria, double valor, LocalDate data,
+                      String descricao, Usuario pagador, ContaFinanceira contaOrigem) {
+        this.id = id;
+        this.tipo = tipo;
+        this.categoria = categoria;
+        this.subcategoria = null;
+        this.valor = valor;
+        this.data = data;
+        this.descricao = descricao;
+        this.pagador = pagador;
+        this.contaOrigem = contaOrigem;
+        this.recorrente = false;
+        this.parcelas = 1;
+        this.parcelaAtual = 1;
+        this.anexos = new ArrayList<>();
+        this.estornada = false;
+    }
+    
+    // Reconstrói uma transação gravada em arquivo mantendo o id original
+    public static Transacao restaurar(int id, TipoTransacao tipo, Categoria categoria, double valor,
+                                      LocalDate data, String descricao, Usuario pagador, ContaFinanceira contaOrigem) {
+        return restaurar(id, tipo, categoria, valor, data, descricao, pagador, contaOrigem, false);
+    }
+    
+    // estornada só marca a transação; os saldos gravados já refletem o estorno
+    public static Transacao restaurar(int id, TipoTransacao tipo, Categoria categoria, double valor,
+                                      LocalDate data, String descricao, Usuario pagador,
+                                      ContaFinanceira contaOrigem, boolean estornada) {
+        Transacao transacao = new Transacao(id, tipo, categoria, valor, data, descricao, pagador, contaOrigem);
+        transacao.estornada = estornada;
+        sincronizarContadorId(id);
+        return transacao;
+    }
+    
+    // Evita que novas transações repitam ids de transações carregadas do arquivo
+    public static void sincronizarContadorId(int idExistente) {
+        contadorId.accumulateAndGet(idExistente + 1, Math::max);
+    }
+    
+    // Executa a transação, travando apenas as contas envolvidas
     public boolean executar() throws Exception {
+        return TravasContas.executar(contaOrigem, contaDestino, this::executarSaldos);
+    }
+    
+    private boolean executarSaldos() throws Exception {
         switch (tipo) {
             case RECEITA:
                 contaOrigem.depositar(valor);
@@ -109,8 +159,12 @@ public class Transacao implements Serializable {
         return nova;
     }
     
-    // Estorna a transação (reverte a operação)
+    // Estorna a transação (reverte a operação) com as contas envolvidas travadas
     public boolean estornar() throws Exception {
+        return TravasContas.executar(contaOrigem, contaDestino, this::estornarSaldos);
+    }
+    
+    private boolean estornarSaldos() throws Exception {
         if (estornada) {
             throw new IllegalStateException("Transação já foi estornada");
         }
@@ -144,6 +198,7 @@ public class Transacao implements Serializable {
         
         if (sucesso) {
             estornada = true;
+            versaoAlteracao++;
         }
         
         return sucesso;
@@ -153,12 +208,17 @@ public class Transacao implements Serializable {
     public void adicionarAnexo(String caminhoArquivo) {
         if (caminhoArquivo != null && !caminhoArquivo.trim().isEmpty()) {
             anexos.add(caminhoArquivo);
+            versaoAlteracao++;
         }
     }
     
     // Remove um anexo
     public boolean removerAnexo(String caminhoArquivo) {
-        return anexos.remove(caminhoArquivo);
+        boolean removido = anexos.remove(caminhoArquivo);
+        if (removido) {
+            versaoAlteracao++;
+        }
+        return removido;
     }
     
     // Lista todos os anexos
@@ -181,7 +241,7 @@ public class Transacao implements Serializable {
         StringBuilder sb = new StringBuilder();
         sb.append("ID: ").append(id).append(" | ");
         sb.append(tipo.getNome()).append(" | ");
-        sb.append("R$ ").append(String.format("%.2f", valor)).append(" | ");
+        Formatacao.anexarValor(sb.append("R$ "), valor).append(" | ");
         sb.append(categoria.getNome());
         
         if (subcategoria != null) {
@@ -189,7 +249,7 @@ public class Transacao implements Serializable {
         }
         
         sb.append(" | ");
-        sb.append(data).append(" | ");
+        Formatacao.anexarDataIso(sb, data).append(" | ");
         sb.append(descricao);
         
         if (parcelas > 1) {
@@ -224,17 +284,19 @@ public class Transacao implements Serializable {
     public int getParcelas() { return parcelas; }
     public int getParcelaAtual() { return parcelaAtual; }
     public boolean isEstornada() { return estornada; }
+    public int getVersaoAlteracao() { return versaoAlteracao; }
     
     // SETTERS
-    public void setBeneficiario(Usuario beneficiario) { this.beneficiario = beneficiario; }
-    public void setContaDestino(ContaFinanceira contaDestino) { this.contaDestino = contaDestino; }
-    public void setRecorrente(boolean recorrente) { this.recorrente = recorrente; }
-    public void setParcelas(int parcelas) { this.parcelas = parcelas; }
-    public void setParcelaAtual(int parcelaAtual) { this.parcelaAtual = parcelaAtual; }
-    public void setData(LocalDate data) { this.data = data; }
+    public void setBeneficiario(Usuario beneficiario) { this.beneficiario = beneficiario; versaoAlteracao++; }
+    public void setContaDestino(ContaFinanceira contaDestino) { this.contaDestino = contaDestino; versaoAlteracao++; }
+    public void setRecorrente(boolean recorrente) { this.recorrente = recorrente; versaoAlteracao++; }
+    public void setParcelas(int parcelas) { this.parcelas = parcelas; versaoAlteracao++; }
+    public void setParcelaAtual(int parcelaAtual) { this.parcelaAtual = parcelaAtual; versaoAlteracao++; }
+    public void setData(LocalDate data) { this.data = data; versaoAlteracao++; }
     public void setSubcategoria(String subcategoria) {
         if (categoria != null && categoria.temSubcategoria(subcategoria)) {
             this.subcategoria = subcategoria;
+            versaoAlteracao++;
         } else {
             throw new IllegalArgumentException("Subcategoria inválida para esta categoria");
         }
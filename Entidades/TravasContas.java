@@ -0,0 +1,82 @@
+package Entidades;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Travas de saldo por conta, distribuídas em faixas pelo número da conta (lock striping).
+// Operações em contas de faixas diferentes correm em paralelo; quando duas contas são
+// envolvidas (transferência), as travas são tomadas sempre na ordem das faixas,
+// o que evita deadlock entre transferências em sentidos opostos.
+public final class TravasContas {
+    private static final int FAIXAS = 256;
+    private static final ReentrantLock[] travas = new ReentrantLock[FAIXAS];
+
+    static {
+        for (int i = 0; i < FAIXAS; i++) {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Operacao<T> {
+        T executar() throws Exception;
+    }
+
+    private TravasContas() {
+    }
+
+    public static <T> T executar(ContaFinanceira conta, Operacao<T> operacao) throws Exception {
+        return executar(conta, null, operacao);
+    }
+
+    public static <T> T executar(ContaFinanceira conta, ContaFinanceira outra, Operacao<T> operacao) throws Exception {
+        int faixa = faixa(conta);
+        int outraFaixa = faixa(outra);
+        int primeira = Math.min(faixa, outraFaixa);
+        int segunda = Math.max(faixa, outraFaixa);
+
+        // Contas nulas ficam com faixa -1 e não travam nada
+        if (primeira >= 0) travas[primeira].lock();
+        if (segunda >= 0 && segunda != primeira) travas[segunda].lock();
+        try {
+            return operacao.executar();
+        } finally {
+            if (segunda >= 0 && segunda != primeira) travas[segunda].unlock();
+            if (primeira >= 0) travas[primeira].unlock();
+        }
+    }
+
+    // Várias contas ao mesmo tempo (ex.: lote importado), com as faixas tomadas em ordem
+    public static <T> T executar(Collection<? extends ContaFinanceira> contas, Operacao<T> operacao) throws Exception {
+        int[] faixas = contas.stream().mapToInt(TravasContas::faixa).filter(f -> f >= 0).distinct().sorted().toArray();
+        int travadas = 0;
+        try {
+            for (int f : faixas) {
+                travas[f].lock();
+                travadas++;
+            }
+            return operacao.executar();
+        } finally {
+            for (int i = travadas - 1; i >= 0; i--) {
+                travas[faixas[i]].unlock();
+            }
+        }
+    }
+
+    // Trava da faixa da conta. As próprias contas a tomam em depósitos e saques chamados
+    // direto, fora de executar; como é reentrante, dentro de executar não bloqueia.
+    // Os saldos são voláteis, então consultarSaldo lê sem travar.
+    public static ReentrantLock trava(ContaFinanceira conta) {
+        return travas[faixa(conta)];
+    }
+
+    private static int faixa(ContaFinanceira conta) {
+        if (conta == null) {
+            return -1;
+        }
+        String numero = conta.getNumeroConta();
+        int hash = numero != null ? numero.hashCode() : System.identityHashCode(conta);
+        hash ^= (hash >>> 16);
+        return hash & (FAIXAS - 1);
+    }
+}
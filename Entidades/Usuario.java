@@ -6,20 +6,37 @@ import Interfaces.*;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class Usuario implements Serializable {
     private static final long serialVersionUID = 1L;
-    private static int contadorId = 1;
+    private static final AtomicInteger contadorId = new AtomicInteger(1);
     private String id;
     private String nome;
     private String email;
 
     protected Usuario(String nome, String email) {
-        this.id = String.valueOf(contadorId++);
+        this.id = String.valueOf(contadorId.getAndIncrement());
         this.nome = nome;
         this.email = email;
     }
 
+    // Evita que novos usuários repitam ids de usuários carregados do arquivo
+    public static void sincronizarContadorId(String idExistente) {
+        try {
+            int id = Integer.parseInt(idExistente);
+            contadorId.accumulateAndGet(id + 1, Math::max);
+        } catch (NumberFormatException e) {
+            // Ids não numéricos não interferem no contador
+        }
+    }
+
+    // Usado pelas subclasses ao reconstruir um usuário gravado em arquivo
+    void restaurarId(String idGravado) {
+        this.id = idGravado;
+        sincronizarContadorId(idGravado);
+    }
+
 // GETTERS
     public String getId() {
         return id;
@@ -27,6 +27,14 @@ public class UsuarioIndividual extends Usuario {
         this.ativo = true;
     }
 
+    // Reconstrói um usuário gravado em arquivo mantendo o id original
+    public static UsuarioIndividual restaurar(String id, String nome, String email, String cpf,
+                                              String perfil, boolean ativo) {
+        UsuarioIndividual usuario = new UsuarioIndividual(nome, email, cpf, perfil, ativo);
+        usuario.restaurarId(id);
+        return usuario;
+    }
+
 // MÉTODOS IMPLEMENTADOS
     @Override
     public boolean podeCriarLancamento() {
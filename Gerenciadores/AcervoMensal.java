@@ -0,0 +1,630 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import Interfaces.*;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.*;
+
+// Acervo dos meses fechados: as transações de um mês saem da memória e vão para um
+// arquivo comprimido (GZIP) só delas, com os totais do mês num cabeçalho sem
+// compressão. Abrir o acervo lê só os cabeçalhos, então a soma de um mês inteiro sai
+// dos totais e as transações só são montadas quando alguém pede aquele mês (os
+// relatórios guardam os meses lidos num cache, ver PaginadorAcervo).
+// A busca por id e as listagens do gerenciador também passam por aqui: como no
+// ArquivoTransacoes, o mês montado para elas fica guardado e devolve os mesmos
+// objetos nas chamadas seguintes. Um mês só é montado quando a busca ou a listagem
+// chega nele; a busca por id usa a faixa de ids do cabeçalho para ir direto ao mês.
+//
+// Arquivo (AAAA-MM.sequência.acervo): [int MAGICO][int VERSAO][int tamanho do cabeçalho]
+//                                     [cabeçalho][GZIP: transações em ordem de data]
+// Cabeçalho: [int quantidade][int maior id][totais por tipo][totais por tipo e categoria]
+//            [receitas e despesas por titular (id), sem as estornadas]
+//            [por tipo e categoria (ou sem): soma, quantidade, menor e maior] (versão 2)
+//            [int menor id] (versão 3)
+// Usuários e contas vão pelo id e pelo número e são resolvidos no gerenciador ao ler.
+//
+// O acervo não muda: arquivar mais meses grava arquivos novos (um mês que já estava
+// no acervo ganha a sequência seguinte) e devolve outro acervo. Quais arquivos valem
+// é o snapshot que diz (Volume); os que sobram são apagados depois que ele é gravado.
+// Um mês devolvido à memória (semMes) deixa o arquivo para trás; a sequência nova de
+// um mês conta os arquivos da pasta, então um arquivo antigo nunca é reescrito.
+public class AcervoMensal {
+    private static final int MAGICO = 0x46494E41; // "FINA"
+    // A versão 1 não tem os grupos no cabeçalho; o mês dela é lido inteiro quando
+    // um relatório precisa de quantidade, menor ou maior. Antes da 3 não há o menor
+    // id, e a busca por id confere todo mês com maior id a partir do procurado.
+    private static final int VERSAO = 3;
+    private static final String EXTENSAO = ".acervo";
+    
+    private static final byte RECORRENTE = 1;
+    private static final byte ESTORNADA = 2;
+    
+    // Mês e sequência do arquivo que vale para ele
+    public record Volume(YearMonth mes, int sequencia) {
+        private String nomeArquivo() {
+            return String.format("%04d-%02d.%d%s", mes.getYear(), mes.getMonthValue(), sequencia, EXTENSAO);
+        }
+    }
+    
+    private final Path pasta;
+    private final GerenciadorFinanceiro gerenciador;
+    private final NavigableMap<YearMonth, ResumoMes> meses;
+    
+    // Meses montados para a busca por id e as listagens
+    private final Map<YearMonth, List<Transacao>> materializados;
+    
+    private AcervoMensal(Path pasta, GerenciadorFinanceiro gerenciador, NavigableMap<YearMonth, ResumoMes> meses,
+                         Map<YearMonth, List<Transacao>> materializados) {
+        this.pasta = pasta;
+        this.gerenciador = gerenciador;
+        this.meses = meses;
+        this.materializados = materializados;
+    }
+    
+    public static AcervoMensal vazio(Path pasta, GerenciadorFinanceiro gerenciador) {
+        return new AcervoMensal(pasta, gerenciador, new TreeMap<>(), new ConcurrentHashMap<>());
+    }
+    
+    // Lê só os cabeçalhos dos volumes indicados
+    public static AcervoMensal abrir(Path pasta, Collection<Volume> volumes, GerenciadorFinanceiro gerenciador)
+            throws IOException {
+        NavigableMap<YearMonth, ResumoMes> meses = new TreeMap<>();
+        for (Volume volume : volumes) {
+            try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(pasta.resolve(volume.nomeArquivo()))))) {
+                int versao = lerInicio(entrada, volume);
+                byte[] cabecalho = new byte[entrada.readInt()];
+                entrada.readFully(cabecalho);
+                meses.put(volume.mes(),
+                    ResumoMes.ler(volume, versao, new DataInputStream(new ByteArrayInputStream(cabecalho))));
+            }
+        }
+        return new AcervoMensal(pasta, gerenciador, meses, new ConcurrentHashMap<>());
+    }
+    
+    // Devolve a versão; o próximo int é o tamanho do cabeçalho
+    private static int lerInicio(DataInputStream entrada, Volume volume) throws IOException {
+        if (entrada.readInt() != MAGICO) {
+            throw new IOException("Arquivo do acervo inválido: " + volume.nomeArquivo());
+        }
+        int versao = entrada.readInt();
+        if (versao < 1 || versao > VERSAO) {
+            throw new IOException("Versão do acervo não suportada: " + versao);
+        }
+        return versao;
+    }
+    
+    public List<Volume> getVolumes() {
+        List<Volume> volumes = new ArrayList<>(meses.size());
+        for (ResumoMes resumo : meses.values()) {
+            volumes.add(resumo.volume);
+        }
+        return volumes;
+    }
+    
+    public NavigableSet<YearMonth> getMeses() {
+        return Collections.unmodifiableNavigableSet(meses.navigableKeySet());
+    }
+    
+    public boolean isVazio() {
+        return meses.isEmpty();
+    }
+    
+    public int getQuantidade() {
+        int total = 0;
+        for (ResumoMes resumo : meses.values()) {
+            total += resumo.quantidade;
+        }
+        return total;
+    }
+    
+    public int getMaiorId() {
+        int maior = 0;
+        for (ResumoMes resumo : meses.values()) {
+            maior = Math.max(maior, resumo.maiorId);
+        }
+        return maior;
+    }
+    
+    // ===== Totais do cabeçalho =====
+    
+    public double somarPorTipo(YearMonth mes, TipoTransacao tipo) {
+        ResumoMes resumo = meses.get(mes);
+        return resumo == null ? 0.0 : resumo.porTipo.getOrDefault(tipo, 0.0);
+    }
+    
+    public Map<Categoria, Double> somarPorCategoria(YearMonth mes, TipoTransacao tipo) {
+        ResumoMes resumo = meses.get(mes);
+        Map<Categoria, Double> totais = new EnumMap<>(Categoria.class);
+        if (resumo != null && resumo.porCategoria.containsKey(tipo)) {
+            totais.putAll(resumo.porCategoria.get(tipo));
+        }
+        return totais;
+    }
+    
+    // Manda os grupos do mês inteiro ao acumulador, sem ler as transações; false se
+    // o volume é da versão 1 e não tem os grupos
+    public boolean acumularMes(YearMonth mes, ConsultaPorPeriodo.Acumulador acumulador) {
+        ResumoMes resumo = meses.get(mes);
+        if (resumo == null) {
+            return true;
+        }
+        if (resumo.grupos == null) {
+            return false;
+        }
+        for (Grupo g : resumo.grupos) {
+            acumulador.adicionarGrupo(g.tipo, g.categoria, g.soma, g.quantidade, g.menor, g.maior);
+        }
+        return true;
+    }
+    
+    // Mesma regra do resumo por titular do gerenciador: estornadas ficam de fora
+    public double somarDoTitular(Usuario titular, TipoTransacao tipo) {
+        double total = 0;
+        for (ResumoMes resumo : meses.values()) {
+            double[] valores = resumo.porTitular.get(titular.getId());
+            if (valores != null && tipo == TipoTransacao.RECEITA) {
+                total += valores[0];
+            } else if (valores != null && tipo == TipoTransacao.DESPESA) {
+                total += valores[1];
+            }
+        }
+        return total;
+    }
+    
+    // ===== Transações =====
+    
+    // Monta objetos novos a cada chamada; quem lê com frequência guarda o resultado
+    public List<Transacao> lerMes(YearMonth mes) throws IOException {
+        ResumoMes resumo = meses.get(mes);
+        if (resumo == null) {
+            return new ArrayList<>();
+        }
+        try (DataInputStream arquivo = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(pasta.resolve(resumo.volume.nomeArquivo()))))) {
+            lerInicio(arquivo, resumo.volume);
+            arquivo.skipNBytes(arquivo.readInt());
+            try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(new GZIPInputStream(arquivo)))) {
+                int quantidade = entrada.readInt();
+                List<Transacao> transacoes = new ArrayList<>(quantidade);
+                for (int i = 0; i < quantidade; i++) {
+                    transacoes.add(lerTransacao(entrada));
+                }
+                return transacoes;
+            }
+        }
+    }
+    
+    // Transações do mês montadas uma vez só; uma falha de leitura aqui não tem a
+    // quem ser devolvida (listagens) e sobe como UncheckedIOException
+    public List<Transacao> materializar(YearMonth mes) {
+        if (!meses.containsKey(mes)) {
+            return Collections.emptyList();
+        }
+        return materializados.computeIfAbsent(mes, m -> {
+            try {
+                return Collections.unmodifiableList(lerMes(m));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    public int getQuantidadeMaterializada() {
+        int total = 0;
+        for (List<Transacao> doMes : materializados.values()) {
+            total += doMes.size();
+        }
+        return total;
+    }
+    
+    // Só os meses cuja faixa de ids alcança o procurado são montados
+    public Transacao buscarPorId(int id) {
+        for (Map.Entry<YearMonth, ResumoMes> mes : meses.entrySet()) {
+            ResumoMes resumo = mes.getValue();
+            if (id < resumo.menorId || id > resumo.maiorId) {
+                continue;
+            }
+            for (Transacao t : materializar(mes.getKey())) {
+                if (t.getId() == id) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Se é o objeto montado pelo acervo (e não só uma transação com o mesmo id)
+    public boolean contem(Transacao transacao) {
+        if (transacao.getData() == null) {
+            return false;
+        }
+        List<Transacao> doMes = materializados.get(YearMonth.from(transacao.getData()));
+        if (doMes == null) {
+            return false;
+        }
+        for (Transacao t : doMes) {
+            if (t == transacao) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Todas as transações, mês a mês; cada mês é montado quando a leitura chega nele
+    public List<Transacao> todas() {
+        List<YearMonth> ordem = new ArrayList<>(meses.keySet());
+        int[] inicios = new int[ordem.size() + 1];
+        for (int i = 0; i < ordem.size(); i++) {
+            inicios[i + 1] = inicios[i] + meses.get(ordem.get(i)).quantidade;
+        }
+        return new AbstractList<Transacao>() {
+            @Override
+            public Transacao get(int indice) {
+                if (indice < 0 || indice >= inicios[ordem.size()]) {
+                    throw new IndexOutOfBoundsException(indice);
+                }
+                int posicao = Arrays.binarySearch(inicios, indice);
+                // Meses vazios repetem o início: fica o último mês que começa no índice
+                int mes = posicao >= 0 ? posicao : -posicao - 2;
+                while (mes + 1 < ordem.size() && inicios[mes + 1] == indice) {
+                    mes++;
+                }
+                return materializar(ordem.get(mes)).get(indice - inicios[mes]);
+            }
+            
+            @Override
+            public int size() {
+                return inicios[ordem.size()];
+            }
+        };
+    }
+    
+    public List<Transacao> filtrar(Predicate<Transacao> filtro) {
+        List<Transacao> resultado = new ArrayList<>();
+        for (YearMonth mes : meses.keySet()) {
+            for (Transacao t : materializar(mes)) {
+                if (filtro.test(t)) {
+                    resultado.add(t);
+                }
+            }
+        }
+        return resultado;
+    }
+    
+    // Acervo sem o mês, que volta para a memória com os objetos já montados (se houver)
+    AcervoMensal semMes(YearMonth mes) {
+        NavigableMap<YearMonth, ResumoMes> restantes = new TreeMap<>(meses);
+        restantes.remove(mes);
+        Map<YearMonth, List<Transacao>> montados = new ConcurrentHashMap<>(materializados);
+        montados.remove(mes);
+        return new AcervoMensal(pasta, gerenciador, restantes, montados);
+    }
+    
+    // Grava um volume novo para cada mês recebido (junto com o que o mês já tinha) e
+    // devolve o acervo que os inclui; este continua valendo até o snapshot mudar.
+    // Os meses já montados entram com os mesmos objetos.
+    AcervoMensal incluir(Map<YearMonth, List<Transacao>> novos) throws IOException {
+        Files.createDirectories(pasta);
+        NavigableMap<YearMonth, ResumoMes> atualizados = new TreeMap<>(meses);
+        Map<YearMonth, List<Transacao>> montados = new ConcurrentHashMap<>(materializados);
+        for (Map.Entry<YearMonth, List<Transacao>> mes : novos.entrySet()) {
+            ResumoMes anterior = meses.get(mes.getKey());
+            List<Transacao> transacoes = new ArrayList<>(materializar(mes.getKey()));
+            transacoes.addAll(mes.getValue());
+            // Ordenação estável: no mesmo dia fica a ordem de inclusão
+            transacoes.sort(Comparator.comparing(Transacao::getData));
+            int sequencia = Math.max(anterior == null ? 0 : anterior.volume.sequencia(), maiorSequencia(mes.getKey()));
+            Volume volume = new Volume(mes.getKey(), sequencia + 1);
+            atualizados.put(mes.getKey(), gravar(volume, transacoes));
+            if (montados.containsKey(mes.getKey())) {
+                montados.put(mes.getKey(), Collections.unmodifiableList(transacoes));
+            }
+        }
+        return new AcervoMensal(pasta, gerenciador, atualizados, montados);
+    }
+    
+    // Maior sequência do mês entre os arquivos da pasta, valendo ou não
+    private int maiorSequencia(YearMonth mes) throws IOException {
+        String prefixo = String.format("%04d-%02d.", mes.getYear(), mes.getMonthValue());
+        int maior = 0;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, prefixo + "*" + EXTENSAO + "*")) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                String sequencia = nome.substring(prefixo.length(), nome.indexOf(EXTENSAO));
+                try {
+                    maior = Math.max(maior, Integer.parseInt(sequencia));
+                } catch (NumberFormatException e) {
+                    // Arquivo de outro formato na pasta
+                }
+            }
+        }
+        return maior;
+    }
+    
+    // Só depois que o snapshot com este acervo está no disco
+    void apagarSobras() throws IOException {
+        if (!Files.isDirectory(pasta)) {
+            return;
+        }
+        Set<String> validos = new HashSet<>();
+        for (ResumoMes resumo : meses.values()) {
+            validos.add(resumo.volume.nomeArquivo());
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, "*" + EXTENSAO + "*")) {
+            for (Path arquivo : arquivos) {
+                if (!validos.contains(arquivo.getFileName().toString())) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        }
+    }
+    
+    // Temporário + fsync + troca atômica, como o snapshot
+    private ResumoMes gravar(Volume volume, List<Transacao> transacoes) throws IOException {
+        ResumoMes resumo = ResumoMes.de(volume, transacoes);
+        ByteArrayOutputStream cabecalho = new ByteArrayOutputStream();
+        resumo.escrever(new DataOutputStream(cabecalho));
+        
+        Path destino = pasta.resolve(volume.nomeArquivo());
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporario.toFile())))) {
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO);
+            saida.writeInt(cabecalho.size());
+            cabecalho.writeTo(saida);
+            // Fechar o fluxo comprimido libera o compressor e fecha o arquivo
+            try (DataOutputStream corpo = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(saida)))) {
+                corpo.writeInt(transacoes.size());
+                for (Transacao t : transacoes) {
+                    escreverTransacao(corpo, t);
+                }
+            }
+        }
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return resumo;
+    }
+    
+    private static void escreverTransacao(DataOutputStream saida, Transacao t) throws IOException {
+        saida.writeInt(t.getId());
+        escreverTexto(saida, t.getTipo() == null ? null : t.getTipo().name());
+        escreverTexto(saida, t.getCategoria() == null ? null : t.getCategoria().name());
+        escreverTexto(saida, t.getSubcategoria());
+        saida.writeDouble(t.getValor());
+        saida.writeLong(t.getData().toEpochDay());
+        escreverTexto(saida, t.getDescricao());
+        escreverTexto(saida, t.getPagador() == null ? null : t.getPagador().getId());
+        escreverTexto(saida, t.getBeneficiario() == null ? null : t.getBeneficiario().getId());
+        escreverTexto(saida, t.getContaOrigem() == null ? null : t.getContaOrigem().getNumeroConta());
+        escreverTexto(saida, t.getContaDestino() == null ? null : t.getContaDestino().getNumeroConta());
+        saida.writeByte((t.isRecorrente() ? RECORRENTE : 0) | (t.isEstornada() ? ESTORNADA : 0));
+        saida.writeInt(t.getParcelas());
+        saida.writeInt(t.getParcelaAtual());
+        List<String> anexos = t.getAnexos();
+        saida.writeInt(anexos.size());
+        for (String anexo : anexos) {
+            escreverTexto(saida, anexo);
+        }
+    }
+    
+    // Usuários e contas não cadastrados no gerenciador ficam null
+    private Transacao lerTransacao(DataInputStream entrada) throws IOException {
+        int id = entrada.readInt();
+        String tipo = lerTexto(entrada);
+        String categoria = lerTexto(entrada);
+        String subcategoria = lerTexto(entrada);
+        double valor = entrada.readDouble();
+        LocalDate data = LocalDate.ofEpochDay(entrada.readLong());
+        String descricao = lerTexto(entrada);
+        Usuario pagador = buscarUsuario(lerTexto(entrada));
+        Usuario beneficiario = buscarUsuario(lerTexto(entrada));
+        ContaFinanceira contaOrigem = gerenciador.buscarContaPorNumero(lerTexto(entrada));
+        ContaFinanceira contaDestino = gerenciador.buscarContaPorNumero(lerTexto(entrada));
+        byte marcas = entrada.readByte();
+        
+        Transacao t = Transacao.restaurar(id, tipo == null ? null : TipoTransacao.valueOf(tipo),
+            categoria == null ? null : Categoria.valueOf(categoria), valor, data, descricao, pagador, contaOrigem,
+            (marcas & ESTORNADA) != 0);
+        t.setBeneficiario(beneficiario);
+        t.setContaDestino(contaDestino);
+        t.setRecorrente((marcas & RECORRENTE) != 0);
+        if (subcategoria != null) {
+            t.setSubcategoria(subcategoria);
+        }
+        t.setParcelas(entrada.readInt());
+        t.setParcelaAtual(entrada.readInt());
+        int anexos = entrada.readInt();
+        for (int i = 0; i < anexos; i++) {
+            t.adicionarAnexo(lerTexto(entrada));
+        }
+        return t;
+    }
+    
+    private Usuario buscarUsuario(String id) {
+        return id == null ? null : gerenciador.buscarUsuarioPorId(id);
+    }
+    
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto != null) {
+            saida.writeUTF(texto);
+        }
+    }
+    
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+    
+    // Transações de um tipo e uma categoria (null = sem categoria) no mês
+    private static final class Grupo {
+        private final TipoTransacao tipo;
+        private final Categoria categoria;
+        private double soma;
+        private int quantidade;
+        private double menor = Double.POSITIVE_INFINITY;
+        private double maior = Double.NEGATIVE_INFINITY;
+        
+        private Grupo(TipoTransacao tipo, Categoria categoria) {
+            this.tipo = tipo;
+            this.categoria = categoria;
+        }
+        
+        private void adicionar(double valor) {
+            soma += valor;
+            quantidade++;
+            menor = Math.min(menor, valor);
+            maior = Math.max(maior, valor);
+        }
+    }
+    
+    // Totais de um mês, gravados no cabeçalho do volume
+    private static final class ResumoMes {
+        private final Volume volume;
+        private int quantidade;
+        private int maiorId;
+        // 0 nos volumes anteriores à versão 3
+        private int menorId;
+        private final Map<TipoTransacao, Double> porTipo = new EnumMap<>(TipoTransacao.class);
+        private final Map<TipoTransacao, Map<Categoria, Double>> porCategoria = new EnumMap<>(TipoTransacao.class);
+        // Por id do titular: [receitas, despesas]
+        private final Map<String, double[]> porTitular = new HashMap<>();
+        // null nos volumes da versão 1
+        private List<Grupo> grupos;
+        
+        private ResumoMes(Volume volume) {
+            this.volume = volume;
+        }
+        
+        // Mesmas regras das somas por período (ConsultaPorPeriodo) e do resumo por titular
+        private static ResumoMes de(Volume volume, List<Transacao> transacoes) {
+            ResumoMes resumo = new ResumoMes(volume);
+            resumo.quantidade = transacoes.size();
+            resumo.grupos = new ArrayList<>();
+            resumo.menorId = transacoes.isEmpty() ? 0 : Integer.MAX_VALUE;
+            for (Transacao t : transacoes) {
+                resumo.maiorId = Math.max(resumo.maiorId, t.getId());
+                resumo.menorId = Math.min(resumo.menorId, t.getId());
+                if (t.getTipo() == null) {
+                    continue;
+                }
+                resumo.grupo(t.getTipo(), t.getCategoria()).adicionar(t.getValor());
+                resumo.porTipo.merge(t.getTipo(), t.getValor(), Double::sum);
+                if (t.getCategoria() != null) {
+                    resumo.porCategoria.computeIfAbsent(t.getTipo(), tipo -> new EnumMap<>(Categoria.class))
+                        .merge(t.getCategoria(), t.getValor(), Double::sum);
+                }
+                Usuario titular = t.getConta() == null ? null : t.getConta().getTitular();
+                if (titular != null && !t.isEstornada()) {
+                    double[] valores = resumo.porTitular.computeIfAbsent(titular.getId(), id -> new double[2]);
+                    if (t.getTipo() == TipoTransacao.RECEITA) {
+                        valores[0] += t.getValor();
+                    } else if (t.getTipo() == TipoTransacao.DESPESA) {
+                        valores[1] += t.getValor();
+                    }
+                }
+            }
+            return resumo;
+        }
+        
+        // Poucos grupos por mês (tipos x categorias), a busca linear basta
+        private Grupo grupo(TipoTransacao tipo, Categoria categoria) {
+            for (Grupo g : grupos) {
+                if (g.tipo == tipo && g.categoria == categoria) {
+                    return g;
+                }
+            }
+            Grupo novo = new Grupo(tipo, categoria);
+            grupos.add(novo);
+            return novo;
+        }
+        
+        private void escrever(DataOutputStream saida) throws IOException {
+            saida.writeInt(quantidade);
+            saida.writeInt(maiorId);
+            saida.writeInt(porTipo.size());
+            for (Map.Entry<TipoTransacao, Double> total : porTipo.entrySet()) {
+                saida.writeUTF(total.getKey().name());
+                saida.writeDouble(total.getValue());
+            }
+            int categorias = 0;
+            for (Map<Categoria, Double> doTipo : porCategoria.values()) {
+                categorias += doTipo.size();
+            }
+            saida.writeInt(categorias);
+            for (Map.Entry<TipoTransacao, Map<Categoria, Double>> doTipo : porCategoria.entrySet()) {
+                for (Map.Entry<Categoria, Double> total : doTipo.getValue().entrySet()) {
+                    saida.writeUTF(doTipo.getKey().name());
+                    saida.writeUTF(total.getKey().name());
+                    saida.writeDouble(total.getValue());
+                }
+            }
+            saida.writeInt(porTitular.size());
+            for (Map.Entry<String, double[]> titular : porTitular.entrySet()) {
+                saida.writeUTF(titular.getKey());
+                saida.writeDouble(titular.getValue()[0]);
+                saida.writeDouble(titular.getValue()[1]);
+            }
+            saida.writeInt(grupos.size());
+            for (Grupo g : grupos) {
+                saida.writeUTF(g.tipo.name());
+                escreverTexto(saida, g.categoria == null ? null : g.categoria.name());
+                saida.writeDouble(g.soma);
+                saida.writeInt(g.quantidade);
+                saida.writeDouble(g.menor);
+                saida.writeDouble(g.maior);
+            }
+            saida.writeInt(menorId);
+        }
+        
+        private static ResumoMes ler(Volume volume, int versao, DataInputStream entrada) throws IOException {
+            ResumoMes resumo = new ResumoMes(volume);
+            resumo.quantidade = entrada.readInt();
+            resumo.maiorId = entrada.readInt();
+            int tipos = entrada.readInt();
+            for (int i = 0; i < tipos; i++) {
+                resumo.porTipo.put(TipoTransacao.valueOf(entrada.readUTF()), entrada.readDouble());
+            }
+            int categorias = entrada.readInt();
+            for (int i = 0; i < categorias; i++) {
+                TipoTransacao tipo = TipoTransacao.valueOf(entrada.readUTF());
+                Categoria categoria = Categoria.valueOf(entrada.readUTF());
+                resumo.porCategoria.computeIfAbsent(tipo, t -> new EnumMap<>(Categoria.class))
+                    .put(categoria, entrada.readDouble());
+            }
+            int titulares = entrada.readInt();
+            for (int i = 0; i < titulares; i++) {
+                resumo.porTitular.put(entrada.readUTF(), new double[] {entrada.readDouble(), entrada.readDouble()});
+            }
+            if (versao < 2) {
+                return resumo;
+            }
+            int grupos = entrada.readInt();
+            resumo.grupos = new ArrayList<>(grupos);
+            for (int i = 0; i < grupos; i++) {
+                TipoTransacao tipo = TipoTransacao.valueOf(entrada.readUTF());
+                String categoria = lerTexto(entrada);
+                Grupo g = new Grupo(tipo, categoria == null ? null : Categoria.valueOf(categoria));
+                g.soma = entrada.readDouble();
+                g.quantidade = entrada.readInt();
+                g.menor = entrada.readDouble();
+                g.maior = entrada.readDouble();
+                resumo.grupos.add(g);
+            }
+            if (versao >= 3) {
+                resumo.menorId = entrada.readInt();
+            }
+            return resumo;
+        }
+    }
+}
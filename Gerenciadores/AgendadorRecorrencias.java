@@ -0,0 +1,59 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import java.time.*;
+import java.util.*;
+
+// Gera as ocorrências vencidas das transações recorrentes em uma única passada.
+// As pendências ficam numa fila ordenada pela data de vencimento e cada ocorrência
+// é identificada por uma chave (série + data) para não ser lançada duas vezes.
+// A existência de uma ocorrência é conferida no índice por dia do gerenciador,
+// então o custo depende das recorrências e não do total de transações.
+public class AgendadorRecorrencias {
+    
+    public List<Transacao> processar(GerenciadorFinanceiro gerenciador, List<Transacao> recorrentes, LocalDate hoje) {
+        PriorityQueue<Pendencia> fila = new PriorityQueue<>(Comparator.comparing(Pendencia::vencimento));
+        for (Transacao t : recorrentes) {
+            fila.add(new Pendencia(t, t.getData().plusMonths(1)));
+        }
+        
+        Set<Ocorrencia> conferidas = new HashSet<>();
+        List<Transacao> novas = new ArrayList<>();
+        while (!fila.isEmpty() && !fila.peek().vencimento().isAfter(hoje)) {
+            Pendencia pendencia = fila.poll();
+            Ocorrencia ocorrencia = Ocorrencia.de(pendencia.origem(), pendencia.vencimento());
+            
+            // Se a ocorrência já existe, ela própria (quando recorrente) segue a série
+            if (!conferidas.add(ocorrencia) || existeNoDia(gerenciador, ocorrencia)) {
+                continue;
+            }
+            
+            Transacao nova = pendencia.origem().gerarProximaRecorrencia();
+            gerenciador.adicionarTransacao(nova);
+            novas.add(nova);
+            fila.add(new Pendencia(nova, nova.getData().plusMonths(1)));
+        }
+        
+        return novas;
+    }
+    
+    private static boolean existeNoDia(GerenciadorFinanceiro gerenciador, Ocorrencia ocorrencia) {
+        for (Transacao existente : gerenciador.getTransacoesDoDia(ocorrencia.data())) {
+            if (Ocorrencia.de(existente, existente.getData()).equals(ocorrencia)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private record Pendencia(Transacao origem, LocalDate vencimento) {
+    }
+    
+    // Série (descrição, valor e tipo) mais a data da ocorrência
+    private record Ocorrencia(String descricao, double valor, TipoTransacao tipo, LocalDate data) {
+        static Ocorrencia de(Transacao t, LocalDate data) {
+            return new Ocorrencia(t.getDescricao(), t.getValor(), t.getTipo(), data);
+        }
+    }
+}
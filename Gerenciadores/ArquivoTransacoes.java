@@ -0,0 +1,862 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import Interfaces.*;
+import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+// Histórico de transações em registros de tamanho fixo, num arquivo mapeado em
+// memória (FileChannel.map). Abrir o arquivo lê só o cabeçalho, então o tempo não
+// depende da quantidade de linhas. Consultas e somas leem os campos direto do
+// buffer; um objeto Transacao só é montado quando alguém pede a transação, e o
+// mesmo objeto é devolvido nas chamadas seguintes.
+//
+// Textos (descrição, ids de usuário, números de conta, anexos) ficam num segundo
+// arquivo, [int tamanho][UTF-8], e o registro guarda a posição do texto.
+//
+// Cabeçalho (64 bytes): [int MAGICO][int VERSAO][long fim dos textos]
+//                       [long linhas gravadas][int maior id]
+//                       [int nomes de Categoria][int nomes de TipoTransacao]
+// Registro (56 bytes):  [int id][int dia][double valor][byte tipo][byte categoria]
+//                       [byte marcas][byte reservado][int parcelas][int parcela atual]
+//                       [int descrição][int subcategoria][int pagador][int beneficiário]
+//                       [int conta origem][int conta destino][int anexos]
+//
+// Linhas confirmadas por um snapshot nunca são reescritas: estornos e anexos feitos
+// depois vão como alterações no próprio snapshot (ver GerenciadorPersistencia).
+//
+// Os índices ordenados (por dia e por id) e as linhas recorrentes vão num terceiro
+// arquivo, gravado junto com as linhas da sessão para a janela que o próximo snapshot
+// mostra. Na carga ele é mapeado como está, sem varrer nem ordenar o histórico; se
+// não for da janela aberta (snapshot antigo, arquivo ausente), os índices são
+// montados na primeira consulta.
+// Índices (32 bytes + dados): [int MAGICO_INDICE][int VERSAO][long primeira linha]
+//                             [int linhas][int recorrentes][long assinatura]
+//                             [long dia << 32 | linha]... [long id << 32 | linha]...
+//                             [int linha recorrente]...
+public class ArquivoTransacoes implements ConsultaPorPeriodo, Closeable {
+    private static final int MAGICO = 0x46494E54; // "FINT"
+    private static final int MAGICO_INDICE = 0x46494E49; // "FINI"
+    private static final int VERSAO = 1;
+    
+    private static final int CABECALHO = 64;
+    private static final int TAMANHO_REGISTRO = 56;
+    private static final int CABECALHO_INDICE = 32;
+    
+    private static final int POS_FIM_TEXTOS = 8;
+    private static final int POS_LINHAS = 16;
+    private static final int POS_MAIOR_ID = 24;
+    private static final int POS_CATEGORIAS = 28;
+    private static final int POS_TIPOS = 32;
+    
+    private static final int CAMPO_ID = 0;
+    private static final int CAMPO_DIA = 4;
+    private static final int CAMPO_VALOR = 8;
+    private static final int CAMPO_TIPO = 16;
+    private static final int CAMPO_CATEGORIA = 17;
+    private static final int CAMPO_MARCAS = 18;
+    private static final int CAMPO_PARCELAS = 20;
+    private static final int CAMPO_PARCELA_ATUAL = 24;
+    private static final int CAMPO_DESCRICAO = 28;
+    private static final int CAMPO_SUBCATEGORIA = 32;
+    private static final int CAMPO_PAGADOR = 36;
+    private static final int CAMPO_BENEFICIARIO = 40;
+    private static final int CAMPO_CONTA_ORIGEM = 44;
+    private static final int CAMPO_CONTA_DESTINO = 48;
+    private static final int CAMPO_ANEXOS = 52;
+    
+    private static final byte RECORRENTE = 1;
+    private static final byte ESTORNADA = 2;
+    
+    private static final int SEM_TEXTO = -1;
+    private static final int MAPA_INICIAL = 1 << 20;
+    
+    // Estorno ou anexos de uma linha já gravada
+    public record Alteracao(int id, boolean estornada, List<String> anexos) {
+    }
+    
+    private final FileChannel canalRegistros;
+    private final FileChannel canalTextos;
+    private final Path arquivoIndice;
+    private volatile MappedByteBuffer registros;
+    private volatile MappedByteBuffer textos;
+    
+    // Usuários e contas são resolvidos no gerenciador ao montar uma transação
+    private final GerenciadorFinanceiro gerenciador;
+    
+    // Linhas deste histórico começam em primeiraLinha; as linhas da sessão atual
+    // são gravadas depois das visíveis, mas só aparecem aqui na próxima carga
+    private final long primeiraLinha;
+    private final int visiveis;
+    private int gravadasDaSessao;
+    
+    private final Categoria[] categorias;
+    private final TipoTransacao[] tipos;
+    
+    private final Map<Integer, Transacao> materializadas = new java.util.concurrent.ConcurrentHashMap<>();
+    private volatile Map<Integer, Alteracao> alteracoes;
+    private final Map<String, Integer> textosGravados = new HashMap<>();
+    private long fimTextos;
+    
+    // Índices (dia << 32 | linha) e (id << 32 | linha) e linhas recorrentes: mapeados
+    // do arquivo de índices ou montados na primeira consulta
+    private volatile LongBuffer porDia;
+    private volatile LongBuffer porId;
+    private volatile IntBuffer linhasRecorrentes;
+    private volatile List<Transacao> recorrentes;
+    // Se o arquivo de índices já é o da janela que o próximo snapshot vai mostrar
+    private boolean indiceGravado;
+    
+    private ArquivoTransacoes(FileChannel canalRegistros, FileChannel canalTextos, Path arquivoIndice,
+                              GerenciadorFinanceiro gerenciador, long primeiraLinha, int visiveis,
+                              Collection<Alteracao> alteracoes) throws IOException {
+        this.canalRegistros = canalRegistros;
+        this.canalTextos = canalTextos;
+        this.arquivoIndice = arquivoIndice;
+        this.gerenciador = gerenciador;
+        this.visiveis = visiveis;
+        this.registros = mapear(canalRegistros, Math.max(canalRegistros.size(), MAPA_INICIAL));
+        this.textos = mapear(canalTextos, Math.max(canalTextos.size(), MAPA_INICIAL));
+        
+        if (registros.getInt(0) != MAGICO) {
+            iniciarArquivo();
+        } else if (registros.getInt(4) != VERSAO) {
+            throw new IOException("Versão do arquivo de transações não suportada: " + registros.getInt(4));
+        }
+        this.primeiraLinha = primeiraLinha < 0 ? getLinhasFisicas() : primeiraLinha;
+        this.fimTextos = registros.getLong(POS_FIM_TEXTOS);
+        this.categorias = lerNomes(registros.getInt(POS_CATEGORIAS), Categoria.class);
+        this.tipos = lerNomes(registros.getInt(POS_TIPOS), TipoTransacao.class);
+        
+        Map<Integer, Alteracao> porIdAlterado = new HashMap<>();
+        if (alteracoes != null) {
+            alteracoes.forEach(a -> porIdAlterado.put(a.id(), a));
+        }
+        this.alteracoes = porIdAlterado;
+        this.indiceGravado = visiveis == 0 || mapearIndice();
+    }
+    
+    // Abre (ou cria) os arquivos mostrando as linhas [primeiraLinha, primeiraLinha + linhas).
+    // primeiraLinha negativa começa um histórico novo depois de todas as linhas já gravadas.
+    public static ArquivoTransacoes abrir(Path arquivoRegistros, Path arquivoTextos, Path arquivoIndice,
+                                          long primeiraLinha, int linhas, Collection<Alteracao> alteracoes,
+                                          GerenciadorFinanceiro gerenciador) throws IOException {
+        FileChannel canalRegistros = FileChannel.open(arquivoRegistros,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileChannel canalTextos = FileChannel.open(arquivoTextos,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new ArquivoTransacoes(canalRegistros, canalTextos, arquivoIndice, gerenciador,
+                    primeiraLinha, linhas, alteracoes);
+            } catch (IOException | RuntimeException e) {
+                canalTextos.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            canalRegistros.close();
+            throw e;
+        }
+    }
+    
+    private static MappedByteBuffer mapear(FileChannel canal, long tamanho) throws IOException {
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("Arquivo de transações maior que 2 GB");
+        }
+        return canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+    }
+    
+    private void iniciarArquivo() throws IOException {
+        registros.putInt(0, MAGICO);
+        registros.putInt(4, VERSAO);
+        registros.putLong(POS_FIM_TEXTOS, 0);
+        fimTextos = 0;
+        registros.putLong(POS_LINHAS, 0);
+        registros.putInt(POS_MAIOR_ID, 0);
+        registros.putInt(POS_CATEGORIAS, gravarTexto(juntarNomes(Categoria.values())));
+        registros.putInt(POS_TIPOS, gravarTexto(juntarNomes(TipoTransacao.values())));
+        textos.force();
+        registros.putLong(POS_FIM_TEXTOS, fimTextos);
+        registros.force();
+    }
+    
+    private static String juntarNomes(Enum<?>[] constantes) {
+        StringJoiner nomes = new StringJoiner(",");
+        for (Enum<?> constante : constantes) {
+            nomes.add(constante.name());
+        }
+        return nomes.toString();
+    }
+    
+    // Os enums vão pela posição na lista de nomes gravada no arquivo
+    @SuppressWarnings("unchecked")
+    private <E extends Enum<E>> E[] lerNomes(int referencia, Class<E> tipo) {
+        String[] nomes = lerTexto(referencia).split(",");
+        E[] constantes = (E[]) java.lang.reflect.Array.newInstance(tipo, nomes.length);
+        for (int i = 0; i < nomes.length; i++) {
+            constantes[i] = Enum.valueOf(tipo, nomes[i]);
+        }
+        return constantes;
+    }
+    
+    // ===== Leitura de campos =====
+    
+    public int getQuantidade() {
+        return visiveis;
+    }
+    
+    public long getPrimeiraLinha() {
+        return primeiraLinha;
+    }
+    
+    // Linhas que o próximo snapshot deve mostrar: histórico + sessão já gravada
+    public int getLinhasGravadas() {
+        return visiveis + gravadasDaSessao;
+    }
+    
+    // Fim físico do arquivo; um histórico novo começa depois daqui
+    long getLinhasFisicas() {
+        return registros.getLong(POS_LINHAS);
+    }
+    
+    public int getMaiorId() {
+        return registros.getInt(POS_MAIOR_ID);
+    }
+    
+    private int posicao(int linha) {
+        return (int) (CABECALHO + (primeiraLinha + linha) * TAMANHO_REGISTRO);
+    }
+    
+    public int getId(int linha) {
+        return registros.getInt(posicao(linha) + CAMPO_ID);
+    }
+    
+    public LocalDate getData(int linha) {
+        return LocalDate.ofEpochDay(registros.getInt(posicao(linha) + CAMPO_DIA));
+    }
+    
+    public double getValor(int linha) {
+        return registros.getDouble(posicao(linha) + CAMPO_VALOR);
+    }
+    
+    public TipoTransacao getTipo(int linha) {
+        int tipo = registros.get(posicao(linha) + CAMPO_TIPO);
+        return tipo == 0 ? null : tipos[tipo - 1];
+    }
+    
+    public Categoria getCategoria(int linha) {
+        int categoria = registros.get(posicao(linha) + CAMPO_CATEGORIA);
+        return categoria == 0 ? null : categorias[categoria - 1];
+    }
+    
+    // A transação montada é a referência mais recente; depois vêm as alterações do snapshot
+    public boolean isEstornada(int linha) {
+        Transacao montada = materializadas.get(linha);
+        if (montada != null) {
+            return montada.isEstornada();
+        }
+        Map<Integer, Alteracao> atuais = alteracoes;
+        if (!atuais.isEmpty()) {
+            Alteracao alteracao = atuais.get(getId(linha));
+            if (alteracao != null) {
+                return alteracao.estornada();
+            }
+        }
+        return (registros.get(posicao(linha) + CAMPO_MARCAS) & ESTORNADA) != 0;
+    }
+    
+    private String lerTexto(int referencia) {
+        if (referencia == SEM_TEXTO) {
+            return null;
+        }
+        MappedByteBuffer buffer = textos;
+        byte[] bytes = new byte[buffer.getInt(referencia)];
+        buffer.get(referencia + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private String lerTextoDoCampo(int linha, int campo) {
+        return lerTexto(registros.getInt(posicao(linha) + campo));
+    }
+    
+    private List<String> lerAnexos(int linha) {
+        String anexos = lerTextoDoCampo(linha, CAMPO_ANEXOS);
+        return anexos == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(anexos.split("\n")));
+    }
+    
+    // ===== Transações montadas sob demanda =====
+    
+    public Transacao materializar(int linha) {
+        if (linha < 0 || linha >= visiveis) {
+            throw new IndexOutOfBoundsException("Linha " + linha + " de " + visiveis);
+        }
+        return materializadas.computeIfAbsent(linha, this::montar);
+    }
+    
+    // Usuários e contas não cadastrados no gerenciador ficam null
+    private Transacao montar(int linha) {
+        int base = posicao(linha);
+        int id = registros.getInt(base + CAMPO_ID);
+        byte marcas = registros.get(base + CAMPO_MARCAS);
+        Alteracao alteracao = alteracoes.get(id);
+        
+        boolean estornada = alteracao != null ? alteracao.estornada() : (marcas & ESTORNADA) != 0;
+        Transacao t = Transacao.restaurar(id, getTipo(linha), getCategoria(linha), getValor(linha), getData(linha),
+            lerTextoDoCampo(linha, CAMPO_DESCRICAO), buscarUsuario(linha, CAMPO_PAGADOR),
+            buscarConta(linha, CAMPO_CONTA_ORIGEM), estornada);
+        t.setBeneficiario(buscarUsuario(linha, CAMPO_BENEFICIARIO));
+        t.setContaDestino(buscarConta(linha, CAMPO_CONTA_DESTINO));
+        t.setRecorrente((marcas & RECORRENTE) != 0);
+        String subcategoria = lerTextoDoCampo(linha, CAMPO_SUBCATEGORIA);
+        if (subcategoria != null) {
+            t.setSubcategoria(subcategoria);
+        }
+        t.setParcelas(registros.getInt(base + CAMPO_PARCELAS));
+        t.setParcelaAtual(registros.getInt(base + CAMPO_PARCELA_ATUAL));
+        for (String anexo : alteracao != null ? alteracao.anexos() : lerAnexos(linha)) {
+            t.adicionarAnexo(anexo);
+        }
+        return t;
+    }
+    
+    private Usuario buscarUsuario(int linha, int campo) {
+        String id = lerTextoDoCampo(linha, campo);
+        return id == null ? null : gerenciador.buscarUsuarioPorId(id);
+    }
+    
+    private ContaFinanceira buscarConta(int linha, int campo) {
+        String numero = lerTextoDoCampo(linha, campo);
+        return numero == null ? null : gerenciador.buscarContaPorNumero(numero);
+    }
+    
+    public int getQuantidadeMaterializada() {
+        return materializadas.size();
+    }
+    
+    // Indica se o objeto é a transação montada por este histórico
+    public boolean contem(Transacao transacao) {
+        int linha = buscarLinha(transacao.getId());
+        return linha >= 0 && materializadas.get(linha) == transacao;
+    }
+    
+    // Todas as linhas, na ordem do arquivo; cada posição é montada ao ser lida
+    public List<Transacao> todas() {
+        return new Linhas(null, 0, visiveis);
+    }
+    
+    public Transacao buscarPorId(int id) {
+        int linha = buscarLinha(id);
+        return linha < 0 ? null : materializar(linha);
+    }
+    
+    public int buscarLinha(int id) {
+        LongBuffer indice = indicePorId();
+        int posicao = buscarPrimeira(indice, id);
+        if (posicao < indice.limit() && (int) (indice.get(posicao) >>> 32) == id) {
+            return (int) indice.get(posicao);
+        }
+        return -1;
+    }
+    
+    // ===== Consultas por período =====
+    
+    @Override
+    public List<Transacao> getTransacoesPorPeriodo(LocalDate inicio, LocalDate fim) {
+        if (inicio.isAfter(fim)) {
+            return Collections.emptyList();
+        }
+        LongBuffer indice = indicePorDia();
+        int de = buscarPrimeira(indice, inicio.toEpochDay());
+        int ate = buscarPrimeira(indice, fim.toEpochDay() + 1);
+        return new Linhas(indice, de, ate);
+    }
+    
+    @Override
+    public double somarPorTipo(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        double total = 0;
+        LongBuffer indice = indicePorDia();
+        int ate = buscarPrimeira(indice, fim.toEpochDay() + 1);
+        for (int i = buscarPrimeira(indice, inicio.toEpochDay()); i < ate; i++) {
+            int linha = (int) indice.get(i);
+            if (getTipo(linha) == tipo) {
+                total += getValor(linha);
+            }
+        }
+        return total;
+    }
+    
+    @Override
+    public Map<Categoria, Double> somarPorCategoria(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        Map<Categoria, Double> totais = new EnumMap<>(Categoria.class);
+        LongBuffer indice = indicePorDia();
+        int ate = buscarPrimeira(indice, fim.toEpochDay() + 1);
+        for (int i = buscarPrimeira(indice, inicio.toEpochDay()); i < ate; i++) {
+            int linha = (int) indice.get(i);
+            Categoria categoria = getCategoria(linha);
+            if (getTipo(linha) == tipo && categoria != null) {
+                totais.merge(categoria, getValor(linha), Double::sum);
+            }
+        }
+        return totais;
+    }
+    
+    @Override
+    public void acumular(LocalDate inicio, LocalDate fim, Acumulador acumulador) {
+        if (inicio.isAfter(fim)) {
+            return;
+        }
+        LongBuffer indice = indicePorDia();
+        int ate = buscarPrimeira(indice, fim.toEpochDay() + 1);
+        for (int i = buscarPrimeira(indice, inicio.toEpochDay()); i < ate; i++) {
+            int linha = (int) indice.get(i);
+            acumulador.adicionar(getTipo(linha), getCategoria(linha), getValor(linha));
+        }
+    }
+    
+    // Escolhe as maiores pelos campos e só monta as que entram no resultado
+    @Override
+    public List<Transacao> buscarMaiores(LocalDate inicio, LocalDate fim, TipoTransacao tipo, int quantidade) {
+        if (quantidade <= 0 || inicio.isAfter(fim)) {
+            return new ArrayList<>();
+        }
+        LongBuffer indice = indicePorDia();
+        int de = buscarPrimeira(indice, inicio.toEpochDay());
+        int ate = buscarPrimeira(indice, fim.toEpochDay() + 1);
+        
+        // Menor valor no topo; no empate sai primeiro a que vem depois na ordem de data
+        PriorityQueue<int[]> maiores = new PriorityQueue<>((a, b) -> {
+            int porValor = Double.compare(getValor(a[0]), getValor(b[0]));
+            return porValor != 0 ? porValor : Integer.compare(b[1], a[1]);
+        });
+        for (int i = de; i < ate; i++) {
+            int linha = (int) indice.get(i);
+            if (getTipo(linha) != tipo) {
+                continue;
+            }
+            maiores.add(new int[] {linha, i});
+            if (maiores.size() > quantidade) {
+                maiores.poll();
+            }
+        }
+        
+        List<Transacao> resultado = new ArrayList<>(maiores.size());
+        while (!maiores.isEmpty()) {
+            resultado.add(materializar(maiores.poll()[0]));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+    
+    public List<Transacao> getTransacoesDoDia(LocalDate dia) {
+        return getTransacoesPorPeriodo(dia, dia);
+    }
+    
+    // ===== Filtros por campo =====
+    
+    public List<Transacao> getTransacoesPorTipo(TipoTransacao tipo) {
+        List<Transacao> resultado = new ArrayList<>();
+        for (int linha = 0; linha < visiveis; linha++) {
+            if (getTipo(linha) == tipo) {
+                resultado.add(materializar(linha));
+            }
+        }
+        return resultado;
+    }
+    
+    public List<Transacao> getTransacoesPorCategoria(Categoria categoria) {
+        List<Transacao> resultado = new ArrayList<>();
+        for (int linha = 0; linha < visiveis; linha++) {
+            if (getCategoria(linha) == categoria) {
+                resultado.add(materializar(linha));
+            }
+        }
+        return resultado;
+    }
+    
+    // O titular é o da conta de origem, como nos totais do gerenciador
+    public List<Transacao> getTransacoesDoTitular(Usuario titular) {
+        List<Transacao> resultado = new ArrayList<>();
+        Map<Integer, Boolean> contasDoTitular = new HashMap<>();
+        for (int linha = 0; linha < visiveis; linha++) {
+            if (contaDoTitular(linha, titular, contasDoTitular)) {
+                resultado.add(materializar(linha));
+            }
+        }
+        return resultado;
+    }
+    
+    // Soma sem montar transações; as estornadas ficam de fora
+    public double somarDoTitular(Usuario titular, TipoTransacao tipo) {
+        double total = 0;
+        Map<Integer, Boolean> contasDoTitular = new HashMap<>();
+        for (int linha = 0; linha < visiveis; linha++) {
+            if (getTipo(linha) == tipo && contaDoTitular(linha, titular, contasDoTitular) && !isEstornada(linha)) {
+                total += getValor(linha);
+            }
+        }
+        return total;
+    }
+    
+    // Cada número de conta é resolvido uma vez por consulta
+    private boolean contaDoTitular(int linha, Usuario titular, Map<Integer, Boolean> cache) {
+        int referencia = registros.getInt(posicao(linha) + CAMPO_CONTA_ORIGEM);
+        if (referencia == SEM_TEXTO) {
+            return false;
+        }
+        return cache.computeIfAbsent(referencia, r -> {
+            ContaFinanceira conta = gerenciador.buscarContaPorNumero(lerTexto(r));
+            return conta != null && titular.equals(conta.getTitular());
+        });
+    }
+    
+    // Ponto de partida do agendador; só as linhas recorrentes são montadas
+    public List<Transacao> getRecorrentes() {
+        List<Transacao> atuais = recorrentes;
+        if (atuais == null) {
+            synchronized (this) {
+                atuais = recorrentes;
+                if (atuais == null) {
+                    IntBuffer linhas = linhasRecorrentes();
+                    atuais = new ArrayList<>(linhas.limit());
+                    for (int i = 0; i < linhas.limit(); i++) {
+                        atuais.add(materializar(linhas.get(i)));
+                    }
+                    atuais = Collections.unmodifiableList(atuais);
+                    recorrentes = atuais;
+                }
+            }
+        }
+        return atuais;
+    }
+    
+    // ===== Índices =====
+    
+    private LongBuffer indicePorDia() {
+        LongBuffer indice = porDia;
+        if (indice == null) {
+            synchronized (this) {
+                indice = porDia;
+                if (indice == null) {
+                    long[] chaves = new long[visiveis];
+                    for (int linha = 0; linha < visiveis; linha++) {
+                        chaves[linha] = chaveDia(linha);
+                    }
+                    Arrays.sort(chaves);
+                    indice = LongBuffer.wrap(chaves);
+                    porDia = indice;
+                }
+            }
+        }
+        return indice;
+    }
+    
+    private LongBuffer indicePorId() {
+        LongBuffer indice = porId;
+        if (indice == null) {
+            synchronized (this) {
+                indice = porId;
+                if (indice == null) {
+                    long[] chaves = new long[visiveis];
+                    for (int linha = 0; linha < visiveis; linha++) {
+                        chaves[linha] = chaveId(linha);
+                    }
+                    Arrays.sort(chaves);
+                    indice = LongBuffer.wrap(chaves);
+                    porId = indice;
+                }
+            }
+        }
+        return indice;
+    }
+    
+    private IntBuffer linhasRecorrentes() {
+        IntBuffer linhas = linhasRecorrentes;
+        if (linhas == null) {
+            synchronized (this) {
+                linhas = linhasRecorrentes;
+                if (linhas == null) {
+                    int[] encontradas = new int[16];
+                    int quantidade = 0;
+                    for (int linha = 0; linha < visiveis; linha++) {
+                        if (isRecorrenteNoRegistro(linha)) {
+                            if (quantidade == encontradas.length) {
+                                encontradas = Arrays.copyOf(encontradas, quantidade * 2);
+                            }
+                            encontradas[quantidade++] = linha;
+                        }
+                    }
+                    linhas = IntBuffer.wrap(encontradas, 0, quantidade).slice();
+                    linhasRecorrentes = linhas;
+                }
+            }
+        }
+        return linhas;
+    }
+    
+    private long chaveDia(int linha) {
+        return (long) registros.getInt(posicao(linha) + CAMPO_DIA) << 32 | linha;
+    }
+    
+    private long chaveId(int linha) {
+        return (long) getId(linha) << 32 | linha;
+    }
+    
+    private boolean isRecorrenteNoRegistro(int linha) {
+        return (registros.get(posicao(linha) + CAMPO_MARCAS) & RECORRENTE) != 0;
+    }
+    
+    // Confere primeira e última linha, para não aceitar índices de outro arquivo
+    private long assinatura(int linhas) {
+        return (long) getId(0) << 32 | (getId(linhas - 1) & 0xFFFFFFFFL);
+    }
+    
+    // Usa o arquivo de índices se ele foi gravado para esta janela; a leitura é só do
+    // cabeçalho, os índices ficam no mapeamento
+    private boolean mapearIndice() throws IOException {
+        if (!Files.exists(arquivoIndice)) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(arquivoIndice, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < CABECALHO_INDICE) {
+                return false;
+            }
+            MappedByteBuffer indice = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            int recorrentesNoIndice = indice.getInt(20);
+            if (indice.getInt(0) != MAGICO_INDICE || indice.getInt(4) != VERSAO
+                    || indice.getLong(8) != primeiraLinha || indice.getInt(16) != visiveis
+                    || indice.getLong(24) != assinatura(visiveis)
+                    || tamanho != CABECALHO_INDICE + 16L * visiveis + 4L * recorrentesNoIndice) {
+                return false;
+            }
+            int bytesIndice = 8 * visiveis;
+            porDia = indice.slice(CABECALHO_INDICE, bytesIndice).asLongBuffer();
+            porId = indice.slice(CABECALHO_INDICE + bytesIndice, bytesIndice).asLongBuffer();
+            linhasRecorrentes = indice.slice(CABECALHO_INDICE + 2 * bytesIndice, 4 * recorrentesNoIndice).asIntBuffer();
+            return true;
+        }
+    }
+    
+    // Índices da janela do próximo snapshot: os atuais intercalados com as linhas da
+    // sessão, que já estão no arquivo depois das visíveis. Só as linhas novas são
+    // ordenadas; um arquivo temporário troca o anterior de uma vez.
+    private void gravarIndice(int linhas) throws IOException {
+        LongBuffer dias = indicePorDia();
+        LongBuffer ids = indicePorId();
+        IntBuffer recorrentesAtuais = linhasRecorrentes();
+        int novas = linhas - visiveis;
+        long[] diasNovos = new long[novas];
+        long[] idsNovos = new long[novas];
+        int[] recorrentesNovas = new int[novas];
+        int quantidadeRecorrentes = 0;
+        for (int i = 0; i < novas; i++) {
+            int linha = visiveis + i;
+            diasNovos[i] = chaveDia(linha);
+            idsNovos[i] = chaveId(linha);
+            if (isRecorrenteNoRegistro(linha)) {
+                recorrentesNovas[quantidadeRecorrentes++] = linha;
+            }
+        }
+        Arrays.sort(diasNovos);
+        Arrays.sort(idsNovos);
+        
+        Path temporario = arquivoIndice.resolveSibling(arquivoIndice.getFileName() + ".tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile());
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(arquivo, 64 * 1024))) {
+            saida.writeInt(MAGICO_INDICE);
+            saida.writeInt(VERSAO);
+            saida.writeLong(primeiraLinha);
+            saida.writeInt(linhas);
+            saida.writeInt(recorrentesAtuais.limit() + quantidadeRecorrentes);
+            saida.writeLong(assinatura(linhas));
+            intercalar(saida, dias, diasNovos);
+            intercalar(saida, ids, idsNovos);
+            for (int i = 0; i < recorrentesAtuais.limit(); i++) {
+                saida.writeInt(recorrentesAtuais.get(i));
+            }
+            for (int i = 0; i < quantidadeRecorrentes; i++) {
+                saida.writeInt(recorrentesNovas[i]);
+            }
+            saida.flush();
+            arquivo.getFD().sync();
+        }
+        Files.move(temporario, arquivoIndice, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void intercalar(DataOutputStream saida, LongBuffer atuais, long[] novas) throws IOException {
+        int i = 0;
+        int j = 0;
+        while (i < atuais.limit() || j < novas.length) {
+            if (j == novas.length || (i < atuais.limit() && atuais.get(i) < novas[j])) {
+                saida.writeLong(atuais.get(i++));
+            } else {
+                saida.writeLong(novas[j++]);
+            }
+        }
+    }
+    
+    // Primeira posição cuja chave (32 bits altos) é >= chave
+    private static int buscarPrimeira(LongBuffer indice, long chave) {
+        int baixo = 0;
+        int alto = indice.limit();
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if ((indice.get(meio) >> 32) < chave) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+    
+    // Posições do índice (ou do arquivo, quando indice é null) montadas ao serem lidas
+    private final class Linhas extends AbstractList<Transacao> implements RandomAccess {
+        private final LongBuffer indice;
+        private final int de;
+        private final int ate;
+        
+        private Linhas(LongBuffer indice, int de, int ate) {
+            this.indice = indice;
+            this.de = de;
+            this.ate = ate;
+        }
+        
+        @Override
+        public Transacao get(int i) {
+            if (i < 0 || i >= ate - de) {
+                throw new IndexOutOfBoundsException("Índice " + i + " de " + (ate - de));
+            }
+            return materializar(indice == null ? de + i : (int) indice.get(de + i));
+        }
+        
+        @Override
+        public int size() {
+            return ate - de;
+        }
+    }
+    
+    // ===== Gravação (só durante a compactação, sem alterações em andamento) =====
+    
+    // Grava depois do histórico as transações da sessão que ainda não estão no arquivo
+    void gravarSessao(List<Transacao> daSessao) throws IOException {
+        if (daSessao.size() <= gravadasDaSessao) {
+            if (!indiceGravado) {
+                gravarIndice(getLinhasGravadas());
+                indiceGravado = true;
+            }
+            return;
+        }
+        long fimRegistros = CABECALHO + (primeiraLinha + visiveis + daSessao.size()) * (long) TAMANHO_REGISTRO;
+        if (fimRegistros > registros.capacity()) {
+            registros = mapear(canalRegistros, Math.max(fimRegistros, 2L * registros.capacity()));
+        }
+        
+        int maiorId = getMaiorId();
+        for (int i = gravadasDaSessao; i < daSessao.size(); i++) {
+            Transacao t = daSessao.get(i);
+            gravarRegistro(posicao(visiveis + i), t);
+            maiorId = Math.max(maiorId, t.getId());
+        }
+        
+        // Textos antes dos registros e o cabeçalho por último: uma queda no meio
+        // deixa no máximo linhas sem snapshot que as mostre
+        textos.force();
+        registros.force();
+        registros.putLong(POS_FIM_TEXTOS, fimTextos);
+        registros.putLong(POS_LINHAS, Math.max(getLinhasFisicas(), primeiraLinha + visiveis + daSessao.size()));
+        registros.putInt(POS_MAIOR_ID, maiorId);
+        registros.force();
+        gravadasDaSessao = daSessao.size();
+        gravarIndice(getLinhasGravadas());
+        indiceGravado = true;
+    }
+    
+    private void gravarRegistro(int base, Transacao t) throws IOException {
+        registros.putInt(base + CAMPO_ID, t.getId());
+        registros.putInt(base + CAMPO_DIA, (int) t.getData().toEpochDay());
+        registros.putDouble(base + CAMPO_VALOR, t.getValor());
+        registros.put(base + CAMPO_TIPO, (byte) (t.getTipo() == null ? 0 : t.getTipo().ordinal() + 1));
+        registros.put(base + CAMPO_CATEGORIA, (byte) (t.getCategoria() == null ? 0 : t.getCategoria().ordinal() + 1));
+        registros.put(base + CAMPO_MARCAS, (byte) ((t.isRecorrente() ? RECORRENTE : 0) | (t.isEstornada() ? ESTORNADA : 0)));
+        registros.put(base + CAMPO_MARCAS + 1, (byte) 0);
+        registros.putInt(base + CAMPO_PARCELAS, t.getParcelas());
+        registros.putInt(base + CAMPO_PARCELA_ATUAL, t.getParcelaAtual());
+        registros.putInt(base + CAMPO_DESCRICAO, gravarTexto(t.getDescricao()));
+        registros.putInt(base + CAMPO_SUBCATEGORIA, gravarTexto(t.getSubcategoria()));
+        registros.putInt(base + CAMPO_PAGADOR, gravarTexto(t.getPagador() == null ? null : t.getPagador().getId()));
+        registros.putInt(base + CAMPO_BENEFICIARIO,
+            gravarTexto(t.getBeneficiario() == null ? null : t.getBeneficiario().getId()));
+        registros.putInt(base + CAMPO_CONTA_ORIGEM,
+            gravarTexto(t.getContaOrigem() == null ? null : t.getContaOrigem().getNumeroConta()));
+        registros.putInt(base + CAMPO_CONTA_DESTINO,
+            gravarTexto(t.getContaDestino() == null ? null : t.getContaDestino().getNumeroConta()));
+        List<String> anexos = t.getAnexos();
+        registros.putInt(base + CAMPO_ANEXOS, gravarTexto(anexos.isEmpty() ? null : String.join("\n", anexos)));
+    }
+    
+    // Textos repetidos na mesma sessão são gravados uma vez só
+    private int gravarTexto(String texto) throws IOException {
+        if (texto == null) {
+            return SEM_TEXTO;
+        }
+        Integer gravado = textosGravados.get(texto);
+        if (gravado != null) {
+            return gravado;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        long fim = fimTextos + 4 + bytes.length;
+        if (fim > textos.capacity()) {
+            textos = mapear(canalTextos, Math.max(fim, 2L * textos.capacity()));
+        }
+        int referencia = (int) fimTextos;
+        textos.putInt(referencia, bytes.length);
+        textos.put(referencia + 4, bytes);
+        fimTextos = fim;
+        textosGravados.put(texto, referencia);
+        return referencia;
+    }
+    
+    // Estornos e anexos de linhas já gravadas, comparando o objeto com o registro.
+    // Vão no snapshot; o registro em si não muda.
+    List<Alteracao> coletarAlteracoes(List<Transacao> daSessao) {
+        Map<Integer, Alteracao> resultado = new LinkedHashMap<>(alteracoes);
+        materializadas.forEach((linha, t) -> compararComRegistro(resultado, linha, t));
+        for (int i = 0; i < Math.min(gravadasDaSessao, daSessao.size()); i++) {
+            compararComRegistro(resultado, visiveis + i, daSessao.get(i));
+        }
+        return new ArrayList<>(resultado.values());
+    }
+    
+    private void compararComRegistro(Map<Integer, Alteracao> resultado, int linha, Transacao t) {
+        boolean estornadaNoRegistro = (registros.get(posicao(linha) + CAMPO_MARCAS) & ESTORNADA) != 0;
+        List<String> anexos = t.getAnexos();
+        if (t.isEstornada() != estornadaNoRegistro || !anexos.equals(lerAnexos(linha))) {
+            resultado.put(t.getId(), new Alteracao(t.getId(), t.isEstornada(), anexos));
+        }
+    }
+    
+    // Chamado depois que o snapshot com estas alterações foi gravado
+    void confirmarAlteracoes(List<Alteracao> confirmadas) {
+        Map<Integer, Alteracao> porIdAlterado = new HashMap<>();
+        confirmadas.forEach(a -> porIdAlterado.put(a.id(), a));
+        alteracoes = porIdAlterado;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            canalRegistros.close();
+        } finally {
+            canalTextos.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package Gerenciadores;
+
+import java.util.*;
+
+// Conjunto das chaves de deduplicação das transações importadas (id externo do
+// banco ou hash do conteúdo da linha), para um extrato reimportado não duplicar
+// lançamentos. A consulta passa primeiro por um filtro de Bloom de poucos bits
+// por chave: uma chave nova (o caso comum numa importação) é descartada em até
+// SONDAGENS leituras de um vetor pequeno, sem olhar as transações existentes nem a
+// tabela. Só o que o filtro acusa segue para a tabela hash (endereçamento aberto
+// num long[]), que dá a resposta exata.
+// As chaves também ficam em ordem de inclusão; é essa lista que vai para o snapshot
+// e a tabela e o filtro são remontados a partir dela na carga.
+// Não é thread-safe: o GerenciadorFinanceiro só o usa sob a trava de importação.
+public class ChavesImportacao {
+    private static final int SONDAGENS = 4;
+    // A tabela fica no máximo meio cheia e o filtro tem 8 bits por posição dela,
+    // então há pelo menos 16 bits por chave (menos de 0,3% de falsos positivos)
+    private static final int BITS_POR_POSICAO = 8;
+    private static final int CAPACIDADE_INICIAL = 1024;
+    
+    private long[] tabela;
+    private long[] filtro;
+    private long[] ordem;
+    private int quantidade;
+    private long consultasNaTabela;
+    
+    public ChavesImportacao() {
+        this(new long[0], 0);
+    }
+    
+    // Remonta a partir das chaves gravadas (as primeiras quantidade de chaves)
+    ChavesImportacao(long[] chaves, int quantidade) {
+        this.ordem = new long[Math.max(quantidade, 16)];
+        dimensionar(Math.max(CAPACIDADE_INICIAL, Integer.highestOneBit(Math.max(quantidade, 1) * 2) * 2));
+        for (int i = 0; i < quantidade; i++) {
+            adicionar(chaves[i]);
+        }
+    }
+    
+    public boolean contem(long chave) {
+        chave = ajustar(chave);
+        if (!noFiltro(chave)) {
+            return false;
+        }
+        consultasNaTabela++;
+        return tabela[posicao(chave)] == chave;
+    }
+    
+    // false se a chave já estava no conjunto
+    boolean adicionar(long chave) {
+        chave = ajustar(chave);
+        if (noFiltro(chave) && tabela[posicao(chave)] == chave) {
+            return false;
+        }
+        if ((quantidade + 1) * 2 > tabela.length) {
+            dimensionar(tabela.length * 2);
+        }
+        tabela[posicao(chave)] = chave;
+        marcarNoFiltro(chave);
+        if (quantidade == ordem.length) {
+            ordem = Arrays.copyOf(ordem, ordem.length * 2);
+        }
+        ordem[quantidade++] = chave;
+        return true;
+    }
+    
+    public int getQuantidade() {
+        return quantidade;
+    }
+    
+    // Quantas consultas o filtro não resolveu sozinho
+    public long getConsultasNaTabela() {
+        return consultasNaTabela;
+    }
+    
+    // Vetor interno em ordem de inclusão; só as primeiras getQuantidade() valem.
+    // Inclusões posteriores escrevem depois delas ou num vetor novo, então quem
+    // guardou o vetor junto com a quantidade continua lendo o mesmo conteúdo.
+    long[] getChaves() {
+        return ordem;
+    }
+    
+    // Posição da chave, ou a posição vazia onde ela entraria
+    private int posicao(long chave) {
+        int mascara = tabela.length - 1;
+        int i = (int) ((chave * 0x9E3779B97F4A7C15L) >>> 32) & mascara;
+        while (tabela[i] != 0 && tabela[i] != chave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+    
+    private boolean noFiltro(long chave) {
+        int mascara = filtro.length * 64 - 1;
+        int h1 = (int) chave;
+        int h2 = (int) (chave >>> 32) | 1;
+        for (int i = 0; i < SONDAGENS; i++) {
+            int bit = (h1 + i * h2) & mascara;
+            if ((filtro[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void marcarNoFiltro(long chave) {
+        int mascara = filtro.length * 64 - 1;
+        int h1 = (int) chave;
+        int h2 = (int) (chave >>> 32) | 1;
+        for (int i = 0; i < SONDAGENS; i++) {
+            int bit = (h1 + i * h2) & mascara;
+            filtro[bit >>> 6] |= 1L << bit;
+        }
+    }
+    
+    // Tabela e filtro crescem juntos e são remontados com as chaves já incluídas
+    private void dimensionar(int posicoes) {
+        tabela = new long[posicoes];
+        filtro = new long[posicoes * BITS_POR_POSICAO / 64];
+        for (int i = 0; i < quantidade; i++) {
+            tabela[posicao(ordem[i])] = ordem[i];
+            marcarNoFiltro(ordem[i]);
+        }
+    }
+    
+    // 0 marca posição vazia na tabela
+    private static long ajustar(long chave) {
+        return chave == 0 ? 1 : chave;
+    }
+}
@@ -0,0 +1,1160 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import Interfaces.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+// Formato binário do snapshot (dados_sistema.ser), no lugar da serialização Java.
+// Cada entidade é gravada campo a campo, sem descritores de classe nem nomes de
+// campos. Usuários e contas formam tabelas no início do arquivo e as demais
+// entidades se referem a eles pela posição na tabela (varint). Textos repetidos
+// (descrições, categorias de anexo) são gravados uma vez e depois referenciados.
+//
+// Estrutura (versão 6): [int MAGICO][byte VERSAO][varint geração]
+//            [varint identificador][varint identificador da base (0 = completo)]
+//            [varint tamanho][manifesto][int CRC32 do manifesto][segmentos]
+// O manifesto lista cada segmento (tipo, chave, tamanho, CRC32). São cinco tipos:
+//   cadastro:     [nomes de Categoria][nomes de TipoTransacao]
+//                 [usuários][membros dos grupos][posições dos usuários cadastrados]
+//                 [contas][posições das contas cadastradas]
+//   transações:   as de um mês (a chave), cada uma com a sua posição na lista
+//   planejamento: [metas][orçamentos][histórico mapeado: primeira linha, linhas, alterações]
+//   acervo:       [volumes do AcervoMensal que valem: mês, sequência]
+//   chaves:       [chaves de deduplicação das importações, em ordem de inclusão]
+// Cada segmento tem a sua tabela de textos e só depende das tabelas do cadastro,
+// então a leitura decodifica o cadastro e depois os demais em paralelo, num
+// ForkJoinPool; as transações voltam para as suas posições no fim.
+// Uma diferença (dados_sistema.delta) tem o mesmo formato, aponta para o
+// identificador do completo e traz o cadastro e só os segmentos que mudaram; na
+// leitura eles substituem os do completo com a mesma chave.
+// As versões 1 e 2 eram um fluxo único na ordem acima (a 1 sem o histórico) e a 3
+// não tinha os identificadores; os cadastrados eram os primeiros das tabelas. Antes
+// da 5 não havia acervo e antes da 6 não havia chaves.
+// Todas continuam sendo lidas.
+// Os enums vão pela posição na lista de nomes gravada no próprio arquivo, então
+// reordenar as constantes não invalida arquivos antigos.
+public final class CodificadorBinario {
+    static final int MAGICO = 0x46494E42; // "FINB"
+    private static final byte VERSAO = 6;
+    
+    private static final byte SEGMENTO_CADASTRO = 1;
+    private static final byte SEGMENTO_TRANSACOES = 2;
+    private static final byte SEGMENTO_PLANEJAMENTO = 3;
+    private static final byte SEGMENTO_ACERVO = 4;
+    private static final byte SEGMENTO_CHAVES = 5;
+    
+    // De quantas em quantas transações entregues o OuvinteCarga é avisado
+    private static final int PASSO_PROGRESSO = 10_000;
+    
+    private static final byte USUARIO_INDIVIDUAL = 1;
+    private static final byte USUARIO_GRUPO = 2;
+    
+    private static final byte CONTA_CORRENTE = 1;
+    private static final byte CONTA_DIGITAL = 2;
+    private static final byte CARTAO_CREDITO = 3;
+    private static final byte COFRINHO = 4;
+    private static final byte CARTEIRA_INVESTIMENTO = 5;
+    
+    // Tipo não previsto no formato: vai por serialização Java dentro do registro
+    private static final byte SERIALIZADO = 0;
+    
+    private CodificadorBinario() {
+    }
+    
+    // ===== Gravação =====
+    
+    static Base escrever(GerenciadorPersistencia.DadosSistema dados, OutputStream destino) throws IOException {
+        return escrever(dados, destino, null);
+    }
+    
+    // Com base == null grava o snapshot completo e devolve a nova base. Com uma base,
+    // grava só a diferença: o cadastro e os segmentos cuja impressão mudou desde ela
+    static Base escrever(GerenciadorPersistencia.DadosSistema dados, OutputStream destino, Base base) throws IOException {
+        return new Escritor(new DataOutputStream(destino), base).escrever(dados);
+    }
+    
+    private static final class Escritor {
+        private DataOutputStream saida;
+        private final Base base;
+        private final Map<String, Integer> textos = new HashMap<>();
+        private final Map<Usuario, Integer> indiceUsuarios = new IdentityHashMap<>();
+        private final Map<ContaFinanceira, Integer> indiceContas = new IdentityHashMap<>();
+        private final List<Usuario> tabelaUsuarios = new ArrayList<>();
+        private final List<ContaFinanceira> tabelaContas = new ArrayList<>();
+        private final List<Segmento> segmentos = new ArrayList<>();
+        private List<Usuario> usuariosCadastrados;
+        private List<ContaFinanceira> contasCadastradas;
+        
+        private Escritor(DataOutputStream saida, Base base) {
+            this.saida = saida;
+            this.base = base;
+        }
+        
+        private Base escrever(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            DataOutputStream destino = saida;
+            montarTabelas(dados);
+            
+            // As impressões são tiradas antes de codificar: uma alteração feita durante a
+            // codificação deixa a impressão antiga e entra de novo na próxima gravação
+            Map<Long, List<Integer>> porMes = agruparPorMes(dados.transacoes);
+            Map<ChaveSegmento, Object> impressoes = impressoes(dados, porMes);
+            
+            segmento(SEGMENTO_CADASTRO, 0, this::escreverCadastro);
+            
+            if (base != null) {
+                // Mês que ficou vazio (data alterada) precisa apagar o segmento da base
+                for (long mes : base.meses) {
+                    porMes.putIfAbsent(mes, List.of());
+                }
+            }
+            for (Map.Entry<Long, List<Integer>> mes : porMes.entrySet()) {
+                ChaveSegmento chave = new ChaveSegmento(SEGMENTO_TRANSACOES, mes.getKey());
+                if (inalterado(chave, impressoes)) {
+                    continue;
+                }
+                List<Integer> posicoes = mes.getValue();
+                segmento(SEGMENTO_TRANSACOES, mes.getKey(), () -> {
+                    escreverVarInt(saida, posicoes.size());
+                    int anterior = -1;
+                    for (int posicao : posicoes) {
+                        escreverVarInt(saida, posicao - anterior);
+                        escreverTransacao(dados.transacoes.get(posicao));
+                        anterior = posicao;
+                    }
+                });
+            }
+            
+            if (!inalterado(new ChaveSegmento(SEGMENTO_PLANEJAMENTO, 0), impressoes)) {
+                segmento(SEGMENTO_PLANEJAMENTO, 0, () -> escreverPlanejamento(dados));
+            }
+            if (!inalterado(new ChaveSegmento(SEGMENTO_ACERVO, 0), impressoes)) {
+                segmento(SEGMENTO_ACERVO, 0, () -> escreverAcervo(dados));
+            }
+            if (!inalterado(new ChaveSegmento(SEGMENTO_CHAVES, 0), impressoes)) {
+                segmento(SEGMENTO_CHAVES, 0, () -> escreverChaves(dados));
+            }
+            
+            ByteArrayOutputStream manifesto = new ByteArrayOutputStream();
+            DataOutputStream saidaManifesto = new DataOutputStream(manifesto);
+            escreverVarInt(saidaManifesto, dados.transacoes.size());
+            escreverVarInt(saidaManifesto, segmentos.size());
+            for (Segmento segmento : segmentos) {
+                saidaManifesto.writeByte(segmento.tipo());
+                escreverVarLong(saidaManifesto, segmento.chave());
+                escreverVarInt(saidaManifesto, segmento.bytes().length);
+                saidaManifesto.writeInt(crc(segmento.bytes(), 0, segmento.bytes().length));
+            }
+            byte[] bytesManifesto = manifesto.toByteArray();
+            
+            long identificador = base == null ? novoIdentificador() : base.identificador;
+            destino.writeInt(MAGICO);
+            destino.writeByte(VERSAO);
+            escreverVarLong(destino, dados.geracao);
+            escreverVarLong(destino, identificador);
+            escreverVarLong(destino, base == null ? 0 : base.identificador);
+            escreverVarInt(destino, bytesManifesto.length);
+            destino.write(bytesManifesto);
+            destino.writeInt(crc(bytesManifesto, 0, bytesManifesto.length));
+            long tamanho = destino.size();
+            for (Segmento segmento : segmentos) {
+                destino.write(segmento.bytes());
+                tamanho += segmento.bytes().length;
+            }
+            destino.flush();
+            
+            if (base != null) {
+                return base;
+            }
+            return new Base(identificador, tabelaUsuarios, tabelaContas, impressoes, new HashSet<>(porMes.keySet()), tamanho);
+        }
+        
+        private boolean inalterado(ChaveSegmento chave, Map<ChaveSegmento, Object> impressoes) {
+            Object anterior = base == null ? null : base.impressoes.get(chave);
+            return anterior != null && anterior.equals(impressoes.get(chave));
+        }
+        
+        // Grava o corpo num buffer próprio, com a tabela de textos começando vazia
+        private void segmento(byte tipo, long chave, Corpo corpo) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            saida = new DataOutputStream(buffer);
+            textos.clear();
+            corpo.escrever();
+            saida.flush();
+            segmentos.add(new Segmento(tipo, chave, buffer.toByteArray()));
+        }
+        
+        // Os cadastrados vão como posições na tabela: com uma base, a tabela começa
+        // pela ordem dela e os cadastrados não ficam necessariamente no início
+        private void escreverCadastro() throws IOException {
+            escreverNomes(Categoria.values());
+            escreverNomes(TipoTransacao.values());
+            
+            escreverVarInt(saida, tabelaUsuarios.size());
+            for (Usuario usuario : tabelaUsuarios) {
+                escreverUsuario(usuario);
+            }
+            for (Usuario usuario : tabelaUsuarios) {
+                if (usuario instanceof Grupo grupo) {
+                    escreverReferencia(grupo.getAdministrador());
+                    UsuarioIndividual[] membros = grupo.getMembros();
+                    escreverVarInt(saida, membros.length);
+                    for (UsuarioIndividual membro : membros) {
+                        escreverReferencia(membro);
+                    }
+                }
+            }
+            
+            escreverVarInt(saida, usuariosCadastrados.size());
+            for (Usuario usuario : usuariosCadastrados) {
+                escreverReferencia(usuario);
+            }
+            
+            escreverVarInt(saida, tabelaContas.size());
+            for (ContaFinanceira conta : tabelaContas) {
+                escreverConta(conta);
+            }
+            escreverVarInt(saida, contasCadastradas.size());
+            for (ContaFinanceira conta : contasCadastradas) {
+                escreverReferencia(conta);
+            }
+        }
+        
+        private void escreverPlanejamento(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            escreverVarInt(saida, dados.metas.size());
+            for (Meta meta : dados.metas) {
+                escreverTexto(meta.getNome());
+                escreverEnum(meta.getCategoria());
+                saida.writeDouble(meta.getValorAlvo());
+                saida.writeDouble(meta.getValorAtual());
+                escreverData(meta.getDataInicio());
+                escreverData(meta.getPrazo());
+                escreverReferencia(meta.getResponsavel());
+                saida.writeBoolean(meta.isAlcancada());
+            }
+            
+            escreverVarInt(saida, dados.orcamentos.size());
+            for (Orcamento orcamento : dados.orcamentos) {
+                escreverTexto(orcamento.getNome());
+                escreverEnum(orcamento.getCategoria());
+                saida.writeDouble(orcamento.getLimiteValor());
+                saida.writeDouble(orcamento.getValorGasto());
+                YearMonth mes = orcamento.getMesReferencia();
+                escreverVarLong(saida, mes == null ? 0 : zigZag(mes.getYear() * 12L + mes.getMonthValue()));
+                escreverReferencia(orcamento.getResponsavel());
+                saida.writeBoolean(orcamento.isAlertaEnviado());
+                saida.writeDouble(orcamento.getPercentualAlerta());
+            }
+            
+            escreverVarLong(saida, dados.primeiraLinhaHistorico);
+            escreverVarInt(saida, dados.linhasHistorico);
+            List<ArquivoTransacoes.Alteracao> alteracoes =
+                dados.alteracoesHistorico == null ? List.of() : dados.alteracoesHistorico;
+            escreverVarInt(saida, alteracoes.size());
+            for (ArquivoTransacoes.Alteracao alteracao : alteracoes) {
+                escreverVarInt(saida, alteracao.id());
+                saida.writeBoolean(alteracao.estornada());
+                escreverVarInt(saida, alteracao.anexos().size());
+                for (String anexo : alteracao.anexos()) {
+                    escreverTexto(anexo);
+                }
+            }
+        }
+        
+        private void escreverAcervo(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            escreverVarInt(saida, dados.volumesAcervo.size());
+            for (AcervoMensal.Volume volume : dados.volumesAcervo) {
+                escreverVarLong(saida, zigZag(volume.mes().getYear() * 12L + volume.mes().getMonthValue()));
+                escreverVarInt(saida, volume.sequencia());
+            }
+        }
+        
+        // Hashes de 64 bits não encolhem com varint: vão com 8 bytes cada
+        private void escreverChaves(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            escreverVarInt(saida, dados.quantidadeChaves);
+            for (int i = 0; i < dados.quantidadeChaves; i++) {
+                saida.writeLong(dados.chavesImportacao[i]);
+            }
+        }
+        
+        // Cadastrados primeiro (na ordem do gerenciador); depois os que só aparecem
+        // como referência, para que nenhuma entidade seja embutida duas vezes.
+        // Com uma base, a tabela começa pela ordem dela: os segmentos que não são
+        // regravados continuam apontando para as mesmas entidades.
+        private void montarTabelas(GerenciadorPersistencia.DadosSistema dados) {
+            if (base != null) {
+                base.usuarios.forEach(this::incluirUsuario);
+                base.contas.forEach(this::incluirConta);
+            }
+            dados.usuarios.forEach(this::incluirUsuario);
+            dados.contas.forEach(this::incluirConta);
+            usuariosCadastrados = dados.usuarios;
+            contasCadastradas = dados.contas;
+            for (Transacao t : dados.transacoes) {
+                incluirUsuario(t.getPagador());
+                incluirUsuario(t.getBeneficiario());
+                incluirConta(t.getContaOrigem());
+                incluirConta(t.getContaDestino());
+            }
+            dados.metas.forEach(m -> incluirUsuario(m.getResponsavel()));
+            dados.orcamentos.forEach(o -> incluirUsuario(o.getResponsavel()));
+            for (int i = 0; i < tabelaContas.size(); i++) {
+                incluirUsuario(tabelaContas.get(i).getTitular());
+            }
+            // Por último os membros de todos os grupos da tabela, inclusive dos que só são referenciados
+            for (int i = 0; i < tabelaUsuarios.size(); i++) {
+                if (tabelaUsuarios.get(i) instanceof Grupo grupo) {
+                    incluirUsuario(grupo.getAdministrador());
+                    for (UsuarioIndividual membro : grupo.getMembros()) {
+                        incluirUsuario(membro);
+                    }
+                }
+            }
+        }
+        
+        private void incluirUsuario(Usuario usuario) {
+            if (usuario != null && !indiceUsuarios.containsKey(usuario)) {
+                indiceUsuarios.put(usuario, tabelaUsuarios.size());
+                tabelaUsuarios.add(usuario);
+            }
+        }
+        
+        private void incluirConta(ContaFinanceira conta) {
+            if (conta != null && !indiceContas.containsKey(conta)) {
+                indiceContas.put(conta, tabelaContas.size());
+                tabelaContas.add(conta);
+            }
+        }
+        
+        private void escreverUsuario(Usuario usuario) throws IOException {
+            if (usuario instanceof UsuarioIndividual individual) {
+                saida.writeByte(USUARIO_INDIVIDUAL);
+                escreverTexto(individual.getId());
+                escreverTexto(individual.getNome());
+                escreverTexto(individual.getEmail());
+                escreverTexto(individual.getCpf());
+                escreverTexto(individual.getPerfil());
+                saida.writeBoolean(individual.isAtivo());
+            } else if (usuario instanceof Grupo grupo) {
+                saida.writeByte(USUARIO_GRUPO);
+                escreverTexto(grupo.getId());
+                escreverTexto(grupo.getNome());
+                escreverTexto(grupo.getEmail());
+                escreverVarInt(saida, grupo.getLimiteMaximoMembros());
+            } else {
+                saida.writeByte(SERIALIZADO);
+                escreverSerializado(usuario);
+            }
+        }
+        
+        private void escreverConta(ContaFinanceira conta) throws IOException {
+            if (conta instanceof ContaCorrente corrente) {
+                saida.writeByte(CONTA_CORRENTE);
+                escreverCabecalhoConta(conta);
+                saida.writeDouble(corrente.getLimiteChequeEspecial());
+                saida.writeDouble(corrente.getTarifaMensal());
+            } else if (conta instanceof ContaDigital digital) {
+                saida.writeByte(CONTA_DIGITAL);
+                escreverCabecalhoConta(conta);
+                saida.writeDouble(digital.getRendimento());
+            } else if (conta instanceof CartaoCredito cartao) {
+                saida.writeByte(CARTAO_CREDITO);
+                escreverCabecalhoConta(conta);
+                saida.writeDouble(cartao.getLimite());
+                saida.writeDouble(cartao.getLimiteDisponivel());
+                escreverData(cartao.getDataFechamento());
+                escreverData(cartao.getDataVencimento());
+            } else if (conta instanceof Cofrinho cofrinho) {
+                saida.writeByte(COFRINHO);
+                escreverCabecalhoConta(conta);
+                escreverTexto(cofrinho.getObjetivo());
+                saida.writeDouble(cofrinho.getMetaValor());
+                escreverData(cofrinho.getDataCriacao());
+                escreverData(cofrinho.getDataMetaPrazo());
+            } else if (conta instanceof CarteiraInvestimento carteira) {
+                saida.writeByte(CARTEIRA_INVESTIMENTO);
+                escreverCabecalhoConta(conta);
+                escreverTexto(carteira.getTipo());
+            } else {
+                saida.writeByte(SERIALIZADO);
+                escreverSerializado(conta);
+            }
+        }
+        
+        // No cartão o "saldo" gravado é a fatura atual
+        private void escreverCabecalhoConta(ContaFinanceira conta) throws IOException {
+            escreverTexto(conta.getNumeroConta());
+            escreverReferencia(conta.getTitular());
+            saida.writeBoolean(conta.isAtiva());
+            saida.writeDouble(conta instanceof CartaoCredito cartao ? cartao.getFaturaAtual() : conta.consultarSaldo());
+        }
+        
+        private void escreverTransacao(Transacao t) throws IOException {
+            escreverVarInt(saida, t.getId());
+            escreverEnum(t.getTipo());
+            escreverEnum(t.getCategoria());
+            escreverTexto(t.getSubcategoria());
+            saida.writeDouble(t.getValor());
+            escreverData(t.getData());
+            escreverTexto(t.getDescricao());
+            escreverReferencia(t.getPagador());
+            escreverReferencia(t.getBeneficiario());
+            escreverReferencia(t.getContaOrigem());
+            escreverReferencia(t.getContaDestino());
+            saida.writeByte((t.isRecorrente() ? 1 : 0) | (t.isEstornada() ? 2 : 0));
+            escreverVarInt(saida, t.getParcelas());
+            escreverVarInt(saida, t.getParcelaAtual());
+            List<String> anexos = t.getAnexos();
+            escreverVarInt(saida, anexos.size());
+            for (String anexo : anexos) {
+                escreverTexto(anexo);
+            }
+        }
+        
+        private void escreverNomes(Enum<?>[] constantes) throws IOException {
+            escreverVarInt(saida, constantes.length);
+            for (Enum<?> constante : constantes) {
+                escreverTexto(constante.name());
+            }
+        }
+        
+        // 0 = null; demais valores são a posição + 1
+        private void escreverEnum(Enum<?> constante) throws IOException {
+            escreverVarInt(saida, constante == null ? 0 : constante.ordinal() + 1);
+        }
+        
+        private void escreverReferencia(Usuario usuario) throws IOException {
+            escreverVarInt(saida, usuario == null ? 0 : indiceUsuarios.get(usuario) + 1);
+        }
+        
+        private void escreverReferencia(ContaFinanceira conta) throws IOException {
+            escreverVarInt(saida, conta == null ? 0 : indiceContas.get(conta) + 1);
+        }
+        
+        private void escreverData(LocalDate data) throws IOException {
+            saida.writeBoolean(data != null);
+            if (data != null) {
+                escreverVarLong(saida, zigZag(data.toEpochDay()));
+            }
+        }
+        
+        // 0 = null; 1 = texto novo (tamanho + UTF-8); n >= 2 = texto já gravado n - 2
+        private void escreverTexto(String texto) throws IOException {
+            if (texto == null) {
+                saida.writeByte(0);
+                return;
+            }
+            Integer indice = textos.get(texto);
+            if (indice != null) {
+                escreverVarInt(saida, indice + 2);
+                return;
+            }
+            textos.put(texto, textos.size());
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            saida.writeByte(1);
+            escreverVarInt(saida, bytes.length);
+            saida.write(bytes);
+        }
+        
+        private void escreverSerializado(Object objeto) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(objeto);
+            }
+            escreverVarInt(saida, bytes.size());
+            bytes.writeTo(saida);
+        }
+    }
+    
+    // ===== Leitura =====
+    
+    // Lê o snapshot completo (e a diferença, se for sobre ele) e entrega as entidades
+    // ao receptor na ordem final. Os dados devolvidos não trazem as listas: só geração,
+    // histórico mapeado e, no formato atual, a Base para as próximas diferenças.
+    // No formato segmentado tudo é decodificado e conferido antes da primeira entrega,
+    // então um arquivo corrompido não chega a mexer no estado.
+    static GerenciadorPersistencia.DadosSistema carregar(InputStream origem, InputStream diferenca,
+                                                         ReceptorCarga receptor, OuvinteCarga progresso)
+            throws IOException, ClassNotFoundException {
+        return new Leitor(new DataInputStream(origem)).ler(diferenca, receptor, progresso);
+    }
+    
+    private static final class Leitor {
+        private final DataInputStream entrada;
+        private final List<String> textos = new ArrayList<>();
+        private Categoria[] categorias;
+        private TipoTransacao[] tipos;
+        private Usuario[] usuarios;
+        private ContaFinanceira[] contas;
+        private List<Usuario> usuariosCadastrados;
+        private List<ContaFinanceira> contasCadastradas;
+        
+        private Leitor(DataInputStream entrada) {
+            this.entrada = entrada;
+        }
+        
+        // Leitor de um segmento; os que não são o cadastro usam as tabelas dele e têm os seus textos
+        private Leitor(Segmento segmento, Leitor cadastro) {
+            this(new DataInputStream(new ByteArrayInputStream(segmento.bytes(), segmento.inicio(), segmento.tamanho())));
+            if (cadastro != null) {
+                categorias = cadastro.categorias;
+                tipos = cadastro.tipos;
+                usuarios = cadastro.usuarios;
+                contas = cadastro.contas;
+            }
+        }
+        
+        private GerenciadorPersistencia.DadosSistema ler(InputStream diferenca, ReceptorCarga receptor,
+                                                         OuvinteCarga progresso) throws IOException, ClassNotFoundException {
+            byte versao = lerCabecalho();
+            long geracao = lerVarLong(entrada);
+            if (versao < 3) {
+                // Fluxo único: cada transação é entregue assim que é lida
+                lerCadastro(versao);
+                GerenciadorPersistencia.DadosSistema dados = novosDados(List.of());
+                entregarCadastro(dados, receptor);
+                int quantidade = lerVarInt(entrada);
+                for (int i = 0; i < quantidade; i++) {
+                    receptor.transacao(lerTransacao());
+                    informar(progresso, i + 1, quantidade);
+                }
+                informarFim(progresso, quantidade);
+                lerPlanejamento(dados, versao >= 2);
+                entregarPlanejamento(dados, receptor);
+                dados.geracao = geracao;
+                return dados;
+            }
+            
+            // Os bytes lidos ficam só dentro de decodificar: na entrega, o que ocupa memória
+            // são as entidades, que passam uma a uma para o gerenciador
+            Decodificado decodificado = decodificar(lerSegmentado(versao, geracao), lerDiferenca(diferenca));
+            GerenciadorPersistencia.DadosSistema dados = decodificado.dados();
+            Transacao[] transacoes = decodificado.transacoes();
+            entregarCadastro(dados, receptor);
+            // Cada posição entregue é solta do vetor: o gerenciador passa a ser o único dono
+            for (int i = 0; i < transacoes.length; i++) {
+                receptor.transacao(transacoes[i]);
+                transacoes[i] = null;
+                informar(progresso, i + 1, transacoes.length);
+            }
+            informarFim(progresso, transacoes.length);
+            entregarPlanejamento(dados, receptor);
+            return dados;
+        }
+        
+        private static ArquivoSegmentado lerDiferenca(InputStream diferenca) throws IOException {
+            if (diferenca == null) {
+                return null;
+            }
+            Leitor leitor = new Leitor(new DataInputStream(diferenca));
+            byte versao = leitor.lerCabecalho();
+            return leitor.lerSegmentado(versao, lerVarLong(leitor.entrada));
+        }
+        
+        private byte lerCabecalho() throws IOException {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException("Arquivo não está no formato binário");
+            }
+            byte versao = entrada.readByte();
+            if (versao < 1 || versao > VERSAO) {
+                throw new IOException("Versão do formato não suportada: " + versao);
+            }
+            return versao;
+        }
+        
+        private ArquivoSegmentado lerSegmentado(byte versao, long geracao) throws IOException {
+            long identificador = versao >= 4 ? lerVarLong(entrada) : 0;
+            long base = versao >= 4 ? lerVarLong(entrada) : 0;
+            byte[] bytesManifesto = new byte[lerVarInt(entrada)];
+            entrada.readFully(bytesManifesto);
+            if (entrada.readInt() != crc(bytesManifesto, 0, bytesManifesto.length)) {
+                throw new IOException("Manifesto do snapshot corrompido");
+            }
+            DataInputStream manifesto = new DataInputStream(new ByteArrayInputStream(bytesManifesto));
+            int transacoes = lerVarInt(manifesto);
+            int quantidade = lerVarInt(manifesto);
+            byte[] tipos = new byte[quantidade];
+            long[] chaves = new long[quantidade];
+            int[] tamanhos = new int[quantidade];
+            int[] crcs = new int[quantidade];
+            int total = 0;
+            for (int i = 0; i < quantidade; i++) {
+                tipos[i] = manifesto.readByte();
+                chaves[i] = lerVarLong(manifesto);
+                tamanhos[i] = lerVarInt(manifesto);
+                crcs[i] = manifesto.readInt();
+                total += tamanhos[i];
+            }
+            byte[] corpo = entrada.readNBytes(total);
+            if (corpo.length != total) {
+                throw new IOException("Snapshot truncado");
+            }
+            
+            List<Segmento> segmentos = new ArrayList<>(quantidade);
+            int inicio = 0;
+            for (int i = 0; i < quantidade; i++) {
+                segmentos.add(new Segmento(tipos[i], chaves[i], corpo, inicio, tamanhos[i], crcs[i]));
+                inicio += tamanhos[i];
+            }
+            long tamanho = 4 + 1 + bytesManifesto.length + 4 + total;
+            return new ArquivoSegmentado(versao, geracao, identificador, base, transacoes, segmentos, tamanho);
+        }
+        
+        private static Decodificado decodificar(ArquivoSegmentado completo, ArquivoSegmentado diferenca)
+                throws IOException, ClassNotFoundException {
+            // Diferença de outra base (sobra de antes de uma consolidação) não vale mais
+            if (diferenca != null && (completo.identificador() == 0 || diferenca.base() != completo.identificador())) {
+                diferenca = null;
+            }
+            Map<ChaveSegmento, Segmento> porChave = new LinkedHashMap<>();
+            for (Segmento segmento : completo.segmentos()) {
+                porChave.put(new ChaveSegmento(segmento.tipo(), segmento.chave()), segmento);
+            }
+            ArquivoSegmentado ultimo = completo;
+            if (diferenca != null) {
+                for (Segmento segmento : diferenca.segmentos()) {
+                    porChave.put(new ChaveSegmento(segmento.tipo(), segmento.chave()), segmento);
+                }
+                ultimo = diferenca;
+            }
+            
+            // O cadastro é lido antes: os outros segmentos se referem às suas tabelas
+            Segmento segmentoCadastro = porChave.remove(new ChaveSegmento(SEGMENTO_CADASTRO, 0));
+            if (segmentoCadastro == null) {
+                throw new IOException("Snapshot sem segmento de cadastro");
+            }
+            conferir(segmentoCadastro);
+            Leitor cadastro = new Leitor(segmentoCadastro, null);
+            cadastro.lerCadastro(diferenca != null ? diferenca.versao() : completo.versao());
+            
+            GerenciadorPersistencia.DadosSistema dados = cadastro.novosDados(List.of());
+            Transacao[] transacoes = new Transacao[ultimo.transacoes()];
+            List<Callable<Void>> tarefas = new ArrayList<>();
+            for (Segmento segmento : porChave.values()) {
+                tarefas.add(() -> {
+                    conferir(segmento);
+                    Leitor leitor = new Leitor(segmento, cadastro);
+                    switch (segmento.tipo()) {
+                        case SEGMENTO_TRANSACOES:
+                            leitor.lerTransacoesDoMes(transacoes);
+                            break;
+                        case SEGMENTO_PLANEJAMENTO:
+                            leitor.lerPlanejamento(dados, true);
+                            break;
+                        case SEGMENTO_ACERVO:
+                            leitor.lerAcervo(dados);
+                            break;
+                        case SEGMENTO_CHAVES:
+                            leitor.lerChaves(dados);
+                            break;
+                        default:
+                            throw new IOException("Tipo de segmento desconhecido: " + segmento.tipo());
+                    }
+                    return null;
+                });
+            }
+            executarEmParalelo(tarefas);
+            
+            for (int i = 0; i < transacoes.length; i++) {
+                if (transacoes[i] == null) {
+                    throw new IOException("Transação sem segmento na posição " + i);
+                }
+            }
+            dados.geracao = ultimo.geracao();
+            
+            if (completo.identificador() != 0) {
+                dados.transacoes = Arrays.asList(transacoes);
+                // Segmentos que vieram da diferença ficam sem impressão: entram em toda
+                // diferença seguinte até a próxima consolidação
+                Map<ChaveSegmento, Object> impressoes = impressoes(dados, agruparPorMes(dados.transacoes));
+                Set<Long> meses = new HashSet<>();
+                for (Segmento segmento : completo.segmentos()) {
+                    if (segmento.tipo() == SEGMENTO_TRANSACOES) {
+                        meses.add(segmento.chave());
+                    }
+                }
+                if (diferenca != null) {
+                    for (Segmento segmento : diferenca.segmentos()) {
+                        impressoes.remove(new ChaveSegmento(segmento.tipo(), segmento.chave()));
+                    }
+                }
+                dados.base = new Base(completo.identificador(), Arrays.asList(cadastro.usuarios),
+                    Arrays.asList(cadastro.contas), impressoes, meses, completo.tamanho());
+                dados.transacoes = List.of();
+            }
+            
+            return new Decodificado(dados, transacoes);
+        }
+        
+        private static void conferir(Segmento segmento) throws IOException {
+            if (crc(segmento.bytes(), segmento.inicio(), segmento.tamanho()) != segmento.crc()) {
+                throw new IOException("Segmento corrompido (tipo " + segmento.tipo() + ", chave " + segmento.chave() + ")");
+            }
+        }
+        
+        private static void executarEmParalelo(List<Callable<Void>> tarefas) throws IOException, ClassNotFoundException {
+            try {
+                for (Future<Void> resultado : ForkJoinPool.commonPool().invokeAll(tarefas)) {
+                    resultado.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Leitura interrompida", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException erro) {
+                    throw erro;
+                }
+                if (e.getCause() instanceof ClassNotFoundException erro) {
+                    throw erro;
+                }
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        
+        // Até a versão 3 os cadastrados eram os primeiros da tabela; depois, posições
+        private void lerCadastro(byte versao) throws IOException, ClassNotFoundException {
+            categorias = lerNomes(Categoria.class);
+            tipos = lerNomes(TipoTransacao.class);
+            
+            usuarios = new Usuario[lerVarInt(entrada)];
+            int primeirosUsuarios = versao < 4 ? lerVarInt(entrada) : 0;
+            for (int i = 0; i < usuarios.length; i++) {
+                usuarios[i] = lerUsuario();
+            }
+            for (Usuario usuario : usuarios) {
+                if (usuario instanceof Grupo grupo) {
+                    UsuarioIndividual administrador = (UsuarioIndividual) lerUsuarioReferenciado();
+                    UsuarioIndividual[] membros = new UsuarioIndividual[lerVarInt(entrada)];
+                    for (int i = 0; i < membros.length; i++) {
+                        membros[i] = (UsuarioIndividual) lerUsuarioReferenciado();
+                    }
+                    grupo.restaurarMembros(administrador, membros);
+                }
+            }
+            if (versao < 4) {
+                usuariosCadastrados = Arrays.asList(usuarios).subList(0, primeirosUsuarios);
+            } else {
+                usuariosCadastrados = new ArrayList<>();
+                int quantidade = lerVarInt(entrada);
+                for (int i = 0; i < quantidade; i++) {
+                    usuariosCadastrados.add(lerUsuarioReferenciado());
+                }
+            }
+            
+            contas = new ContaFinanceira[lerVarInt(entrada)];
+            int primeirasContas = versao < 4 ? lerVarInt(entrada) : 0;
+            for (int i = 0; i < contas.length; i++) {
+                contas[i] = lerConta();
+            }
+            if (versao < 4) {
+                contasCadastradas = Arrays.asList(contas).subList(0, primeirasContas);
+            } else {
+                contasCadastradas = new ArrayList<>();
+                int quantidade = lerVarInt(entrada);
+                for (int i = 0; i < quantidade; i++) {
+                    contasCadastradas.add(lerContaReferenciada());
+                }
+            }
+        }
+        
+        // As listas dos dados ficam vazias depois da entrega
+        private void entregarCadastro(GerenciadorPersistencia.DadosSistema dados, ReceptorCarga receptor) {
+            dados.usuarios.forEach(receptor::usuario);
+            dados.contas.forEach(receptor::conta);
+            dados.usuarios.clear();
+            dados.contas.clear();
+        }
+        
+        private static void entregarPlanejamento(GerenciadorPersistencia.DadosSistema dados, ReceptorCarga receptor) {
+            dados.metas.forEach(receptor::meta);
+            dados.orcamentos.forEach(receptor::orcamento);
+            dados.metas.clear();
+            dados.orcamentos.clear();
+        }
+        
+        private static void informar(OuvinteCarga progresso, int carregadas, int total) {
+            if (progresso != null && carregadas % PASSO_PROGRESSO == 0 && carregadas < total) {
+                progresso.progresso(carregadas, total);
+            }
+        }
+        
+        private static void informarFim(OuvinteCarga progresso, int total) {
+            if (progresso != null) {
+                progresso.progresso(total, total);
+            }
+        }
+        
+        private GerenciadorPersistencia.DadosSistema novosDados(List<Transacao> transacoes) {
+            return new GerenciadorPersistencia.DadosSistema(usuariosCadastrados, contasCadastradas,
+                transacoes, new ArrayList<>(), new ArrayList<>());
+        }
+        
+        // Cada segmento preenche só as suas posições do vetor
+        private void lerTransacoesDoMes(Transacao[] transacoes) throws IOException {
+            int quantidade = lerVarInt(entrada);
+            int posicao = -1;
+            for (int i = 0; i < quantidade; i++) {
+                posicao += lerVarInt(entrada);
+                if (posicao >= transacoes.length) {
+                    throw new IOException("Posição de transação fora da lista: " + posicao);
+                }
+                transacoes[posicao] = lerTransacao();
+            }
+        }
+        
+        private void lerPlanejamento(GerenciadorPersistencia.DadosSistema dados, boolean comHistorico) throws IOException {
+            int quantidadeMetas = lerVarInt(entrada);
+            for (int i = 0; i < quantidadeMetas; i++) {
+                String nome = lerTexto();
+                Categoria categoria = lerEnum(categorias);
+                double valorAlvo = entrada.readDouble();
+                double valorAtual = entrada.readDouble();
+                LocalDate inicio = lerData();
+                LocalDate prazo = lerData();
+                Usuario responsavel = lerUsuarioReferenciado();
+                dados.metas.add(Meta.restaurar(nome, categoria, valorAlvo, valorAtual, inicio, prazo, responsavel,
+                    entrada.readBoolean()));
+            }
+            
+            int quantidadeOrcamentos = lerVarInt(entrada);
+            for (int i = 0; i < quantidadeOrcamentos; i++) {
+                String nome = lerTexto();
+                Categoria categoria = lerEnum(categorias);
+                double limite = entrada.readDouble();
+                double gasto = entrada.readDouble();
+                long mesCodificado = lerVarLong(entrada);
+                YearMonth mes = null;
+                if (mesCodificado != 0) {
+                    long meses = desfazerZigZag(mesCodificado) - 1;
+                    mes = YearMonth.of((int) Math.floorDiv(meses, 12L), (int) Math.floorMod(meses, 12L) + 1);
+                }
+                Usuario responsavel = lerUsuarioReferenciado();
+                boolean alertaEnviado = entrada.readBoolean();
+                dados.orcamentos.add(Orcamento.restaurar(nome, categoria, limite, gasto, mes, responsavel,
+                    alertaEnviado, entrada.readDouble()));
+            }
+            
+            if (comHistorico) {
+                dados.primeiraLinhaHistorico = lerVarLong(entrada);
+                dados.linhasHistorico = lerVarInt(entrada);
+                int quantidadeAlteracoes = lerVarInt(entrada);
+                List<ArquivoTransacoes.Alteracao> alteracoes = new ArrayList<>(quantidadeAlteracoes);
+                for (int i = 0; i < quantidadeAlteracoes; i++) {
+                    int id = lerVarInt(entrada);
+                    boolean estornada = entrada.readBoolean();
+                    List<String> anexos = new ArrayList<>();
+                    int quantidadeAnexos = lerVarInt(entrada);
+                    for (int j = 0; j < quantidadeAnexos; j++) {
+                        anexos.add(lerTexto());
+                    }
+                    alteracoes.add(new ArquivoTransacoes.Alteracao(id, estornada, anexos));
+                }
+                dados.alteracoesHistorico = alteracoes;
+            }
+        }
+        
+        private void lerAcervo(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            int quantidade = lerVarInt(entrada);
+            for (int i = 0; i < quantidade; i++) {
+                long meses = desfazerZigZag(lerVarLong(entrada)) - 1;
+                YearMonth mes = YearMonth.of((int) Math.floorDiv(meses, 12L), (int) Math.floorMod(meses, 12L) + 1);
+                dados.volumesAcervo.add(new AcervoMensal.Volume(mes, lerVarInt(entrada)));
+            }
+        }
+        
+        private void lerChaves(GerenciadorPersistencia.DadosSistema dados) throws IOException {
+            int quantidade = lerVarInt(entrada);
+            long[] chaves = new long[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                chaves[i] = entrada.readLong();
+            }
+            dados.chavesImportacao = chaves;
+            dados.quantidadeChaves = quantidade;
+        }
+        
+        private Usuario lerUsuario() throws IOException, ClassNotFoundException {
+            byte tipo = entrada.readByte();
+            switch (tipo) {
+                case USUARIO_INDIVIDUAL:
+                    return UsuarioIndividual.restaurar(lerTexto(), lerTexto(), lerTexto(), lerTexto(), lerTexto(),
+                        entrada.readBoolean());
+                case USUARIO_GRUPO:
+                    return Grupo.restaurar(lerTexto(), lerTexto(), lerTexto(), lerVarInt(entrada));
+                case SERIALIZADO:
+                    return (Usuario) lerSerializado();
+                default:
+                    throw new IOException("Tipo de usuário desconhecido: " + tipo);
+            }
+        }
+        
+        private ContaFinanceira lerConta() throws IOException, ClassNotFoundException {
+            byte tipo = entrada.readByte();
+            if (tipo == SERIALIZADO) {
+                return (ContaFinanceira) lerSerializado();
+            }
+            String numero = lerTexto();
+            Usuario titular = lerUsuarioReferenciado();
+            boolean ativa = entrada.readBoolean();
+            double saldo = entrada.readDouble();
+            switch (tipo) {
+                case CONTA_CORRENTE:
+                    double limiteChequeEspecial = entrada.readDouble();
+                    return ContaCorrente.restaurar(numero, titular, saldo, limiteChequeEspecial, entrada.readDouble(), ativa);
+                case CONTA_DIGITAL:
+                    return ContaDigital.restaurar(numero, titular, saldo, entrada.readDouble(), ativa);
+                case CARTAO_CREDITO:
+                    double limite = entrada.readDouble();
+                    double limiteDisponivel = entrada.readDouble();
+                    LocalDate fechamento = lerData();
+                    LocalDate vencimento = lerData();
+                    return CartaoCredito.restaurar(numero, titular, limite, limiteDisponivel, saldo,
+                        fechamento, vencimento, ativa);
+                case COFRINHO:
+                    String objetivo = lerTexto();
+                    double metaValor = entrada.readDouble();
+                    LocalDate criacao = lerData();
+                    LocalDate prazo = lerData();
+                    return Cofrinho.restaurar(numero, titular, saldo, objetivo, metaValor, criacao, prazo, ativa);
+                case CARTEIRA_INVESTIMENTO:
+                    return CarteiraInvestimento.restaurar(numero, titular, saldo, lerTexto(), ativa);
+                default:
+                    throw new IOException("Tipo de conta desconhecido: " + tipo);
+            }
+        }
+        
+        private Transacao lerTransacao() throws IOException {
+            int id = lerVarInt(entrada);
+            TipoTransacao tipo = lerEnum(tipos);
+            Categoria categoria = lerEnum(categorias);
+            String subcategoria = lerTexto();
+            double valor = entrada.readDouble();
+            LocalDate data = lerData();
+            String descricao = lerTexto();
+            Usuario pagador = lerUsuarioReferenciado();
+            Usuario beneficiario = lerUsuarioReferenciado();
+            ContaFinanceira origem = lerContaReferenciada();
+            ContaFinanceira destino = lerContaReferenciada();
+            byte marcas = entrada.readByte();
+            
+            Transacao t = Transacao.restaurar(id, tipo, categoria, valor, data, descricao, pagador, origem, (marcas & 2) != 0);
+            t.setBeneficiario(beneficiario);
+            t.setContaDestino(destino);
+            t.setRecorrente((marcas & 1) != 0);
+            if (subcategoria != null) {
+                t.setSubcategoria(subcategoria);
+            }
+            t.setParcelas(lerVarInt(entrada));
+            t.setParcelaAtual(lerVarInt(entrada));
+            int anexos = lerVarInt(entrada);
+            for (int i = 0; i < anexos; i++) {
+                t.adicionarAnexo(lerTexto());
+            }
+            return t;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private <E extends Enum<E>> E[] lerNomes(Class<E> tipo) throws IOException {
+            E[] constantes = (E[]) java.lang.reflect.Array.newInstance(tipo, lerVarInt(entrada));
+            for (int i = 0; i < constantes.length; i++) {
+                constantes[i] = Enum.valueOf(tipo, lerTexto());
+            }
+            return constantes;
+        }
+        
+        private <E> E lerEnum(E[] constantes) throws IOException {
+            int posicao = lerVarInt(entrada);
+            return posicao == 0 ? null : constantes[posicao - 1];
+        }
+        
+        private Usuario lerUsuarioReferenciado() throws IOException {
+            int posicao = lerVarInt(entrada);
+            return posicao == 0 ? null : usuarios[posicao - 1];
+        }
+        
+        private ContaFinanceira lerContaReferenciada() throws IOException {
+            int posicao = lerVarInt(entrada);
+            return posicao == 0 ? null : contas[posicao - 1];
+        }
+        
+        private LocalDate lerData() throws IOException {
+            return entrada.readBoolean() ? LocalDate.ofEpochDay(desfazerZigZag(lerVarLong(entrada))) : null;
+        }
+        
+        private String lerTexto() throws IOException {
+            int marca = lerVarInt(entrada);
+            if (marca == 0) {
+                return null;
+            }
+            if (marca >= 2) {
+                return textos.get(marca - 2);
+            }
+            byte[] bytes = new byte[lerVarInt(entrada)];
+            entrada.readFully(bytes);
+            String texto = new String(bytes, StandardCharsets.UTF_8);
+            textos.add(texto);
+            return texto;
+        }
+        
+        private Object lerSerializado() throws IOException, ClassNotFoundException {
+            byte[] bytes = new byte[lerVarInt(entrada)];
+            entrada.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return ois.readObject();
+            }
+        }
+    }
+    
+    // ===== Diferenças sobre a base =====
+    
+    // O que a persistência guarda do último snapshot completo para gravar os
+    // seguintes como diferença: a ordem das tabelas e a impressão de cada segmento
+    static final class Base {
+        private final long identificador;
+        private final List<Usuario> usuarios;
+        private final List<ContaFinanceira> contas;
+        private final Map<ChaveSegmento, Object> impressoes;
+        // Meses com segmento no arquivo completo
+        private final Set<Long> meses;
+        private final long tamanho;
+        
+        private Base(long identificador, List<Usuario> usuarios, List<ContaFinanceira> contas,
+                     Map<ChaveSegmento, Object> impressoes, Set<Long> meses, long tamanho) {
+            this.identificador = identificador;
+            this.usuarios = usuarios;
+            this.contas = contas;
+            this.impressoes = impressoes;
+            this.meses = meses;
+            this.tamanho = tamanho;
+        }
+        
+        // Bytes do arquivo completo
+        long getTamanho() {
+            return tamanho;
+        }
+    }
+    
+    private record ChaveSegmento(byte tipo, long chave) {}
+    
+    // Quantidade e soma das versões de alteração: uma inclusão muda a quantidade e
+    // qualquer alteração aumenta a soma
+    private record ImpressaoMes(int quantidade, long versoes) {}
+    
+    private record ImpressaoPlanejamento(int metas, int orcamentos, long versoes, long primeiraLinhaHistorico,
+                                         int linhasHistorico, List<ArquivoTransacoes.Alteracao> alteracoes) {}
+    
+    // O cadastro não tem impressão: é pequeno e muda a cada saldo, então vai sempre
+    private static Map<ChaveSegmento, Object> impressoes(GerenciadorPersistencia.DadosSistema dados,
+                                                         Map<Long, List<Integer>> porMes) {
+        Map<ChaveSegmento, Object> impressoes = new HashMap<>();
+        for (Map.Entry<Long, List<Integer>> mes : porMes.entrySet()) {
+            long versoes = 0;
+            for (int posicao : mes.getValue()) {
+                versoes += dados.transacoes.get(posicao).getVersaoAlteracao();
+            }
+            impressoes.put(new ChaveSegmento(SEGMENTO_TRANSACOES, mes.getKey()),
+                new ImpressaoMes(mes.getValue().size(), versoes));
+        }
+        
+        long versoes = 0;
+        for (Meta meta : dados.metas) {
+            versoes += meta.getVersaoAlteracao();
+        }
+        for (Orcamento orcamento : dados.orcamentos) {
+            versoes += orcamento.getVersaoAlteracao();
+        }
+        impressoes.put(new ChaveSegmento(SEGMENTO_PLANEJAMENTO, 0), new ImpressaoPlanejamento(
+            dados.metas.size(), dados.orcamentos.size(), versoes, dados.primeiraLinhaHistorico,
+            dados.linhasHistorico, dados.alteracoesHistorico == null ? List.of() : List.copyOf(dados.alteracoesHistorico)));
+        impressoes.put(new ChaveSegmento(SEGMENTO_ACERVO, 0), List.copyOf(dados.volumesAcervo));
+        // As chaves só crescem: a quantidade basta
+        impressoes.put(new ChaveSegmento(SEGMENTO_CHAVES, 0), dados.quantidadeChaves);
+        return impressoes;
+    }
+    
+    // Posições na lista, agrupadas por mês; dentro do mês ficam em ordem crescente
+    private static Map<Long, List<Integer>> agruparPorMes(List<Transacao> transacoes) {
+        Map<Long, List<Integer>> porMes = new TreeMap<>();
+        for (int i = 0; i < transacoes.size(); i++) {
+            LocalDate data = transacoes.get(i).getData();
+            long mes = data == null ? 0 : zigZag(data.getYear() * 12L + data.getMonthValue());
+            porMes.computeIfAbsent(mes, m -> new ArrayList<>()).add(i);
+        }
+        return porMes;
+    }
+    
+    // Diferente de zero: zero no cabeçalho quer dizer "sem base"
+    private static long novoIdentificador() {
+        long identificador;
+        do {
+            identificador = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        } while (identificador == 0);
+        return identificador;
+    }
+    
+    // Entrada do manifesto; na leitura aponta para o trecho do corpo do arquivo
+    private record Segmento(byte tipo, long chave, byte[] bytes, int inicio, int tamanho, int crc) {
+        Segmento(byte tipo, long chave, byte[] bytes) {
+            this(tipo, chave, bytes, 0, bytes.length, 0);
+        }
+    }
+    
+    // O que sobra da leitura de um snapshot segmentado, já sem os bytes do arquivo
+    private record Decodificado(GerenciadorPersistencia.DadosSistema dados, Transacao[] transacoes) {}
+    
+    private record ArquivoSegmentado(byte versao, long geracao, long identificador, long base, int transacoes,
+                                     List<Segmento> segmentos, long tamanho) {}
+    
+    private interface Corpo {
+        void escrever() throws IOException;
+    }
+    
+    private static int crc(byte[] bytes, int inicio, int tamanho) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, inicio, tamanho);
+        return (int) crc.getValue();
+    }
+    
+    // ===== Inteiros de tamanho variável (7 bits por byte) =====
+    
+    static void escreverVarInt(DataOutput saida, int valor) throws IOException {
+        escreverVarLong(saida, valor & 0xFFFFFFFFL);
+    }
+    
+    static void escreverVarLong(DataOutput saida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            saida.writeByte((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.writeByte((int) valor);
+    }
+    
+    static int lerVarInt(DataInput entrada) throws IOException {
+        return (int) lerVarLong(entrada);
+    }
+    
+    static long lerVarLong(DataInput entrada) throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            byte b = entrada.readByte();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint malformado");
+    }
+    
+    // Números negativos pequenos (datas antes de 1970) continuam ocupando poucos bytes
+    static long zigZag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+    
+    static long desfazerZigZag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+}
@@ -0,0 +1,671 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import Interfaces.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Diário de alterações do GerenciadorFinanceiro (write-ahead log).
+// Cada alteração vira um registro compacto acrescentado ao fim do arquivo, então
+// salvar custa o tamanho do que mudou e não o do histórico inteiro. O arquivo começa
+// com a geração do snapshot a que pertence: na carga ele só é reproduzido se a
+// geração for a mesma do snapshot (um diário de geração anterior já foi compactado).
+//
+// Formato: cabeçalho [int MAGICO][long geração] seguido de registros
+// [int tamanho][int crc32][byte tipo][conteúdo]. Um registro incompleto ou com crc
+// errado (queda no meio da gravação) encerra a leitura e é descartado.
+//
+// Os registros entram em memória sob o monitor do diário; a gravação em disco usa
+// outra trava (travaArquivo), então quem altera dados não espera pelo disco.
+public class DiarioAlteracoes implements OuvinteAlteracoes {
+    private static final int MAGICO = 0x44494152; // "DIAR"
+    private static final int TAMANHO_CABECALHO = 12;
+    
+    private static final byte USUARIO = 1;
+    private static final byte EMAIL = 2;
+    private static final byte MEMBRO = 3;
+    private static final byte CONTA = 4;
+    private static final byte MOVIMENTO = 5;
+    private static final byte TRANSACAO = 6;
+    private static final byte LOTE = 7;
+    private static final byte ESTORNO = 8;
+    private static final byte ANEXO = 9;
+    private static final byte META = 10;
+    private static final byte CONTRIBUICAO_META = 11;
+    private static final byte ORCAMENTO = 12;
+    private static final byte CHAVES = 13;
+    
+    // Como uma entidade aparece dentro de um registro
+    private static final byte NULO = 0;
+    private static final byte POR_CHAVE = 1;
+    private static final byte EMBUTIDO = 2;
+    
+    private final Path arquivo;
+    private final GerenciadorFinanceiro gerenciador;
+    
+    // Registros ainda não gravados; descarregar() leva todos ao disco de uma vez
+    private final ByteArrayOutputStream pendentes = new ByteArrayOutputStream();
+    private long geracao;
+    private long tamanhoGravado;
+    private int registros;
+    private boolean reproduzindo;
+    
+    // O estado foi trocado por inteiro (ou um registro não pôde ser montado):
+    // só um snapshot novo representa o que está em memória
+    private boolean desatualizado;
+    
+    // Geração nova ainda sem arquivo: o próximo descarregar() recria o arquivo
+    private boolean arquivoPendente;
+    
+    // Ordem das travas: travaArquivo e depois o monitor do diário
+    private final Object travaArquivo = new Object();
+    
+    public DiarioAlteracoes(Path arquivo, GerenciadorFinanceiro gerenciador) {
+        this.arquivo = arquivo;
+        this.gerenciador = gerenciador;
+    }
+    
+    // Reaplica no gerenciador os registros do diário da geração informada e deixa o
+    // arquivo pronto para novos registros. Diário de outra geração é descartado.
+    public int reproduzir(long geracaoSnapshot) throws IOException {
+        synchronized (travaArquivo) {
+            synchronized (this) {
+                return reproduzirArquivo(geracaoSnapshot);
+            }
+        }
+    }
+    
+    private int reproduzirArquivo(long geracaoSnapshot) throws IOException {
+        if (!Files.exists(arquivo)) {
+            recriarArquivo(geracaoSnapshot);
+            return 0;
+        }
+        
+        int aplicados = 0;
+        long fimValido = TAMANHO_CABECALHO;
+        // Diário de outra geração: o arquivo só é recriado depois de fechado
+        boolean outraGeracao = false;
+        reproduzindo = true;
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            outraGeracao = entrada.readInt() != MAGICO || entrada.readLong() != geracaoSnapshot;
+            
+            byte[] corpo;
+            while (!outraGeracao && (corpo = lerRegistro(entrada)) != null) {
+                try {
+                    aplicar(new DataInputStream(new ByteArrayInputStream(corpo)));
+                } catch (Exception e) {
+                    throw new IOException("Registro " + (aplicados + 1) + " do diário não pôde ser aplicado: " + e.getMessage(), e);
+                }
+                aplicados++;
+                fimValido += 8 + corpo.length;
+            }
+        } catch (EOFException e) {
+            // Cabeçalho incompleto: o diário nem chegou a ser iniciado
+            recriarArquivo(geracaoSnapshot);
+            return 0;
+        } finally {
+            reproduzindo = false;
+        }
+        if (outraGeracao) {
+            recriarArquivo(geracaoSnapshot);
+            return 0;
+        }
+        
+        // Corta um eventual registro pela metade para os próximos ficarem logo após o último válido
+        try (RandomAccessFile acesso = new RandomAccessFile(arquivo.toFile(), "rw")) {
+            acesso.setLength(fimValido);
+        }
+        geracao = geracaoSnapshot;
+        tamanhoGravado = fimValido;
+        registros = aplicados;
+        desatualizado = false;
+        arquivoPendente = false;
+        pendentes.reset();
+        return aplicados;
+    }
+    
+    // null no fim do arquivo ou em registro truncado/corrompido
+    private static byte[] lerRegistro(DataInputStream entrada) throws IOException {
+        try {
+            int tamanho = entrada.readInt();
+            int crc = entrada.readInt();
+            if (tamanho <= 0) {
+                return null;
+            }
+            byte[] corpo = new byte[tamanho];
+            entrada.readFully(corpo);
+            return crc == calcularCrc(corpo) ? corpo : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+    
+    // Começa um diário vazio para a geração informada (após gravar um snapshot)
+    public void reiniciar(long novaGeracao) throws IOException {
+        synchronized (travaArquivo) {
+            synchronized (this) {
+                recriarArquivo(novaGeracao);
+            }
+        }
+    }
+    
+    // Passa para a geração informada só em memória; o arquivo é recriado no próximo
+    // descarregar(). A compactação chama isto sem nenhuma alteração em andamento e
+    // grava o snapshot depois, fora da trava exclusiva.
+    public synchronized void iniciarGeracao(long novaGeracao) {
+        geracao = novaGeracao;
+        tamanhoGravado = TAMANHO_CABECALHO;
+        registros = 0;
+        desatualizado = false;
+        arquivoPendente = true;
+        pendentes.reset();
+    }
+    
+    // O snapshot da geração atual não chegou ao disco: o próximo salvamento compacta de novo
+    public synchronized void marcarDesatualizado() {
+        desatualizado = true;
+    }
+    
+    // Chamado com as duas travas
+    private void recriarArquivo(long novaGeracao) throws IOException {
+        iniciarGeracao(novaGeracao);
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            escreverTudo(canal, cabecalho(novaGeracao));
+            canal.force(false);
+        }
+        arquivoPendente = false;
+    }
+    
+    private static ByteBuffer cabecalho(long geracao) {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        cabecalho.putInt(MAGICO).putLong(geracao).flip();
+        return cabecalho;
+    }
+    
+    private static void escreverTudo(FileChannel canal, ByteBuffer dados) throws IOException {
+        while (dados.hasRemaining()) {
+            canal.write(dados);
+        }
+    }
+    
+    // Acrescenta ao arquivo os registros pendentes e espera chegarem ao disco. Os
+    // pendentes são trocados por um buffer vazio antes da gravação, então novos
+    // registros continuam entrando enquanto o disco trabalha.
+    public void descarregar() throws IOException {
+        synchronized (travaArquivo) {
+            byte[] bloco;
+            boolean recriar;
+            long geracaoBloco;
+            long inicio;
+            synchronized (this) {
+                if (pendentes.size() == 0 && !arquivoPendente) {
+                    return;
+                }
+                bloco = pendentes.toByteArray();
+                pendentes.reset();
+                recriar = arquivoPendente;
+                geracaoBloco = geracao;
+                inicio = tamanhoGravado;
+            }
+            
+            try {
+                if (recriar) {
+                    try (FileChannel canal = FileChannel.open(arquivo,
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        escreverTudo(canal, cabecalho(geracaoBloco));
+                        escreverTudo(canal, ByteBuffer.wrap(bloco));
+                        canal.force(false);
+                    }
+                    inicio = TAMANHO_CABECALHO;
+                } else {
+                    // Um bloco que falhou pela metade é cortado antes de gravar de novo
+                    try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+                        if (canal.size() > inicio) {
+                            canal.truncate(inicio);
+                        }
+                        canal.position(inicio);
+                        escreverTudo(canal, ByteBuffer.wrap(bloco));
+                        canal.force(false);
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (geracao == geracaoBloco) {
+                        byte[] depois = pendentes.toByteArray();
+                        pendentes.reset();
+                        pendentes.write(bloco, 0, bloco.length);
+                        pendentes.write(depois, 0, depois.length);
+                    }
+                }
+                throw e;
+            }
+            
+            synchronized (this) {
+                if (geracao == geracaoBloco) {
+                    tamanhoGravado = inicio + bloco.length;
+                    if (recriar) {
+                        arquivoPendente = false;
+                    }
+                }
+            }
+        }
+    }
+    
+    public synchronized long getGeracao() {
+        return geracao;
+    }
+    
+    public synchronized long getTamanho() {
+        return tamanhoGravado + pendentes.size();
+    }
+    
+    public synchronized int getRegistros() {
+        return registros;
+    }
+    
+    public synchronized boolean isDesatualizado() {
+        return desatualizado;
+    }
+    
+    // ===== Registros (chamados pelo gerenciador logo após cada alteração) =====
+    
+    @Override
+    public synchronized void usuarioAdicionado(Usuario usuario) {
+        registrar(USUARIO, saida -> escreverObjeto(saida, usuario));
+    }
+    
+    @Override
+    public synchronized void emailAlterado(Usuario usuario) {
+        registrar(EMAIL, saida -> {
+            saida.writeUTF(usuario.getId());
+            escreverTexto(saida, usuario.getEmail());
+        });
+    }
+    
+    @Override
+    public synchronized void membroAdicionado(Grupo grupo, UsuarioIndividual membro) {
+        registrar(MEMBRO, saida -> {
+            saida.writeUTF(grupo.getId());
+            saida.writeUTF(membro.getId());
+        });
+    }
+    
+    @Override
+    public synchronized void contaAdicionada(ContaFinanceira conta) {
+        registrar(CONTA, saida -> escreverObjeto(saida, conta));
+    }
+    
+    @Override
+    public synchronized void contaMovimentada(ContaFinanceira conta, double valor) {
+        registrar(MOVIMENTO, saida -> {
+            escreverConta(saida, conta);
+            saida.writeDouble(valor);
+        });
+    }
+    
+    @Override
+    public synchronized void transacaoAdicionada(Transacao transacao, boolean saldoAplicado) {
+        registrar(TRANSACAO, saida -> {
+            escreverTransacao(saida, transacao);
+            saida.writeBoolean(saldoAplicado);
+        });
+    }
+    
+    @Override
+    public synchronized void loteAdicionado(List<Transacao> aceitas, boolean[] saldoAplicado) {
+        registrar(LOTE, saida -> {
+            saida.writeInt(aceitas.size());
+            for (int i = 0; i < aceitas.size(); i++) {
+                escreverTransacao(saida, aceitas.get(i));
+                saida.writeBoolean(saldoAplicado[i]);
+            }
+        });
+    }
+    
+    @Override
+    public synchronized void chavesRegistradas(long[] chaves) {
+        registrar(CHAVES, saida -> {
+            saida.writeInt(chaves.length);
+            for (long chave : chaves) {
+                saida.writeLong(chave);
+            }
+        });
+    }
+    
+    @Override
+    public synchronized void transacaoEstornada(Transacao transacao) {
+        registrar(ESTORNO, saida -> saida.writeInt(transacao.getId()));
+    }
+    
+    @Override
+    public synchronized void anexoAdicionado(Transacao transacao, String caminho) {
+        registrar(ANEXO, saida -> {
+            saida.writeInt(transacao.getId());
+            saida.writeUTF(caminho);
+        });
+    }
+    
+    @Override
+    public synchronized void metaAdicionada(Meta meta) {
+        registrar(META, saida -> escreverObjeto(saida, meta));
+    }
+    
+    // Metas não têm id; a posição na lista (só cresce) identifica a meta
+    @Override
+    public synchronized void metaContribuida(Meta meta, double valor) {
+        int indice = gerenciador.getPosicaoMeta(meta);
+        if (indice < 0) {
+            desatualizado = true;
+            return;
+        }
+        registrar(CONTRIBUICAO_META, saida -> {
+            saida.writeInt(indice);
+            saida.writeDouble(valor);
+        });
+    }
+    
+    @Override
+    public synchronized void orcamentoAdicionado(Orcamento orcamento) {
+        registrar(ORCAMENTO, saida -> escreverObjeto(saida, orcamento));
+    }
+    
+    @Override
+    public synchronized void estadoSubstituido() {
+        desatualizado = true;
+    }
+    
+    private void registrar(byte tipo, Escrita escrita) {
+        if (reproduzindo || desatualizado) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+            DataOutputStream saida = new DataOutputStream(corpo);
+            saida.writeByte(tipo);
+            escrita.escrever(saida);
+            
+            byte[] bytes = corpo.toByteArray();
+            DataOutputStream destino = new DataOutputStream(pendentes);
+            destino.writeInt(bytes.length);
+            destino.writeInt(calcularCrc(bytes));
+            destino.write(bytes);
+            registros++;
+        } catch (IOException e) {
+            // Sem o registro o diário não reproduz mais o estado; o próximo salvamento grava um snapshot
+            desatualizado = true;
+        }
+    }
+    
+    private static int calcularCrc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+    
+    // ===== Reprodução =====
+    
+    private void aplicar(DataInputStream entrada) throws Exception {
+        byte tipo = entrada.readByte();
+        switch (tipo) {
+            case USUARIO:
+                gerenciador.adicionarUsuario((Usuario) lerObjeto(entrada));
+                break;
+            case EMAIL:
+                gerenciador.atualizarEmailUsuario(buscarUsuario(entrada.readUTF()), lerTexto(entrada));
+                break;
+            case MEMBRO:
+                Grupo grupo = (Grupo) buscarUsuario(entrada.readUTF());
+                gerenciador.adicionarMembroGrupo(grupo, (UsuarioIndividual) buscarUsuario(entrada.readUTF()));
+                break;
+            case CONTA:
+                gerenciador.adicionarConta((ContaFinanceira) lerObjeto(entrada));
+                break;
+            case MOVIMENTO:
+                ContaFinanceira conta = lerConta(entrada);
+                double valor = entrada.readDouble();
+                if (valor >= 0) {
+                    gerenciador.depositarEmConta(conta, valor);
+                } else {
+                    gerenciador.sacarDaConta(conta, -valor);
+                }
+                break;
+            case TRANSACAO:
+                Transacao transacao = lerTransacao(entrada);
+                gerenciador.incluirTransacao(transacao, entrada.readBoolean());
+                break;
+            case LOTE:
+                int quantidade = entrada.readInt();
+                Transacao[] linhas = new Transacao[quantidade];
+                boolean[] saldos = new boolean[quantidade];
+                for (int i = 0; i < quantidade; i++) {
+                    linhas[i] = lerTransacao(entrada);
+                    saldos[i] = entrada.readBoolean();
+                }
+                gerenciador.incluirLote(linhas, saldos);
+                break;
+            case CHAVES:
+                long[] chaves = new long[entrada.readInt()];
+                for (int i = 0; i < chaves.length; i++) {
+                    chaves[i] = entrada.readLong();
+                }
+                gerenciador.registrarChaves(chaves);
+                break;
+            case ESTORNO:
+                gerenciador.estornarTransacao(entrada.readInt());
+                break;
+            case ANEXO:
+                Transacao anexada = gerenciador.buscarTransacaoPorId(entrada.readInt());
+                gerenciador.adicionarAnexo(anexada, entrada.readUTF());
+                break;
+            case META:
+                gerenciador.adicionarMeta((Meta) lerObjeto(entrada));
+                break;
+            case CONTRIBUICAO_META:
+                Meta meta = gerenciador.getMetas().get(entrada.readInt());
+                gerenciador.contribuirMeta(meta, entrada.readDouble());
+                break;
+            case ORCAMENTO:
+                gerenciador.adicionarOrcamento((Orcamento) lerObjeto(entrada));
+                break;
+            default:
+                throw new IOException("Tipo de registro desconhecido: " + tipo);
+        }
+    }
+    
+    private Usuario buscarUsuario(String id) throws IOException {
+        Usuario usuario = gerenciador.buscarUsuarioPorId(id);
+        if (usuario == null) {
+            throw new IOException("Usuário não encontrado: " + id);
+        }
+        return usuario;
+    }
+    
+    // ===== Codificação =====
+    
+    // Campos na ordem fixa; usuários e contas cadastrados vão só pela chave
+    private void escreverTransacao(DataOutputStream saida, Transacao t) throws IOException {
+        saida.writeInt(t.getId());
+        saida.writeUTF(t.getTipo().name());
+        escreverTexto(saida, t.getCategoria() == null ? null : t.getCategoria().name());
+        escreverTexto(saida, t.getSubcategoria());
+        saida.writeDouble(t.getValor());
+        saida.writeLong(t.getData().toEpochDay());
+        escreverTexto(saida, t.getDescricao());
+        escreverUsuario(saida, t.getPagador());
+        escreverUsuario(saida, t.getBeneficiario());
+        escreverConta(saida, t.getContaOrigem());
+        escreverConta(saida, t.getContaDestino());
+        saida.writeBoolean(t.isRecorrente());
+        saida.writeInt(t.getParcelas());
+        saida.writeInt(t.getParcelaAtual());
+        saida.writeInt(t.getAnexos().size());
+        for (String anexo : t.getAnexos()) {
+            saida.writeUTF(anexo);
+        }
+    }
+    
+    private Transacao lerTransacao(DataInputStream entrada) throws IOException, ClassNotFoundException {
+        int id = entrada.readInt();
+        TipoTransacao tipo = TipoTransacao.valueOf(entrada.readUTF());
+        String categoria = lerTexto(entrada);
+        String subcategoria = lerTexto(entrada);
+        double valor = entrada.readDouble();
+        LocalDate data = LocalDate.ofEpochDay(entrada.readLong());
+        String descricao = lerTexto(entrada);
+        Usuario pagador = lerUsuario(entrada);
+        Usuario beneficiario = lerUsuario(entrada);
+        ContaFinanceira origem = lerConta(entrada);
+        ContaFinanceira destino = lerConta(entrada);
+        
+        Transacao t = Transacao.restaurar(id, tipo, categoria == null ? null : Categoria.valueOf(categoria),
+            valor, data, descricao, pagador, origem);
+        t.setBeneficiario(beneficiario);
+        t.setContaDestino(destino);
+        if (subcategoria != null) {
+            t.setSubcategoria(subcategoria);
+        }
+        t.setRecorrente(entrada.readBoolean());
+        t.setParcelas(entrada.readInt());
+        t.setParcelaAtual(entrada.readInt());
+        int anexos = entrada.readInt();
+        for (int i = 0; i < anexos; i++) {
+            t.adicionarAnexo(entrada.readUTF());
+        }
+        return t;
+    }
+    
+    private void escreverUsuario(DataOutputStream saida, Usuario usuario) throws IOException {
+        if (usuario == null) {
+            saida.writeByte(NULO);
+        } else if (gerenciador.buscarUsuarioPorId(usuario.getId()) == usuario) {
+            saida.writeByte(POR_CHAVE);
+            saida.writeUTF(usuario.getId());
+        } else {
+            saida.writeByte(EMBUTIDO);
+            escreverObjeto(saida, usuario);
+        }
+    }
+    
+    private Usuario lerUsuario(DataInputStream entrada) throws IOException, ClassNotFoundException {
+        byte forma = entrada.readByte();
+        if (forma == NULO) return null;
+        if (forma == POR_CHAVE) return buscarUsuario(entrada.readUTF());
+        return (Usuario) lerObjeto(entrada);
+    }
+    
+    private void escreverConta(DataOutputStream saida, ContaFinanceira conta) throws IOException {
+        if (conta == null) {
+            saida.writeByte(NULO);
+        } else if (gerenciador.buscarContaPorNumero(conta.getNumeroConta()) == conta) {
+            saida.writeByte(POR_CHAVE);
+            saida.writeUTF(conta.getNumeroConta());
+        } else {
+            saida.writeByte(EMBUTIDO);
+            escreverObjeto(saida, conta);
+        }
+    }
+    
+    private ContaFinanceira lerConta(DataInputStream entrada) throws IOException, ClassNotFoundException {
+        byte forma = entrada.readByte();
+        if (forma == NULO) return null;
+        if (forma == POR_CHAVE) {
+            String numero = entrada.readUTF();
+            ContaFinanceira conta = gerenciador.buscarContaPorNumero(numero);
+            if (conta == null) {
+                throw new IOException("Conta não encontrada: " + numero);
+            }
+            return conta;
+        }
+        return (ContaFinanceira) lerObjeto(entrada);
+    }
+    
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        saida.writeBoolean(texto != null);
+        if (texto != null) {
+            saida.writeUTF(texto);
+        }
+    }
+    
+    private static String lerTexto(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+    
+    // Entidades raras (usuários, contas, metas, orçamentos) vão por serialização Java,
+    // trocando as entidades já cadastradas que elas citam pela chave
+    private void escreverObjeto(DataOutputStream saida, Object objeto) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SaidaComChaves objetos = new SaidaComChaves(bytes, objeto)) {
+            objetos.writeObject(objeto);
+        }
+        saida.writeInt(bytes.size());
+        bytes.writeTo(saida);
+    }
+    
+    private Object lerObjeto(DataInputStream entrada) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        try (EntradaComChaves objetos = new EntradaComChaves(new ByteArrayInputStream(bytes))) {
+            return objetos.readObject();
+        }
+    }
+    
+    private interface Escrita {
+        void escrever(DataOutputStream saida) throws IOException;
+    }
+    
+    private record ChaveUsuario(String id) implements Serializable {
+    }
+    
+    private record ChaveConta(String numero) implements Serializable {
+    }
+    
+    private final class SaidaComChaves extends ObjectOutputStream {
+        private final Object raiz;
+        
+        private SaidaComChaves(OutputStream saida, Object raiz) throws IOException {
+            super(saida);
+            this.raiz = raiz;
+            enableReplaceObject(true);
+        }
+        
+        @Override
+        protected Object replaceObject(Object objeto) {
+            if (objeto == raiz) {
+                return objeto;
+            }
+            if (objeto instanceof Usuario usuario && gerenciador.buscarUsuarioPorId(usuario.getId()) == usuario) {
+                return new ChaveUsuario(usuario.getId());
+            }
+            if (objeto instanceof ContaFinanceira conta && gerenciador.buscarContaPorNumero(conta.getNumeroConta()) == conta) {
+                return new ChaveConta(conta.getNumeroConta());
+            }
+            return objeto;
+        }
+    }
+    
+    private final class EntradaComChaves extends ObjectInputStream {
+        
+        private EntradaComChaves(InputStream entrada) throws IOException {
+            super(entrada);
+            enableResolveObject(true);
+        }
+        
+        @Override
+        protected Object resolveObject(Object objeto) {
+            if (objeto instanceof ChaveUsuario chave) {
+                return gerenciador.buscarUsuarioPorId(chave.id());
+            }
+            if (objeto instanceof ChaveConta chave) {
+                return gerenciador.buscarContaPorNumero(chave.numero());
+            }
+            return objeto;
+        }
+    }
+}
@@ -3,160 +3,941 @@ package Gerenciadores;
 import Entidades.*;
 import Enums.*;
 import Exceptions.*;
+import Interfaces.*;
+import java.io.IOException;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 // Singleton
-public class GerenciadorFinanceiro {
-    private static GerenciadorFinanceiro instancia;
-    private List<Usuario> usuarios;
-    private List<ContaFinanceira> contas;
-    private List<Transacao> transacoes;
-    private List<Meta> metas;
-    private List<Orcamento> orcamentos;
+// Seguro para uso por várias threads: as leituras trabalham sobre instantâneos das
+// listas e sobre mapas concorrentes, sem trava e sem cópia; as escritas são serializadas apenas
+// dentro do seu grupo (cadastro, transações ou planejamento) e os saldos são
+// protegidos pelas travas de cada conta (TravasContas).
+// Cada alteração aplicada é repassada ao ouvinte registrado (ex.: diário de persistência).
+// Com um histórico mapeado (ArquivoTransacoes), as transações de sessões anteriores
+// ficam no arquivo e as consultas juntam o histórico com as transações em memória.
+// Meses fechados podem ir para um AcervoMensal: saem das consultas por período do
+// gerenciador (os relatórios leem o acervo sob demanda), mas continuam nos totais,
+// na busca por id e nas listagens, que montam o mês só quando chegam nele. Estornar
+// ou anexar numa transação arquivada devolve o mês dela à memória antes.
+public class GerenciadorFinanceiro implements ConsultaPorPeriodo {
+    private static volatile GerenciadorFinanceiro instancia;
+    private final ListaSomenteInclusao<Usuario> usuarios;
+    private final ListaSomenteInclusao<ContaFinanceira> contas;
+    private final ListaSomenteInclusao<Transacao> transacoes;
+    private final ListaSomenteInclusao<Meta> metas;
+    private final ListaSomenteInclusao<Orcamento> orcamentos;
+    
+    // Índices de busca (mantidos junto com as listas)
+    private final Map<String, Usuario> usuariosPorId;
+    private final Map<String, Usuario> usuariosPorEmail;
+    private final Map<String, ContaFinanceira> contasPorNumero;
+    
+    // Transações e totais separados por titular da conta
+    private final Map<Usuario, ResumoTitular> resumosPorTitular;
+    
+    // Índice por id para estornos e anexos sem varrer a lista
+    private final Map<Integer, Transacao> transacoesPorId;
+    
+    // Posição de cada meta na lista, por identidade (metas não têm id); guardado
+    // pela trava de planejamento
+    private final Map<Meta, Integer> posicoesDasMetas;
+    
+    // Transações agrupadas por dia (epoch day) para consultas por período.
+    // Cada dia tem poucas transações, então a cópia na escrita sai barata
+    private final ConcurrentSkipListMap<Long, CopyOnWriteArrayList<Transacao>> transacoesPorDia;
+    
+    // Transações recorrentes, ponto de partida do agendador de recorrências
+    private final ListaSomenteInclusao<Transacao> recorrentes;
+    
+    // Transações de sessões anteriores, lidas sob demanda; null sem o modo mapeado
+    private volatile ArquivoTransacoes historico;
+    
+    // Meses fechados tirados da memória; null enquanto nada foi arquivado
+    private volatile AcervoMensal acervo;
+    
+    // Chaves das linhas já importadas (ver ChavesImportacao); trocado só por limpar e
+    // pela carga, usado sob travaImportacao
+    private volatile ChavesImportacao chavesImportacao = new ChavesImportacao();
+    
+    // Orçamentos por mês de referência e por responsável (mapas internos imutáveis,
+    // trocados por cópia a cada novo orçamento)
+    private final Map<YearMonth, EnumMap<Categoria, List<Orcamento>>> orcamentosPorMes;
+    private final Map<Usuario, EnumMap<Categoria, Map<YearMonth, Orcamento>>> orcamentosPorResponsavel;
+    
+    // Incrementada a cada alteração; permite saber se um instantâneo ficou desatualizado
+    private final AtomicLong versao = new AtomicLong();
+    
+    // Incrementada quando o estado é limpo ou trocado por inteiro: um snapshot
+    // incremental não vale sobre uma base de antes da troca
+    private final AtomicLong substituicoes = new AtomicLong();
+    
+    // Versão em que cada mês teve transações incluídas, estornadas ou arquivadas pela
+    // última vez; um mês que não está no mapa vale a versão da última troca do
+    // estado inteiro. Permite a quem guarda totais de um mês fechado saber se eles
+    // continuam valendo (ver FechamentosMensais).
+    private final ConcurrentHashMap<YearMonth, Long> versoesPorMes = new ConcurrentHashMap<>();
+    private volatile long versaoDaSubstituicao;
+    
+    // Recebe cada alteração aplicada; null quando ninguém acompanha
+    private volatile OuvinteAlteracoes ouvinte;
+    
+    // Toda alteração segura a leitura desta trava (várias ao mesmo tempo); a escrita
+    // fica para quem precisa do estado parado, sem alteração pela metade
+    private final ReentrantReadWriteLock travaEstado = new ReentrantReadWriteLock();
+    
+    // Travas de escrita; quando mais de uma for necessária, a ordem é sempre esta
+    // (sempre depois da leitura de travaEstado). travaImportacao serializa os lotes
+    // com chaves de deduplicação: a consulta e a inclusão das chaves não se cruzam.
+    private final Object travaImportacao = new Object();
+    private final Object travaCadastro = new Object();
+    private final Object travaTransacoes = new Object();
+    private final Object travaPlanejamento = new Object();
     
     private GerenciadorFinanceiro() {
-        this.usuarios = new ArrayList<>();
-        this.contas = new ArrayList<>();
-        this.transacoes = new ArrayList<>();
-        this.metas = new ArrayList<>();
-        this.orcamentos = new ArrayList<>();
+        this.usuarios = new ListaSomenteInclusao<>();
+        this.contas = new ListaSomenteInclusao<>();
+        this.transacoes = new ListaSomenteInclusao<>();
+        this.metas = new ListaSomenteInclusao<>();
+        this.orcamentos = new ListaSomenteInclusao<>();
+        this.usuariosPorId = new ConcurrentHashMap<>();
+        this.usuariosPorEmail = new ConcurrentHashMap<>();
+        this.contasPorNumero = new ConcurrentHashMap<>();
+        this.resumosPorTitular = new ConcurrentHashMap<>();
+        this.transacoesPorId = new ConcurrentHashMap<>();
+        this.posicoesDasMetas = new IdentityHashMap<>();
+        this.transacoesPorDia = new ConcurrentSkipListMap<>();
+        this.recorrentes = new ListaSomenteInclusao<>();
+        this.orcamentosPorMes = new ConcurrentHashMap<>();
+        this.orcamentosPorResponsavel = new ConcurrentHashMap<>();
     }
     
     public static GerenciadorFinanceiro getInstancia() {
-        if (instancia == null) {
-            instancia = new GerenciadorFinanceiro();
+        GerenciadorFinanceiro atual = instancia;
+        if (atual == null) {
+            synchronized (GerenciadorFinanceiro.class) {
+                atual = instancia;
+                if (atual == null) {
+                    atual = new GerenciadorFinanceiro();
+                    instancia = atual;
+                }
+            }
+        }
+        return atual;
+    }
+    
+    public void setOuvinte(OuvinteAlteracoes ouvinte) {
+        this.ouvinte = ouvinte;
+    }
+    
+    private void avisar(Consumer<OuvinteAlteracoes> aviso) {
+        OuvinteAlteracoes atual = ouvinte;
+        if (atual != null) {
+            aviso.accept(atual);
+        }
+    }
+    
+    // Executa sem nenhuma alteração em andamento (ex.: compactação do diário)
+    public <T> T executarExclusivo(Callable<T> operacao) throws Exception {
+        travaEstado.writeLock().lock();
+        try {
+            return operacao.call();
+        } finally {
+            travaEstado.writeLock().unlock();
         }
-        return instancia;
     }
     
     public void adicionarUsuario(Usuario usuario) {
-        usuarios.add(usuario);
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                incluirUsuario(usuario);
+                avisar(o -> o.usuarioAdicionado(usuario));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    private void incluirUsuario(Usuario usuario) {
+        usuarios.adicionar(usuario);
+        indexarUsuario(usuario);
+        registrarAlteracao();
+    }
+    
+    // Mantém a regra do primeiro cadastrado vencer, como na busca linear
+    private void indexarUsuario(Usuario usuario) {
+        usuariosPorId.putIfAbsent(usuario.getId(), usuario);
+        if (usuario.getEmail() != null) {
+            usuariosPorEmail.putIfAbsent(usuario.getEmail(), usuario);
+        }
+        Usuario.sincronizarContadorId(usuario.getId());
     }
     
     public Usuario buscarUsuarioPorId(String id) {
-        return usuarios.stream()
-            .filter(u -> u.getId().equals(id))
-            .findFirst()
-            .orElse(null);
+        return usuariosPorId.get(id);
     }
     
     public Usuario buscarUsuarioPorEmail(String email) {
-        return usuarios.stream()
-            .filter(u -> u.getEmail().equals(email))
-            .findFirst()
-            .orElse(null);
+        if (email == null) {
+            return null;
+        }
+        Usuario usuario = usuariosPorEmail.get(email);
+        // Descarta entrada antiga caso o email tenha sido alterado direto no usuário
+        if (usuario != null && !email.equals(usuario.getEmail())) {
+            usuariosPorEmail.remove(email, usuario);
+            return null;
+        }
+        return usuario;
     }
     
+    // Altera o email do usuário mantendo o índice de busca atualizado
+    public void atualizarEmailUsuario(Usuario usuario, String novoEmail) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                String emailAntigo = usuario.getEmail();
+                if (emailAntigo != null) {
+                    usuariosPorEmail.remove(emailAntigo, usuario);
+                }
+                usuario.setEmail(novoEmail);
+                if (novoEmail != null) {
+                    usuariosPorEmail.putIfAbsent(novoEmail, usuario);
+                }
+                registrarAlteracao();
+                avisar(o -> o.emailAlterado(usuario));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public boolean adicionarMembroGrupo(Grupo grupo, UsuarioIndividual membro) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                boolean adicionado = grupo.adicionarMembro(membro);
+                if (adicionado) {
+                    registrarAlteracao();
+                    avisar(o -> o.membroAdicionado(grupo, membro));
+                }
+                return adicionado;
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // As listas devolvidas são instantâneos somente leitura: não são copiadas e não
+    // mudam se o gerenciador for alterado depois
     public List<Usuario> getUsuarios() {
-        return new ArrayList<>(usuarios);
+        return usuarios.instantaneo();
+    }
+    
+    public long getVersao() {
+        return versao.get();
+    }
+    
+    long getSubstituicoes() {
+        return substituicoes.get();
+    }
+    
+    private void registrarAlteracao() {
+        versao.incrementAndGet();
+    }
+    
+    // Chamado depois que a alteração já está nos índices: quem leu a versão antes
+    // pode ter visto o estado novo, mas volta a conferir e recalcula
+    private void registrarAlteracao(Collection<YearMonth> meses) {
+        long atual = versao.incrementAndGet();
+        for (YearMonth mes : meses) {
+            versoesPorMes.merge(mes, atual, Math::max);
+        }
     }
     
+    private void registrarSubstituicao() {
+        versoesPorMes.clear();
+        versaoDaSubstituicao = versao.incrementAndGet();
+    }
+    
+    public long getVersaoMes(YearMonth mes) {
+        return Math.max(versoesPorMes.getOrDefault(mes, 0L), versaoDaSubstituicao);
+    }
+    
+    // Atualiza o saldo da conta se a data for hoje ou passado
     public void adicionarTransacao(Transacao transacao) {
-        // Atualiza o saldo da conta se a data for hoje ou passado
-        if (!transacao.getData().isAfter(LocalDate.now())) {
+        incluirTransacao(transacao, !transacao.getData().isAfter(LocalDate.now()));
+    }
+    
+    // O saldo é alterado só com a trava da conta; a trava de transações protege
+    // apenas a inclusão na lista e nas partições. O ouvinte é avisado ainda com a
+    // trava da conta, então o diário registra os movimentos de cada conta na ordem
+    // em que mudaram o saldo e a reprodução não esbarra num saque que ainda não
+    // tinha saldo. A reprodução do diário chama direto com a decisão de saldo
+    // tomada na época do lançamento.
+    void incluirTransacao(Transacao transacao, boolean aplicarSaldo) {
+        travaEstado.readLock().lock();
+        try {
+            ContaFinanceira conta = aplicarSaldo && movimentaSaldo(transacao) ? transacao.getContaOrigem() : null;
             try {
-                if (transacao.getTipo() == TipoTransacao.RECEITA) {
-                    transacao.getContaOrigem().depositar(transacao.getValor());
-                } else if (transacao.getTipo() == TipoTransacao.DESPESA) {
-                    transacao.getContaOrigem().sacar(transacao.getValor());
-                }
+                TravasContas.executar(conta, () -> {
+                    if (transacao.getTipo() == TipoTransacao.RECEITA && conta != null) {
+                        conta.depositar(transacao.getValor());
+                    } else if (conta != null) {
+                        conta.sacar(transacao.getValor());
+                    }
+                    avisar(o -> o.transacaoAdicionada(transacao, aplicarSaldo));
+                    return null;
+                });
             } catch (Exception e) {
                 throw new RuntimeException(e.getMessage());
             }
+            
+            synchronized (travaTransacoes) {
+                transacoes.adicionar(transacao);
+                indexarTransacao(transacao);
+            }
+            
+            if (transacao.getTipo() == TipoTransacao.DESPESA) {
+                atualizarOrcamentos(transacao);
+            }
+            registrarAlteracao(List.of(YearMonth.from(transacao.getData())));
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Estorna a transação e retira o valor dos totais do titular e dos orçamentos do mês.
+    // Como na inclusão, o ouvinte é avisado com as contas ainda travadas.
+    public boolean estornarTransacao(Transacao transacao) throws Exception {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                trazerDoAcervo(transacao);
+            }
+            boolean sucesso = TravasContas.executar(transacao.getContaOrigem(), transacao.getContaDestino(), () -> {
+                boolean estornou = transacao.estornar();
+                if (estornou) {
+                    avisar(o -> o.transacaoEstornada(transacao));
+                }
+                return estornou;
+            });
+            if (sucesso) {
+                // Transações do histórico não estão no resumo; o histórico lê o estorno do próprio objeto
+                ResumoTitular resumo = transacoesPorId.get(transacao.getId()) == transacao ? buscarResumo(transacao) : null;
+                if (resumo != null) {
+                    resumo.somar(transacao, -1);
+                }
+                if (transacao.getTipo() == TipoTransacao.DESPESA) {
+                    removerDosOrcamentos(transacao);
+                }
+                registrarAlteracao(List.of(YearMonth.from(transacao.getData())));
+            }
+            return sucesso;
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public boolean estornarTransacao(int id) throws Exception {
+        Transacao transacao = buscarTransacaoPorId(id);
+        if (transacao == null) {
+            throw new IllegalArgumentException("Transação não encontrada: " + id);
+        }
+        return estornarTransacao(transacao);
+    }
+    
+    // Inclusão em lote (ex.: arquivo do banco). Todas as linhas são validadas antes;
+    // depois cada conta recebe um único movimento líquido e cada orçamento
+    // (categoria, mês) um único incremento. Linhas rejeitadas voltam no resultado
+    // sem interromper o restante do lote.
+    public ResultadoLote adicionarTransacoes(Collection<Transacao> lote) {
+        Transacao[] linhas = lote.toArray(new Transacao[0]);
+        boolean[] aplicarSaldo = new boolean[linhas.length];
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < linhas.length; i++) {
+            aplicarSaldo[i] = linhas[i] != null && linhas[i].getData() != null && !linhas[i].getData().isAfter(hoje);
+        }
+        return incluirLote(linhas, aplicarSaldo, null);
+    }
+    
+    // Importação idempotente: chaves[i] identifica a linha i entre importações (id
+    // externo ou hash do conteúdo). Linha cuja chave já foi registrada, ou repetida
+    // no próprio lote, é ignorada e volta em getDuplicadas(); as chaves das aceitas
+    // passam a contar junto com elas.
+    public ResultadoLote adicionarTransacoes(Collection<Transacao> lote, long[] chaves) {
+        if (chaves == null || chaves.length != lote.size()) {
+            throw new IllegalArgumentException("É preciso uma chave por transação do lote");
+        }
+        Transacao[] linhas = lote.toArray(new Transacao[0]);
+        boolean[] aplicarSaldo = new boolean[linhas.length];
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < linhas.length; i++) {
+            aplicarSaldo[i] = linhas[i] != null && linhas[i].getData() != null && !linhas[i].getData().isAfter(hoje);
+        }
+        return incluirLote(linhas, aplicarSaldo, chaves.clone());
+    }
+    
+    // aplicarSaldo traz, por linha, a regra da data (ou o que foi gravado no diário)
+    ResultadoLote incluirLote(Transacao[] linhas, boolean[] aplicarSaldo) {
+        return incluirLote(linhas, aplicarSaldo, null);
+    }
+    
+    private ResultadoLote incluirLote(Transacao[] linhas, boolean[] aplicarSaldo, long[] chaves) {
+        travaEstado.readLock().lock();
+        try {
+            if (chaves == null) {
+                return incluirLoteComTrava(linhas, aplicarSaldo, null);
+            }
+            synchronized (travaImportacao) {
+                return incluirLoteComTrava(linhas, aplicarSaldo, chaves);
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    private ResultadoLote incluirLoteComTrava(Transacao[] linhas, boolean[] aplicarSaldo, long[] chaves) {
+        ResultadoLote resultado = new ResultadoLote();
+        boolean[] rejeitadas = new boolean[linhas.length];
+        Map<ContaFinanceira, List<Integer>> linhasPorConta = new LinkedHashMap<>();
+        ChavesImportacao registradas = chavesImportacao;
+        Set<Long> chavesDoLote = chaves == null ? null : new HashSet<>();
+        
+        for (int i = 0; i < linhas.length; i++) {
+            if (chaves != null && (registradas.contem(chaves[i]) || !chavesDoLote.add(chaves[i]))) {
+                rejeitadas[i] = true;
+                resultado.registrarDuplicada(i);
+                continue;
+            }
+            String motivo = validarLinha(linhas[i]);
+            if (motivo != null) {
+                rejeitadas[i] = true;
+                resultado.registrarFalha(i, linhas[i], motivo);
+            } else if (aplicarSaldo[i] && movimentaSaldo(linhas[i])) {
+                linhasPorConta.computeIfAbsent(linhas[i].getContaOrigem(), c -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        // As contas do lote ficam travadas até o aviso ao ouvinte, para o diário
+        // registrar o lote na mesma ordem em que ele mudou os saldos
+        List<Transacao> aceitas = new ArrayList<>();
+        boolean[] saldoDasAceitas = new boolean[linhas.length];
+        long[] chavesDasAceitas = chaves == null ? null : new long[linhas.length];
+        Map<YearMonth, EnumMap<Categoria, Double>> gastosPorMes = new HashMap<>();
+        try {
+            TravasContas.executar(linhasPorConta.keySet(), () -> {
+                for (Map.Entry<ContaFinanceira, List<Integer>> entrada : linhasPorConta.entrySet()) {
+                    aplicarSaldosDaConta(entrada.getKey(), entrada.getValue(), linhas, rejeitadas, resultado);
+                }
+                
+                for (int i = 0; i < linhas.length; i++) {
+                    if (rejeitadas[i]) {
+                        continue;
+                    }
+                    Transacao t = linhas[i];
+                    saldoDasAceitas[aceitas.size()] = aplicarSaldo[i];
+                    if (chaves != null) {
+                        chavesDasAceitas[aceitas.size()] = chaves[i];
+                    }
+                    aceitas.add(t);
+                    resultado.registrarAceita(t);
+                    if (t.getTipo() == TipoTransacao.DESPESA && t.getCategoria() != null) {
+                        gastosPorMes.computeIfAbsent(YearMonth.from(t.getData()), m -> new EnumMap<>(Categoria.class))
+                            .merge(t.getCategoria(), t.getValor(), Double::sum);
+                    }
+                }
+                
+                if (!aceitas.isEmpty()) {
+                    boolean[] saldos = Arrays.copyOf(saldoDasAceitas, aceitas.size());
+                    avisar(o -> o.loteAdicionado(Collections.unmodifiableList(aceitas), saldos));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // As falhas já são tratadas linha a linha dentro da operação
+            throw new IllegalStateException(e);
         }
-
-        transacoes.add(transacao);
         
-        if (transacao.getTipo() == TipoTransacao.DESPESA) {
-            atualizarOrcamentos(transacao);
+        synchronized (travaTransacoes) {
+            transacoes.adicionarTodos(aceitas);
+            aceitas.forEach(this::indexarTransacao);
+            if (chaves != null && !aceitas.isEmpty()) {
+                long[] novas = Arrays.copyOf(chavesDasAceitas, aceitas.size());
+                incluirChaves(novas);
+                avisar(o -> o.chavesRegistradas(novas));
+            }
+        }
+        
+        synchronized (travaPlanejamento) {
+            gastosPorMes.forEach((mes, gastos) -> gastos.forEach((categoria, total) -> {
+                for (Orcamento o : getOrcamentosDoMes(categoria, mes)) {
+                    o.adicionarGasto(total);
+                }
+            }));
+        }
+        
+        Set<YearMonth> meses = new HashSet<>();
+        for (Transacao t : aceitas) {
+            meses.add(YearMonth.from(t.getData()));
+        }
+        registrarAlteracao(meses);
+        resultado.ordenarFalhas();
+        return resultado;
+    }
+    
+    private static String validarLinha(Transacao t) {
+        if (t == null) return "Transação nula";
+        if (t.getTipo() == null) return "Tipo da transação não informado";
+        if (t.getData() == null) return "Data da transação não informada";
+        if (!(t.getValor() > 0)) return "Valor da transação deve ser positivo";
+        if (t.getTipo() != TipoTransacao.TRANSFERENCIA && t.getContaOrigem() == null) {
+            return "Conta de origem não informada";
+        }
+        return null;
+    }
+    
+    // Mesma regra de adicionarTransacao: só receitas e despesas mexem no saldo
+    private static boolean movimentaSaldo(Transacao t) {
+        return t.getTipo() == TipoTransacao.RECEITA || t.getTipo() == TipoTransacao.DESPESA;
+    }
+    
+    // Aplica o saldo líquido da conta de uma vez. Se ele for recusado (saldo/limite
+    // insuficiente ou conta inativa), as linhas são aplicadas uma a uma para
+    // identificar exatamente quais falham. No cartão de crédito o pagamento não
+    // ultrapassa a fatura, então somar receitas e despesas mudaria o resultado e as
+    // linhas vão sempre uma a uma. Chamado com a conta travada.
+    private static void aplicarSaldosDaConta(ContaFinanceira conta, List<Integer> indices, Transacao[] linhas,
+                                             boolean[] rejeitadas, ResultadoLote resultado) {
+        if (conta instanceof CartaoCredito || !aplicarLiquido(conta, indices, linhas)) {
+            for (int i : indices) {
+                String motivo = aplicarLinha(conta, linhas[i]);
+                if (motivo != null) {
+                    rejeitadas[i] = true;
+                    resultado.registrarFalha(i, linhas[i], motivo);
+                }
+            }
+        }
+    }
+    
+    private static boolean aplicarLiquido(ContaFinanceira conta, List<Integer> indices, Transacao[] linhas) {
+        if (!conta.isAtiva()) {
+            return false;
+        }
+        double liquido = 0.0;
+        for (int i : indices) {
+            liquido += linhas[i].getTipo() == TipoTransacao.RECEITA ? linhas[i].getValor() : -linhas[i].getValor();
+        }
+        try {
+            if (liquido > 0) {
+                conta.depositar(liquido);
+            } else if (liquido < 0) {
+                return conta.sacar(-liquido);
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
         }
     }
     
+    private static String aplicarLinha(ContaFinanceira conta, Transacao t) {
+        try {
+            if (t.getTipo() == TipoTransacao.RECEITA) {
+                conta.depositar(t.getValor());
+            } else if (!conta.sacar(t.getValor())) {
+                return "Saque não autorizado pela conta";
+            }
+            return null;
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+    
+    // Chamado com a trava de transações, logo após a inclusão na lista principal
+    private void indexarTransacao(Transacao transacao) {
+        transacoesPorId.putIfAbsent(transacao.getId(), transacao);
+        Transacao.sincronizarContadorId(transacao.getId());
+        registrarNoResumo(transacao);
+        transacoesPorDia
+            .computeIfAbsent(transacao.getData().toEpochDay(), d -> new CopyOnWriteArrayList<>())
+            .add(transacao);
+        if (transacao.isRecorrente()) {
+            recorrentes.adicionar(transacao);
+        }
+    }
+    
+    private void registrarNoResumo(Transacao transacao) {
+        Usuario titular = getTitular(transacao);
+        if (titular == null) {
+            return;
+        }
+        ResumoTitular resumo = resumosPorTitular.computeIfAbsent(titular, u -> new ResumoTitular());
+        resumo.transacoes.adicionar(transacao);
+        if (!transacao.isEstornada()) {
+            resumo.somar(transacao, 1);
+        }
+    }
+    
+    private ResumoTitular buscarResumo(Transacao transacao) {
+        Usuario titular = getTitular(transacao);
+        return titular == null ? null : resumosPorTitular.get(titular);
+    }
+    
+    private static Usuario getTitular(Transacao transacao) {
+        return transacao.getConta() == null ? null : transacao.getConta().getTitular();
+    }
+    
     private void atualizarOrcamentos(Transacao transacao) {
-        YearMonth transacaoMes = YearMonth.from(transacao.getData());
-        
-        for (Orcamento o : orcamentos) {
-            if (o.getCategoria().equals(transacao.getCategoria()) && 
-                o.getMesReferencia().equals(transacaoMes)) {
+        synchronized (travaPlanejamento) {
+            for (Orcamento o : getOrcamentosDoMes(transacao.getCategoria(), YearMonth.from(transacao.getData()))) {
                 o.adicionarGasto(transacao.getValor());
             }
         }
     }
     
+    private void removerDosOrcamentos(Transacao transacao) {
+        synchronized (travaPlanejamento) {
+            for (Orcamento o : getOrcamentosDoMes(transacao.getCategoria(), YearMonth.from(transacao.getData()))) {
+                o.removerGasto(transacao.getValor());
+            }
+        }
+    }
+    
+    private List<Orcamento> getOrcamentosDoMes(Categoria categoria, YearMonth mes) {
+        EnumMap<Categoria, List<Orcamento>> porCategoria = orcamentosPorMes.get(mes);
+        if (categoria == null || porCategoria == null) {
+            return Collections.emptyList();
+        }
+        return porCategoria.getOrDefault(categoria, Collections.emptyList());
+    }
+    
+    // Com histórico ou acervo, as transações deles vêm antes (primeiro as arquivadas)
+    // e são montadas ao serem lidas
     public List<Transacao> getTransacoes() {
-        return new ArrayList<>(transacoes);
+        ArquivoTransacoes atual = historico;
+        AcervoMensal arquivado = acervo;
+        List<Transacao> resultado = transacoes.instantaneo();
+        if (atual != null) {
+            resultado = new Concatenacao(atual.todas(), resultado);
+        }
+        return arquivado == null ? resultado : new Concatenacao(arquivado.todas(), resultado);
+    }
+    
+    // Só as transações em memória, sem o histórico nem o acervo (usado nos snapshots)
+    List<Transacao> getTransacoesEmMemoria() {
+        return transacoes.instantaneo();
     }
     
     public List<Transacao> getTransacoesDoUsuario(Usuario usuario) {
-        return transacoes.stream()
-            .filter(t -> t.getConta().getTitular().equals(usuario))
-            .collect(Collectors.toList());
+        ResumoTitular resumo = usuario == null ? null : resumosPorTitular.get(usuario);
+        List<Transacao> emMemoria = resumo == null ? Collections.emptyList() : resumo.transacoes.instantaneo();
+        ArquivoTransacoes atual = historico;
+        AcervoMensal arquivado = acervo;
+        if ((atual == null && arquivado == null) || usuario == null) {
+            return emMemoria;
+        }
+        List<Transacao> resultado = arquivado == null
+            ? new ArrayList<>() : arquivado.filtrar(t -> usuario.equals(getTitular(t)));
+        if (atual != null) {
+            resultado.addAll(atual.getTransacoesDoTitular(usuario));
+        }
+        resultado.addAll(emMemoria);
+        return resultado;
+    }
+    
+    // Varredura de faixa no índice por dia: O(log N + k), sem tocar outros períodos
+    @Override
+    public List<Transacao> getTransacoesPorPeriodo(LocalDate inicio, LocalDate fim) {
+        List<Transacao> resultado = new ArrayList<>();
+        if (inicio.isAfter(fim)) {
+            return resultado;
+        }
+        for (List<Transacao> doDia : transacoesPorDia.subMap(inicio.toEpochDay(), true, fim.toEpochDay(), true).values()) {
+            resultado.addAll(doDia);
+        }
+        ArquivoTransacoes atual = historico;
+        return atual == null ? resultado : intercalarPorData(atual.getTransacoesPorPeriodo(inicio, fim), resultado);
+    }
+    
+    // As duas listas já estão em ordem de data; no mesmo dia o histórico vem antes
+    private static List<Transacao> intercalarPorData(List<Transacao> doHistorico, List<Transacao> emMemoria) {
+        if (doHistorico.isEmpty()) {
+            return emMemoria;
+        }
+        List<Transacao> resultado = new ArrayList<>(doHistorico.size() + emMemoria.size());
+        int j = 0;
+        for (Transacao t : doHistorico) {
+            while (j < emMemoria.size() && emMemoria.get(j).getData().isBefore(t.getData())) {
+                resultado.add(emMemoria.get(j++));
+            }
+            resultado.add(t);
+        }
+        resultado.addAll(emMemoria.subList(j, emMemoria.size()));
+        return resultado;
+    }
+    
+    // Somas do histórico feitas pelos campos do arquivo; só a parte em memória é percorrida
+    @Override
+    public double somarPorTipo(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        ArquivoTransacoes atual = historico;
+        double total = atual == null ? 0 : atual.somarPorTipo(inicio, fim, tipo);
+        for (Transacao t : getTransacoesEmMemoriaPorPeriodo(inicio, fim)) {
+            if (t.getTipo() == tipo) {
+                total += t.getValor();
+            }
+        }
+        return total;
+    }
+    
+    @Override
+    public Map<Categoria, Double> somarPorCategoria(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        ArquivoTransacoes atual = historico;
+        Map<Categoria, Double> totais = atual == null
+            ? new EnumMap<>(Categoria.class) : atual.somarPorCategoria(inicio, fim, tipo);
+        for (Transacao t : getTransacoesEmMemoriaPorPeriodo(inicio, fim)) {
+            if (t.getTipo() == tipo && t.getCategoria() != null) {
+                totais.merge(t.getCategoria(), t.getValor(), Double::sum);
+            }
+        }
+        return totais;
+    }
+    
+    // O histórico pelos campos do arquivo e a memória direto do índice por dia
+    @Override
+    public void acumular(LocalDate inicio, LocalDate fim, Acumulador acumulador) {
+        if (inicio.isAfter(fim)) {
+            return;
+        }
+        ArquivoTransacoes atual = historico;
+        if (atual != null) {
+            atual.acumular(inicio, fim, acumulador);
+        }
+        for (List<Transacao> doDia : transacoesPorDia.subMap(inicio.toEpochDay(), true, fim.toEpochDay(), true).values()) {
+            for (Transacao t : doDia) {
+                acumulador.adicionar(t.getTipo(), t.getCategoria(), t.getValor());
+            }
+        }
+    }
+    
+    // As maiores do histórico e as da memória disputam entre si, de volta em ordem de data
+    @Override
+    public List<Transacao> buscarMaiores(LocalDate inicio, LocalDate fim, TipoTransacao tipo, int quantidade) {
+        ConsultaPorPeriodo emMemoria = this::getTransacoesEmMemoriaPorPeriodo;
+        ArquivoTransacoes atual = historico;
+        if (atual == null) {
+            return emMemoria.buscarMaiores(inicio, fim, tipo, quantidade);
+        }
+        List<Transacao> candidatas = new ArrayList<>(atual.buscarMaiores(inicio, fim, tipo, quantidade));
+        candidatas.addAll(emMemoria.buscarMaiores(inicio, fim, tipo, quantidade));
+        candidatas.sort(Comparator.comparing(Transacao::getData));
+        ConsultaPorPeriodo porData = (de, ate) -> candidatas;
+        return porData.buscarMaiores(inicio, fim, tipo, quantidade);
+    }
+    
+    private List<Transacao> getTransacoesEmMemoriaPorPeriodo(LocalDate inicio, LocalDate fim) {
+        List<Transacao> resultado = new ArrayList<>();
+        if (!inicio.isAfter(fim)) {
+            for (List<Transacao> doDia : transacoesPorDia.subMap(inicio.toEpochDay(), true, fim.toEpochDay(), true).values()) {
+                resultado.addAll(doDia);
+            }
+        }
+        return resultado;
+    }
+    
+    public List<Transacao> getTransacoesDoDia(LocalDate dia) {
+        List<Transacao> doDia = transacoesPorDia.get(dia.toEpochDay());
+        List<Transacao> emMemoria = doDia == null ? Collections.emptyList() : Collections.unmodifiableList(doDia);
+        ArquivoTransacoes atual = historico;
+        return atual == null ? emMemoria : intercalarPorData(atual.getTransacoesDoDia(dia), emMemoria);
+    }
+    
+    public Transacao buscarTransacaoPorId(int id) {
+        Transacao transacao = transacoesPorId.get(id);
+        ArquivoTransacoes atual = historico;
+        if (transacao == null && atual != null) {
+            transacao = atual.buscarPorId(id);
+        }
+        AcervoMensal arquivado = acervo;
+        return transacao != null || arquivado == null ? transacao : arquivado.buscarPorId(id);
+    }
+    
+    public void adicionarAnexo(Transacao transacao, String caminho) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                trazerDoAcervo(transacao);
+                transacao.adicionarAnexo(caminho);
+                registrarAlteracao();
+                avisar(o -> o.anexoAdicionado(transacao, caminho));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
     }
     
     public List<Transacao> getTransacoesPorTipo(TipoTransacao tipo) {
-        return transacoes.stream()
+        ArquivoTransacoes atual = historico;
+        AcervoMensal arquivado = acervo;
+        List<Transacao> resultado = arquivado == null ? new ArrayList<>() : arquivado.filtrar(t -> t.getTipo() == tipo);
+        if (atual != null) {
+            resultado.addAll(atual.getTransacoesPorTipo(tipo));
+        }
+        transacoes.instantaneo().stream()
             .filter(t -> t.getTipo() == tipo)
-            .collect(Collectors.toList());
+            .forEach(resultado::add);
+        return resultado;
     }
     
     public List<Transacao> getTransacoesPorCategoria(Categoria categoria) {
-        return transacoes.stream()
+        ArquivoTransacoes atual = historico;
+        AcervoMensal arquivado = acervo;
+        List<Transacao> resultado = arquivado == null
+            ? new ArrayList<>() : arquivado.filtrar(t -> t.getCategoria() == categoria);
+        if (atual != null) {
+            resultado.addAll(atual.getTransacoesPorCategoria(categoria));
+        }
+        transacoes.instantaneo().stream()
             .filter(t -> t.getCategoria() == categoria)
-            .collect(Collectors.toList());
+            .forEach(resultado::add);
+        return resultado;
     }
     
     public void adicionarMeta(Meta meta) {
-        metas.add(meta);
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaPlanejamento) {
+                incluirMeta(meta);
+                registrarAlteracao();
+                avisar(o -> o.metaAdicionada(meta));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public void contribuirMeta(Meta meta, double valor) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaPlanejamento) {
+                meta.contribuir(valor);
+                registrarAlteracao();
+                avisar(o -> o.metaContribuida(meta, valor));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
     }
     
     public List<Meta> getMetas() {
-        return new ArrayList<>(metas);
+        return metas.instantaneo();
+    }
+    
+    // Posição da meta em getMetas, ou -1 se ela não está no gerenciador
+    public int getPosicaoMeta(Meta meta) {
+        synchronized (travaPlanejamento) {
+            return posicoesDasMetas.getOrDefault(meta, -1);
+        }
     }
     
     public List<Meta> getMetasDoUsuario(Usuario usuario) {
-        return metas.stream()
+        return metas.instantaneo().stream()
             .filter(m -> m.getUsuario().equals(usuario))
             .collect(Collectors.toList());
     }
     
     public List<Meta> getMetasAtrasadas() {
         LocalDate hoje = LocalDate.now();
-        return metas.stream()
+        return metas.instantaneo().stream()
             .filter(m -> m.getPrazo().isBefore(hoje) && !m.isConcluida())
             .collect(Collectors.toList());
     }
     
     public List<Meta> getMetasAlcancadas() {
-        return metas.stream()
+        return metas.instantaneo().stream()
             .filter(Meta::isConcluida)
             .collect(Collectors.toList());
     }
     
     public void adicionarConta(ContaFinanceira conta) {
-        contas.add(conta);
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                incluirConta(conta);
+                avisar(o -> o.contaAdicionada(conta));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    private void incluirConta(ContaFinanceira conta) {
+        contas.adicionar(conta);
+        if (conta.getNumeroConta() != null) {
+            contasPorNumero.putIfAbsent(conta.getNumeroConta(), conta);
+        }
+        registrarAlteracao();
+    }
+    
+    // Depósito avulso, fora de uma transação (ex.: dinheiro guardado no cofrinho)
+    public void depositarEmConta(ContaFinanceira conta, double valor) throws Exception {
+        travaEstado.readLock().lock();
+        try {
+            TravasContas.executar(conta, () -> {
+                conta.depositar(valor);
+                avisar(o -> o.contaMovimentada(conta, valor));
+                return null;
+            });
+            registrarAlteracao();
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public boolean sacarDaConta(ContaFinanceira conta, double valor) throws Exception {
+        travaEstado.readLock().lock();
+        try {
+            boolean sacou = TravasContas.executar(conta, () -> {
+                boolean sucesso = conta.sacar(valor);
+                if (sucesso) {
+                    avisar(o -> o.contaMovimentada(conta, -valor));
+                }
+                return sucesso;
+            });
+            if (sacou) {
+                registrarAlteracao();
+            }
+            return sacou;
+        } finally {
+            travaEstado.readLock().unlock();
+        }
     }
     
     public List<ContaFinanceira> getContas() {
-        return new ArrayList<>(contas);
+        return contas.instantaneo();
     }
     
     public List<ContaFinanceira> getContasDoUsuario(Usuario usuario) {
-        return contas.stream()
+        return contas.instantaneo().stream()
             .filter(c -> c.getTitular().equals(usuario))
             .collect(Collectors.toList());
     }
     
     public ContaFinanceira buscarContaPorNumero(String numeroConta) {
-        return contas.stream()
-            .filter(c -> c.getNumeroConta().equals(numeroConta))
-            .findFirst()
-            .orElse(null);
+        return numeroConta == null ? null : contasPorNumero.get(numeroConta);
     }
     
     public double calcularSaldoTotal() {
-        return contas.stream()
+        return contas.instantaneo().stream()
             .mapToDouble(ContaFinanceira::consultarSaldo)
             .sum();
     }
@@ -167,109 +948,493 @@ public class GerenciadorFinanceiro {
             .sum();
     }
     
+    // Totais mantidos a cada lançamento; transações estornadas não entram na soma
     public double calcularTotalReceitas(Usuario usuario) {
-        return getTransacoesDoUsuario(usuario).stream()
-            .filter(t -> t.getTipo() == TipoTransacao.RECEITA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
+        ResumoTitular resumo = usuario == null ? null : resumosPorTitular.get(usuario);
+        return (resumo == null ? 0.0 : resumo.totalReceitas.sum()) + somarDoHistorico(usuario, TipoTransacao.RECEITA);
     }
     
     public double calcularTotalDespesas(Usuario usuario) {
-        return getTransacoesDoUsuario(usuario).stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
+        ResumoTitular resumo = usuario == null ? null : resumosPorTitular.get(usuario);
+        return (resumo == null ? 0.0 : resumo.totalDespesas.sum()) + somarDoHistorico(usuario, TipoTransacao.DESPESA);
+    }
+    
+    private double somarDoHistorico(Usuario usuario, TipoTransacao tipo) {
+        ArquivoTransacoes atual = historico;
+        AcervoMensal arquivado = acervo;
+        if (usuario == null) {
+            return 0.0;
+        }
+        return (atual == null ? 0.0 : atual.somarDoTitular(usuario, tipo))
+            + (arquivado == null ? 0.0 : arquivado.somarDoTitular(usuario, tipo));
     }
     
     public void adicionarOrcamento(Orcamento orcamento) {
-        orcamentos.add(orcamento);
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaPlanejamento) {
+                incluirOrcamento(orcamento);
+                avisar(o -> o.orcamentoAdicionado(orcamento));
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Chamado com a trava de planejamento
+    private void incluirMeta(Meta meta) {
+        posicoesDasMetas.putIfAbsent(meta, metas.tamanho());
+        metas.adicionar(meta);
+    }
+    
+    private void incluirOrcamento(Orcamento orcamento) {
+        orcamentos.adicionar(orcamento);
+        indexarOrcamento(orcamento);
+        registrarAlteracao();
+    }
+    
+    // Chamado com a trava de planejamento; os mapas publicados nunca são alterados
+    private void indexarOrcamento(Orcamento orcamento) {
+        if (orcamento.getCategoria() == null) {
+            return;
+        }
+        EnumMap<Categoria, List<Orcamento>> porCategoria = new EnumMap<>(Categoria.class);
+        porCategoria.putAll(orcamentosPorMes.getOrDefault(orcamento.getMesReferencia(), porCategoria));
+        List<Orcamento> doMes = new ArrayList<>(porCategoria.getOrDefault(orcamento.getCategoria(), Collections.emptyList()));
+        doMes.add(orcamento);
+        porCategoria.put(orcamento.getCategoria(), Collections.unmodifiableList(doMes));
+        orcamentosPorMes.put(orcamento.getMesReferencia(), porCategoria);
+        
+        if (orcamento.getResponsavel() == null) {
+            return;
+        }
+        EnumMap<Categoria, Map<YearMonth, Orcamento>> doResponsavel = new EnumMap<>(Categoria.class);
+        doResponsavel.putAll(orcamentosPorResponsavel.getOrDefault(orcamento.getResponsavel(), doResponsavel));
+        Map<YearMonth, Orcamento> porMes = new LinkedHashMap<>(doResponsavel.getOrDefault(orcamento.getCategoria(), Collections.emptyMap()));
+        porMes.putIfAbsent(orcamento.getMesReferencia(), orcamento);
+        doResponsavel.put(orcamento.getCategoria(), Collections.unmodifiableMap(porMes));
+        orcamentosPorResponsavel.put(orcamento.getResponsavel(), doResponsavel);
     }
     
     public List<Orcamento> getOrcamentos() {
-        return new ArrayList<>(orcamentos);
+        return orcamentos.instantaneo();
     }
     
     public List<Orcamento> getOrcamentosDoUsuario(Usuario usuario) {
-        return new ArrayList<>(orcamentos);
+        return orcamentos.instantaneo();
     }
     
     public List<Orcamento> getOrcamentosEstourados() {
-        return orcamentos.stream()
+        return orcamentos.instantaneo().stream()
             .filter(Orcamento::isEstourado)
             .collect(Collectors.toList());
     }
     
     public List<Orcamento> getOrcamentosProximosDoLimite() {
-        return orcamentos.stream()
+        return orcamentos.instantaneo().stream()
             .filter(o -> o.getPercentualGasto() >= 80.0 && !o.isEstourado())
             .collect(Collectors.toList());
     }
     
+    // Orçamento do usuário na categoria para o mês atual; sem ele, o primeiro cadastrado
     public Orcamento buscarOrcamentoPorCategoria(Usuario usuario, Categoria categoria) {
-        return orcamentos.stream()
-            .filter(o -> o.getCategoria() == categoria)
-            .findFirst()
-            .orElse(null);
+        Map<YearMonth, Orcamento> porMes = getOrcamentosDoResponsavel(usuario, categoria);
+        if (porMes.isEmpty()) {
+            return null;
+        }
+        Orcamento doMes = porMes.get(YearMonth.now());
+        return doMes != null ? doMes : porMes.values().iterator().next();
+    }
+    
+    public Orcamento buscarOrcamento(Usuario usuario, Categoria categoria, YearMonth mes) {
+        return getOrcamentosDoResponsavel(usuario, categoria).get(mes);
+    }
+    
+    private Map<YearMonth, Orcamento> getOrcamentosDoResponsavel(Usuario usuario, Categoria categoria) {
+        EnumMap<Categoria, Map<YearMonth, Orcamento>> porCategoria =
+            usuario == null ? null : orcamentosPorResponsavel.get(usuario);
+        if (categoria == null || porCategoria == null) {
+            return Collections.emptyMap();
+        }
+        return porCategoria.getOrDefault(categoria, Collections.emptyMap());
     }
     
     public void limparDados() {
-        usuarios.clear();
-        contas.clear();
-        transacoes.clear();
-        metas.clear();
-        orcamentos.clear();
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                synchronized (travaTransacoes) {
+                    synchronized (travaPlanejamento) {
+                        limpar();
+                        avisar(OuvinteAlteracoes::estadoSubstituido);
+                    }
+                }
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Chamado com as três travas de escrita
+    private void limpar() {
+        usuarios.limpar();
+        contas.limpar();
+        transacoes.limpar();
+        metas.limpar();
+        posicoesDasMetas.clear();
+        orcamentos.limpar();
+        usuariosPorId.clear();
+        usuariosPorEmail.clear();
+        contasPorNumero.clear();
+        resumosPorTitular.clear();
+        transacoesPorId.clear();
+        transacoesPorDia.clear();
+        recorrentes.limpar();
+        historico = null;
+        acervo = null;
+        chavesImportacao = new ChavesImportacao();
+        orcamentosPorMes.clear();
+        orcamentosPorResponsavel.clear();
+        substituicoes.incrementAndGet();
+        registrarSubstituicao();
     }
     
     public void carregarEstado(List<Usuario> usuarios, List<ContaFinanceira> contas, 
                              List<Transacao> transacoes, List<Meta> metas, List<Orcamento> orcamentos) {
-        limparDados();
-        if (usuarios != null) this.usuarios.addAll(usuarios);
-        if (contas != null) this.contas.addAll(contas);
-        if (transacoes != null) this.transacoes.addAll(transacoes);
-        if (metas != null) this.metas.addAll(metas);
-        if (orcamentos != null) this.orcamentos.addAll(orcamentos);
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                synchronized (travaTransacoes) {
+                    synchronized (travaPlanejamento) {
+                        limpar();
+                        if (usuarios != null) usuarios.forEach(this::incluirUsuario);
+                        if (contas != null) contas.forEach(this::incluirConta);
+                        if (transacoes != null) {
+                            this.transacoes.adicionarTodos(transacoes);
+                            transacoes.forEach(this::indexarTransacao);
+                        }
+                        if (metas != null) metas.forEach(this::incluirMeta);
+                        if (orcamentos != null) orcamentos.forEach(this::incluirOrcamento);
+                        registrarSubstituicao();
+                        avisar(OuvinteAlteracoes::estadoSubstituido);
+                    }
+                }
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
     }
-
-    public static void resetarInstancia() {
-        instancia = null;
+    
+    // Troca o estado pelo que a fonte entregar, entidade por entidade, montando os
+    // índices durante a leitura em vez de receber listas prontas. O estado atual só é
+    // limpo na primeira entidade: se a fonte falhar antes (arquivo corrompido), ele
+    // fica como estava; se falhar no meio, fica vazio e não pela metade.
+    <T> T carregarEmFluxo(ReceptorCarga.Fonte<T> fonte) throws IOException, ClassNotFoundException {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaCadastro) {
+                synchronized (travaTransacoes) {
+                    synchronized (travaPlanejamento) {
+                        Receptor receptor = new Receptor();
+                        T resultado;
+                        try {
+                            resultado = fonte.enviar(receptor);
+                        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                            if (receptor.iniciado) {
+                                limpar();
+                                avisar(OuvinteAlteracoes::estadoSubstituido);
+                            }
+                            throw e;
+                        }
+                        receptor.iniciar();
+                        registrarSubstituicao();
+                        avisar(OuvinteAlteracoes::estadoSubstituido);
+                        return resultado;
+                    }
+                }
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
     }
     
-    public List<Transacao> processarRecorrencias() {
-        List<Transacao> todasNovasTransacoes = new ArrayList<>();
-        List<Transacao> novasTransacoes = new ArrayList<>();
-        LocalDate hoje = LocalDate.now();
+    // Usado só dentro de carregarEmFluxo, com as três travas
+    private final class Receptor implements ReceptorCarga {
+        private boolean iniciado;
+        
+        private void iniciar() {
+            if (!iniciado) {
+                limpar();
+                iniciado = true;
+            }
+        }
+        
+        @Override
+        public void usuario(Usuario usuario) {
+            iniciar();
+            incluirUsuario(usuario);
+        }
+        
+        @Override
+        public void conta(ContaFinanceira conta) {
+            iniciar();
+            incluirConta(conta);
+        }
         
-        for (Transacao t : transacoes) {
-            if (t.isRecorrente()) {
-                LocalDate proximaData = t.getData().plusMonths(1);
+        @Override
+        public void transacao(Transacao transacao) {
+            iniciar();
+            transacoes.adicionar(transacao);
+            indexarTransacao(transacao);
+        }
+        
+        @Override
+        public void meta(Meta meta) {
+            iniciar();
+            incluirMeta(meta);
+        }
+        
+        @Override
+        public void orcamento(Orcamento orcamento) {
+            iniciar();
+            incluirOrcamento(orcamento);
+        }
+    }
+    
+    // Passa a consultar o histórico mapeado; chamado pela persistência logo após
+    // carregarEstado, que deixa só as transações em memória
+    void anexarHistorico(ArquivoTransacoes arquivo) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                historico = arquivo;
+                if (arquivo != null) {
+                    Transacao.sincronizarContadorId(arquivo.getMaiorId());
+                }
+                registrarSubstituicao();
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public ArquivoTransacoes getHistorico() {
+        return historico;
+    }
+    
+    // Acervo lido na carga; os ids novos continuam depois dos arquivados
+    void anexarAcervo(AcervoMensal arquivo) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                acervo = arquivo;
+                if (arquivo != null) {
+                    Transacao.sincronizarContadorId(arquivo.getMaiorId());
+                }
+                registrarSubstituicao();
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    public AcervoMensal getAcervo() {
+        return acervo;
+    }
+    
+    public ChavesImportacao getChavesImportacao() {
+        return chavesImportacao;
+    }
+    
+    // Vetor e quantidade lidos juntos, sob a trava de importação: no modo simples o
+    // salvamento em segundo plano captura o snapshot com importações em andamento
+    void lerChaves(ObjIntConsumer<long[]> leitor) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaImportacao) {
+                ChavesImportacao registradas = chavesImportacao;
+                leitor.accept(registradas.getChaves(), registradas.getQuantidade());
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Chaves lidas do snapshot
+    void restaurarChaves(ChavesImportacao chaves) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaImportacao) {
+                synchronized (travaTransacoes) {
+                    chavesImportacao = chaves;
+                    registrarAlteracao();
+                }
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Chaves de um lote reaplicado do diário
+    void registrarChaves(long[] chaves) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaImportacao) {
+                synchronized (travaTransacoes) {
+                    incluirChaves(chaves);
+                    avisar(o -> o.chavesRegistradas(chaves));
+                    registrarAlteracao();
+                }
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    private void incluirChaves(long[] chaves) {
+        ChavesImportacao registradas = chavesImportacao;
+        for (long chave : chaves) {
+            registradas.adicionar(chave);
+        }
+    }
+    
+    // Transações em memória dos meses anteriores a limite, por mês e na ordem da lista.
+    // As recorrentes ficam: são o ponto de partida do agendador
+    Map<YearMonth, List<Transacao>> getTransacoesAntesDe(YearMonth limite) {
+        Map<YearMonth, List<Transacao>> porMes = new TreeMap<>();
+        for (Transacao t : transacoes.instantaneo()) {
+            if (!t.isRecorrente() && t.getData() != null && YearMonth.from(t.getData()).isBefore(limite)) {
+                porMes.computeIfAbsent(YearMonth.from(t.getData()), m -> new ArrayList<>()).add(t);
+            }
+        }
+        return porMes;
+    }
+    
+    // Tira da memória as transações já gravadas no acervo novo e passa a usá-lo. Os
+    // totais por titular descontam o que saiu e o acervo soma de volta, então não mudam.
+    // Chamado pela persistência dentro de executarExclusivo, logo antes do snapshot
+    // que passa a apontar para o acervo; por isso o ouvinte não é avisado.
+    void retirarParaAcervo(AcervoMensal novo, Map<YearMonth, List<Transacao>> arquivadas) {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                Set<Transacao> retiradas = Collections.newSetFromMap(new IdentityHashMap<>());
+                arquivadas.values().forEach(retiradas::addAll);
+                transacoes.substituir(semAs(transacoes.instantaneo(), retiradas));
                 
-                if (!proximaData.isAfter(hoje)) {
-                    boolean existe = transacoes.stream().anyMatch(existente -> 
-                        existente.getDescricao().equals(t.getDescricao()) &&
-                        existente.getValor() == t.getValor() &&
-                        existente.getData().equals(proximaData) &&
-                        existente.getTipo() == t.getTipo()
-                    );
-                    
-                    if (!existe) {
-                        Transacao nova = t.gerarProximaRecorrencia();
-                        if (nova != null) {
-                            novasTransacoes.add(nova);
+                Set<Long> dias = new HashSet<>();
+                for (Transacao t : retiradas) {
+                    transacoesPorId.remove(t.getId(), t);
+                    dias.add(t.getData().toEpochDay());
+                    ResumoTitular resumo = buscarResumo(t);
+                    if (resumo != null && !t.isEstornada()) {
+                        resumo.somar(t, -1);
+                    }
+                }
+                for (long dia : dias) {
+                    CopyOnWriteArrayList<Transacao> doDia = transacoesPorDia.get(dia);
+                    if (doDia != null) {
+                        doDia.removeIf(retiradas::contains);
+                        if (doDia.isEmpty()) {
+                            transacoesPorDia.remove(dia, doDia);
                         }
                     }
                 }
+                for (ResumoTitular resumo : resumosPorTitular.values()) {
+                    resumo.transacoes.substituir(semAs(resumo.transacoes.instantaneo(), retiradas));
+                }
+                
+                acervo = novo;
+                registrarAlteracao(arquivadas.keySet());
             }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Uma transação montada pelo acervo volta com o mês inteiro para a memória antes
+    // de ser alterada: o volume no disco não muda e o mês passa a ir no snapshot. As
+    // posições da lista mudam, então o próximo snapshot é completo (substituicoes).
+    // O diário não é avisado: a reprodução do estorno ou do anexo faz o mesmo caminho.
+    // Chamado com a trava de transações.
+    private void trazerDoAcervo(Transacao transacao) {
+        AcervoMensal arquivado = acervo;
+        if (arquivado == null || transacoesPorId.get(transacao.getId()) == transacao || !arquivado.contem(transacao)) {
+            return;
+        }
+        YearMonth mes = YearMonth.from(transacao.getData());
+        List<Transacao> doMes = arquivado.materializar(mes);
+        acervo = arquivado.semMes(mes);
+        transacoes.adicionarTodos(doMes);
+        doMes.forEach(this::indexarTransacao);
+        substituicoes.incrementAndGet();
+        registrarAlteracao(List.of(mes));
+    }
+    
+    private static List<Transacao> semAs(List<Transacao> lista, Set<Transacao> retiradas) {
+        List<Transacao> resultado = new ArrayList<>(lista.size());
+        for (Transacao t : lista) {
+            if (!retiradas.contains(t)) {
+                resultado.add(t);
+            }
+        }
+        return resultado;
+    }
+    
+    public static synchronized void resetarInstancia() {
+        instancia = null;
+    }
+    
+    // A trava impede que duas execuções simultâneas gerem a mesma ocorrência
+    public List<Transacao> processarRecorrencias() {
+        travaEstado.readLock().lock();
+        try {
+            synchronized (travaTransacoes) {
+                List<Transacao> series = recorrentes.instantaneo();
+                ArquivoTransacoes atual = historico;
+                if (atual != null) {
+                    series = new Concatenacao(atual.getRecorrentes(), series);
+                }
+                return new AgendadorRecorrencias().processar(this, series, LocalDate.now());
+            }
+        } finally {
+            travaEstado.readLock().unlock();
+        }
+    }
+    
+    // Duas listas vistas como uma só, sem copiar (o histórico é montado ao ser lido)
+    private static class Concatenacao extends AbstractList<Transacao> implements RandomAccess {
+        private final List<Transacao> primeira;
+        private final List<Transacao> segunda;
+        
+        private Concatenacao(List<Transacao> primeira, List<Transacao> segunda) {
+            this.primeira = primeira;
+            this.segunda = segunda;
         }
         
-        for (Transacao nova : novasTransacoes) {
-            adicionarTransacao(nova);
-            todasNovasTransacoes.add(nova);
+        @Override
+        public Transacao get(int i) {
+            return i < primeira.size() ? primeira.get(i) : segunda.get(i - primeira.size());
         }
         
-        if (!novasTransacoes.isEmpty()) {
-            todasNovasTransacoes.addAll(processarRecorrencias());
+        @Override
+        public int size() {
+            return primeira.size() + segunda.size();
         }
+    }
+    
+    // Partição de transações de um titular com receitas e despesas acumuladas
+    private static class ResumoTitular {
+        private final ListaSomenteInclusao<Transacao> transacoes = new ListaSomenteInclusao<>();
+        private final DoubleAdder totalReceitas = new DoubleAdder();
+        private final DoubleAdder totalDespesas = new DoubleAdder();
         
-        return todasNovasTransacoes;
+        private void somar(Transacao transacao, int sinal) {
+            if (transacao.getTipo() == TipoTransacao.RECEITA) {
+                totalReceitas.add(sinal * transacao.getValor());
+            } else if (transacao.getTipo() == TipoTransacao.DESPESA) {
+                totalDespesas.add(sinal * transacao.getValor());
+            }
+        }
     }
 }
@@ -1,62 +1,397 @@
 package Gerenciadores;
 
 import Entidades.*;
+import Interfaces.*;
 import java.io.*;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+// Grava e lê o estado do sistema. No modo simples cada salvamento reescreve o
+// snapshot inteiro. No modo diário as alterações vão para um DiarioAlteracoes e
+// salvar só acrescenta o que mudou; o snapshot é regravado (compactação) quando
+// o diário passa do limite ou quando o estado foi trocado por inteiro.
+// O snapshot usa o formato do CodificadorBinario; arquivos antigos, gravados com
+// ObjectOutputStream, continuam sendo lidos e são convertidos no próximo salvamento.
+// No modo mapeado as transações não entram no snapshot: ficam num ArquivoTransacoes,
+// aberto na carga sem ler as linhas, e o snapshot guarda só quantas linhas valem e
+// os estornos/anexos feitos em linhas já gravadas.
+// Cada snapshot é feito em duas etapas: capturar() codifica o estado em memória e
+// gravar() leva os bytes ao disco. Só a captura precisa parar as alterações.
+// Entre consolidações o snapshot é gravado como diferença (dados_sistema.delta):
+// só os segmentos que mudaram desde o último snapshot completo, que fica intacto.
+// Quando a diferença passa de um quarto do completo, grava-se um completo novo.
+// Meses fechados podem ser arquivados (arquivarMeses): vão para volumes de um
+// AcervoMensal na pasta dados_sistema.acervo e o snapshot guarda quais valem.
 public class GerenciadorPersistencia {
     
     private static final String ARQUIVO_DADOS = "dados_sistema.ser";
+    private static final String ARQUIVO_DIARIO = "dados_sistema.diario";
+    private static final String ARQUIVO_TRANSACOES = "dados_sistema.transacoes";
+    private static final String ARQUIVO_TEXTOS = "dados_sistema.textos";
+    private static final String ARQUIVO_INDICE = "dados_sistema.indice";
+    private static final String ARQUIVO_DIFERENCA = "dados_sistema.delta";
+    private static final String PASTA_ACERVO = "dados_sistema.acervo";
+    
+    // Acima deste tamanho o próximo salvamento compacta o diário num snapshot novo
+    private static final long LIMITE_DIARIO_BYTES = 4L * 1024 * 1024;
+    
+    // Acima desta fração do snapshot completo a diferença vira um completo novo
+    private static final int FRACAO_DIFERENCA = 4;
+    
+    private final Path arquivoDados;
+    private final Path arquivoDiario;
+    private final Path arquivoTransacoes;
+    private final Path arquivoTextos;
+    private final Path arquivoIndice;
+    private final Path arquivoDiferenca;
+    private final Path pastaAcervo;
+    private final boolean usarDiario;
+    private DiarioAlteracoes diario;
+    
+    // Liga sozinho ao carregar um snapshot que já usa o arquivo mapeado
+    private boolean mapearTransacoes;
+    private ArquivoTransacoes mapeado;
+    
+    // Geração do último snapshot lido ou gravado; o diário só vale para a mesma geração
+    private long geracao;
+    
+    // Último snapshot completo e o contador de substituições do gerenciador naquele
+    // momento: se o estado foi trocado depois, a próxima gravação é completa
+    private CodificadorBinario.Base base;
+    private long substituicoesBase;
+    
+    public GerenciadorPersistencia() {
+        this(false);
+    }
+    
+    public GerenciadorPersistencia(boolean usarDiario) {
+        this(Paths.get(""), usarDiario);
+    }
+    
+    public GerenciadorPersistencia(Path diretorio, boolean usarDiario) {
+        this(diretorio, usarDiario, false);
+    }
+    
+    public GerenciadorPersistencia(Path diretorio, boolean usarDiario, boolean mapearTransacoes) {
+        this.arquivoDados = diretorio.resolve(ARQUIVO_DADOS);
+        this.arquivoDiario = diretorio.resolve(ARQUIVO_DIARIO);
+        this.arquivoTransacoes = diretorio.resolve(ARQUIVO_TRANSACOES);
+        this.arquivoTextos = diretorio.resolve(ARQUIVO_TEXTOS);
+        this.arquivoIndice = diretorio.resolve(ARQUIVO_INDICE);
+        this.arquivoDiferenca = diretorio.resolve(ARQUIVO_DIFERENCA);
+        this.pastaAcervo = diretorio.resolve(PASTA_ACERVO);
+        this.usarDiario = usarDiario;
+        this.mapearTransacoes = mapearTransacoes;
+    }
     
     public void salvarDados(GerenciadorFinanceiro gerenciador) throws IOException {
+        if (!usarDiario) {
+            // A captura para as alterações, como na compactação: o salvamento em
+            // segundo plano roda com escritas em andamento e uma inclusão pela metade
+            // (saldo já alterado, transação ainda fora da lista) iria para o snapshot
+            Captura captura;
+            try {
+                captura = gerenciador.executarExclusivo(() -> capturar(gerenciador, geracao));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            gravar(captura);
+            return;
+        }
+        
+        if (diario == null || diario.isDesatualizado() || diario.getTamanho() > LIMITE_DIARIO_BYTES) {
+            compactar(gerenciador);
+        } else {
+            diario.descarregar();
+        }
+    }
+    
+    // Grava um snapshot de nova geração e recomeça o diário vazio. A captura roda sem
+    // nenhuma alteração em andamento, então nada fica só no diário antigo nem entra
+    // duas vezes; a gravação em disco acontece depois, com as alterações liberadas.
+    // Até o snapshot novo chegar ao disco o arquivo do diário continua na geração
+    // antiga, coerente com o snapshot antigo.
+    public void compactar(GerenciadorFinanceiro gerenciador) throws IOException {
+        long novaGeracao = geracao + 1;
+        Captura captura;
+        try {
+            captura = gerenciador.executarExclusivo(() -> {
+                Captura c = capturar(gerenciador, novaGeracao);
+                if (diario == null) {
+                    diario = new DiarioAlteracoes(arquivoDiario, gerenciador);
+                    gerenciador.setOuvinte(diario);
+                }
+                diario.iniciarGeracao(novaGeracao);
+                return c;
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        
+        try {
+            gravar(captura);
+        } catch (IOException e) {
+            diario.marcarDesatualizado();
+            throw e;
+        }
+        geracao = novaGeracao;
+        diario.descarregar();
+    }
+    
+    // Bytes do snapshot (completo ou diferença) e o que atualizar depois de gravá-lo
+    private record Captura(byte[] bytes, CodificadorBinario.Base base, boolean completo, long substituicoes,
+                           ArquivoTransacoes historico, List<ArquivoTransacoes.Alteracao> alteracoes) {}
+    
+    private Captura capturar(GerenciadorFinanceiro gerenciador, long geracaoSnapshot) throws IOException {
+        long substituicoes = gerenciador.getSubstituicoes();
+        List<Transacao> transacoes = gerenciador.getTransacoesEmMemoria();
+        ArquivoTransacoes historico = null;
+        List<ArquivoTransacoes.Alteracao> alteracoes = List.of();
+        if (mapearTransacoes) {
+            // As linhas novas vão para o arquivo antes; só passam a valer com o snapshot
+            historico = prepararArquivoMapeado(gerenciador);
+            List<Transacao> daSessao = gerenciador.getTransacoesEmMemoria();
+            historico.gravarSessao(daSessao);
+            alteracoes = historico.coletarAlteracoes(daSessao);
+            transacoes = List.of();
+        }
+        
         DadosSistema dados = new DadosSistema(
             gerenciador.getUsuarios(),
             gerenciador.getContas(),
-            gerenciador.getTransacoes(),
+            transacoes,
             gerenciador.getMetas(),
             gerenciador.getOrcamentos()
         );
+        dados.geracao = geracaoSnapshot;
+        if (historico != null) {
+            dados.primeiraLinhaHistorico = historico.getPrimeiraLinha();
+            dados.linhasHistorico = historico.getLinhasGravadas();
+            dados.alteracoesHistorico = alteracoes;
+        }
+        AcervoMensal acervo = gerenciador.getAcervo();
+        if (acervo != null) {
+            dados.volumesAcervo.addAll(acervo.getVolumes());
+        }
+        // Sem cópia: as chaves só são acrescentadas depois da quantidade capturada
+        gerenciador.lerChaves((chaves, quantidade) -> {
+            dados.chavesImportacao = chaves;
+            dados.quantidadeChaves = quantidade;
+        });
+        
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(64 * 1024);
+        if (base != null && substituicoes == substituicoesBase) {
+            CodificadorBinario.escrever(dados, saida, base);
+            if (saida.size() <= base.getTamanho() / FRACAO_DIFERENCA) {
+                return new Captura(saida.toByteArray(), base, false, substituicoes, historico, alteracoes);
+            }
+            saida.reset();
+        }
+        CodificadorBinario.Base nova = CodificadorBinario.escrever(dados, saida);
+        return new Captura(saida.toByteArray(), nova, true, substituicoes, historico, alteracoes);
+    }
+    
+    // Se a gravação for interrompida, o snapshot anterior continua inteiro. Depois de
+    // um completo novo a diferença antiga não vale mais (é de outra base) e é apagada.
+    private void gravar(Captura captura) throws IOException {
+        Path destino = captura.completo() ? arquivoDados : arquivoDiferenca;
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileOutputStream arquivo = new FileOutputStream(temporario.toFile())) {
+            arquivo.write(captura.bytes());
+            arquivo.getFD().sync();
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (captura.completo()) {
+            Files.deleteIfExists(arquivoDiferenca);
+        }
+        base = captura.base();
+        substituicoesBase = captura.substituicoes();
+        if (captura.historico() != null) {
+            captura.historico().confirmarAlteracoes(captura.alteracoes());
+        }
+    }
+    
+    // Mantém em memória os últimos mesesEmMemoria meses (contando o atual) e arquiva
+    // os anteriores; devolve quantas transações saíram da memória
+    public int arquivarMesesFechados(GerenciadorFinanceiro gerenciador, int mesesEmMemoria) throws IOException {
+        return arquivarMeses(gerenciador, YearMonth.now().minusMonths(Math.max(mesesEmMemoria, 1) - 1));
+    }
+    
+    // Leva para o acervo as transações em memória dos meses anteriores a limite e grava
+    // um snapshot completo de nova geração apontando para os volumes novos. Os volumes
+    // são gravados antes e só passam a valer com o snapshot: se ele não chegar ao
+    // disco, o snapshot antigo continua com as transações e ignora os volumes novos.
+    // Tudo até a captura roda sem alterações em andamento, inclusive a gravação dos
+    // volumes; é uma manutenção rara e curta perto da gravação do snapshot.
+    // No modo mapeado não faz nada: as transações de sessões anteriores já ficam fora
+    // da memória, e as linhas da sessão não podem mudar de posição.
+    public int arquivarMeses(GerenciadorFinanceiro gerenciador, YearMonth limite) throws IOException {
+        if (mapearTransacoes) {
+            return 0;
+        }
+        long novaGeracao = geracao + 1;
+        int[] arquivadas = new int[1];
+        Captura captura;
+        try {
+            captura = gerenciador.executarExclusivo(() -> {
+                Map<YearMonth, List<Transacao>> frias = gerenciador.getTransacoesAntesDe(limite);
+                if (frias.isEmpty()) {
+                    return null;
+                }
+                AcervoMensal atual = gerenciador.getAcervo();
+                AcervoMensal novo = (atual != null ? atual : AcervoMensal.vazio(pastaAcervo, gerenciador)).incluir(frias);
+                gerenciador.retirarParaAcervo(novo, frias);
+                frias.values().forEach(doMes -> arquivadas[0] += doMes.size());
+                // As transações mudaram de posição na lista: uma diferença sobre a base
+                // antiga apontaria para as posições erradas
+                base = null;
+                Captura c = capturar(gerenciador, novaGeracao);
+                if (diario != null) {
+                    diario.iniciarGeracao(novaGeracao);
+                }
+                return c;
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        if (captura == null) {
+            return 0;
+        }
         
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(ARQUIVO_DADOS))) {
-            oos.writeObject(dados);
+        try {
+            gravar(captura);
+        } catch (IOException e) {
+            if (diario != null) {
+                diario.marcarDesatualizado();
+            }
+            throw e;
+        }
+        geracao = novaGeracao;
+        if (diario != null) {
+            diario.descarregar();
+        }
+        // Os volumes substituídos (e sobras de tentativas interrompidas) não valem mais
+        AcervoMensal acervo = gerenciador.getAcervo();
+        if (acervo != null) {
+            acervo.apagarSobras();
+        }
+        return arquivadas[0];
+    }
+    
+    // Reaproveita o histórico aberto na carga enquanto ele for o do gerenciador. Se o
+    // estado foi trocado (ou nada foi carregado), começa um histórico vazio depois das
+    // linhas existentes, para nunca reescrever linhas de um snapshot já gravado.
+    private ArquivoTransacoes prepararArquivoMapeado(GerenciadorFinanceiro gerenciador) throws IOException {
+        if (mapeado != null && gerenciador.getHistorico() == mapeado) {
+            return mapeado;
+        }
+        if (mapeado != null) {
+            mapeado.close();
         }
+        mapeado = ArquivoTransacoes.abrir(arquivoTransacoes, arquivoTextos, arquivoIndice, -1, 0, null, gerenciador);
+        gerenciador.anexarHistorico(mapeado);
+        return mapeado;
     }
     
-    @SuppressWarnings("unchecked")
     public void carregarDados(GerenciadorFinanceiro gerenciador) throws IOException, ClassNotFoundException {
-        File arquivo = new File(ARQUIVO_DADOS);
-        if (!arquivo.exists()) {
+        carregarDados(gerenciador, null);
+    }
+    
+    // As entidades vão do arquivo direto para o gerenciador, sem listas intermediárias
+    public void carregarDados(GerenciadorFinanceiro gerenciador, OuvinteCarga progresso)
+            throws IOException, ClassNotFoundException {
+        if (usarDiario) {
+            // A própria carga não deve gerar registros
+            gerenciador.setOuvinte(null);
+        }
+        
+        File arquivo = arquivoDados.toFile();
+        if (arquivo.exists()) {
+            DadosSistema dados = carregarSnapshot(arquivo, gerenciador, progresso);
+            geracao = dados.geracao;
+            base = dados.base;
+            substituicoesBase = gerenciador.getSubstituicoes();
+            if (mapearTransacoes || dados.linhasHistorico > 0) {
+                mapearTransacoes = true;
+                if (mapeado != null) {
+                    mapeado.close();
+                }
+                mapeado = ArquivoTransacoes.abrir(arquivoTransacoes, arquivoTextos, arquivoIndice,
+                    dados.primeiraLinhaHistorico,
+                    dados.linhasHistorico, dados.alteracoesHistorico, gerenciador);
+                gerenciador.anexarHistorico(mapeado);
+            }
+            if (dados.volumesAcervo != null && !dados.volumesAcervo.isEmpty()) {
+                gerenciador.anexarAcervo(AcervoMensal.abrir(pastaAcervo, dados.volumesAcervo, gerenciador));
+            }
+            if (dados.quantidadeChaves > 0) {
+                gerenciador.restaurarChaves(new ChavesImportacao(dados.chavesImportacao, dados.quantidadeChaves));
+            }
+        } else if (usarDiario) {
+            geracao = 0;
+            base = null;
+            gerenciador.limparDados();
+        } else {
             return;
         }
         
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(arquivo))) {
-            DadosSistema dados = (DadosSistema) ois.readObject();
-            
-            // Limpar dados atuais
-            // Como o GerenciadorFinanceiro não tem métodos "set" para as listas e nem "clear",
-            // precisaremos adicionar métodos para limpar ou setar os dados no GerenciadorFinanceiro.
-            // Por enquanto, vamos assumir que o gerenciador está vazio ao iniciar ou vamos adicionar os métodos necessários.
-            
-            // Vamos precisar modificar o GerenciadorFinanceiro para permitir a carga desses dados
-            // ou expor métodos para limpar e adicionar em lote.
-            // A melhor abordagem para manter o encapsulamento é adicionar um método 'carregarEstado' no GerenciadorFinanceiro
-            // ou métodos 'setUsuarios', 'setContas', etc.
-            
-            // Como não posso editar o GerenciadorFinanceiro neste passo (apenas criar arquivo),
-            // vou assumir que vou editar o GerenciadorFinanceiro em seguida.
-            
-            gerenciador.carregarEstado(
-                dados.usuarios,
-                dados.contas,
-                dados.transacoes,
-                dados.metas,
-                dados.orcamentos
-            );
+        if (usarDiario) {
+            diario = new DiarioAlteracoes(arquivoDiario, gerenciador);
+            diario.reproduzir(geracao);
+            gerenciador.setOuvinte(diario);
         }
     }
     
+    // Os quatro primeiros bytes dizem o formato: binário ou serialização Java (legado).
+    // O legado só existe como grafo inteiro e continua passando por carregarEstado.
+    private DadosSistema carregarSnapshot(File arquivo, GerenciadorFinanceiro gerenciador, OuvinteCarga progresso)
+            throws IOException, ClassNotFoundException {
+        try (BufferedInputStream entrada = new BufferedInputStream(new FileInputStream(arquivo), 64 * 1024)) {
+            entrada.mark(4);
+            int magico = new DataInputStream(entrada).readInt();
+            entrada.reset();
+            if (magico == CodificadorBinario.MAGICO) {
+                if (!Files.exists(arquivoDiferenca)) {
+                    return gerenciador.carregarEmFluxo(receptor ->
+                        CodificadorBinario.carregar(entrada, null, receptor, progresso));
+                }
+                try (InputStream diferenca = new BufferedInputStream(Files.newInputStream(arquivoDiferenca), 64 * 1024)) {
+                    return gerenciador.carregarEmFluxo(receptor ->
+                        CodificadorBinario.carregar(entrada, diferenca, receptor, progresso));
+                }
+            }
+            DadosSistema dados;
+            try (ObjectInputStream ois = new ObjectInputStream(entrada)) {
+                dados = (DadosSistema) ois.readObject();
+            }
+            gerenciador.carregarEstado(dados.usuarios, dados.contas, dados.transacoes, dados.metas, dados.orcamentos);
+            if (progresso != null) {
+                progresso.progresso(dados.transacoes.size(), dados.transacoes.size());
+            }
+            return dados;
+        }
+    }
+    
+    public DiarioAlteracoes getDiario() {
+        return diario;
+    }
+    
+    public ArquivoTransacoes getArquivoTransacoes() {
+        return mapeado;
+    }
+    
     // Classe interna para encapsular os dados
-    private static class DadosSistema implements Serializable {
+    // Continua Serializable só para a leitura de arquivos no formato antigo
+    static class DadosSistema implements Serializable {
         private static final long serialVersionUID = 1L;
         
         List<Usuario> usuarios;
@@ -65,13 +400,33 @@ public class GerenciadorPersistencia {
         List<Meta> metas;
         List<Orcamento> orcamentos;
         
-        public DadosSistema(List<Usuario> usuarios, List<ContaFinanceira> contas, 
+        // Arquivos antigos não têm o campo e ficam com geração 0
+        long geracao;
+        
+        // Modo mapeado: faixa de linhas do ArquivoTransacoes e alterações feitas nelas
+        long primeiraLinhaHistorico;
+        int linhasHistorico;
+        List<ArquivoTransacoes.Alteracao> alteracoesHistorico;
+        
+        // Volumes do acervo de meses fechados que valem para este snapshot
+        List<AcervoMensal.Volume> volumesAcervo;
+        
+        // Chaves de deduplicação das importações (só as primeiras quantidadeChaves valem)
+        long[] chavesImportacao;
+        int quantidadeChaves;
+        
+        // Preenchida pelo CodificadorBinario ao ler um snapshot no formato atual
+        transient CodificadorBinario.Base base;
+        
+        // Os instantâneos do gerenciador não são serializáveis; copia para ArrayList
+        DadosSistema(List<Usuario> usuarios, List<ContaFinanceira> contas,
                            List<Transacao> transacoes, List<Meta> metas, List<Orcamento> orcamentos) {
-            this.usuarios = usuarios;
-            this.contas = contas;
-            this.transacoes = transacoes;
-            this.metas = metas;
-            this.orcamentos = orcamentos;
+            this.usuarios = new ArrayList<>(usuarios);
+            this.contas = new ArrayList<>(contas);
+            this.transacoes = new ArrayList<>(transacoes);
+            this.metas = new ArrayList<>(metas);
+            this.orcamentos = new ArrayList<>(orcamentos);
+            this.volumesAcervo = new ArrayList<>();
         }
     }
 }
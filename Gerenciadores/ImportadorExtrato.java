@@ -0,0 +1,578 @@
+package Gerenciadores;
+
+import Entidades.*;
+import Enums.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Importa extratos do banco (CSV ou OFX) em lotes.
+// O arquivo é lido por um FileChannel em blocos de tamanho fixo, cortados no fim do
+// último registro completo (linha no CSV, </STMTTRN> no OFX); o resto do bloco
+// volta para o começo do buffer e segue com a próxima leitura. Os blocos são
+// interpretados em paralelo no ForkJoinPool e entregues ao gerenciador na ordem do
+// arquivo, um adicionarTransacoes por bloco. No máximo alguns blocos ficam em
+// memória ao mesmo tempo, seja qual for o tamanho do arquivo.
+// As transações são criadas na hora de entregar o bloco, então os ids seguem a
+// ordem do arquivo como nos lançamentos feitos pelo menu.
+//
+// Reimportar um extrato (ou um que se sobrepõe a outro) não duplica lançamentos:
+// cada linha leva uma chave, o FITID do OFX ou um hash do conteúdo (conta, data,
+// valor, tipo e descrição), e o gerenciador ignora as chaves já registradas (ver
+// ChavesImportacao). Linhas iguais no mesmo arquivo (dois cafés no mesmo dia) são
+// lançamentos diferentes: a n-ésima repetição leva a chave da n-ésima ocorrência,
+// que é a mesma em qualquer extrato que contenha as duas. Para contar as repetições
+// basta lembrar dos últimos CONTEUDOS_NA_JANELA conteúdos, não de todas as linhas:
+// linhas iguais têm a mesma data e ficam juntas no extrato.
+//
+// CSV: a primeira linha é o cabeçalho, separado por ';', ',' ou tabulação. Colunas
+// obrigatórias: data, descrição (ou histórico) e valor; opcionais: tipo, categoria e
+// subcategoria. Sem a coluna tipo, valor negativo é despesa. Campos entre aspas não
+// podem ter quebra de linha.
+public class ImportadorExtrato {
+    
+    public enum Formato { CSV, OFX }
+    
+    public static final int TAMANHO_BLOCO = 1 << 20;
+    private static final int MAXIMO_ERROS = 100;
+    private static final int CONTEUDOS_NA_JANELA = 4096;
+    private static final byte[] FIM_OFX = "</STMTTRN>".getBytes(StandardCharsets.US_ASCII);
+    
+    private final GerenciadorFinanceiro gerenciador;
+    private final MapeamentoCategorias mapeamento;
+    private final int tamanhoBloco;
+    private final int blocosEmMemoria;
+    
+    public ImportadorExtrato(GerenciadorFinanceiro gerenciador) {
+        this(gerenciador, new MapeamentoCategorias(), TAMANHO_BLOCO);
+    }
+    
+    public ImportadorExtrato(GerenciadorFinanceiro gerenciador, MapeamentoCategorias mapeamento, int tamanhoBloco) {
+        if (tamanhoBloco < 16) {
+            throw new IllegalArgumentException("Bloco de leitura muito pequeno");
+        }
+        this.gerenciador = gerenciador;
+        this.mapeamento = mapeamento;
+        this.tamanhoBloco = tamanhoBloco;
+        // Um bloco por thread interpretando e mais um sendo lido
+        this.blocosEmMemoria = ForkJoinPool.commonPool().getParallelism() + 1;
+    }
+    
+    // Formato pela extensão do arquivo
+    public Resultado importar(Path arquivo, ContaFinanceira conta) throws IOException {
+        String nome = arquivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (nome.endsWith(".ofx")) {
+            return importar(arquivo, Formato.OFX, conta);
+        }
+        if (nome.endsWith(".csv") || nome.endsWith(".txt")) {
+            return importar(arquivo, Formato.CSV, conta);
+        }
+        throw new IOException("Formato de extrato não reconhecido: " + arquivo.getFileName());
+    }
+    
+    public Resultado importar(Path arquivo, Formato formato, ContaFinanceira conta) throws IOException {
+        if (conta == null) {
+            throw new IllegalArgumentException("Conta de destino não informada");
+        }
+        Resultado resultado = new Resultado();
+        Map<Long, Integer> recentes = janelaDeConteudos();
+        String numeroConta = conta.getNumeroConta();
+        ArrayDeque<Future<Bloco>> pendentes = new ArrayDeque<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(tamanhoBloco);
+            Colunas colunas = null;
+            int linhaInicial = 1;
+            boolean fim = false;
+            while (!fim) {
+                fim = canal.read(buffer) < 0;
+                if (!fim && buffer.hasRemaining()) {
+                    continue;
+                }
+                buffer.flip();
+                int corte = fim ? buffer.limit() : corte(formato, buffer);
+                if (corte == 0) {
+                    // Nenhum registro completo: um registro maior que o bloco
+                    if (!fim) {
+                        buffer = ampliar(buffer);
+                    }
+                    continue;
+                }
+                byte[] bytes = new byte[corte];
+                buffer.get(bytes);
+                buffer.compact();
+                
+                int inicio = 0;
+                int linhasPuladas = 0;
+                if (formato == Formato.CSV && colunas == null) {
+                    inicio = pularBom(bytes);
+                    int quebra = indiceDe(bytes, (byte) '\n', inicio);
+                    int fimCabecalho = quebra < 0 ? bytes.length : quebra + 1;
+                    colunas = Colunas.ler(decodificar(bytes, inicio, fimCabecalho - inicio));
+                    inicio = fimCabecalho;
+                    linhasPuladas = 1;
+                }
+                
+                Colunas doBloco = colunas;
+                int deslocamento = inicio;
+                int primeiraLinha = linhaInicial + linhasPuladas;
+                pendentes.add(ForkJoinPool.commonPool().submit(() -> formato == Formato.CSV
+                    ? interpretarCsv(bytes, deslocamento, doBloco, primeiraLinha, numeroConta)
+                    : interpretarOfx(bytes, primeiraLinha, numeroConta)));
+                linhaInicial += contarLinhas(bytes);
+                
+                if (pendentes.size() >= blocosEmMemoria) {
+                    entregar(aguardar(pendentes.poll()), conta, recentes, resultado);
+                }
+            }
+            while (!pendentes.isEmpty()) {
+                entregar(aguardar(pendentes.poll()), conta, recentes, resultado);
+            }
+        } finally {
+            for (Future<Bloco> pendente : pendentes) {
+                pendente.cancel(true);
+            }
+        }
+        return resultado;
+    }
+    
+    // Posição logo depois do último registro completo do buffer (0 se não houver)
+    private static int corte(Formato formato, ByteBuffer buffer) {
+        byte[] dados = buffer.array();
+        int limite = buffer.limit();
+        if (formato == Formato.CSV) {
+            for (int i = limite - 1; i >= 0; i--) {
+                if (dados[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+        for (int i = limite - FIM_OFX.length; i >= 0; i--) {
+            if (comecaCom(dados, i, FIM_OFX)) {
+                return i + FIM_OFX.length;
+            }
+        }
+        return 0;
+    }
+    
+    private static ByteBuffer ampliar(ByteBuffer buffer) {
+        ByteBuffer maior = ByteBuffer.allocate(buffer.capacity() * 2);
+        maior.put(buffer);
+        return maior;
+    }
+    
+    private static Bloco aguardar(Future<Bloco> pendente) throws IOException {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException erro) {
+                throw erro;
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    // Só roda na thread que chamou importar, um bloco por vez e na ordem do arquivo
+    private void entregar(Bloco bloco, ContaFinanceira conta, Map<Long, Integer> recentes, Resultado resultado) {
+        resultado.registros += bloco.lancamentos.size() + bloco.erros.size();
+        for (String erro : bloco.erros) {
+            resultado.registrarErro(erro);
+        }
+        if (bloco.lancamentos.isEmpty()) {
+            return;
+        }
+        List<Transacao> lote = new ArrayList<>(bloco.lancamentos.size());
+        long[] chaves = new long[bloco.lancamentos.size()];
+        for (Lancamento lancamento : bloco.lancamentos) {
+            chaves[lote.size()] = lancamento.porConteudo() ? ocorrencia(lancamento.chave(), recentes) : lancamento.chave();
+            Transacao t = new Transacao(lancamento.tipo(), lancamento.categoria(), lancamento.valor(),
+                lancamento.descricao(), conta.getTitular(), conta);
+            t.setData(lancamento.data());
+            if (lancamento.subcategoria() != null) {
+                t.setSubcategoria(lancamento.subcategoria());
+            }
+            lote.add(t);
+        }
+        ResultadoLote doLote = gerenciador.adicionarTransacoes(lote, chaves);
+        resultado.importadas += doLote.getQuantidadeAceitas();
+        resultado.duplicadas += doLote.getQuantidadeDuplicadas();
+        for (ResultadoLote.Falha falha : doLote.getFalhas()) {
+            resultado.registrarErro("Linha " + bloco.lancamentos.get(falha.getIndice()).linha() + ": " + falha.getMotivo());
+        }
+    }
+    
+    // Quantas vezes cada conteúdo recente apareceu; o menos usado sai primeiro
+    private static Map<Long, Integer> janelaDeConteudos() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> maisAntigo) {
+                return size() > CONTEUDOS_NA_JANELA;
+            }
+        };
+    }
+    
+    // Chave da próxima ocorrência deste conteúdo no arquivo: a primeira é o próprio
+    // conteúdo, a n-ésima repetição uma mistura dele com n
+    private static long ocorrencia(long conteudo, Map<Long, Integer> recentes) {
+        long n = recentes.merge(conteudo, 1, Integer::sum) - 1;
+        return n == 0 ? conteudo : misturar(conteudo + n * 0x9E3779B97F4A7C15L);
+    }
+    
+    // FNV-1a de 64 bits com a mistura final do MurmurHash3
+    public static long hash(String texto) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < texto.length(); i++) {
+            h ^= texto.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return misturar(h);
+    }
+    
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a1a31L;
+        return h ^ (h >>> 33);
+    }
+    
+    // CSV
+    
+    private Bloco interpretarCsv(byte[] bytes, int inicio, Colunas colunas, int primeiraLinha, String numeroConta) {
+        Bloco bloco = new Bloco();
+        String texto = decodificar(bytes, inicio, bytes.length - inicio);
+        int linha = primeiraLinha;
+        int posicao = 0;
+        while (posicao < texto.length()) {
+            int quebra = texto.indexOf('\n', posicao);
+            int fimLinha = quebra < 0 ? texto.length() : quebra;
+            String conteudo = texto.substring(posicao, fimLinha).strip();
+            if (!conteudo.isEmpty()) {
+                try {
+                    bloco.lancamentos.add(lancamentoCsv(separar(conteudo, colunas.separador), colunas, linha, numeroConta));
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    bloco.erros.add("Linha " + linha + ": " + e.getMessage());
+                }
+            }
+            posicao = fimLinha + 1;
+            linha++;
+        }
+        return bloco;
+    }
+    
+    private Lancamento lancamentoCsv(List<String> campos, Colunas colunas, int linha, String numeroConta) {
+        LocalDate data = lerData(campo(campos, colunas.data, "data"));
+        String descricao = campo(campos, colunas.descricao, "descrição");
+        double valor = lerValor(campo(campos, colunas.valor, "valor"));
+        TipoTransacao tipo = valor < 0 ? TipoTransacao.DESPESA : TipoTransacao.RECEITA;
+        if (colunas.tipo >= 0) {
+            tipo = lerTipo(campo(campos, colunas.tipo, "tipo"));
+        }
+        String categoria = colunas.categoria >= 0 && colunas.categoria < campos.size() ? campos.get(colunas.categoria) : null;
+        String subcategoria = colunas.subcategoria >= 0 && colunas.subcategoria < campos.size()
+            ? campos.get(colunas.subcategoria) : null;
+        return lancamento(tipo, Math.abs(valor), data, descricao, categoria, subcategoria, linha, numeroConta, null);
+    }
+    
+    private static String campo(List<String> campos, int indice, String nome) {
+        if (indice >= campos.size() || campos.get(indice).isBlank()) {
+            throw new IllegalArgumentException("Campo " + nome + " não informado");
+        }
+        return campos.get(indice).strip();
+    }
+    
+    // Aspas delimitam campos com separador dentro; "" dentro das aspas é uma aspa
+    static List<String> separar(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (c == '"') {
+                if (entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = !entreAspas;
+                }
+            } else if (c == separador && !entreAspas) {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+    
+    // Posições das colunas, lidas do cabeçalho
+    private static class Colunas {
+        char separador;
+        int data = -1;
+        int descricao = -1;
+        int valor = -1;
+        int tipo = -1;
+        int categoria = -1;
+        int subcategoria = -1;
+        
+        static Colunas ler(String cabecalho) throws IOException {
+            Colunas colunas = new Colunas();
+            colunas.separador = cabecalho.indexOf(';') >= 0 ? ';' : cabecalho.indexOf('\t') >= 0 ? '\t' : ',';
+            List<String> nomes = separar(cabecalho.strip(), colunas.separador);
+            for (int i = 0; i < nomes.size(); i++) {
+                switch (MapeamentoCategorias.normalizar(nomes.get(i).strip())) {
+                    case "data" -> colunas.data = i;
+                    case "descricao", "historico", "lancamento" -> colunas.descricao = i;
+                    case "valor" -> colunas.valor = i;
+                    case "tipo" -> colunas.tipo = i;
+                    case "categoria" -> colunas.categoria = i;
+                    case "subcategoria" -> colunas.subcategoria = i;
+                    default -> { }
+                }
+            }
+            if (colunas.data < 0 || colunas.descricao < 0 || colunas.valor < 0) {
+                throw new IOException("O cabeçalho do CSV precisa das colunas data, descrição e valor: " + cabecalho.strip());
+            }
+            return colunas;
+        }
+    }
+    
+    // OFX
+    
+    private Bloco interpretarOfx(byte[] bytes, int primeiraLinha, String numeroConta) {
+        Bloco bloco = new Bloco();
+        String texto = decodificar(bytes, 0, bytes.length);
+        String maiusculo = texto.toUpperCase(Locale.ROOT);
+        int linha = primeiraLinha;
+        int contadas = 0;
+        int inicio = maiusculo.indexOf("<STMTTRN>");
+        while (inicio >= 0) {
+            int fim = maiusculo.indexOf("</STMTTRN>", inicio);
+            if (fim < 0) {
+                fim = texto.length();
+            }
+            for (; contadas < inicio; contadas++) {
+                if (texto.charAt(contadas) == '\n') {
+                    linha++;
+                }
+            }
+            try {
+                bloco.lancamentos.add(lancamentoOfx(texto, maiusculo, inicio, fim, linha, numeroConta));
+            } catch (IllegalArgumentException | DateTimeException e) {
+                bloco.erros.add("Linha " + linha + ": " + e.getMessage());
+            }
+            inicio = maiusculo.indexOf("<STMTTRN>", fim);
+        }
+        return bloco;
+    }
+    
+    private Lancamento lancamentoOfx(String texto, String maiusculo, int inicio, int fim, int linha, String numeroConta) {
+        String data = marcador(texto, maiusculo, "DTPOSTED", inicio, fim);
+        String valor = marcador(texto, maiusculo, "TRNAMT", inicio, fim);
+        if (data == null || data.length() < 8) {
+            throw new IllegalArgumentException("DTPOSTED não informado");
+        }
+        if (valor == null) {
+            throw new IllegalArgumentException("TRNAMT não informado");
+        }
+        String descricao = marcador(texto, maiusculo, "MEMO", inicio, fim);
+        if (descricao == null || descricao.isBlank()) {
+            descricao = marcador(texto, maiusculo, "NAME", inicio, fim);
+        }
+        if (descricao == null || descricao.isBlank()) {
+            throw new IllegalArgumentException("Lançamento sem MEMO nem NAME");
+        }
+        LocalDate dia = LocalDate.of(Integer.parseInt(data.substring(0, 4)), Integer.parseInt(data.substring(4, 6)),
+            Integer.parseInt(data.substring(6, 8)));
+        double quantia = lerValor(valor);
+        TipoTransacao tipo = quantia < 0 ? TipoTransacao.DESPESA : TipoTransacao.RECEITA;
+        String idExterno = marcador(texto, maiusculo, "FITID", inicio, fim);
+        return lancamento(tipo, Math.abs(quantia), dia, descricao, null, null, linha, numeroConta,
+            idExterno == null || idExterno.isEmpty() ? null : idExterno);
+    }
+    
+    // Valor de <NOME> até o próximo marcador ou quebra de linha (SGML ou XML)
+    private static String marcador(String texto, String maiusculo, String nome, int inicio, int fim) {
+        int posicao = maiusculo.indexOf("<" + nome + ">", inicio);
+        if (posicao < 0 || posicao >= fim) {
+            return null;
+        }
+        int comeco = posicao + nome.length() + 2;
+        int termino = comeco;
+        while (termino < fim && texto.charAt(termino) != '<' && texto.charAt(termino) != '\n' && texto.charAt(termino) != '\r') {
+            termino++;
+        }
+        return texto.substring(comeco, termino).strip();
+    }
+    
+    // Comum aos formatos
+    
+    private Lancamento lancamento(TipoTransacao tipo, double valor, LocalDate data, String descricao,
+                                  String nomeCategoria, String nomeSubcategoria, int linha,
+                                  String numeroConta, String idExterno) {
+        if (valor == 0) {
+            throw new IllegalArgumentException("Valor zerado");
+        }
+        MapeamentoCategorias.Classificacao sugerida = mapeamento.classificar(descricao, tipo);
+        Categoria categoria = sugerida.categoria();
+        if (nomeCategoria != null && !nomeCategoria.isBlank()) {
+            categoria = mapeamento.buscarCategoria(nomeCategoria);
+            if (categoria == null) {
+                throw new IllegalArgumentException("Categoria desconhecida: " + nomeCategoria.strip());
+            }
+        }
+        String subcategoria = categoria == sugerida.categoria() ? sugerida.subcategoria() : null;
+        if (nomeSubcategoria != null && !nomeSubcategoria.isBlank() && categoria != null) {
+            for (String valida : categoria.getSubcategorias()) {
+                if (valida.equalsIgnoreCase(nomeSubcategoria.strip())) {
+                    subcategoria = valida;
+                }
+            }
+        }
+        long chave = idExterno != null
+            ? hash("ofx|" + numeroConta + "|" + idExterno)
+            : hash(numeroConta + "|" + data.toEpochDay() + "|" + Math.round(valor * 100) + "|" + tipo.name()
+                + "|" + descricao.strip().toLowerCase(Locale.ROOT));
+        return new Lancamento(tipo, categoria, subcategoria, valor, data, descricao, linha, chave, idExterno == null);
+    }
+    
+    // dd/MM/yyyy, dd-MM-yyyy ou yyyy-MM-dd
+    static LocalDate lerData(String texto) {
+        if (texto.length() == 10 && (texto.charAt(2) == '/' || texto.charAt(2) == '-')) {
+            return LocalDate.of(inteiro(texto, 6, 10), inteiro(texto, 3, 5), inteiro(texto, 0, 2));
+        }
+        if (texto.length() == 10 && texto.charAt(4) == '-') {
+            return LocalDate.of(inteiro(texto, 0, 4), inteiro(texto, 5, 7), inteiro(texto, 8, 10));
+        }
+        throw new IllegalArgumentException("Data inválida: " + texto);
+    }
+    
+    private static int inteiro(String texto, int inicio, int fim) {
+        try {
+            return Integer.parseInt(texto, inicio, fim, 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Data inválida: " + texto);
+        }
+    }
+    
+    // "1.234,56", "1,234.56", "-45,90" e "R$ 10" são aceitos; o último separador é o decimal
+    static double lerValor(String texto) {
+        String limpo = texto.replace("R$", "").replace(" ", "").replace("\u00A0", "");
+        int virgula = limpo.lastIndexOf(',');
+        int ponto = limpo.lastIndexOf('.');
+        if (virgula > ponto) {
+            limpo = limpo.replace(".", "").replace(',', '.');
+        } else if (virgula >= 0) {
+            limpo = limpo.replace(",", "");
+        }
+        try {
+            double valor = Double.parseDouble(limpo);
+            if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+                throw new NumberFormatException();
+            }
+            return valor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido: " + texto);
+        }
+    }
+    
+    private static TipoTransacao lerTipo(String texto) {
+        switch (MapeamentoCategorias.normalizar(texto)) {
+            case "receita", "credito", "c":
+                return TipoTransacao.RECEITA;
+            case "despesa", "debito", "d":
+                return TipoTransacao.DESPESA;
+            default:
+                throw new IllegalArgumentException("Tipo inválido: " + texto);
+        }
+    }
+    
+    // UTF-8; um bloco que não é UTF-8 válido é lido como ISO-8859-1 (comum em
+    // exportações de bancos). O corte no '\n' nunca parte um caractere UTF-8.
+    private static String decodificar(byte[] bytes, int inicio, int tamanho) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes, inicio, tamanho))
+                .toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, inicio, tamanho, StandardCharsets.ISO_8859_1);
+        }
+    }
+    
+    private static int pularBom(byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF ? 3 : 0;
+    }
+    
+    private static int indiceDe(byte[] bytes, byte procurado, int inicio) {
+        for (int i = inicio; i < bytes.length; i++) {
+            if (bytes[i] == procurado) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean comecaCom(byte[] dados, int posicao, byte[] prefixo) {
+        for (int i = 0; i < prefixo.length; i++) {
+            if (Character.toUpperCase(dados[posicao + i]) != prefixo[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int contarLinhas(byte[] bytes) {
+        int linhas = 0;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                linhas++;
+            }
+        }
+        return linhas;
+    }
+    
+    // Lançamento já interpretado, ainda sem virar Transacao. Chave por conteúdo ainda
+    // precisa da contagem de ocorrências, que depende da ordem do arquivo.
+    private record Lancamento(TipoTransacao tipo, Categoria categoria, String subcategoria, double valor,
+                              LocalDate data, String descricao, int linha, long chave, boolean porConteudo) {}
+    
+    private static class Bloco {
+        final List<Lancamento> lancamentos = new ArrayList<>();
+        final List<String> erros = new ArrayList<>();
+    }
+    
+    // Totais da importação. Só as primeiras mensagens de erro são guardadas, para o
+    // resultado não crescer com o arquivo.
+    public static class Resultado {
+        private int registros;
+        private int importadas;
+        private int duplicadas;
+        private int rejeitadas;
+        private final List<String> erros = new ArrayList<>();
+        
+        private void registrarErro(String erro) {
+            rejeitadas++;
+            if (erros.size() < MAXIMO_ERROS) {
+                erros.add(erro);
+            }
+        }
+        
+        public int getRegistros() { return registros; }
+        public int getImportadas() { return importadas; }
+        // Já importadas antes (ou repetidas pelo id do banco) e por isso ignoradas
+        public int getDuplicadas() { return duplicadas; }
+        public int getRejeitadas() { return rejeitadas; }
+        public List<String> getErros() { return Collections.unmodifiableList(erros); }
+    }
+}
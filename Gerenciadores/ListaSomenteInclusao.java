@@ -0,0 +1,108 @@
+package Gerenciadores;
+
+import java.util.*;
+
+// Lista que só aceita inclusões, usada como armazenamento do GerenciadorFinanceiro.
+// Os elementos ficam em blocos de tamanho fixo que nunca são copiados nem movidos;
+// cada inclusão publica um novo estado imutável (blocos + tamanho) por uma referência
+// volatile. Leitores pegam um instantâneo sem trava e nunca esperam pelos escritores.
+public class ListaSomenteInclusao<T> {
+    private static final int BITS_BLOCO = 10;
+    private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+    
+    private volatile Estado estado = new Estado(new Object[4][], 0);
+    
+    public synchronized void adicionar(T elemento) {
+        Estado atual = estado;
+        int indice = atual.tamanho;
+        Object[][] blocos = prepararBloco(atual.blocos, indice >>> BITS_BLOCO);
+        blocos[indice >>> BITS_BLOCO][indice & (TAMANHO_BLOCO - 1)] = elemento;
+        estado = new Estado(blocos, indice + 1);
+    }
+    
+    public synchronized void adicionarTodos(Collection<? extends T> elementos) {
+        Estado atual = estado;
+        Object[][] blocos = atual.blocos;
+        int indice = atual.tamanho;
+        for (T elemento : elementos) {
+            blocos = prepararBloco(blocos, indice >>> BITS_BLOCO);
+            blocos[indice >>> BITS_BLOCO][indice & (TAMANHO_BLOCO - 1)] = elemento;
+            indice++;
+        }
+        estado = new Estado(blocos, indice);
+    }
+    
+    // Troca todo o conteúdo de uma vez: um leitor vê a lista antiga ou a nova, nunca
+    // uma vazia no meio. Blocos novos, para não mexer nos de instantâneos antigos
+    public synchronized void substituir(Collection<? extends T> elementos) {
+        Object[][] blocos = new Object[4][];
+        int indice = 0;
+        for (T elemento : elementos) {
+            blocos = prepararBloco(blocos, indice >>> BITS_BLOCO);
+            blocos[indice >>> BITS_BLOCO][indice & (TAMANHO_BLOCO - 1)] = elemento;
+            indice++;
+        }
+        estado = new Estado(blocos, indice);
+    }
+    
+    // Instantâneos antigos continuam válidos: eles guardam os blocos anteriores
+    public synchronized void limpar() {
+        estado = new Estado(new Object[4][], 0);
+    }
+    
+    public int tamanho() {
+        return estado.tamanho;
+    }
+    
+    public boolean isVazia() {
+        return estado.tamanho == 0;
+    }
+    
+    // Visão somente leitura com os elementos existentes neste momento, sem cópia
+    public List<T> instantaneo() {
+        return new Instantaneo<>(estado);
+    }
+    
+    // Só o diretório de blocos cresce por cópia; os blocos em si são reaproveitados
+    private static Object[][] prepararBloco(Object[][] blocos, int numeroBloco) {
+        if (numeroBloco == blocos.length) {
+            blocos = Arrays.copyOf(blocos, blocos.length * 2);
+        }
+        if (blocos[numeroBloco] == null) {
+            blocos[numeroBloco] = new Object[TAMANHO_BLOCO];
+        }
+        return blocos;
+    }
+    
+    private static final class Estado {
+        private final Object[][] blocos;
+        private final int tamanho;
+        
+        private Estado(Object[][] blocos, int tamanho) {
+            this.blocos = blocos;
+            this.tamanho = tamanho;
+        }
+    }
+    
+    private static final class Instantaneo<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] blocos;
+        private final int tamanho;
+        
+        private Instantaneo(Estado estado) {
+            this.blocos = estado.blocos;
+            this.tamanho = estado.tamanho;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int indice) {
+            Objects.checkIndex(indice, tamanho);
+            return (T) blocos[indice >>> BITS_BLOCO][indice & (TAMANHO_BLOCO - 1)];
+        }
+        
+        @Override
+        public int size() {
+            return tamanho;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package Gerenciadores;
+
+import Enums.*;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+// Escolhe categoria e subcategoria de um lançamento importado pela descrição.
+// Cada regra é um termo procurado como palavra inteira (sem acento e sem diferenciar
+// maiúsculas), então "gás" não pega "gasolina". As regras do usuário são testadas
+// antes das padrão; só valem regras do mesmo lado (despesa/receita) do lançamento.
+// Pode ser consultado por várias threads ao mesmo tempo.
+public class MapeamentoCategorias {
+    
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    
+    // Termos comuns em extratos além dos nomes das próprias subcategorias
+    private static final Object[][] TERMOS_PADRAO = {
+        {Categoria.ALIMENTACAO, "Supermercado", new String[]{"mercado", "atacadao", "hortifruti"}},
+        {Categoria.ALIMENTACAO, "Delivery", new String[]{"ifood", "rappi"}},
+        {Categoria.ALIMENTACAO, "Lanche", new String[]{"padaria", "lanchonete"}},
+        {Categoria.TRANSPORTE, "Combustível", new String[]{"posto", "gasolina", "etanol"}},
+        {Categoria.TRANSPORTE, "Uber/Taxi", new String[]{"99"}},
+        {Categoria.TRANSPORTE, "Transporte Público", new String[]{"metro", "onibus", "bilhete unico"}},
+        {Categoria.TRANSPORTE, "Manutenção", new String[]{"oficina", "mecanica"}},
+        {Categoria.MORADIA, "Luz", new String[]{"energia"}},
+        {Categoria.MORADIA, "Água", new String[]{"saneamento"}},
+        {Categoria.SAUDE, "Medicamentos", new String[]{"farmacia", "drogaria"}},
+        {Categoria.SAUDE, "Médico", new String[]{"consulta", "clinica"}},
+        {Categoria.LAZER, "Streaming", new String[]{"netflix", "spotify"}},
+        {Categoria.LAZER, "Viagem", new String[]{"hotel", "passagem"}},
+        {Categoria.SALARIO, "Salário Fixo", new String[]{"salario", "folha"}},
+        {Categoria.OUTROS, "Reembolso", new String[]{"estorno"}},
+    };
+    
+    public record Classificacao(Categoria categoria, String subcategoria) {}
+    
+    private record Regra(String termo, Categoria categoria, String subcategoria) {}
+    
+    private final List<Regra> regras = new CopyOnWriteArrayList<>();
+    
+    public MapeamentoCategorias() {
+        List<Regra> padrao = new ArrayList<>();
+        for (Object[] linha : TERMOS_PADRAO) {
+            for (String termo : (String[]) linha[2]) {
+                padrao.add(new Regra(termo, (Categoria) linha[0], (String) linha[1]));
+            }
+        }
+        // "Uber/Taxi" vira dois termos
+        for (Categoria categoria : Categoria.values()) {
+            for (String subcategoria : categoria.getSubcategorias()) {
+                for (String parte : subcategoria.split("/")) {
+                    padrao.add(new Regra(normalizar(parte), categoria, subcategoria));
+                }
+            }
+        }
+        regras.addAll(padrao);
+    }
+    
+    // A regra nova passa na frente das que já existem
+    public void adicionarRegra(String termo, Categoria categoria, String subcategoria) {
+        if (termo == null || termo.isBlank()) {
+            throw new IllegalArgumentException("Termo da regra não informado");
+        }
+        if (categoria == null) {
+            throw new IllegalArgumentException("Categoria da regra não informada");
+        }
+        if (subcategoria != null && !categoria.temSubcategoria(subcategoria)) {
+            throw new IllegalArgumentException("Subcategoria '" + subcategoria + "' inválida para " + categoria.getNome()
+                + ". Válidas: " + categoria.listarSubcategorias());
+        }
+        regras.add(0, new Regra(normalizar(termo).trim(), categoria, subcategoria));
+    }
+    
+    // Sem regra que case, a transação vai para OUTROS (receita ou despesa): o restante
+    // do sistema (sugestões, toString) conta com uma categoria em toda transação
+    public Classificacao classificar(String descricao, TipoTransacao tipo) {
+        String texto = normalizar(descricao == null ? "" : descricao);
+        for (Regra regra : regras) {
+            if (doMesmoLado(regra.categoria(), tipo) && contemPalavra(texto, regra.termo())) {
+                return new Classificacao(regra.categoria(), regra.subcategoria());
+            }
+        }
+        return new Classificacao(Categoria.OUTROS, null);
+    }
+    
+    // Aceita o nome da constante ("ALIMENTACAO") ou o nome de exibição ("Alimentação")
+    public Categoria buscarCategoria(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        String procurado = normalizar(texto).trim();
+        for (Categoria categoria : Categoria.values()) {
+            if (procurado.equals(normalizar(categoria.name())) || procurado.equals(normalizar(categoria.getNome()))) {
+                return categoria;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean doMesmoLado(Categoria categoria, TipoTransacao tipo) {
+        return tipo == TipoTransacao.RECEITA ? categoria.isReceita() : categoria.isDespesa();
+    }
+    
+    static String normalizar(String texto) {
+        return ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean contemPalavra(String texto, String termo) {
+        int inicio = texto.indexOf(termo);
+        while (inicio >= 0) {
+            int fim = inicio + termo.length();
+            if ((inicio == 0 || !Character.isLetterOrDigit(texto.charAt(inicio - 1)))
+                && (fim == texto.length() || !Character.isLetterOrDigit(texto.charAt(fim)))) {
+                return true;
+            }
+            inicio = texto.indexOf(termo, inicio + 1);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package Gerenciadores;
+
+import Entidades.*;
+import java.io.*;
+
+// Recebe as entidades de uma carga uma a uma, já na ordem final, e as inclui no
+// gerenciador montando os índices na hora. Só a thread que faz a carga o chama.
+interface ReceptorCarga {
+    
+    void usuario(Usuario usuario);
+    
+    void conta(ContaFinanceira conta);
+    
+    void transacao(Transacao transacao);
+    
+    void meta(Meta meta);
+    
+    void orcamento(Orcamento orcamento);
+    
+    // Lê um arquivo e entrega as entidades ao receptor; devolve o que não é entidade
+    interface Fonte<T> {
+        T enviar(ReceptorCarga receptor) throws IOException, ClassNotFoundException;
+    }
+}
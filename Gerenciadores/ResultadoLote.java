@@ -0,0 +1,84 @@
+package Gerenciadores;
+
+import Entidades.*;
+import java.util.*;
+
+// Resultado de uma inclusão em lote: transações aceitas e falhas linha a linha
+public class ResultadoLote {
+    private final List<Transacao> aceitas;
+    private final List<Falha> falhas;
+    private final List<Integer> duplicadas;
+    
+    public ResultadoLote() {
+        this.aceitas = new ArrayList<>();
+        this.falhas = new ArrayList<>();
+        this.duplicadas = new ArrayList<>();
+    }
+    
+    void registrarAceita(Transacao transacao) {
+        aceitas.add(transacao);
+    }
+    
+    void registrarFalha(int indice, Transacao transacao, String motivo) {
+        falhas.add(new Falha(indice, transacao, motivo));
+    }
+    
+    void registrarDuplicada(int indice) {
+        duplicadas.add(indice);
+    }
+    
+    void ordenarFalhas() {
+        falhas.sort(Comparator.comparingInt(Falha::getIndice));
+    }
+    
+    public List<Transacao> getAceitas() {
+        return Collections.unmodifiableList(aceitas);
+    }
+    
+    public List<Falha> getFalhas() {
+        return Collections.unmodifiableList(falhas);
+    }
+    
+    public int getQuantidadeAceitas() {
+        return aceitas.size();
+    }
+    
+    public int getQuantidadeFalhas() {
+        return falhas.size();
+    }
+    
+    // Linhas ignoradas por já terem sido importadas (não contam como falha)
+    public List<Integer> getDuplicadas() {
+        return Collections.unmodifiableList(duplicadas);
+    }
+    
+    public int getQuantidadeDuplicadas() {
+        return duplicadas.size();
+    }
+    
+    public boolean isSucessoTotal() {
+        return falhas.isEmpty();
+    }
+    
+    // Linha rejeitada do lote (índice na ordem de iteração da coleção recebida)
+    public static class Falha {
+        private final int indice;
+        private final Transacao transacao;
+        private final String motivo;
+        
+        public Falha(int indice, Transacao transacao, String motivo) {
+            this.indice = indice;
+            this.transacao = transacao;
+            this.motivo = motivo;
+        }
+        
+        public int getIndice() { return indice; }
+        public Transacao getTransacao() { return transacao; }
+        public String getMotivo() { return motivo; }
+        
+        @Override
+        public String toString() {
+            return "Linha " + indice + ": " + motivo;
+        }
+    }
+}
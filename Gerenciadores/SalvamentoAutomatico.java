@@ -0,0 +1,111 @@
+package Gerenciadores;
+
+import java.io.*;
+import java.time.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Salva os dados numa thread própria, fora do caminho de quem usa o sistema.
+// Sabe se há algo a salvar pela versão do gerenciador: várias alterações seguidas
+// entre dois ciclos viram um único salvamento, e pedidos feitos enquanto um já
+// está na fila não agendam outro. O snapshot é capturado pelo GerenciadorPersistencia
+// sem segurar as alterações durante a gravação em disco.
+// Todos os salvamentos passam por esta thread, então o GerenciadorPersistencia
+// nunca é usado por duas threads ao mesmo tempo.
+public class SalvamentoAutomatico implements AutoCloseable {
+    
+    private final GerenciadorFinanceiro gerenciador;
+    private final GerenciadorPersistencia persistencia;
+    private final ScheduledExecutorService executor;
+    
+    // Começa em -1 para o primeiro ciclo salvar o que a carga gerou (ex.: recorrências)
+    private volatile long versaoSalva = -1;
+    private final AtomicBoolean pedidoNaFila = new AtomicBoolean();
+    private final AtomicLong salvamentos = new AtomicLong();
+    private volatile IOException ultimoErro;
+    
+    public SalvamentoAutomatico(GerenciadorFinanceiro gerenciador, GerenciadorPersistencia persistencia, Duration intervalo) {
+        this.gerenciador = gerenciador;
+        this.persistencia = persistencia;
+        this.executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "salvamento-automatico");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long milis = Math.max(1, intervalo.toMillis());
+        executor.scheduleWithFixedDelay(this::salvarNoCiclo, milis, milis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Pede um salvamento sem esperar por ele
+    public void solicitar() {
+        if (pedidoNaFila.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                pedidoNaFila.set(false);
+                salvarNoCiclo();
+            });
+        }
+    }
+    
+    // Salva o que estiver pendente e espera terminar; usado no encerramento
+    public void descarregarEAguardar() throws IOException {
+        Future<?> tarefa = executor.submit(() -> {
+            salvar();
+            return null;
+        });
+        try {
+            tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Salvamento interrompido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException erro) {
+                throw erro;
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    // Nos ciclos o erro fica guardado; o próximo ciclo tenta de novo
+    private void salvarNoCiclo() {
+        try {
+            salvar();
+        } catch (IOException e) {
+            ultimoErro = e;
+        } catch (RuntimeException e) {
+            ultimoErro = new IOException(e.getMessage(), e);
+        }
+    }
+    
+    // Só roda na thread do executor
+    private void salvar() throws IOException {
+        long versao = gerenciador.getVersao();
+        if (versao == versaoSalva) {
+            return;
+        }
+        persistencia.salvarDados(gerenciador);
+        versaoSalva = versao;
+        ultimoErro = null;
+        salvamentos.incrementAndGet();
+    }
+    
+    public boolean isPendente() {
+        return pedidoNaFila.get() || gerenciador.getVersao() != versaoSalva;
+    }
+    
+    public IOException getUltimoErro() {
+        return ultimoErro;
+    }
+    
+    public long getSalvamentos() {
+        return salvamentos.get();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            descarregarEAguardar();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
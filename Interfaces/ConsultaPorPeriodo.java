@@ -0,0 +1,65 @@
+package Interfaces;
+
+import Entidades.*;
+import Enums.*;
+import Exceptions.*;
+import java.time.*;
+import java.util.*;
+
+public interface ConsultaPorPeriodo {
+    // Transações com data entre inicio e fim (inclusive), em ordem de data
+    List<Transacao> getTransacoesPorPeriodo(LocalDate inicio, LocalDate fim);
+    
+    // Os métodos abaixo percorrem a lista do período. Fontes que guardam os campos
+    // fora dos objetos (ex.: ArquivoTransacoes) os sobrescrevem para responder sem
+    // montar as transações.
+    
+    default double somarPorTipo(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        double total = 0;
+        for (Transacao t : getTransacoesPorPeriodo(inicio, fim)) {
+            if (t.getTipo() == tipo) {
+                total += t.getValor();
+            }
+        }
+        return total;
+    }
+    
+    default Map<Categoria, Double> somarPorCategoria(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        Map<Categoria, Double> totais = new EnumMap<>(Categoria.class);
+        for (Transacao t : getTransacoesPorPeriodo(inicio, fim)) {
+            if (t.getTipo() == tipo && t.getCategoria() != null) {
+                totais.merge(t.getCategoria(), t.getValor(), Double::sum);
+            }
+        }
+        return totais;
+    }
+    
+    // Recebe os campos das transações do período numa passada só (ex.: o
+    // AcumuladorRelatorio); sem categoria chega como null
+    interface Acumulador {
+        void adicionar(TipoTransacao tipo, Categoria categoria, double valor);
+        
+        // Grupo já resumido por quem guarda os totais (ex.: um mês inteiro do acervo)
+        void adicionarGrupo(TipoTransacao tipo, Categoria categoria, double soma, int quantidade, double menor, double maior);
+    }
+    
+    // Entrega ao acumulador cada transação do período; a ordem não é garantida e
+    // fontes que guardam totais podem mandar grupos em vez de transações
+    default void acumular(LocalDate inicio, LocalDate fim, Acumulador acumulador) {
+        for (Transacao t : getTransacoesPorPeriodo(inicio, fim)) {
+            acumulador.adicionar(t.getTipo(), t.getCategoria(), t.getValor());
+        }
+    }
+    
+    // Maiores valores do tipo, do maior para o menor; no empate vale a ordem de data
+    default List<Transacao> buscarMaiores(LocalDate inicio, LocalDate fim, TipoTransacao tipo, int quantidade) {
+        List<Transacao> doTipo = new ArrayList<>();
+        for (Transacao t : getTransacoesPorPeriodo(inicio, fim)) {
+            if (t.getTipo() == tipo) {
+                doTipo.add(t);
+            }
+        }
+        doTipo.sort(Comparator.comparingDouble(Transacao::getValor).reversed());
+        return new ArrayList<>(doTipo.subList(0, Math.min(Math.max(quantidade, 0), doTipo.size())));
+    }
+}
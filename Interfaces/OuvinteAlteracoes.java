@@ -0,0 +1,43 @@
+package Interfaces;
+
+import Entidades.*;
+import java.util.*;
+
+// Recebe as alterações feitas pelo GerenciadorFinanceiro, logo depois de aplicadas
+// e na ordem em que aconteceram. Os métodos têm corpo vazio para que cada ouvinte
+// trate apenas o que lhe interessa.
+public interface OuvinteAlteracoes {
+    
+    default void usuarioAdicionado(Usuario usuario) {}
+    
+    default void emailAlterado(Usuario usuario) {}
+    
+    default void membroAdicionado(Grupo grupo, UsuarioIndividual membro) {}
+    
+    default void contaAdicionada(ContaFinanceira conta) {}
+    
+    // Depósito (valor positivo) ou saque (valor negativo) feito fora de uma transação
+    default void contaMovimentada(ContaFinanceira conta, double valor) {}
+    
+    // saldoAplicado indica se a inclusão passou pela regra de saldo (data até hoje)
+    default void transacaoAdicionada(Transacao transacao, boolean saldoAplicado) {}
+    
+    // Transações aceitas de um lote, com a mesma indicação de saldo por linha
+    default void loteAdicionado(List<Transacao> aceitas, boolean[] saldoAplicado) {}
+    
+    // Chaves de deduplicação das transações importadas, logo depois do lote delas
+    default void chavesRegistradas(long[] chaves) {}
+    
+    default void transacaoEstornada(Transacao transacao) {}
+    
+    default void anexoAdicionado(Transacao transacao, String caminho) {}
+    
+    default void metaAdicionada(Meta meta) {}
+    
+    default void metaContribuida(Meta meta, double valor) {}
+    
+    default void orcamentoAdicionado(Orcamento orcamento) {}
+    
+    // Todo o estado foi trocado (limpeza ou carga completa)
+    default void estadoSubstituido() {}
+}
@@ -0,0 +1,8 @@
+package Interfaces;
+
+// Acompanha uma carga longa. Chamado na thread da carga, de tempos em tempos e
+// uma última vez com carregadas == total.
+public interface OuvinteCarga {
+    
+    void progresso(int transacoesCarregadas, int totalTransacoes);
+}
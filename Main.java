@@ -5,6 +5,12 @@ import Factory.*;
 import Gerenciadores.*;
 import Relatorios.*;
 import Strategy.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
@@ -18,10 +24,18 @@ public class Main {
     private static Scanner scanner = new Scanner(System.in);
     private static GerenciadorFinanceiro gerenciador = GerenciadorFinanceiro.getInstancia();
     private static GerenciadorRelatorios geradorRelatorios;
-    private static GerenciadorPersistencia persistencia = new GerenciadorPersistencia();
+    private static GerenciadorPersistencia persistencia = new GerenciadorPersistencia(true);
+    private static SalvamentoAutomatico salvamento;
     
+    // Mês atual e os dois anteriores ficam em memória
+    private static final int MESES_EM_MEMORIA = 3;
+
+    private static final ModeloLinha LINHA_TRANSACAO = new ModeloLinha("#%d | %s | %s | %s | R$ %.2f%s\n");
+
     public static void main(String[] args) {
         carregarDados();
+        // Depois da carga: alterações são salvas em segundo plano a cada 5 segundos
+        salvamento = new SalvamentoAutomatico(gerenciador, persistencia, Duration.ofSeconds(5));
         
         System.out.println("╔═══════════════════════════════════════════════════════════════╗");
         System.out.println("║         SISTEMA DE GERENCIAMENTO FINANCEIRO PESSOAL          ║");
@@ -64,7 +78,7 @@ public class Main {
                         break;
                     case 0:
                         executando = false;
-                        salvarDados();
+                        encerrarSalvamento();
                         System.out.println("\nSistema encerrado com sucesso!");
                         break;
                     default:
@@ -183,6 +197,7 @@ public class Main {
         System.out.println(" 4. Estornar Transação");
         System.out.println(" 5. Adicionar Anexo à Transação");
         System.out.println(" 6. Dividir Despesa (Rateio)");
+        System.out.println(" 7. Importar Extrato (CSV/OFX)");
         System.out.println(" 0. Voltar");
         System.out.println("═".repeat(65));
         System.out.print("Escolha uma opção: ");
@@ -208,6 +223,9 @@ public class Main {
             case 6:
                 dividirDespesaRateio();
                 break;
+            case 7:
+                importarExtrato();
+                break;
             case 0:
                 return;
             default:
@@ -358,6 +376,7 @@ public class Main {
         System.out.println(" 5. Relatório Completo");
         System.out.println(" 6. Exportar Relatório");
         System.out.println(" 7. Resumo de Grupo");
+        System.out.println(" 8. Estatísticas do Cache de Relatórios");
         System.out.println(" 0. Voltar");
         System.out.println("═".repeat(65));
         System.out.print("Escolha uma opção: ");
@@ -386,6 +405,9 @@ public class Main {
             case 7:
                 gerarRelatorioResumoGrupo();
                 break;
+            case 8:
+                exibirEstatisticasCache();
+                break;
             case 0:
                 return;
             default:
@@ -654,6 +676,34 @@ public class Main {
         }
     }
     
+    private static void importarExtrato() {
+        ContaFinanceira conta = selecionarConta();
+        if (conta == null) return;
+
+        System.out.print("\nCaminho do arquivo (.csv ou .ofx): ");
+        Path arquivo = Paths.get(scanner.nextLine().trim());
+
+        try {
+            ImportadorExtrato.Resultado resultado = new ImportadorExtrato(gerenciador).importar(arquivo, conta);
+            System.out.println("\n" + resultado.getImportadas() + " de " + resultado.getRegistros()
+                + " lançamentos importados.");
+            if (resultado.getDuplicadas() > 0) {
+                System.out.println(resultado.getDuplicadas() + " já importados antes foram ignorados.");
+            }
+            if (resultado.getRejeitadas() > 0) {
+                System.out.println(resultado.getRejeitadas() + " rejeitados:");
+                for (String erro : resultado.getErros()) {
+                    System.out.println("  " + erro);
+                }
+                if (resultado.getErros().size() < resultado.getRejeitadas()) {
+                    System.out.println("  ...");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("\nErro ao importar: " + e.getMessage());
+        }
+    }
+
     private static void listarTransacoes() {
         List<Transacao> transacoes = gerenciador.getTransacoes();
         
@@ -666,34 +716,40 @@ public class Main {
         System.out.println("                        LISTA DE TRANSAÇÕES");
         System.out.println("═".repeat(80));
         
-        for (int i = 0; i < transacoes.size(); i++) {
-            Transacao t = transacoes.get(i);
-            System.out.printf("%d. %s | %s | %s | R$ %.2f%s\n", 
-                i + 1,
-                t.getData(),
-                t.getTipo(),
-                t.getDescricao(),
-                t.getValor(),
-                t.isEstornada() ? " [ESTORNADA]" : "");
+        // Cada linha é montada no mesmo StringBuilder e sai pelo buffer do PrintWriter
+        PrintWriter saida = new PrintWriter(System.out);
+        ModeloLinha.Linha linha = LINHA_TRANSACAO.nova();
+        try {
+            for (Transacao t : transacoes) {
+                linha.iniciar()
+                    .inteiro(t.getId())
+                    .dataIso(t.getData())
+                    .texto(t.getTipo())
+                    .texto(t.getDescricao())
+                    .valor(t.getValor())
+                    .texto(t.isEstornada() ? " [ESTORNADA]" : "")
+                    .escreverEm(saida);
+            }
+        } catch (IOException e) {
+            // PrintWriter não lança
+            throw new UncheckedIOException(e);
         }
+        saida.flush();
     }
     
     private static void estornarTransacao() {
         listarTransacoes();
         
-        System.out.print("\nNúmero da transação a estornar: ");
-        int indice = lerOpcao() - 1;
-        
-        List<Transacao> transacoes = gerenciador.getTransacoes();
+        System.out.print("\nID da transação a estornar: ");
+        Transacao t = gerenciador.buscarTransacaoPorId(lerOpcao());
         
-        if (indice < 0 || indice >= transacoes.size()) {
+        if (t == null) {
             System.out.println("\nTransação inválida!");
             return;
         }
         
         try {
-            Transacao t = transacoes.get(indice);
-            t.estornar();
+            gerenciador.estornarTransacao(t);
             System.out.println("\nTransação estornada com sucesso!");
         } catch (Exception e) {
             System.out.println("\nErro: " + e.getMessage());
@@ -703,12 +759,10 @@ public class Main {
     private static void adicionarAnexoTransacao() {
         listarTransacoes();
         
-        System.out.print("\nNúmero da transação: ");
-        int indice = lerOpcao() - 1;
-        
-        List<Transacao> transacoes = gerenciador.getTransacoes();
+        System.out.print("\nID da transação: ");
+        Transacao t = gerenciador.buscarTransacaoPorId(lerOpcao());
         
-        if (indice < 0 || indice >= transacoes.size()) {
+        if (t == null) {
             System.out.println("\nTransação inválida!");
             return;
         }
@@ -716,7 +770,7 @@ public class Main {
         System.out.print("Caminho do anexo: ");
         String caminho = scanner.nextLine();
         
-        transacoes.get(indice).adicionarAnexo(caminho);
+        gerenciador.adicionarAnexo(t, caminho);
         System.out.println("\nAnexo adicionado com sucesso!");
     }
     
@@ -780,7 +834,7 @@ public class Main {
         System.out.print("Valor da contribuição: R$ ");
         double valor = lerDouble();
         
-        metas.get(indice).contribuir(valor);
+        gerenciador.contribuirMeta(metas.get(indice), valor);
         System.out.println("\nContribuição registrada com sucesso!");
     }
     
@@ -905,9 +959,9 @@ public class Main {
                 
                 if (origem != null) {
                     // Tenta sacar da conta origem
-                    boolean sacou = origem.sacar(valor);
+                    boolean sacou = gerenciador.sacarDaConta(origem, valor);
                     if (sacou) {
-                        cofrinho.depositar(valor);
+                        gerenciador.depositarEmConta(cofrinho, valor);
                         System.out.println("Valor transferido com sucesso da conta " + origem.getNumeroConta());
                         
                         // Registrar a transação
@@ -922,7 +976,7 @@ public class Main {
                 }
             } else {
                 // Depósito direto (espécie)
-                cofrinho.depositar(valor);
+                gerenciador.depositarEmConta(cofrinho, valor);
                 System.out.println("\nDepósito realizado com sucesso!");
             }
         } catch (Exception e) {
@@ -945,7 +999,7 @@ public class Main {
         
         try {
             // Tenta realizar o saque do cofrinho primeiro
-            boolean sucesso = cofrinho.sacar(valor);
+            boolean sucesso = gerenciador.sacarDaConta(cofrinho, valor);
             
             if (sucesso) {
                 if (opcao == 2) {
@@ -953,7 +1007,7 @@ public class Main {
                     ContaFinanceira destino = selecionarConta();
                     
                     if (destino != null) {
-                        destino.depositar(valor);
+                        gerenciador.depositarEmConta(destino, valor);
                         System.out.println("Valor transferido com sucesso para a conta " + destino.getNumeroConta());
                         
                         // Opcional: Registrar a transação de transferência no histórico
@@ -1161,6 +1215,15 @@ public class Main {
         pausar();
     }
     
+    private static void exibirEstatisticasCache() {
+        inicializarGeradorRelatorios();
+
+        CacheRelatorios cache = geradorRelatorios.getCache();
+        System.out.println("\nCache de relatórios: " + (cache == null ? "desativado" : cache));
+
+        pausar();
+    }
+
     private static void exportarRelatorio() {
         inicializarGeradorRelatorios();
         
@@ -1223,7 +1286,12 @@ public class Main {
     
     private static void carregarDados() {
         try {
-            persistencia.carregarDados(gerenciador);
+            // Só bases grandes chegam a avisar antes do fim; o fim sempre é avisado
+            persistencia.carregarDados(gerenciador, (carregadas, total) -> {
+                if (carregadas < total) {
+                    System.out.print("\rCarregando transações: " + carregadas + " de " + total);
+                }
+            });
             System.out.println("\nDados carregados com sucesso.");
             
             // Processar recorrencias apos carregar
@@ -1238,11 +1306,34 @@ public class Main {
             System.out.println("\nNenhum dado salvo encontrado ou erro ao carregar: " + e.getMessage());
             System.out.println("Iniciando com base de dados vazia.");
         }
+        arquivarMesesFechados();
+    }
+
+    // Meses fora da janela em memória vão para o acervo; relatórios, listagens e a busca
+    // por id os leem sob demanda
+    private static void arquivarMesesFechados() {
+        try {
+            int arquivadas = persistencia.arquivarMesesFechados(gerenciador, MESES_EM_MEMORIA);
+            if (arquivadas > 0) {
+                System.out.println("Transações de meses fechados arquivadas: " + arquivadas);
+            }
+        } catch (IOException e) {
+            System.out.println("\nErro ao arquivar meses fechados: " + e.getMessage());
+        }
     }
     
     private static void salvarDados() {
+        salvamento.solicitar();
+        System.out.println("\nSalvamento solicitado; os dados são gravados em segundo plano.");
+        if (salvamento.getUltimoErro() != null) {
+            System.out.println("Último erro ao salvar: " + salvamento.getUltimoErro().getMessage());
+        }
+    }
+
+    // Espera o último salvamento terminar antes de sair
+    private static void encerrarSalvamento() {
         try {
-            persistencia.salvarDados(gerenciador);
+            salvamento.close();
             System.out.println("\nDados salvos com sucesso.");
         } catch (Exception e) {
             System.out.println("\nErro ao salvar dados: " + e.getMessage());
@@ -1250,10 +1341,9 @@ public class Main {
     }
     
     private static void inicializarGeradorRelatorios() {
+        // Os relatórios consultam o índice por data do gerenciador, sempre atualizado
         if (geradorRelatorios == null) {
-            geradorRelatorios = new GerenciadorRelatorios(gerenciador.getTransacoes());
-        } else {
-            geradorRelatorios.atualizarTransacoes(gerenciador.getTransacoes());
+            geradorRelatorios = new GerenciadorRelatorios(gerenciador);
         }
     }
     
@@ -1266,10 +1356,9 @@ public class Main {
         System.out.print("\nSelecione o ID do usuário: ");
         String id = scanner.nextLine();
         
-        for (Usuario u : usuarios) {
-            if (u.getId().equals(id)) {
-                return u;
-            }
+        Usuario usuario = gerenciador.buscarUsuarioPorId(id);
+        if (usuario != null) {
+            return usuario;
         }
         
         System.out.println("\nUsuário não encontrado!");
@@ -1285,10 +1374,9 @@ public class Main {
         System.out.print("\nNúmero da conta: ");
         String numero = scanner.nextLine();
         
-        for (ContaFinanceira c : contas) {
-            if (c.getNumeroConta().equals(numero)) {
-                return c;
-            }
+        ContaFinanceira conta = gerenciador.buscarContaPorNumero(numero);
+        if (conta != null) {
+            return conta;
         }
         
         System.out.println("\nConta não encontrada!");
@@ -1541,7 +1629,7 @@ public class Main {
         UsuarioIndividual novoMembro = individuais.get(indiceUsuario);
         
         // 3. Adicionar
-        boolean sucesso = grupo.adicionarMembro(novoMembro);
+        boolean sucesso = gerenciador.adicionarMembroGrupo(grupo, novoMembro);
         if (sucesso) {
             System.out.println("\nMembro " + novoMembro.getNome() + " adicionado ao grupo " + grupo.getNome() + " com sucesso!");
         } else {
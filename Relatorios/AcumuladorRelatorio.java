@@ -0,0 +1,182 @@
+package Relatorios;
+
+import Entidades.*;
+import Enums.*;
+import Interfaces.*;
+import java.time.*;
+import java.util.*;
+
+// Totais de um período montados numa passada só pela fonte: soma, quantidade, menor
+// e maior valor por tipo e por categoria (a última coluna é a das transações sem
+// categoria). Tudo fica em vetores de primitivos indexados pelo ordinal do tipo e da
+// categoria, então acumular não cria objetos; os mapas só aparecem na hora de ler.
+// Transações sem tipo ficam de fora, como nas somas de ConsultaPorPeriodo.
+public class AcumuladorRelatorio implements ConsultaPorPeriodo.Acumulador {
+    private static final TipoTransacao[] TIPOS = TipoTransacao.values();
+    private static final Categoria[] CATEGORIAS = Categoria.values();
+    private static final int COLUNAS = CATEGORIAS.length + 1;
+    
+    // Soma corrida por tipo, na ordem em que os valores chegam (a mesma de somarPorTipo)
+    private final double[] somaPorTipo = new double[TIPOS.length];
+    private final double[] soma = new double[TIPOS.length * COLUNAS];
+    private final int[] quantidade = new int[TIPOS.length * COLUNAS];
+    private final double[] menor = new double[TIPOS.length * COLUNAS];
+    private final double[] maior = new double[TIPOS.length * COLUNAS];
+    
+    public AcumuladorRelatorio() {
+        Arrays.fill(menor, Double.POSITIVE_INFINITY);
+        Arrays.fill(maior, Double.NEGATIVE_INFINITY);
+    }
+    
+    public static AcumuladorRelatorio de(ConsultaPorPeriodo fonte, LocalDate inicio, LocalDate fim) {
+        AcumuladorRelatorio acumulador = new AcumuladorRelatorio();
+        if (!inicio.isAfter(fim)) {
+            fonte.acumular(inicio, fim, acumulador);
+        }
+        return acumulador;
+    }
+    
+    public void adicionar(Transacao t) {
+        adicionar(t.getTipo(), t.getCategoria(), t.getValor());
+    }
+    
+    @Override
+    public void adicionar(TipoTransacao tipo, Categoria categoria, double valor) {
+        if (tipo == null) {
+            return;
+        }
+        int i = posicao(tipo, categoria);
+        somaPorTipo[tipo.ordinal()] += valor;
+        soma[i] += valor;
+        quantidade[i]++;
+        if (valor < menor[i]) {
+            menor[i] = valor;
+        }
+        if (valor > maior[i]) {
+            maior[i] = valor;
+        }
+    }
+    
+    @Override
+    public void adicionarGrupo(TipoTransacao tipo, Categoria categoria, double soma, int quantidade, double menor, double maior) {
+        if (tipo == null || quantidade == 0) {
+            return;
+        }
+        int i = posicao(tipo, categoria);
+        somaPorTipo[tipo.ordinal()] += soma;
+        this.soma[i] += soma;
+        this.quantidade[i] += quantidade;
+        this.menor[i] = Math.min(this.menor[i], menor);
+        this.maior[i] = Math.max(this.maior[i], maior);
+    }
+    
+    // Soma outro acumulador a este (ex.: períodos acumulados em separado)
+    public void juntar(AcumuladorRelatorio outro) {
+        for (int i = 0; i < somaPorTipo.length; i++) {
+            somaPorTipo[i] += outro.somaPorTipo[i];
+        }
+        for (int i = 0; i < soma.length; i++) {
+            soma[i] += outro.soma[i];
+            quantidade[i] += outro.quantidade[i];
+            menor[i] = Math.min(menor[i], outro.menor[i]);
+            maior[i] = Math.max(maior[i], outro.maior[i]);
+        }
+    }
+    
+    // ===== Por tipo =====
+    
+    public double getTotal(TipoTransacao tipo) {
+        return somaPorTipo[tipo.ordinal()];
+    }
+    
+    public int getQuantidade(TipoTransacao tipo) {
+        int total = 0;
+        int inicio = tipo.ordinal() * COLUNAS;
+        for (int i = inicio; i < inicio + COLUNAS; i++) {
+            total += quantidade[i];
+        }
+        return total;
+    }
+    
+    // 0 quando não há transação do tipo
+    public double getMenor(TipoTransacao tipo) {
+        double resultado = Double.POSITIVE_INFINITY;
+        int inicio = tipo.ordinal() * COLUNAS;
+        for (int i = inicio; i < inicio + COLUNAS; i++) {
+            resultado = Math.min(resultado, menor[i]);
+        }
+        return getQuantidade(tipo) == 0 ? 0.0 : resultado;
+    }
+    
+    public double getMaior(TipoTransacao tipo) {
+        double resultado = Double.NEGATIVE_INFINITY;
+        int inicio = tipo.ordinal() * COLUNAS;
+        for (int i = inicio; i < inicio + COLUNAS; i++) {
+            resultado = Math.max(resultado, maior[i]);
+        }
+        return getQuantidade(tipo) == 0 ? 0.0 : resultado;
+    }
+    
+    public int getQuantidade() {
+        int total = 0;
+        for (int q : quantidade) {
+            total += q;
+        }
+        return total;
+    }
+    
+    public double getSaldo() {
+        return getTotal(TipoTransacao.RECEITA) - getTotal(TipoTransacao.DESPESA);
+    }
+    
+    // ===== Por tipo e categoria (null = sem categoria) =====
+    
+    public double getTotal(TipoTransacao tipo, Categoria categoria) {
+        return soma[posicao(tipo, categoria)];
+    }
+    
+    public int getQuantidade(TipoTransacao tipo, Categoria categoria) {
+        return quantidade[posicao(tipo, categoria)];
+    }
+    
+    public double getMenor(TipoTransacao tipo, Categoria categoria) {
+        int i = posicao(tipo, categoria);
+        return quantidade[i] == 0 ? 0.0 : menor[i];
+    }
+    
+    public double getMaior(TipoTransacao tipo, Categoria categoria) {
+        int i = posicao(tipo, categoria);
+        return quantidade[i] == 0 ? 0.0 : maior[i];
+    }
+    
+    // Só as categorias com transação, como ConsultaPorPeriodo.somarPorCategoria
+    public Map<Categoria, Double> getTotaisPorCategoria(TipoTransacao tipo) {
+        Map<Categoria, Double> totais = new EnumMap<>(Categoria.class);
+        for (Categoria categoria : getCategorias(tipo)) {
+            totais.put(categoria, getTotal(tipo, categoria));
+        }
+        return totais;
+    }
+    
+    // Categorias com transação do tipo, da maior soma para a menor; no empate vale a
+    // ordem do enum
+    public List<Categoria> getCategoriasPorTotal(TipoTransacao tipo) {
+        List<Categoria> categorias = getCategorias(tipo);
+        categorias.sort((a, b) -> Double.compare(getTotal(tipo, b), getTotal(tipo, a)));
+        return categorias;
+    }
+    
+    private List<Categoria> getCategorias(TipoTransacao tipo) {
+        List<Categoria> categorias = new ArrayList<>();
+        for (Categoria categoria : CATEGORIAS) {
+            if (getQuantidade(tipo, categoria) > 0) {
+                categorias.add(categoria);
+            }
+        }
+        return categorias;
+    }
+    
+    private static int posicao(TipoTransacao tipo, Categoria categoria) {
+        return tipo.ordinal() * COLUNAS + (categoria == null ? CATEGORIAS.length : categoria.ordinal());
+    }
+}
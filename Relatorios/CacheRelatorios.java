@@ -0,0 +1,151 @@
+package Relatorios;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Relatórios já gerados, pela chave (relatório, período, parâmetro). Cada um guarda
+// o selo do período: a maior versão entre os meses que ele cobre. Como a versão de
+// um mês só cresce e qualquer alteração nele passa à frente de todas as anteriores,
+// o selo muda exatamente quando algum mês do período muda; alterações fora do
+// período não derrubam a entrada.
+// O tamanho é limitado por um orçamento de memória (estimado pelo texto guardado) e
+// a entrada usada há mais tempo sai primeiro.
+public class CacheRelatorios {
+    // Cabeçalho do objeto, chave e nó do mapa, além dos dois bytes por caractere
+    private static final int CUSTO_FIXO = 160;
+    
+    private record Chave(String relatorio, LocalDate inicio, LocalDate fim, Object parametro, Locale formato) {}
+    
+    private record Entrada(long selo, String texto) {
+        private long tamanho() {
+            return CUSTO_FIXO + 2L * texto.length();
+        }
+    }
+    
+    private final ToLongFunction<YearMonth> versaoDoMes;
+    private final long orcamento;
+    // Em ordem de acesso: o primeiro é o usado há mais tempo
+    private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long ocupado;
+    private long acertos;
+    private long faltas;
+    private long invalidacoes;
+    private long despejos;
+    
+    public CacheRelatorios(ToLongFunction<YearMonth> versaoDoMes, long orcamentoBytes) {
+        if (orcamentoBytes <= 0) {
+            throw new IllegalArgumentException("O orçamento do cache precisa ser positivo");
+        }
+        this.versaoDoMes = versaoDoMes;
+        this.orcamento = orcamentoBytes;
+    }
+    
+    // O relatório guardado se nenhum mês do período mudou; senão gera e guarda. A
+    // geração fica fora da trava, então duas threads podem gerar o mesmo relatório.
+    public String obter(String relatorio, LocalDate inicio, LocalDate fim, Object parametro, Supplier<String> gerar) {
+        Chave chave = new Chave(relatorio, inicio, fim, parametro, Locale.getDefault(Locale.Category.FORMAT));
+        long selo = selo(inicio, fim);
+        synchronized (this) {
+            Entrada entrada = entradas.get(chave);
+            if (entrada != null && entrada.selo() == selo) {
+                acertos++;
+                return entrada.texto();
+            }
+            if (entrada != null) {
+                invalidacoes++;
+                remover(chave);
+            }
+            faltas++;
+        }
+        // O selo foi lido antes de gerar: uma alteração no meio deixa a entrada com o
+        // selo antigo e ela é refeita na próxima consulta
+        String texto = gerar.get();
+        guardar(chave, new Entrada(selo, texto));
+        return texto;
+    }
+    
+    public synchronized void limpar() {
+        entradas.clear();
+        ocupado = 0;
+    }
+    
+    public synchronized long getAcertos() {
+        return acertos;
+    }
+    
+    public synchronized long getFaltas() {
+        return faltas;
+    }
+    
+    // Entradas descartadas porque um mês do período mudou
+    public synchronized long getInvalidacoes() {
+        return invalidacoes;
+    }
+    
+    // Entradas que saíram para caber no orçamento
+    public synchronized long getDespejos() {
+        return despejos;
+    }
+    
+    public synchronized int getQuantidade() {
+        return entradas.size();
+    }
+    
+    public synchronized long getOcupado() {
+        return ocupado;
+    }
+    
+    public long getOrcamento() {
+        return orcamento;
+    }
+    
+    public synchronized double getTaxaDeAcerto() {
+        long consultas = acertos + faltas;
+        return consultas == 0 ? 0.0 : (double) acertos / consultas;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("%d consultas, %d acertos (%.1f%%), %d faltas, %d invalidações, %d despejos; "
+            + "%d relatórios em %d de %d KB", acertos + faltas, acertos, getTaxaDeAcerto() * 100, faltas,
+            invalidacoes, despejos, entradas.size(), (ocupado + 1023) / 1024, orcamento / 1024);
+    }
+    
+    private long selo(LocalDate inicio, LocalDate fim) {
+        long selo = 0;
+        for (YearMonth mes = YearMonth.from(inicio); !mes.isAfter(YearMonth.from(fim)); mes = mes.plusMonths(1)) {
+            selo = Math.max(selo, versaoDoMes.applyAsLong(mes));
+        }
+        return selo;
+    }
+    
+    // Um relatório maior que o orçamento inteiro não é guardado
+    private synchronized void guardar(Chave chave, Entrada entrada) {
+        if (entrada.tamanho() > orcamento) {
+            return;
+        }
+        Entrada anterior = entradas.get(chave);
+        if (anterior != null && anterior.selo() > entrada.selo()) {
+            return;
+        }
+        remover(chave);
+        entradas.put(chave, entrada);
+        ocupado += entrada.tamanho();
+        Iterator<Entrada> maisAntigas = entradas.values().iterator();
+        while (ocupado > orcamento) {
+            Entrada saindo = maisAntigas.next();
+            maisAntigas.remove();
+            ocupado -= saindo.tamanho();
+            despejos++;
+        }
+    }
+    
+    private void remover(Chave chave) {
+        Entrada removida = entradas.remove(chave);
+        if (removida != null) {
+            ocupado -= removida.tamanho();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package Relatorios;
+
+import Entidades.*;
+import Interfaces.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Totais congelados dos meses fechados (anteriores ao mês atual). Depois que o mês
+// acaba, os totais por tipo, categoria e titular só mudam com um lançamento com data
+// retroativa ou um estorno; então cada mês fechado é somado uma vez e guardado com a
+// versão que a fonte informava para ele (ex.: GerenciadorFinanceiro.getVersaoMes).
+// Na consulta, se a versão do mês mudou, o fechamento é descartado e refeito.
+// Um período longo junta os fechamentos dos meses inteiros e percorre a fonte só nas
+// pontas que pegam parte de um mês e nos meses ainda abertos.
+public class FechamentosMensais {
+    private final ConsultaPorPeriodo fonte;
+    private final ToLongFunction<YearMonth> versaoDoMes;
+    private final Supplier<YearMonth> mesAtual;
+    private final Map<YearMonth, Fechamento> fechamentos = new ConcurrentHashMap<>();
+    private final AtomicLong congelamentos = new AtomicLong();
+    private final AtomicLong invalidacoes = new AtomicLong();
+    
+    // Totais de um mês fechado; não mudam depois de montados (os por titular são
+    // montados na primeira consulta que precisa deles)
+    private static final class Fechamento {
+        private final long versao;
+        private final AcumuladorRelatorio totais;
+        private volatile Map<Usuario, AcumuladorRelatorio> porTitular;
+        
+        private Fechamento(long versao, AcumuladorRelatorio totais) {
+            this.versao = versao;
+            this.totais = totais;
+        }
+    }
+    
+    public FechamentosMensais(ConsultaPorPeriodo fonte, ToLongFunction<YearMonth> versaoDoMes) {
+        this(fonte, versaoDoMes, YearMonth::now);
+    }
+    
+    public FechamentosMensais(ConsultaPorPeriodo fonte, ToLongFunction<YearMonth> versaoDoMes,
+                              Supplier<YearMonth> mesAtual) {
+        this.fonte = fonte;
+        this.versaoDoMes = versaoDoMes;
+        this.mesAtual = mesAtual;
+    }
+    
+    // Totais de todas as transações do período
+    public AcumuladorRelatorio acumular(LocalDate inicio, LocalDate fim) {
+        return acumular(inicio, fim, null);
+    }
+    
+    // Totais só das transações de contas dos titulares indicados
+    public AcumuladorRelatorio acumularDosTitulares(Collection<? extends Usuario> titulares,
+                                                    LocalDate inicio, LocalDate fim) {
+        return acumular(inicio, fim, titulares);
+    }
+    
+    // Descarta o fechamento do mês (para fontes cuja versão não acompanha tudo)
+    public void invalidar(YearMonth mes) {
+        if (fechamentos.remove(mes) != null) {
+            invalidacoes.incrementAndGet();
+        }
+    }
+    
+    // Quantas vezes um mês fechado foi somado na fonte
+    public long getCongelamentos() {
+        return congelamentos.get();
+    }
+    
+    // Quantos fechamentos foram descartados por mudança no mês
+    public long getInvalidacoes() {
+        return invalidacoes.get();
+    }
+    
+    private AcumuladorRelatorio acumular(LocalDate inicio, LocalDate fim, Collection<? extends Usuario> titulares) {
+        AcumuladorRelatorio resultado = new AcumuladorRelatorio();
+        if (inicio.isAfter(fim)) {
+            return resultado;
+        }
+        YearMonth atual = mesAtual.get();
+        // Trecho ainda não somado: meses consecutivos sem fechamento vão à fonte juntos
+        LocalDate pendente = null;
+        for (YearMonth mes = YearMonth.from(inicio); !mes.isAfter(YearMonth.from(fim)); mes = mes.plusMonths(1)) {
+            boolean inteiro = !mes.atDay(1).isBefore(inicio) && !mes.atEndOfMonth().isAfter(fim);
+            if (inteiro && mes.isBefore(atual)) {
+                if (pendente != null) {
+                    somarNaFonte(resultado, pendente, mes.atDay(1).minusDays(1), titulares);
+                    pendente = null;
+                }
+                Fechamento fechamento = fechamento(mes);
+                resultado.juntar(titulares == null ? fechamento.totais : dosTitulares(mes, fechamento, titulares));
+            } else if (pendente == null) {
+                pendente = mes.atDay(1).isBefore(inicio) ? inicio : mes.atDay(1);
+            }
+        }
+        if (pendente != null) {
+            somarNaFonte(resultado, pendente, fim, titulares);
+        }
+        return resultado;
+    }
+    
+    private void somarNaFonte(AcumuladorRelatorio resultado, LocalDate inicio, LocalDate fim,
+                              Collection<? extends Usuario> titulares) {
+        if (titulares == null) {
+            fonte.acumular(inicio, fim, resultado);
+            return;
+        }
+        for (Transacao t : fonte.getTransacoesPorPeriodo(inicio, fim)) {
+            if (titulares.contains(t.getConta().getTitular())) {
+                resultado.adicionar(t);
+            }
+        }
+    }
+    
+    // A versão é lida antes de somar: uma alteração no meio da soma deixa o
+    // fechamento com a versão antiga e ele é refeito na próxima consulta
+    private Fechamento fechamento(YearMonth mes) {
+        long versao = versaoDoMes.applyAsLong(mes);
+        Fechamento fechamento = fechamentos.get(mes);
+        if (fechamento != null && fechamento.versao == versao) {
+            return fechamento;
+        }
+        if (fechamento != null) {
+            invalidacoes.incrementAndGet();
+        }
+        fechamento = new Fechamento(versao, AcumuladorRelatorio.de(fonte, mes.atDay(1), mes.atEndOfMonth()));
+        congelamentos.incrementAndGet();
+        fechamentos.put(mes, fechamento);
+        return fechamento;
+    }
+    
+    private AcumuladorRelatorio dosTitulares(YearMonth mes, Fechamento fechamento,
+                                             Collection<? extends Usuario> titulares) {
+        Map<Usuario, AcumuladorRelatorio> porTitular = fechamento.porTitular;
+        if (porTitular == null) {
+            porTitular = new HashMap<>();
+            for (Transacao t : fonte.getTransacoesPorPeriodo(mes.atDay(1), mes.atEndOfMonth())) {
+                porTitular.computeIfAbsent(t.getConta().getTitular(), u -> new AcumuladorRelatorio()).adicionar(t);
+            }
+            fechamento.porTitular = porTitular;
+        }
+        AcumuladorRelatorio resultado = new AcumuladorRelatorio();
+        for (Usuario titular : new HashSet<Usuario>(titulares)) {
+            AcumuladorRelatorio doTitular = porTitular.get(titular);
+            if (doTitular != null) {
+                resultado.juntar(doTitular);
+            }
+        }
+        return resultado;
+    }
+}
@@ -2,297 +2,392 @@ package Relatorios;
 
 import Entidades.*;
 import Enums.*;
+import Gerenciadores.*;
+import Interfaces.*;
 import java.io.*;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.ToLongFunction;
 
 public class GerenciadorRelatorios {
-    private List<Transacao> transacoes;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private ConsultaPorPeriodo fonte;
+    // Os dois ficam null quando a fonte não informa versões por mês: sem elas não há
+    // como saber se totais e relatórios guardados continuam valendo
+    private FechamentosMensais fechamentos;
+    private CacheRelatorios cache;
     
+    // Meses do acervo mantidos em memória pelos relatórios
+    private static final int MESES_EM_CACHE = 6;
+    
+    // Memória dos relatórios já gerados (ver CacheRelatorios)
+    private static final long MEMORIA_CACHE = 2 << 20;
+    
+    // Layout das linhas de transação e de categoria, lido uma vez (ver ModeloLinha)
+    private static final ModeloLinha LINHA_PERIODO = new ModeloLinha("%s | %s | R$ %.2f | %s\n");
+    private static final ModeloLinha LINHA_CATEGORIA = new ModeloLinha("%-25s | R$ %9.2f | %6.2f%%\n");
+    private static final ModeloLinha LINHA_RANKING = new ModeloLinha("%-5d | %-12s | R$ %9.2f | %s\n");
+    private static final ModeloLinha LINHA_EVOLUCAO = new ModeloLinha("%-12s | %-12s | R$ %9.2f | R$ %9.2f\n");
+    private static final ModeloLinha LINHA_COMPLETO = new ModeloLinha("%-25s: R$ %9.2f (%5.2f%%)\n");
+    
+    // Trabalha sobre uma cópia da lista; o índice por data é montado na primeira consulta
     public GerenciadorRelatorios(List<Transacao> transacoes) {
-        this.transacoes = new ArrayList<>(transacoes);
+        atualizarTransacoes(transacoes);
     }
     
+    // Consulta direto uma fonte indexada (ex.: o GerenciadorFinanceiro), sempre atualizada
+    public GerenciadorRelatorios(ConsultaPorPeriodo fonte) {
+        this.fonte = fonte;
+        if (fonte instanceof GerenciadorFinanceiro gerenciador) {
+            usarVersoes(gerenciador::getVersaoMes);
+        }
+    }
+    
+    // Com o gerenciador, os meses que ele arquivou (AcervoMensal) também entram nos
+    // relatórios, lidos só quando o período os alcança e guardados num cache LRU
+    public GerenciadorRelatorios(GerenciadorFinanceiro gerenciador) {
+        this(gerenciador, MESES_EM_CACHE);
+    }
+    
+    public GerenciadorRelatorios(GerenciadorFinanceiro gerenciador, int mesesEmCache) {
+        this.fonte = new PaginadorAcervo(gerenciador, gerenciador::getAcervo, mesesEmCache);
+        usarVersoes(gerenciador::getVersaoMes);
+    }
+    
+    // Uma lista não informa versões (um estorno muda a transação sem mudar a lista),
+    // então não há meses fechados nem relatórios guardados: tudo sai da cópia na hora
     public void atualizarTransacoes(List<Transacao> transacoes) {
-        this.transacoes = new ArrayList<>(transacoes);
+        this.fonte = new IndicePorData(new ArrayList<>(transacoes));
+        this.fechamentos = null;
+        this.cache = null;
+    }
+    
+    private void usarVersoes(ToLongFunction<YearMonth> versaoDoMes) {
+        this.fechamentos = new FechamentosMensais(fonte, versaoDoMes);
+        this.cache = new CacheRelatorios(versaoDoMes, MEMORIA_CACHE);
+    }
+    
+    public FechamentosMensais getFechamentos() {
+        return fechamentos;
+    }
+    
+    public CacheRelatorios getCache() {
+        return cache;
     }
     
     public String gerarRelatorioPorPeriodo(LocalDate inicio, LocalDate fim) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("           RELATORIO DE GASTOS POR PERIODO\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
-        
-        List<Transacao> transacoesPeriodo = filtrarPorPeriodo(inicio, fim);
-        
-        double totalReceitas = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.RECEITA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-            
-        double totalDespesas = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-        
-        sb.append(String.format("Total de Receitas: R$ %.2f\n", totalReceitas));
-        sb.append(String.format("Total de Despesas: R$ %.2f\n", totalDespesas));
-        sb.append(String.format("Saldo do Periodo:  R$ %.2f\n\n", totalReceitas - totalDespesas));
-        
-        sb.append("Transacoes do Periodo:\n");
-        sb.append("-".repeat(65)).append("\n");
-        for (Transacao t : transacoesPeriodo) {
-            sb.append(String.format("%s | %s | R$ %.2f | %s\n",
-                t.getData().format(formatter),
-                t.getTipo(),
-                t.getValor(),
-                t.getDescricao()));
-        }
-        
-        return sb.toString();
+        return emTexto(saida -> escreverRelatorioPorPeriodo(inicio, fim, saida));
+    }
+    
+    // As linhas vão para a saída à medida que são lidas, um mês por vez: a memória
+    // não depende do tamanho do período
+    public void escreverRelatorioPorPeriodo(LocalDate inicio, LocalDate fim, Appendable saida) throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("           RELATORIO DE GASTOS POR PERIODO\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
+        
+        // Os totais vêm antes das linhas: saem dos fechamentos e de uma passada pelos
+        // campos, sem guardar as transações
+        AcumuladorRelatorio totais = acumular(inicio, fim);
+        
+        saida.append(String.format("Total de Receitas: R$ %.2f\n", totais.getTotal(TipoTransacao.RECEITA)));
+        saida.append(String.format("Total de Despesas: R$ %.2f\n", totais.getTotal(TipoTransacao.DESPESA)));
+        saida.append(String.format("Saldo do Periodo:  R$ %.2f\n\n", totais.getSaldo()));
+        
+        saida.append("Transacoes do Periodo:\n");
+        saida.append("-".repeat(65)).append("\n");
+        ModeloLinha.Linha linha = LINHA_PERIODO.nova();
+        percorrerPorMes(inicio, fim, t -> linha.iniciar()
+            .data(t.getData())
+            .texto(t.getTipo())
+            .valor(t.getValor())
+            .texto(t.getDescricao())
+            .escreverEm(saida));
     }
     
     public String gerarRelatorioComparativoCategoria(LocalDate inicio, LocalDate fim) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("        RELATORIO COMPARATIVO POR CATEGORIA\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
-        
-        List<Transacao> transacoesPeriodo = filtrarPorPeriodo(inicio, fim);
-        
-        Map<Categoria, Double> gastosPorCategoria = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .collect(Collectors.groupingBy(
-                Transacao::getCategoria,
-                Collectors.summingDouble(Transacao::getValor)
-            ));
-        
-        double totalDespesas = gastosPorCategoria.values().stream()
-            .mapToDouble(Double::doubleValue)
-            .sum();
-        
-        sb.append(String.format("%-25s | %-12s | %-10s\n", "Categoria", "Valor", "Percentual"));
-        sb.append("-".repeat(65)).append("\n");
-        
-        gastosPorCategoria.entrySet().stream()
-            .sorted(Map.Entry.<Categoria, Double>comparingByValue().reversed())
-            .forEach(entry -> {
-                double percentual = (entry.getValue() / totalDespesas) * 100;
-                sb.append(String.format("%-25s | R$ %9.2f | %6.2f%%\n",
-                    entry.getKey().getNome(),
-                    entry.getValue(),
-                    percentual));
-            });
+        Escrita escrita = saida -> escreverComparativoCategoria(inicio, fim, saida);
+        return cache == null ? emTexto(escrita) : cache.obter("comparativo", inicio, fim, null, () -> emTexto(escrita));
+    }
+    
+    // Uma linha por categoria: com o cache, vai o texto guardado
+    public void escreverRelatorioComparativoCategoria(LocalDate inicio, LocalDate fim, Appendable saida) throws IOException {
+        if (cache == null) {
+            escreverComparativoCategoria(inicio, fim, saida);
+        } else {
+            saida.append(gerarRelatorioComparativoCategoria(inicio, fim));
+        }
+    }
+    
+    private void escreverComparativoCategoria(LocalDate inicio, LocalDate fim, Appendable saida) throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("        RELATORIO COMPARATIVO POR CATEGORIA\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
+        
+        // Somas pelos campos da fonte, sem precisar das transações em si
+        AcumuladorRelatorio totais = acumular(inicio, fim);
+        List<Categoria> categorias = totais.getCategoriasPorTotal(TipoTransacao.DESPESA);
+        
+        // Só as despesas com categoria, que são as que aparecem na tabela
+        double totalDespesas = 0;
+        for (Categoria categoria : categorias) {
+            totalDespesas += totais.getTotal(TipoTransacao.DESPESA, categoria);
+        }
         
-        sb.append("-".repeat(65)).append("\n");
-        sb.append(String.format("TOTAL: R$ %.2f\n", totalDespesas));
+        saida.append(String.format("%-25s | %-12s | %-10s\n", "Categoria", "Valor", "Percentual"));
+        saida.append("-".repeat(65)).append("\n");
+        
+        ModeloLinha.Linha linha = LINHA_CATEGORIA.nova();
+        for (Categoria categoria : categorias) {
+            double valor = totais.getTotal(TipoTransacao.DESPESA, categoria);
+            linha.iniciar()
+                .texto(categoria.getNome())
+                .valor(valor)
+                .valor((valor / totalDespesas) * 100)
+                .escreverEm(saida);
+        }
         
-        return sb.toString();
+        saida.append("-".repeat(65)).append("\n");
+        saida.append(String.format("TOTAL: R$ %.2f\n", totalDespesas));
     }
     
     public String gerarRelatorioRankingDespesas(LocalDate inicio, LocalDate fim, int topN) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("          TOP ").append(topN).append(" MAIORES DESPESAS\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
+        return emTexto(saida -> escreverRelatorioRankingDespesas(inicio, fim, topN, saida));
+    }
+    
+    public void escreverRelatorioRankingDespesas(LocalDate inicio, LocalDate fim, int topN, Appendable saida)
+            throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("          TOP ").append(String.valueOf(topN)).append(" MAIORES DESPESAS\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
         
-        List<Transacao> despesas = filtrarPorPeriodo(inicio, fim).stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .sorted(Comparator.comparingDouble(Transacao::getValor).reversed())
-            .limit(topN)
-            .collect(Collectors.toList());
+        List<Transacao> despesas = fonte.buscarMaiores(inicio, fim, TipoTransacao.DESPESA, topN);
         
-        sb.append(String.format("%-5s | %-12s | %-12s | %s\n", "Pos", "Data", "Valor", "Descricao"));
-        sb.append("-".repeat(65)).append("\n");
+        saida.append(String.format("%-5s | %-12s | %-12s | %s\n", "Pos", "Data", "Valor", "Descricao"));
+        saida.append("-".repeat(65)).append("\n");
         
+        ModeloLinha.Linha linha = LINHA_RANKING.nova();
         int posicao = 1;
         for (Transacao t : despesas) {
-            sb.append(String.format("%-5d | %-12s | R$ %9.2f | %s\n",
-                posicao++,
-                t.getData().format(formatter),
-                t.getValor(),
-                t.getDescricao()));
+            linha.iniciar()
+                .inteiro(posicao++)
+                .data(t.getData())
+                .valor(t.getValor())
+                .texto(t.getDescricao())
+                .escreverEm(saida);
         }
-        
-        return sb.toString();
     }
     
     public String gerarRelatorioEvolucaoSaldo(LocalDate inicio, LocalDate fim, double saldoInicial) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("           RELATORIO DE EVOLUCAO DE SALDO\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
-        
-        List<Transacao> transacoesPeriodo = filtrarPorPeriodo(inicio, fim);
-        transacoesPeriodo.sort(Comparator.comparing(Transacao::getData));
-        
-        sb.append(String.format("Saldo Inicial: R$ %.2f\n\n", saldoInicial));
-        sb.append(String.format("%-12s | %-12s | %-12s | %s\n", "Data", "Tipo", "Valor", "Saldo"));
-        sb.append("-".repeat(65)).append("\n");
-        
-        double saldoAtual = saldoInicial;
-        for (Transacao t : transacoesPeriodo) {
+        return emTexto(saida -> escreverRelatorioEvolucaoSaldo(inicio, fim, saldoInicial, saida));
+    }
+    
+    // Como o relatório por período, escreve as linhas um mês por vez
+    public void escreverRelatorioEvolucaoSaldo(LocalDate inicio, LocalDate fim, double saldoInicial, Appendable saida)
+            throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("           RELATORIO DE EVOLUCAO DE SALDO\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
+        
+        saida.append(String.format("Saldo Inicial: R$ %.2f\n\n", saldoInicial));
+        saida.append(String.format("%-12s | %-12s | %-12s | %s\n", "Data", "Tipo", "Valor", "Saldo"));
+        saida.append("-".repeat(65)).append("\n");
+        
+        // O índice já devolve as transações em ordem de data
+        double[] saldoAtual = {saldoInicial};
+        ModeloLinha.Linha linha = LINHA_EVOLUCAO.nova();
+        percorrerPorMes(inicio, fim, t -> {
             if (t.getTipo() == TipoTransacao.RECEITA) {
-                saldoAtual += t.getValor();
+                saldoAtual[0] += t.getValor();
             } else {
-                saldoAtual -= t.getValor();
+                saldoAtual[0] -= t.getValor();
             }
             
-            sb.append(String.format("%-12s | %-12s | R$ %9.2f | R$ %9.2f\n",
-                t.getData().format(formatter),
-                t.getTipo(),
-                t.getValor(),
-                saldoAtual));
-        }
-        
-        sb.append("-".repeat(65)).append("\n");
-        sb.append(String.format("Saldo Final: R$ %.2f\n", saldoAtual));
-        sb.append(String.format("Variacao:    R$ %.2f\n", saldoAtual - saldoInicial));
-        
-        return sb.toString();
+            linha.iniciar()
+                .data(t.getData())
+                .texto(t.getTipo())
+                .valor(t.getValor())
+                .valor(saldoAtual[0])
+                .escreverEm(saida);
+        });
+        
+        saida.append("-".repeat(65)).append("\n");
+        saida.append(String.format("Saldo Final: R$ %.2f\n", saldoAtual[0]));
+        saida.append(String.format("Variacao:    R$ %.2f\n", saldoAtual[0] - saldoInicial));
     }
     
     public String gerarRelatorioCompleto(LocalDate inicio, LocalDate fim, double saldoInicial) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("              RELATORIO FINANCEIRO COMPLETO\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
-        
-        List<Transacao> transacoesPeriodo = filtrarPorPeriodo(inicio, fim);
-        
-        double totalReceitas = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.RECEITA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-            
-        double totalDespesas = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-        
-        sb.append("RESUMO GERAL\n");
-        sb.append("-".repeat(65)).append("\n");
-        sb.append(String.format("Saldo Inicial:     R$ %.2f\n", saldoInicial));
-        sb.append(String.format("Total Receitas:    R$ %.2f\n", totalReceitas));
-        sb.append(String.format("Total Despesas:    R$ %.2f\n", totalDespesas));
-        sb.append(String.format("Saldo Final:       R$ %.2f\n\n", saldoInicial + totalReceitas - totalDespesas));
-        
-        Map<Categoria, Double> gastosPorCategoria = transacoesPeriodo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .collect(Collectors.groupingBy(
-                Transacao::getCategoria,
-                Collectors.summingDouble(Transacao::getValor)
-            ));
-        
-        sb.append("DESPESAS POR CATEGORIA\n");
-        sb.append("-".repeat(65)).append("\n");
-        gastosPorCategoria.entrySet().stream()
-            .sorted(Map.Entry.<Categoria, Double>comparingByValue().reversed())
-            .forEach(entry -> {
-                double percentual = (entry.getValue() / totalDespesas) * 100;
-                sb.append(String.format("%-25s: R$ %9.2f (%5.2f%%)\n",
-                    entry.getKey().getNome(),
-                    entry.getValue(),
-                    percentual));
-            });
-        
-        return sb.toString();
+        Escrita escrita = saida -> escreverCompleto(inicio, fim, saldoInicial, saida);
+        return cache == null ? emTexto(escrita) : cache.obter("completo", inicio, fim, saldoInicial, () -> emTexto(escrita));
+    }
+    
+    public void escreverRelatorioCompleto(LocalDate inicio, LocalDate fim, double saldoInicial, Appendable saida)
+            throws IOException {
+        if (cache == null) {
+            escreverCompleto(inicio, fim, saldoInicial, saida);
+        } else {
+            saida.append(gerarRelatorioCompleto(inicio, fim, saldoInicial));
+        }
+    }
+    
+    private void escreverCompleto(LocalDate inicio, LocalDate fim, double saldoInicial, Appendable saida)
+            throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("              RELATORIO FINANCEIRO COMPLETO\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
+        
+        AcumuladorRelatorio totais = acumular(inicio, fim);
+        double totalReceitas = totais.getTotal(TipoTransacao.RECEITA);
+        double totalDespesas = totais.getTotal(TipoTransacao.DESPESA);
+        
+        saida.append("RESUMO GERAL\n");
+        saida.append("-".repeat(65)).append("\n");
+        saida.append(String.format("Saldo Inicial:     R$ %.2f\n", saldoInicial));
+        saida.append(String.format("Total Receitas:    R$ %.2f\n", totalReceitas));
+        saida.append(String.format("Total Despesas:    R$ %.2f\n", totalDespesas));
+        saida.append(String.format("Saldo Final:       R$ %.2f\n\n", saldoInicial + totalReceitas - totalDespesas));
+        
+        saida.append("DESPESAS POR CATEGORIA\n");
+        saida.append("-".repeat(65)).append("\n");
+        ModeloLinha.Linha linha = LINHA_COMPLETO.nova();
+        for (Categoria categoria : totais.getCategoriasPorTotal(TipoTransacao.DESPESA)) {
+            double valor = totais.getTotal(TipoTransacao.DESPESA, categoria);
+            linha.iniciar()
+                .texto(categoria.getNome())
+                .valor(valor)
+                .valor((valor / totalDespesas) * 100)
+                .escreverEm(saida);
+        }
     }
     
     public String gerarRelatorioResumoGrupo(Grupo grupo, LocalDate inicio, LocalDate fim) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n").append("=".repeat(65)).append("\n");
-        sb.append("           RELATORIO RESUMO DO GRUPO\n");
-        sb.append("=".repeat(65)).append("\n");
-        sb.append("Grupo: ").append(grupo.getNome()).append("\n");
-        sb.append("Periodo: ").append(inicio.format(formatter))
-          .append(" ate ").append(fim.format(formatter)).append("\n");
-        sb.append("=".repeat(65)).append("\n\n");
+        return emTexto(saida -> escreverRelatorioResumoGrupo(grupo, inicio, fim, saida));
+    }
+    
+    public void escreverRelatorioResumoGrupo(Grupo grupo, LocalDate inicio, LocalDate fim, Appendable saida)
+            throws IOException {
+        saida.append("\n").append("=".repeat(65)).append("\n");
+        saida.append("           RELATORIO RESUMO DO GRUPO\n");
+        saida.append("=".repeat(65)).append("\n");
+        saida.append("Grupo: ").append(grupo.getNome()).append("\n");
+        saida.append("Periodo: ").append(Formatacao.data(inicio))
+          .append(" ate ").append(Formatacao.data(fim)).append("\n");
+        saida.append("=".repeat(65)).append("\n\n");
         
         UsuarioIndividual[] membros = grupo.getMembros();
-        sb.append("Membros do Grupo:\n");
+        saida.append("Membros do Grupo:\n");
         for (UsuarioIndividual u : membros) {
-            sb.append("- ").append(u.getNome()).append("\n");
+            saida.append("- ").append(u.getNome()).append("\n");
         }
-        sb.append("\n");
-        
-        List<Transacao> transacoesGrupo = filtrarPorPeriodo(inicio, fim).stream()
-            .filter(t -> {
+        saida.append("\n");
+        
+        // Só as transações de contas dos membros
+        AcumuladorRelatorio totais;
+        if (fechamentos != null) {
+            totais = fechamentos.acumularDosTitulares(Arrays.asList(membros), inicio, fim);
+        } else {
+            totais = new AcumuladorRelatorio();
+            for (Transacao t : filtrarPorPeriodo(inicio, fim)) {
                 Usuario titular = t.getConta().getTitular();
                 for (UsuarioIndividual m : membros) {
-                    if (m.equals(titular)) return true;
+                    if (m.equals(titular)) {
+                        totais.adicionar(t);
+                        break;
+                    }
                 }
-                return false;
-            })
-            .collect(Collectors.toList());
-        
-        double totalReceitas = transacoesGrupo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.RECEITA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-            
-        double totalDespesas = transacoesGrupo.stream()
-            .filter(t -> t.getTipo() == TipoTransacao.DESPESA)
-            .mapToDouble(Transacao::getValor)
-            .sum();
-        
-        sb.append(String.format("Total de Receitas: R$ %.2f\n", totalReceitas));
-        sb.append(String.format("Total de Despesas: R$ %.2f\n", totalDespesas));
-        sb.append(String.format("Saldo do Grupo:    R$ %.2f\n", totalReceitas - totalDespesas));
+            }
+        }
         
-        return sb.toString();
+        saida.append(String.format("Total de Receitas: R$ %.2f\n", totais.getTotal(TipoTransacao.RECEITA)));
+        saida.append(String.format("Total de Despesas: R$ %.2f\n", totais.getTotal(TipoTransacao.DESPESA)));
+        saida.append(String.format("Saldo do Grupo:    R$ %.2f\n", totais.getSaldo()));
     }
     
     public void exportarRelatorioPorPeriodo(LocalDate inicio, LocalDate fim, String caminhoArquivo) {
-        exportarParaArquivo(gerarRelatorioPorPeriodo(inicio, fim), caminhoArquivo);
+        exportarParaArquivo(saida -> escreverRelatorioPorPeriodo(inicio, fim, saida), caminhoArquivo);
     }
     
     public void exportarRelatorioComparativoCategoria(LocalDate inicio, LocalDate fim, String caminhoArquivo) {
-        exportarParaArquivo(gerarRelatorioComparativoCategoria(inicio, fim), caminhoArquivo);
+        exportarParaArquivo(saida -> escreverRelatorioComparativoCategoria(inicio, fim, saida), caminhoArquivo);
     }
     
     public void exportarRelatorioRankingDespesas(LocalDate inicio, LocalDate fim, int topN, String caminhoArquivo) {
-        exportarParaArquivo(gerarRelatorioRankingDespesas(inicio, fim, topN), caminhoArquivo);
+        exportarParaArquivo(saida -> escreverRelatorioRankingDespesas(inicio, fim, topN, saida), caminhoArquivo);
     }
     
     public void exportarRelatorioEvolucaoSaldo(LocalDate inicio, LocalDate fim, double saldoInicial, String caminhoArquivo) {
-        exportarParaArquivo(gerarRelatorioEvolucaoSaldo(inicio, fim, saldoInicial), caminhoArquivo);
+        exportarParaArquivo(saida -> escreverRelatorioEvolucaoSaldo(inicio, fim, saldoInicial, saida), caminhoArquivo);
     }
     
     public void exportarRelatorioCompleto(LocalDate inicio, LocalDate fim, double saldoInicial, String caminhoArquivo) {
-        exportarParaArquivo(gerarRelatorioCompleto(inicio, fim, saldoInicial), caminhoArquivo);
+        exportarParaArquivo(saida -> escreverRelatorioCompleto(inicio, fim, saldoInicial, saida), caminhoArquivo);
     }
     
-    private void exportarParaArquivo(String conteudo, String caminhoArquivo) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(caminhoArquivo))) {
-            writer.println(conteudo);
+    // O relatório vai direto para o arquivo pelo buffer, sem ser montado antes em memória
+    private void exportarParaArquivo(Escrita escrita, String caminhoArquivo) {
+        try (Writer writer = new BufferedWriter(new FileWriter(caminhoArquivo))) {
+            escrita.escrever(writer);
+            writer.write(System.lineSeparator());
             System.out.println("\nRelatorio exportado com sucesso para: " + caminhoArquivo);
         } catch (IOException e) {
             System.out.println("\nErro ao exportar relatorio: " + e.getMessage());
         }
     }
     
+    // Meses fechados pelos fechamentos; o resto (e tudo, sem eles) numa passada pela fonte
+    private AcumuladorRelatorio acumular(LocalDate inicio, LocalDate fim) {
+        return fechamentos == null ? AcumuladorRelatorio.de(fonte, inicio, fim) : fechamentos.acumular(inicio, fim);
+    }
+    
+    // Varredura de faixa no índice por data: não toca transações fora do período
     private List<Transacao> filtrarPorPeriodo(LocalDate inicio, LocalDate fim) {
-        return transacoes.stream()
-            .filter(t -> !t.getData().isBefore(inicio) && !t.getData().isAfter(fim))
-            .collect(Collectors.toList());
+        return fonte.getTransacoesPorPeriodo(inicio, fim);
+    }
+    
+    // Entrega as transações do período em ordem de data, pedindo à fonte um mês por
+    // vez: só a lista do mês da vez fica na memória (com o acervo, além do seu cache)
+    private void percorrerPorMes(LocalDate inicio, LocalDate fim, Linha linha) throws IOException {
+        LocalDate de = inicio;
+        while (!de.isAfter(fim)) {
+            LocalDate fimDoMes = de.withDayOfMonth(de.lengthOfMonth());
+            LocalDate ate = fimDoMes.isAfter(fim) ? fim : fimDoMes;
+            for (Transacao t : filtrarPorPeriodo(de, ate)) {
+                linha.escrever(t);
+            }
+            de = ate.plusDays(1);
+        }
+    }
+    
+    private static String emTexto(Escrita escrita) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            escrita.escrever(sb);
+        } catch (IOException e) {
+            // StringBuilder não lança
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+    
+    private interface Escrita {
+        void escrever(Appendable saida) throws IOException;
+    }
+    
+    private interface Linha {
+        void escrever(Transacao t) throws IOException;
     }
 }
@@ -0,0 +1,53 @@
+package Relatorios;
+
+import Entidades.*;
+import Interfaces.*;
+import java.time.*;
+import java.util.*;
+
+// Índice por data de uma lista fixa de transações, montado na primeira consulta.
+// Cada consulta por período vira uma varredura de faixa no mapa ordenado por dia.
+public class IndicePorData implements ConsultaPorPeriodo {
+    private final List<Transacao> transacoes;
+    private NavigableMap<Long, List<Transacao>> porDia;
+    
+    public IndicePorData(List<Transacao> transacoes) {
+        this.transacoes = transacoes;
+    }
+    
+    @Override
+    public List<Transacao> getTransacoesPorPeriodo(LocalDate inicio, LocalDate fim) {
+        List<Transacao> resultado = new ArrayList<>();
+        if (inicio.isAfter(fim)) {
+            return resultado;
+        }
+        for (List<Transacao> doDia : getPorDia().subMap(inicio.toEpochDay(), true, fim.toEpochDay(), true).values()) {
+            resultado.addAll(doDia);
+        }
+        return resultado;
+    }
+    
+    // Direto da faixa do índice, sem montar a lista do período
+    @Override
+    public void acumular(LocalDate inicio, LocalDate fim, Acumulador acumulador) {
+        if (inicio.isAfter(fim)) {
+            return;
+        }
+        for (List<Transacao> doDia : getPorDia().subMap(inicio.toEpochDay(), true, fim.toEpochDay(), true).values()) {
+            for (Transacao t : doDia) {
+                acumulador.adicionar(t.getTipo(), t.getCategoria(), t.getValor());
+            }
+        }
+    }
+    
+    private synchronized NavigableMap<Long, List<Transacao>> getPorDia() {
+        if (porDia == null) {
+            NavigableMap<Long, List<Transacao>> indice = new TreeMap<>();
+            for (Transacao t : transacoes) {
+                indice.computeIfAbsent(t.getData().toEpochDay(), d -> new ArrayList<>()).add(t);
+            }
+            porDia = indice;
+        }
+        return porDia;
+    }
+}
@@ -0,0 +1,164 @@
+package Relatorios;
+
+import Entidades.*;
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+// Layout fixo de uma linha, no formato de String.format ("%-12s | R$ %9.2f\n"), lido
+// uma vez só. Os campos são preenchidos em ordem numa Linha, que reaproveita o mesmo
+// buffer de uma linha para a outra: montar e escrever uma linha não cria objetos.
+// Aceita %s, %d e %.<n>f, com largura (negativa: alinhado à esquerda) e %%; o
+// resultado é o mesmo de String.format no locale padrão (ver Formatacao).
+public class ModeloLinha {
+    private final String[] literais;
+    private final char[] tipos;
+    private final int[] larguras;
+    private final int[] casas;
+    
+    public ModeloLinha(String modelo) {
+        List<String> literais = new ArrayList<>();
+        StringBuilder tipos = new StringBuilder();
+        List<int[]> formatos = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < modelo.length()) {
+            char c = modelo.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i < modelo.length() && modelo.charAt(i) == '%') {
+                literal.append('%');
+                i++;
+                continue;
+            }
+            int inicio = i;
+            boolean esquerda = i < modelo.length() && modelo.charAt(i) == '-';
+            if (esquerda) {
+                i++;
+            }
+            int largura = 0;
+            while (i < modelo.length() && Character.isDigit(modelo.charAt(i))) {
+                largura = largura * 10 + (modelo.charAt(i++) - '0');
+            }
+            int precisao = -1;
+            if (i < modelo.length() && modelo.charAt(i) == '.') {
+                precisao = 0;
+                i++;
+                while (i < modelo.length() && Character.isDigit(modelo.charAt(i))) {
+                    precisao = precisao * 10 + (modelo.charAt(i++) - '0');
+                }
+            }
+            char tipo = i < modelo.length() ? modelo.charAt(i++) : ' ';
+            boolean valido = switch (tipo) {
+                case 's', 'd' -> precisao < 0;
+                case 'f' -> precisao >= 0 && precisao <= 6 && !esquerda;
+                default -> false;
+            };
+            if (!valido) {
+                throw new IllegalArgumentException("Campo não suportado no modelo: %" + modelo.substring(inicio, i));
+            }
+            literais.add(literal.toString());
+            literal.setLength(0);
+            tipos.append(tipo);
+            formatos.add(new int[] {esquerda ? -largura : largura, precisao});
+        }
+        literais.add(literal.toString());
+        
+        this.literais = literais.toArray(new String[0]);
+        this.tipos = tipos.toString().toCharArray();
+        this.larguras = new int[formatos.size()];
+        this.casas = new int[formatos.size()];
+        for (int j = 0; j < formatos.size(); j++) {
+            larguras[j] = formatos.get(j)[0];
+            casas[j] = formatos.get(j)[1];
+        }
+    }
+    
+    // Uma por relatório (ou listagem): não é thread-safe
+    public Linha nova() {
+        return new Linha();
+    }
+    
+    public int getCampos() {
+        return tipos.length;
+    }
+    
+    public class Linha {
+        private final StringBuilder buffer = new StringBuilder(128);
+        private char[] apoio = new char[128];
+        private int campo;
+        
+        // Começa uma linha nova, descartando a anterior
+        public Linha iniciar() {
+            buffer.setLength(0);
+            buffer.append(literais[0]);
+            campo = 0;
+            return this;
+        }
+        
+        // %s: texto, enum ou qualquer objeto (pelo toString)
+        public Linha texto(Object valor) {
+            int largura = proximo('s');
+            Formatacao.anexarTexto(buffer, valor instanceof CharSequence texto ? texto : String.valueOf(valor), largura);
+            return avancar();
+        }
+        
+        // %s com a data em dd/MM/yyyy
+        public Linha data(LocalDate data) {
+            int largura = proximo('s');
+            Formatacao.anexarTexto(buffer, Formatacao.data(data), largura);
+            return avancar();
+        }
+        
+        // %s com a data em yyyy-MM-dd, como LocalDate.toString
+        public Linha dataIso(LocalDate data) {
+            if (proximo('s') != 0) {
+                return texto(data);
+            }
+            Formatacao.anexarDataIso(buffer, data);
+            return avancar();
+        }
+        
+        public Linha inteiro(long valor) {
+            int largura = proximo('d');
+            Formatacao.anexarInteiro(buffer, valor, largura);
+            return avancar();
+        }
+        
+        public Linha valor(double valor) {
+            int largura = proximo('f');
+            Formatacao.anexarDecimal(buffer, valor, casas[campo], largura);
+            return avancar();
+        }
+        
+        // Escreve a linha completa na saída
+        public void escreverEm(Appendable saida) throws IOException {
+            if (campo != tipos.length) {
+                throw new IllegalStateException("Linha incompleta: " + campo + " de " + tipos.length + " campos");
+            }
+            if (apoio.length < buffer.length()) {
+                apoio = new char[buffer.capacity()];
+            }
+            Formatacao.escrever(buffer, saida, apoio);
+        }
+        
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+        
+        private int proximo(char tipo) {
+            if (campo >= tipos.length || tipos[campo] != tipo) {
+                throw new IllegalStateException("O campo " + (campo + 1) + " do modelo não é %" + tipo);
+            }
+            return larguras[campo];
+        }
+        
+        private Linha avancar() {
+            buffer.append(literais[++campo]);
+            return this;
+        }
+    }
+}
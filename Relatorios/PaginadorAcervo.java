@@ -0,0 +1,193 @@
+package Relatorios;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Interfaces.*;
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Junta uma fonte em memória com os meses fechados de um AcervoMensal. Um mês do
+// acervo só é lido quando o período pedido o alcança, e os meses lidos ficam num
+// cache LRU de tamanho fixo: a memória dos relatórios depende do tamanho do cache,
+// não do tamanho do histórico. A soma (e a quantidade, o menor e o maior, em
+// acumular) de um mês inteiro sai dos totais gravados com ele, sem ler as transações.
+// O acervo é pedido a cada consulta (ex.: gerenciador::getAcervo); quando ele é
+// trocado, o cache recomeça.
+public class PaginadorAcervo implements ConsultaPorPeriodo {
+    private final ConsultaPorPeriodo fonte;
+    private final Supplier<AcervoMensal> acervo;
+    private final int capacidade;
+    
+    // Em ordem de acesso: o primeiro é o usado há mais tempo e sai quando passa da capacidade
+    private final LinkedHashMap<YearMonth, List<Transacao>> cache;
+    private AcervoMensal acervoDoCache;
+    private long leituras;
+    
+    public PaginadorAcervo(ConsultaPorPeriodo fonte, Supplier<AcervoMensal> acervo, int capacidade) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("O cache precisa de pelo menos um mês");
+        }
+        this.fonte = fonte;
+        this.acervo = acervo;
+        this.capacidade = capacidade;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<YearMonth, List<Transacao>> maisAntigo) {
+                return size() > PaginadorAcervo.this.capacidade;
+            }
+        };
+    }
+    
+    // Arquivadas antes das em memória do mesmo dia, como o histórico no gerenciador
+    @Override
+    public List<Transacao> getTransacoesPorPeriodo(LocalDate inicio, LocalDate fim) {
+        List<Transacao> emMemoria = fonte.getTransacoesPorPeriodo(inicio, fim);
+        List<Transacao> arquivadas = arquivadasNoPeriodo(inicio, fim);
+        if (arquivadas.isEmpty()) {
+            return emMemoria;
+        }
+        List<Transacao> resultado = new ArrayList<>(arquivadas.size() + emMemoria.size());
+        int j = 0;
+        for (Transacao t : arquivadas) {
+            while (j < emMemoria.size() && emMemoria.get(j).getData().isBefore(t.getData())) {
+                resultado.add(emMemoria.get(j++));
+            }
+            resultado.add(t);
+        }
+        resultado.addAll(emMemoria.subList(j, emMemoria.size()));
+        return resultado;
+    }
+    
+    @Override
+    public double somarPorTipo(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        double total = fonte.somarPorTipo(inicio, fim, tipo);
+        AcervoMensal atual = acervo.get();
+        for (YearMonth mes : mesesNoPeriodo(atual, inicio, fim)) {
+            if (mesInteiro(mes, inicio, fim)) {
+                total += atual.somarPorTipo(mes, tipo);
+                continue;
+            }
+            for (Transacao t : doMesNoPeriodo(atual, mes, inicio, fim)) {
+                if (t.getTipo() == tipo) {
+                    total += t.getValor();
+                }
+            }
+        }
+        return total;
+    }
+    
+    @Override
+    public Map<Categoria, Double> somarPorCategoria(LocalDate inicio, LocalDate fim, TipoTransacao tipo) {
+        Map<Categoria, Double> totais = fonte.somarPorCategoria(inicio, fim, tipo);
+        AcervoMensal atual = acervo.get();
+        for (YearMonth mes : mesesNoPeriodo(atual, inicio, fim)) {
+            if (mesInteiro(mes, inicio, fim)) {
+                atual.somarPorCategoria(mes, tipo).forEach((categoria, valor) -> totais.merge(categoria, valor, Double::sum));
+                continue;
+            }
+            for (Transacao t : doMesNoPeriodo(atual, mes, inicio, fim)) {
+                if (t.getTipo() == tipo && t.getCategoria() != null) {
+                    totais.merge(t.getCategoria(), t.getValor(), Double::sum);
+                }
+            }
+        }
+        return totais;
+    }
+    
+    // Mês inteiro pelos grupos do cabeçalho; o que não tem grupos (acervo antigo) ou
+    // só entra em parte é lido pelo cache
+    @Override
+    public void acumular(LocalDate inicio, LocalDate fim, Acumulador acumulador) {
+        fonte.acumular(inicio, fim, acumulador);
+        AcervoMensal atual = acervo.get();
+        for (YearMonth mes : mesesNoPeriodo(atual, inicio, fim)) {
+            if (mesInteiro(mes, inicio, fim) && atual.acumularMes(mes, acumulador)) {
+                continue;
+            }
+            for (Transacao t : doMesNoPeriodo(atual, mes, inicio, fim)) {
+                acumulador.adicionar(t.getTipo(), t.getCategoria(), t.getValor());
+            }
+        }
+    }
+    
+    // As maiores do acervo e as da fonte disputam entre si, de volta em ordem de data
+    @Override
+    public List<Transacao> buscarMaiores(LocalDate inicio, LocalDate fim, TipoTransacao tipo, int quantidade) {
+        List<Transacao> arquivadas = arquivadasNoPeriodo(inicio, fim);
+        if (arquivadas.isEmpty()) {
+            return fonte.buscarMaiores(inicio, fim, tipo, quantidade);
+        }
+        ConsultaPorPeriodo doAcervo = (de, ate) -> arquivadas;
+        List<Transacao> candidatas = new ArrayList<>(doAcervo.buscarMaiores(inicio, fim, tipo, quantidade));
+        candidatas.addAll(fonte.buscarMaiores(inicio, fim, tipo, quantidade));
+        candidatas.sort(Comparator.comparing(Transacao::getData));
+        ConsultaPorPeriodo porData = (de, ate) -> candidatas;
+        return porData.buscarMaiores(inicio, fim, tipo, quantidade);
+    }
+    
+    private List<Transacao> arquivadasNoPeriodo(LocalDate inicio, LocalDate fim) {
+        List<Transacao> resultado = new ArrayList<>();
+        AcervoMensal atual = acervo.get();
+        for (YearMonth mes : mesesNoPeriodo(atual, inicio, fim)) {
+            resultado.addAll(doMesNoPeriodo(atual, mes, inicio, fim));
+        }
+        return resultado;
+    }
+    
+    private static NavigableSet<YearMonth> mesesNoPeriodo(AcervoMensal atual, LocalDate inicio, LocalDate fim) {
+        if (atual == null || inicio.isAfter(fim)) {
+            return Collections.emptyNavigableSet();
+        }
+        return atual.getMeses().subSet(YearMonth.from(inicio), true, YearMonth.from(fim), true);
+    }
+    
+    private static boolean mesInteiro(YearMonth mes, LocalDate inicio, LocalDate fim) {
+        return !mes.atDay(1).isBefore(inicio) && !mes.atEndOfMonth().isAfter(fim);
+    }
+    
+    // O mês já vem em ordem de data
+    private List<Transacao> doMesNoPeriodo(AcervoMensal atual, YearMonth mes, LocalDate inicio, LocalDate fim) {
+        List<Transacao> doMes = carregarMes(atual, mes);
+        if (mesInteiro(mes, inicio, fim)) {
+            return doMes;
+        }
+        List<Transacao> resultado = new ArrayList<>();
+        for (Transacao t : doMes) {
+            if (!t.getData().isBefore(inicio) && !t.getData().isAfter(fim)) {
+                resultado.add(t);
+            }
+        }
+        return resultado;
+    }
+    
+    private synchronized List<Transacao> carregarMes(AcervoMensal atual, YearMonth mes) {
+        if (atual != acervoDoCache) {
+            cache.clear();
+            acervoDoCache = atual;
+        }
+        List<Transacao> doMes = cache.get(mes);
+        if (doMes == null) {
+            try {
+                doMes = Collections.unmodifiableList(atual.lerMes(mes));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler " + mes + " do acervo", e);
+            }
+            leituras++;
+            cache.put(mes, doMes);
+        }
+        return doMes;
+    }
+    
+    // Quantas vezes um mês foi lido do disco (a primeira vez ou depois de sair do cache)
+    public synchronized long getLeituras() {
+        return leituras;
+    }
+    
+    // Do usado há mais tempo para o mais recente
+    public synchronized List<YearMonth> getMesesEmCache() {
+        return new ArrayList<>(cache.keySet());
+    }
+}
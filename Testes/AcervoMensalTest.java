@@ -0,0 +1,274 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Relatorios.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AcervoMensalTest {
+    
+    @TempDir
+    Path diretorio;
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    private ContaCorrente conta;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+        conta = new ContaCorrente("12345", usuario, 100000.0);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+    }
+    
+    // Simula o encerramento do programa e uma nova carga a partir dos arquivos
+    private GerenciadorPersistencia reiniciar() throws Exception {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        if (gerenciador.buscarUsuarioPorId(usuario.getId()) != null) {
+            usuario = gerenciador.buscarUsuarioPorId(usuario.getId());
+            conta = (ContaCorrente) gerenciador.buscarContaPorNumero("12345");
+        }
+        return persistencia;
+    }
+    
+    private Transacao lancar(TipoTransacao tipo, Categoria categoria, double valor, String descricao, LocalDate data) {
+        Transacao t = new Transacao(tipo, categoria, valor, descricao, usuario, conta);
+        t.setData(data);
+        gerenciador.adicionarTransacao(t);
+        return t;
+    }
+    
+    // Janeiro a junho de 2023: uma receita no dia 1 e uma despesa por dia de 1 a 28
+    private GerenciadorPersistencia popular() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        for (int mes = 1; mes <= 6; mes++) {
+            lancar(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário " + mes, LocalDate.of(2023, mes, 1));
+            for (int dia = 1; dia <= 28; dia++) {
+                lancar(TipoTransacao.DESPESA, dia % 2 == 0 ? Categoria.ALIMENTACAO : Categoria.LAZER, 10.0,
+                    "Despesa " + mes + "/" + dia, LocalDate.of(2023, mes, dia));
+            }
+        }
+        return persistencia;
+    }
+    
+    @Test
+    @DisplayName("Deve tirar os meses fechados da memória sem mudar relatórios nem totais")
+    public void testArquivarMeses() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 6, 30);
+        GerenciadorRelatorios relatorios = new GerenciadorRelatorios(gerenciador);
+        String antes = relatorios.gerarRelatorioPorPeriodo(inicio, fim);
+        double receitas = gerenciador.calcularTotalReceitas(usuario);
+        double despesas = gerenciador.calcularTotalDespesas(usuario);
+        
+        assertEquals(4 * 29, persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5)));
+        
+        assertEquals(4 * 29, gerenciador.getAcervo().getQuantidade());
+        assertTrue(gerenciador.getTransacoesDoDia(LocalDate.of(2023, 1, 1)).isEmpty());
+        assertEquals(0, gerenciador.getAcervo().getQuantidadeMaterializada());
+        assertEquals(receitas, gerenciador.calcularTotalReceitas(usuario), 0.01);
+        assertEquals(despesas, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertEquals(antes, relatorios.gerarRelatorioPorPeriodo(inicio, fim));
+        
+        // Depois de uma nova carga o acervo continua valendo e os ids não se repetem
+        reiniciar();
+        assertEquals(4 * 29, gerenciador.getAcervo().getQuantidade());
+        assertEquals(antes, new GerenciadorRelatorios(gerenciador).gerarRelatorioPorPeriodo(inicio, fim));
+        assertEquals(receitas, gerenciador.calcularTotalReceitas(usuario), 0.01);
+        assertEquals(despesas, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        Transacao nova = lancar(TipoTransacao.DESPESA, Categoria.LAZER, 5.0, "Nova", LocalDate.of(2023, 6, 29));
+        assertTrue(nova.getId() > gerenciador.getAcervo().getMaiorId());
+    }
+    
+    @Test
+    @DisplayName("Deve achar transações arquivadas por id e nas listagens montando só os meses alcançados")
+    public void testBuscarArquivadas() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        Transacao fevereiro = gerenciador.getTransacoesPorPeriodo(LocalDate.of(2023, 2, 3), LocalDate.of(2023, 2, 3)).get(0);
+        persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5));
+        reiniciar();
+        AcervoMensal acervo = gerenciador.getAcervo();
+        
+        Transacao encontrada = gerenciador.buscarTransacaoPorId(fevereiro.getId());
+        assertEquals("Despesa 2/3", encontrada.getDescricao());
+        assertSame(encontrada, gerenciador.buscarTransacaoPorId(fevereiro.getId()));
+        assertSame(conta, encontrada.getContaOrigem());
+        assertEquals(29, acervo.getQuantidadeMaterializada());
+        assertNull(gerenciador.buscarTransacaoPorId(999_999));
+        
+        List<Transacao> todas = gerenciador.getTransacoes();
+        assertEquals(6 * 29, todas.size());
+        assertEquals("Salário 1", todas.get(0).getDescricao());
+        assertSame(encontrada, todas.get(29 + 3));
+        assertEquals("Salário 6", todas.get(5 * 29).getDescricao());
+        assertEquals(6 * 29, gerenciador.getTransacoesDoUsuario(usuario).size());
+        assertEquals(6, gerenciador.getTransacoesPorTipo(TipoTransacao.RECEITA).size());
+        assertEquals(6 * 14, gerenciador.getTransacoesPorCategoria(Categoria.LAZER).size());
+    }
+    
+    @Test
+    @DisplayName("Deve devolver à memória o mês de uma transação arquivada antes de estornar ou anexar")
+    public void testEstornarArquivada() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5));
+        GerenciadorRelatorios relatorios = new GerenciadorRelatorios(gerenciador);
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 6, 30);
+        double saldo = conta.consultarSaldo();
+        double despesas = gerenciador.calcularTotalDespesas(usuario);
+        
+        Transacao arquivada = gerenciador.getTransacoes().get(29 + 3);
+        int id = arquivada.getId();
+        assertTrue(gerenciador.estornarTransacao(id));
+        
+        assertTrue(arquivada.isEstornada());
+        assertSame(arquivada, gerenciador.buscarTransacaoPorId(id));
+        assertFalse(gerenciador.getAcervo().getMeses().contains(YearMonth.of(2023, 2)));
+        assertEquals(6 * 29, gerenciador.getTransacoes().size());
+        assertEquals(saldo + 10.0, conta.consultarSaldo(), 0.01);
+        assertEquals(despesas - 10.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        String depois = relatorios.gerarRelatorioPorPeriodo(inicio, fim);
+        
+        // Fevereiro saiu do acervo: março passou a ser o segundo mês arquivado
+        Transacao marco = gerenciador.getTransacoes().get(29 + 5);
+        assertEquals(YearMonth.of(2023, 3), YearMonth.from(marco.getData()));
+        gerenciador.adicionarAnexo(marco, "recibo.pdf");
+        assertFalse(gerenciador.getAcervo().getMeses().contains(YearMonth.of(2023, 3)));
+        persistencia.salvarDados(gerenciador);
+        
+        // O estorno e o anexo valem depois da carga e o mês volta ao acervo no próximo arquivamento
+        persistencia = reiniciar();
+        assertTrue(gerenciador.buscarTransacaoPorId(id).isEstornada());
+        assertEquals(List.of("recibo.pdf"), gerenciador.buscarTransacaoPorId(marco.getId()).getAnexos());
+        assertEquals(saldo + 10.0, conta.consultarSaldo(), 0.01);
+        assertEquals(despesas - 10.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertEquals(depois, new GerenciadorRelatorios(gerenciador).gerarRelatorioPorPeriodo(inicio, fim));
+        
+        assertEquals(2 * 29, persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5)));
+        reiniciar();
+        assertTrue(gerenciador.buscarTransacaoPorId(id).isEstornada());
+        assertEquals(despesas - 10.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertEquals(depois, new GerenciadorRelatorios(gerenciador).gerarRelatorioPorPeriodo(inicio, fim));
+        try (var arquivos = Files.list(diretorio.resolve("dados_sistema.acervo"))) {
+            assertEquals(4, arquivos.count());
+        }
+    }
+    
+    @Test
+    @DisplayName("Deve acumular quantidade, menor e maior dos meses inteiros pelo cabeçalho")
+    public void testAcumularMeses() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        lancar(TipoTransacao.DESPESA, null, 75.0, "Sem categoria", LocalDate.of(2023, 2, 10));
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 6, 30);
+        AcumuladorRelatorio antes = AcumuladorRelatorio.de(gerenciador, inicio, fim);
+        
+        persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5));
+        PaginadorAcervo paginador = new PaginadorAcervo(gerenciador, gerenciador::getAcervo, 2);
+        AcumuladorRelatorio depois = AcumuladorRelatorio.de(paginador, inicio, fim);
+        assertEquals(0, paginador.getLeituras());
+        
+        assertEquals(antes.getQuantidade(), depois.getQuantidade());
+        assertEquals(6 * 29 + 1, depois.getQuantidade());
+        assertEquals(antes.getTotal(TipoTransacao.DESPESA), depois.getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(84, depois.getQuantidade(TipoTransacao.DESPESA, Categoria.LAZER));
+        assertEquals(1, depois.getQuantidade(TipoTransacao.DESPESA, null));
+        assertEquals(10.0, depois.getMenor(TipoTransacao.DESPESA), 0.001);
+        assertEquals(75.0, depois.getMaior(TipoTransacao.DESPESA), 0.001);
+        
+        // Mês pela metade: as transações são lidas
+        AcumuladorRelatorio metade = AcumuladorRelatorio.de(paginador, LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 15));
+        assertEquals(17, metade.getQuantidade());
+        assertEquals(1, paginador.getLeituras());
+    }
+    
+    @Test
+    @DisplayName("Deve somar meses inteiros pelos totais e ler só os meses alcançados, com cache LRU")
+    public void testPaginacaoDosMeses() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5));
+        PaginadorAcervo paginador = new PaginadorAcervo(gerenciador, gerenciador::getAcervo, 2);
+        
+        // Meses inteiros: totais do cabeçalho, sem ler transações
+        assertEquals(4 * 1000.0 + 1000.0, paginador.somarPorTipo(LocalDate.of(2023, 1, 1),
+            LocalDate.of(2023, 5, 31), TipoTransacao.RECEITA), 0.01);
+        assertEquals(Map.of(Categoria.ALIMENTACAO, 280.0, Categoria.LAZER, 280.0), paginador.somarPorCategoria(
+            LocalDate.of(2023, 1, 1), LocalDate.of(2023, 2, 28), TipoTransacao.DESPESA));
+        assertEquals(0, paginador.getLeituras());
+        
+        // Fora do período o acervo não é lido
+        assertEquals(29, paginador.getTransacoesPorPeriodo(LocalDate.of(2023, 5, 1), LocalDate.of(2023, 5, 31)).size());
+        assertEquals(0, paginador.getLeituras());
+        
+        // Mês pela metade: lido uma vez e reaproveitado
+        assertEquals(150.0, paginador.somarPorTipo(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 15),
+            TipoTransacao.DESPESA), 0.01);
+        assertEquals(16, paginador.getTransacoesPorPeriodo(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 15)).size());
+        assertEquals(1, paginador.getLeituras());
+        
+        List<Transacao> periodo = paginador.getTransacoesPorPeriodo(LocalDate.of(2023, 3, 28), LocalDate.of(2023, 5, 1));
+        assertEquals(List.of("Despesa 3/28", "Salário 4", "Despesa 4/1"),
+            periodo.subList(0, 3).stream().map(Transacao::getDescricao).toList());
+        assertEquals(List.of("Salário 5", "Despesa 5/1"),
+            periodo.subList(periodo.size() - 2, periodo.size()).stream().map(Transacao::getDescricao).toList());
+        assertEquals(3, paginador.getLeituras());
+        assertEquals(List.of(YearMonth.of(2023, 3), YearMonth.of(2023, 4)), paginador.getMesesEmCache());
+        
+        // Fevereiro saiu do cache e é lido de novo
+        paginador.getTransacoesPorPeriodo(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 2));
+        assertEquals(4, paginador.getLeituras());
+        
+        List<Transacao> maiores = paginador.buscarMaiores(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 6, 30),
+            TipoTransacao.RECEITA, 2);
+        assertEquals(List.of("Salário 1", "Salário 2"), maiores.stream().map(Transacao::getDescricao).toList());
+        assertSame(gerenciador.buscarContaPorNumero("12345"), maiores.get(0).getContaOrigem());
+    }
+    
+    @Test
+    @DisplayName("Deve juntar lançamentos retroativos ao mês já arquivado e manter as recorrentes em memória")
+    public void testArquivarDeNovo() throws Exception {
+        GerenciadorPersistencia persistencia = popular();
+        Transacao aluguel = new Transacao(TipoTransacao.DESPESA, Categoria.MORADIA, 800.0, "Aluguel", usuario, conta);
+        aluguel.setData(LocalDate.of(2023, 1, 5));
+        aluguel.setRecorrente(true);
+        gerenciador.adicionarTransacao(aluguel);
+        persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5));
+        assertSame(aluguel, gerenciador.buscarTransacaoPorId(aluguel.getId()));
+        
+        lancar(TipoTransacao.DESPESA, Categoria.LAZER, 50.0, "Retroativa", LocalDate.of(2023, 2, 10));
+        assertEquals(1, persistencia.arquivarMeses(gerenciador, YearMonth.of(2023, 5)));
+        
+        reiniciar();
+        String relatorio = new GerenciadorRelatorios(gerenciador).gerarRelatorioPorPeriodo(
+            LocalDate.of(2023, 2, 10), LocalDate.of(2023, 2, 10));
+        assertTrue(relatorio.contains("Retroativa"), relatorio);
+        assertTrue(relatorio.contains("Despesa 2/10"), relatorio);
+        assertEquals(1, gerenciador.getAcervo().getVolumes().stream()
+            .filter(v -> v.mes().equals(YearMonth.of(2023, 2))).count());
+        assertEquals(4, gerenciador.getAcervo().getMeses().size());
+        try (var arquivos = Files.list(diretorio.resolve("dados_sistema.acervo"))) {
+            assertEquals(4, arquivos.count());
+        }
+        assertEquals(1, gerenciador.getTransacoesDoDia(LocalDate.of(2023, 1, 5)).size());
+    }
+}
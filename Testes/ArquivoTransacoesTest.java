@@ -0,0 +1,217 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Relatorios.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivoTransacoesTest {
+    
+    @TempDir
+    Path diretorio;
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    private ContaCorrente conta;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+        conta = new ContaCorrente("12345", usuario, 100000.0);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+    }
+    
+    // Simula o encerramento do programa e uma nova carga a partir dos arquivos
+    private GerenciadorPersistencia reiniciar() throws Exception {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true, true);
+        persistencia.carregarDados(gerenciador);
+        // Lançamentos seguintes usam os objetos carregados, como faria o programa
+        if (gerenciador.buscarUsuarioPorId(usuario.getId()) != null) {
+            usuario = gerenciador.buscarUsuarioPorId(usuario.getId());
+            conta = (ContaCorrente) gerenciador.buscarContaPorNumero("12345");
+        }
+        return persistencia;
+    }
+    
+    private Transacao lancar(TipoTransacao tipo, Categoria categoria, double valor, String descricao, LocalDate data) {
+        Transacao t = new Transacao(tipo, categoria, valor, descricao, usuario, conta);
+        t.setData(data);
+        gerenciador.adicionarTransacao(t);
+        return t;
+    }
+    
+    @Test
+    @DisplayName("Deve carregar o histórico sem montar transações e montar só as consultadas")
+    public void testCargaSemMaterializar() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            lancar(i % 4 == 0 ? TipoTransacao.RECEITA : TipoTransacao.DESPESA,
+                i % 4 == 0 ? Categoria.SALARIO : Categoria.ALIMENTACAO, 10.0, "Lançamento " + i, inicio.plusDays(i % 60));
+        }
+        persistencia.compactar(gerenciador);
+        
+        reiniciar();
+        ArquivoTransacoes historico = gerenciador.getHistorico();
+        
+        assertEquals(1000, historico.getQuantidade());
+        assertEquals(1000, gerenciador.getTransacoes().size());
+        assertEquals(0, historico.getQuantidadeMaterializada());
+        
+        // Somas e relatório por categoria saem dos campos do arquivo
+        assertEquals(7500.0, gerenciador.somarPorTipo(inicio, inicio.plusDays(59), TipoTransacao.DESPESA), 0.01);
+        String relatorio = new GerenciadorRelatorios(gerenciador).gerarRelatorioComparativoCategoria(inicio, inicio.plusDays(59));
+        assertTrue(relatorio.contains("7500"), relatorio);
+        assertEquals(0, historico.getQuantidadeMaterializada());
+        
+        List<Transacao> doDia = gerenciador.getTransacoesDoDia(inicio);
+        assertEquals(17, doDia.size());
+        assertEquals(17, historico.getQuantidadeMaterializada());
+        assertSame(doDia.get(0), gerenciador.buscarTransacaoPorId(doDia.get(0).getId()));
+        assertSame(gerenciador.buscarContaPorNumero("12345"), doDia.get(0).getContaOrigem());
+    }
+    
+    @Test
+    @DisplayName("Deve juntar histórico e transações da sessão sem duplicar entre compactações")
+    public void testSessaoSobreHistorico() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        LocalDate dia = LocalDate.of(2024, 3, 10);
+        lancar(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário", dia);
+        persistencia.compactar(gerenciador);
+        
+        persistencia = reiniciar();
+        lancar(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 200.0, "Feira", dia);
+        persistencia.compactar(gerenciador);
+        lancar(TipoTransacao.DESPESA, Categoria.LAZER, 50.0, "Cinema", dia.plusDays(1));
+        persistencia.compactar(gerenciador);
+        
+        List<Transacao> periodo = gerenciador.getTransacoesPorPeriodo(dia, dia.plusDays(1));
+        assertEquals(List.of("Salário", "Feira", "Cinema"), periodo.stream().map(Transacao::getDescricao).toList());
+        Usuario titular = gerenciador.buscarUsuarioPorId(usuario.getId());
+        assertEquals(250.0, gerenciador.calcularTotalDespesas(titular), 0.01);
+        assertEquals(1000.0, gerenciador.calcularTotalReceitas(titular), 0.01);
+        
+        reiniciar();
+        assertEquals(3, gerenciador.getHistorico().getQuantidade());
+        assertEquals(3, gerenciador.getTransacoes().size());
+        assertEquals(750.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+        
+        // Ids novos continuam depois dos que estão no arquivo
+        Transacao nova = new Transacao(TipoTransacao.RECEITA, Categoria.OUTROS, 1.0, "Nova", usuario, conta);
+        assertTrue(nova.getId() > periodo.get(2).getId());
+    }
+    
+    @Test
+    @DisplayName("Deve guardar estorno e anexo de linha já gravada pelo diário e pela compactação")
+    public void testAlteracaoDeLinhaGravada() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        LocalDate dia = LocalDate.of(2024, 5, 2);
+        lancar(TipoTransacao.RECEITA, Categoria.SALARIO, 500.0, "Salário", dia);
+        Transacao mercado = lancar(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 80.0, "Mercado", dia);
+        persistencia.compactar(gerenciador);
+        
+        persistencia = reiniciar();
+        gerenciador.estornarTransacao(mercado.getId());
+        gerenciador.adicionarAnexo(gerenciador.buscarTransacaoPorId(mercado.getId()), "nota.pdf");
+        assertEquals(0.0, gerenciador.calcularTotalDespesas(gerenciador.buscarUsuarioPorId(usuario.getId())), 0.01);
+        persistencia.salvarDados(gerenciador);
+        
+        // Pelo diário
+        persistencia = reiniciar();
+        assertTrue(gerenciador.buscarTransacaoPorId(mercado.getId()).isEstornada());
+        assertEquals(500.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+        persistencia.compactar(gerenciador);
+        
+        // Pelas alterações do snapshot; o diário novo está vazio
+        reiniciar();
+        ArquivoTransacoes historico = gerenciador.getHistorico();
+        assertEquals(2, historico.getQuantidade());
+        Transacao carregada = gerenciador.buscarTransacaoPorId(mercado.getId());
+        assertTrue(carregada.isEstornada());
+        assertEquals(List.of("nota.pdf"), carregada.getAnexos());
+        assertEquals(500.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+        assertEquals(0.0, gerenciador.calcularTotalDespesas(gerenciador.buscarUsuarioPorId(usuario.getId())), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve escolher o ranking de despesas pelos campos e montar só as escolhidas")
+    public void testRankingPeloArquivo() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        LocalDate dia = LocalDate.of(2024, 2, 1);
+        for (int i = 0; i < 200; i++) {
+            lancar(TipoTransacao.DESPESA, Categoria.LAZER, 1 + i % 50, "Despesa " + i, dia.plusDays(i % 20));
+        }
+        persistencia.compactar(gerenciador);
+        
+        reiniciar();
+        lancar(TipoTransacao.DESPESA, Categoria.LAZER, 50.0, "Da sessão", dia);
+        List<Transacao> maiores = gerenciador.buscarMaiores(dia, dia.plusDays(19), TipoTransacao.DESPESA, 3);
+        
+        // No empate vale a ordem de data: a da sessão (primeiro dia) vem antes das do histórico
+        assertEquals(List.of("Da sessão", "Despesa 49", "Despesa 149"), maiores.stream().map(Transacao::getDescricao).toList());
+        assertEquals(3, gerenciador.getHistorico().getQuantidadeMaterializada());
+    }
+    
+    @Test
+    @DisplayName("Deve carregar índices e recorrentes do arquivo de índices e remontá-los sem ele")
+    public void testIndicesGravados() throws Exception {
+        GerenciadorPersistencia persistencia = reiniciar();
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        LocalDate inicio = LocalDate.of(2024, 5, 1);
+        for (int i = 0; i < 300; i++) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 1.0, "Despesa " + i, usuario, conta);
+            t.setData(inicio.plusDays(i % 30));
+            t.setRecorrente(i % 100 == 0);
+            gerenciador.adicionarTransacao(t);
+        }
+        persistencia.compactar(gerenciador);
+        
+        // Linhas da sessão entram no índice intercaladas com as do histórico
+        persistencia = reiniciar();
+        lancar(TipoTransacao.DESPESA, Categoria.LAZER, 2.0, "Da sessão", inicio.plusDays(10));
+        persistencia.compactar(gerenciador);
+        assertTrue(Files.exists(diretorio.resolve("dados_sistema.indice")));
+        
+        for (boolean comIndice : new boolean[] {true, false}) {
+            if (!comIndice) {
+                Files.delete(diretorio.resolve("dados_sistema.indice"));
+            }
+            reiniciar();
+            ArquivoTransacoes historico = gerenciador.getHistorico();
+            assertEquals(301, historico.getQuantidade());
+            assertEquals(3, historico.getRecorrentes().size());
+            assertTrue(historico.getRecorrentes().stream().allMatch(Transacao::isRecorrente));
+            assertEquals(3, historico.getQuantidadeMaterializada());
+            
+            List<Transacao> doDia = gerenciador.getTransacoesDoDia(inicio.plusDays(10));
+            assertEquals(11, doDia.size());
+            assertEquals("Da sessão", doDia.get(10).getDescricao());
+            assertSame(doDia.get(10), gerenciador.buscarTransacaoPorId(doDia.get(10).getId()));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Relatorios.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheRelatoriosTest {
+    
+    private GerenciadorFinanceiro gerenciador;
+    private ContaCorrente conta;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        Usuario usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+        conta = new ContaCorrente("12345", usuario, 100000.0);
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+        for (int mes = 1; mes <= 6; mes++) {
+            lancar(Categoria.ALIMENTACAO, 100.0, LocalDate.of(2023, mes, 10));
+        }
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.limparDados();
+    }
+    
+    private void lancar(Categoria categoria, double valor, LocalDate data) {
+        Transacao t = new Transacao(TipoTransacao.DESPESA, categoria, valor, "Despesa", conta.getTitular(), conta);
+        t.setData(data);
+        gerenciador.adicionarTransacao(t);
+    }
+    
+    @Test
+    @DisplayName("Só alterações dentro do período devem derrubar o relatório guardado")
+    public void testInvalidarPorPeriodo() {
+        GerenciadorRelatorios relatorios = new GerenciadorRelatorios(gerenciador);
+        CacheRelatorios cache = relatorios.getCache();
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 3, 31);
+        
+        String primeiro = relatorios.gerarRelatorioComparativoCategoria(inicio, fim);
+        assertSame(primeiro, relatorios.gerarRelatorioComparativoCategoria(inicio, fim));
+        assertEquals(1, cache.getAcertos());
+        assertEquals(1, cache.getFaltas());
+        
+        // Outro parâmetro é outra entrada
+        String completo = relatorios.gerarRelatorioCompleto(inicio, fim, 500.0);
+        assertNotEquals(completo, relatorios.gerarRelatorioCompleto(inicio, fim, 0.0));
+        assertEquals(3, cache.getFaltas());
+        
+        // Maio fica fora do período
+        lancar(Categoria.LAZER, 40.0, LocalDate.of(2023, 5, 2));
+        assertSame(primeiro, relatorios.gerarRelatorioComparativoCategoria(inicio, fim));
+        assertEquals(2, cache.getAcertos());
+        
+        // Fevereiro está dentro
+        lancar(Categoria.LAZER, 40.0, LocalDate.of(2023, 2, 2));
+        String atualizado = relatorios.gerarRelatorioComparativoCategoria(inicio, fim);
+        assertTrue(atualizado.contains("Lazer"));
+        assertEquals(1, cache.getInvalidacoes());
+        assertEquals(4, cache.getFaltas());
+        assertEquals(atualizado, new GerenciadorRelatorios(gerenciador).gerarRelatorioComparativoCategoria(inicio, fim));
+        
+        // Trocar o estado inteiro derruba tudo
+        gerenciador.limparDados();
+        assertFalse(relatorios.gerarRelatorioComparativoCategoria(inicio, fim).contains("Lazer"));
+        assertEquals(2, cache.getInvalidacoes());
+    }
+    
+    @Test
+    @DisplayName("Deve despejar o usado há mais tempo quando passa do orçamento")
+    public void testOrcamento() {
+        CacheRelatorios cache = new CacheRelatorios(mes -> 0, 1200);
+        LocalDate dia = LocalDate.of(2023, 1, 1);
+        String texto = "x".repeat(200);
+        
+        cache.obter("a", dia, dia, null, () -> texto);
+        cache.obter("b", dia, dia, null, () -> texto);
+        assertEquals(2, cache.getQuantidade());
+        cache.obter("a", dia, dia, null, () -> fail("deveria estar guardado"));
+        
+        // Não cabem três: sai "b", o usado há mais tempo
+        cache.obter("c", dia, dia, null, () -> texto);
+        assertEquals(2, cache.getQuantidade());
+        assertEquals(1, cache.getDespejos());
+        assertTrue(cache.getOcupado() <= cache.getOrcamento());
+        cache.obter("a", dia, dia, null, () -> fail("deveria estar guardado"));
+        cache.obter("b", dia, dia, null, () -> texto);
+        assertEquals(2, cache.getAcertos());
+        
+        // Maior que o orçamento inteiro: gerado mas não guardado
+        cache.obter("grande", dia, dia, null, () -> "y".repeat(600));
+        assertEquals(2, cache.getQuantidade());
+        assertTrue(cache.toString().contains("2 acertos"));
+    }
+}
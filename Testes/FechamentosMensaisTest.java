@@ -0,0 +1,122 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Relatorios.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FechamentosMensaisTest {
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    private Usuario outro;
+    private ContaCorrente conta;
+    private ContaCorrente contaDoOutro;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+        outro = new UsuarioIndividual("Outro User", "111.111.111-11", "outro@email.com");
+        conta = new ContaCorrente("12345", usuario, 100000.0);
+        contaDoOutro = new ContaCorrente("54321", outro, 100000.0);
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarUsuario(outro);
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarConta(contaDoOutro);
+        // Janeiro a março de 2023: uma despesa e uma receita por dia, do dia 1 ao 20
+        for (int mes = 1; mes <= 3; mes++) {
+            for (int dia = 1; dia <= 20; dia++) {
+                lancar(conta, TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 10.0, LocalDate.of(2023, mes, dia));
+                lancar(contaDoOutro, TipoTransacao.RECEITA, Categoria.SALARIO, 100.0, LocalDate.of(2023, mes, dia));
+            }
+        }
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.limparDados();
+    }
+    
+    private Transacao lancar(ContaCorrente origem, TipoTransacao tipo, Categoria categoria, double valor, LocalDate data) {
+        Transacao t = new Transacao(tipo, categoria, valor, "Lançamento", origem.getTitular(), origem);
+        t.setData(data);
+        gerenciador.adicionarTransacao(t);
+        return t;
+    }
+    
+    @Test
+    @DisplayName("Meses fechados devem ser somados uma vez e refeitos só quando mudam")
+    public void testCongelarEInvalidar() throws Exception {
+        FechamentosMensais fechamentos = new GerenciadorRelatorios(gerenciador).getFechamentos();
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 3, 31);
+        
+        assertEquals(600.0, fechamentos.acumular(inicio, fim).getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(3, fechamentos.getCongelamentos());
+        assertEquals(6000.0, fechamentos.acumular(inicio, fim).getTotal(TipoTransacao.RECEITA), 0.001);
+        assertEquals(3, fechamentos.getCongelamentos());
+        
+        // Lançamento com data retroativa em fevereiro: só fevereiro é refeito
+        lancar(conta, TipoTransacao.DESPESA, Categoria.LAZER, 55.0, LocalDate.of(2023, 2, 25));
+        AcumuladorRelatorio totais = fechamentos.acumular(inicio, fim);
+        assertEquals(655.0, totais.getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(55.0, totais.getMaior(TipoTransacao.DESPESA), 0.001);
+        assertEquals(4, fechamentos.getCongelamentos());
+        assertEquals(1, fechamentos.getInvalidacoes());
+        
+        // Estorno em janeiro
+        Transacao estornada = gerenciador.getTransacoesPorPeriodo(inicio, inicio).get(0);
+        assertTrue(gerenciador.estornarTransacao(estornada));
+        fechamentos.acumular(inicio, fim);
+        assertEquals(5, fechamentos.getCongelamentos());
+        assertEquals(2, fechamentos.getInvalidacoes());
+        
+        // Pontas que pegam parte de um mês vão à fonte, sem congelar nada
+        assertEquals(100.0 + 200.0 + 55.0, fechamentos.acumular(LocalDate.of(2023, 1, 11), LocalDate.of(2023, 2, 28))
+            .getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(5, fechamentos.getCongelamentos());
+    }
+    
+    @Test
+    @DisplayName("O mês atual não é congelado e um período longo junta os fechamentos com ele")
+    public void testMesAberto() {
+        FechamentosMensais fechamentos = new GerenciadorRelatorios(gerenciador).getFechamentos();
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = hoje.withDayOfMonth(hoje.lengthOfMonth());
+        lancar(conta, TipoTransacao.DESPESA, Categoria.LAZER, 7.0, hoje.withDayOfMonth(1));
+        
+        assertEquals(607.0, fechamentos.acumular(inicio, fim).getTotal(TipoTransacao.DESPESA), 0.001);
+        long congelados = fechamentos.getCongelamentos();
+        lancar(conta, TipoTransacao.DESPESA, Categoria.LAZER, 3.0, hoje.withDayOfMonth(1));
+        assertEquals(610.0, fechamentos.acumular(inicio, fim).getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(congelados, fechamentos.getCongelamentos());
+        assertEquals(0, fechamentos.getInvalidacoes());
+    }
+    
+    @Test
+    @DisplayName("Totais por titular devem sair dos fechamentos e acompanhar as alterações")
+    public void testPorTitular() {
+        FechamentosMensais fechamentos = new GerenciadorRelatorios(gerenciador).getFechamentos();
+        LocalDate inicio = LocalDate.of(2023, 1, 1);
+        LocalDate fim = LocalDate.of(2023, 3, 31);
+        
+        AcumuladorRelatorio doUsuario = fechamentos.acumularDosTitulares(List.of(usuario), inicio, fim);
+        assertEquals(600.0, doUsuario.getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(0.0, doUsuario.getTotal(TipoTransacao.RECEITA), 0.001);
+        AcumuladorRelatorio dosDois = fechamentos.acumularDosTitulares(List.of(usuario, outro, usuario), inicio, fim);
+        assertEquals(6000.0 - 600.0, dosDois.getSaldo(), 0.001);
+        assertEquals(120, dosDois.getQuantidade());
+        
+        lancar(contaDoOutro, TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, LocalDate.of(2023, 3, 31));
+        assertEquals(6001.0, fechamentos.acumularDosTitulares(List.of(outro), inicio, fim)
+            .getTotal(TipoTransacao.RECEITA), 0.001);
+    }
+}
@@ -0,0 +1,109 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Relatorios.*;
+import java.io.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FormatacaoTest {
+    
+    private Locale localeOriginal;
+    
+    @BeforeEach
+    public void setUp() {
+        localeOriginal = Locale.getDefault(Locale.Category.FORMAT);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        Locale.setDefault(Locale.Category.FORMAT, localeOriginal);
+    }
+    
+    @Test
+    @DisplayName("Valores devem sair iguais aos de String.format, inclusive no meio centavo e nos negativos")
+    public void testValoresComoStringFormat() {
+        double[] valores = {0.0, -0.0, 0.004, 0.005, -0.001, -0.005, 0.125, 1.005, 1.115, 2.675, 10.0, -320.45,
+            5000.0, 999999.995, 123456789.125, 2.715082951084595E8, 1e12 + 0.5, 1e20, Double.NaN,
+            Double.POSITIVE_INFINITY};
+        for (Locale locale : new Locale[] {new Locale("pt", "BR"), Locale.US}) {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+            for (double valor : valores) {
+                assertFormato(valor);
+            }
+            Random random = new Random(42);
+            for (int i = 0; i < 20000; i++) {
+                // Centavos exatos, meios centavos e valores quaisquer
+                double valor = switch (i % 3) {
+                    case 0 -> random.nextInt(10_000_000) / 100.0;
+                    case 1 -> (random.nextInt(2_000_000) + 0.5) / 100.0;
+                    default -> (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+                };
+                assertFormato(valor);
+            }
+        }
+    }
+    
+    private void assertFormato(double valor) {
+        assertEquals(String.format("%.2f", valor), Formatacao.anexarValor(new StringBuilder(), valor).toString());
+        assertEquals(String.format("%9.2f", valor), Formatacao.anexarValor(new StringBuilder(), valor, 9).toString());
+        assertEquals(String.format("%.1f", valor), Formatacao.anexarDecimal(new StringBuilder(), valor, 1, 0).toString());
+        assertEquals(String.format("%6.0f", valor), Formatacao.anexarDecimal(new StringBuilder(), valor, 0, 6).toString());
+        assertEquals(String.format("%.6f", valor), Formatacao.anexarDecimal(new StringBuilder(), valor, 6, 0).toString());
+    }
+    
+    @Test
+    @DisplayName("Datas devem sair em dd/MM/yyyy e ISO, com a mesma string para o mesmo dia")
+    public void testDatas() {
+        DateTimeFormatter formato = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        for (LocalDate data : List.of(LocalDate.of(2024, 2, 29), LocalDate.of(1900, 1, 1), LocalDate.of(2199, 12, 31),
+                LocalDate.of(1850, 7, 4), LocalDate.of(2500, 10, 9), LocalDate.of(12024, 1, 1))) {
+            assertEquals(data.format(formato), Formatacao.data(data));
+            assertEquals(data.toString(), Formatacao.anexarDataIso(new StringBuilder(), data).toString());
+        }
+        assertSame(Formatacao.data(LocalDate.of(2024, 3, 5)), Formatacao.data(LocalDate.of(2024, 3, 5)));
+        assertEquals("null", Formatacao.anexarDataIso(new StringBuilder(), null).toString());
+    }
+    
+    @Test
+    @DisplayName("O modelo de linha deve reproduzir String.format campo a campo")
+    public void testModeloLinha() throws IOException {
+        Locale.setDefault(Locale.Category.FORMAT, new Locale("pt", "BR"));
+        String padrao = "%-5d | %-12s | %s | R$ %9.2f | %6.2f%% | %8s|\n";
+        ModeloLinha modelo = new ModeloLinha(padrao);
+        assertEquals(6, modelo.getCampos());
+        ModeloLinha.Linha linha = modelo.nova();
+        LocalDate data = LocalDate.of(2024, 1, 5);
+        StringWriter writer = new StringWriter();
+        StringBuilder esperado = new StringBuilder();
+        for (int i = 1; i <= 3; i++) {
+            double valor = -1234.565 * i;
+            linha.iniciar()
+                .inteiro(i)
+                .data(data)
+                .texto(TipoTransacao.DESPESA)
+                .valor(valor)
+                .valor(i * 33.333)
+                .texto("Item " + i)
+                .escreverEm(writer);
+            esperado.append(String.format(padrao, i, data.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+                TipoTransacao.DESPESA, valor, i * 33.333, "Item " + i));
+        }
+        assertEquals(esperado.toString(), writer.toString());
+        
+        ModeloLinha.Linha iso = new ModeloLinha("#%d | %s\n").nova();
+        StringBuilder sb = new StringBuilder();
+        iso.iniciar().inteiro(7).dataIso(data).escreverEm(sb);
+        assertEquals("#7 | 2024-01-05\n", sb.toString());
+        
+        // Campo do tipo errado, linha incompleta e padrão sem suporte
+        assertThrows(IllegalStateException.class, () -> linha.iniciar().valor(1.0));
+        assertThrows(IllegalStateException.class, () -> linha.iniciar().inteiro(1).escreverEm(sb));
+        assertThrows(IllegalArgumentException.class, () -> new ModeloLinha("%x"));
+        assertThrows(IllegalArgumentException.class, () -> new ModeloLinha("%-9.2f"));
+    }
+}
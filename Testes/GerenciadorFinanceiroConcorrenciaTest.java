@@ -0,0 +1,247 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GerenciadorFinanceiroConcorrenciaTest {
+    
+    private static final int THREADS = 8;
+    private static final int TRANSACOES_POR_THREAD = 5000;
+    
+    private GerenciadorFinanceiro gerenciador;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.limparDados();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.limparDados();
+    }
+    
+    @Test
+    @DisplayName("Deve publicar a mesma instância para várias threads")
+    public void testSingletonConcorrente() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<GerenciadorFinanceiro>> resultados = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                resultados.add(executor.submit(GerenciadorFinanceiro::getInstancia));
+            }
+            for (Future<GerenciadorFinanceiro> resultado : resultados) {
+                assertSame(gerenciador, resultado.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    @DisplayName("Deve lançar transações em paralelo sem perder registros enquanto leitores consultam")
+    public void testEscritoresELeitoresConcorrentes() throws Exception {
+        List<Usuario> usuarios = new ArrayList<>();
+        List<ContaCorrente> contas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Usuario usuario = new UsuarioIndividual("Usuario " + i, "000.000.000-0" + i, "usuario" + i + "@email.com");
+            ContaCorrente conta = new ContaCorrente("C" + i, usuario, 0.0);
+            gerenciador.adicionarUsuario(usuario);
+            gerenciador.adicionarConta(conta);
+            usuarios.add(usuario);
+            contas.add(conta);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 2);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        List<Future<?>> escritores = new ArrayList<>();
+        List<Future<?>> leitores = new ArrayList<>();
+        
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                Usuario usuario = usuarios.get(i);
+                ContaCorrente conta = contas.get(i);
+                escritores.add(executor.submit(() -> {
+                    largada.await();
+                    for (int j = 0; j < TRANSACOES_POR_THREAD; j++) {
+                        gerenciador.adicionarTransacao(new Transacao(
+                            TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, "Receita " + j, usuario, conta));
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 2; i++) {
+                leitores.add(executor.submit(() -> {
+                    largada.await();
+                    int tamanhoAnterior = 0;
+                    while (escrevendo.get()) {
+                        // O tamanho observado nunca pode diminuir e a leitura não pode falhar
+                        int tamanho = gerenciador.getTransacoes().size();
+                        assertTrue(tamanho >= tamanhoAnterior);
+                        tamanhoAnterior = tamanho;
+                        assertNotNull(gerenciador.buscarContaPorNumero("C0"));
+                        gerenciador.calcularTotalReceitas(usuarios.get(0));
+                    }
+                    return null;
+                }));
+            }
+            
+            largada.countDown();
+            for (Future<?> escritor : escritores) {
+                escritor.get(60, TimeUnit.SECONDS);
+            }
+            escrevendo.set(false);
+            for (Future<?> leitor : leitores) {
+                leitor.get(60, TimeUnit.SECONDS);
+            }
+            
+            int total = THREADS * TRANSACOES_POR_THREAD;
+            
+            assertEquals(total, gerenciador.getTransacoes().size());
+            for (int i = 0; i < THREADS; i++) {
+                assertEquals(TRANSACOES_POR_THREAD, contas.get(i).consultarSaldo(), 0.001);
+                assertEquals(TRANSACOES_POR_THREAD, gerenciador.getTransacoesDoUsuario(usuarios.get(i)).size());
+                assertEquals(TRANSACOES_POR_THREAD, gerenciador.calcularTotalReceitas(usuarios.get(i)), 0.001);
+            }
+            
+            Set<Integer> ids = new HashSet<>();
+            for (Transacao t : gerenciador.getTransacoes()) {
+                assertTrue(ids.add(t.getId()), "Id de transação repetido: " + t.getId());
+            }
+        } finally {
+            escrevendo.set(false);
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    @DisplayName("Lançar em várias threads não deve ficar muito mais lento que em uma só")
+    public void testVazaoParalelaContraSequencial() throws Exception {
+        List<Usuario> usuarios = new ArrayList<>();
+        List<ContaCorrente> contas = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Usuario usuario = new UsuarioIndividual("Usuario " + i, "000.000.000-0" + i, "usuario" + i + "@email.com");
+            usuarios.add(usuario);
+            contas.add(new ContaCorrente("C" + i, usuario, 0.0));
+        }
+        
+        // A rodada sequencial vem primeiro e também aquece o JIT para a paralela
+        long sequencial = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            for (int j = 0; j < TRANSACOES_POR_THREAD; j++) {
+                gerenciador.adicionarTransacao(new Transacao(
+                    TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, "Receita " + j, usuarios.get(i), contas.get(i)));
+            }
+        }
+        sequencial = System.nanoTime() - sequencial;
+        assertEquals(THREADS * TRANSACOES_POR_THREAD, gerenciador.getTransacoes().size());
+        
+        gerenciador.limparDados();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> escritores = new ArrayList<>();
+        long paralelo;
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                Usuario usuario = usuarios.get(i);
+                ContaCorrente conta = contas.get(i);
+                escritores.add(executor.submit(() -> {
+                    largada.await();
+                    for (int j = 0; j < TRANSACOES_POR_THREAD; j++) {
+                        gerenciador.adicionarTransacao(new Transacao(
+                            TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, "Receita " + j, usuario, conta));
+                    }
+                    return null;
+                }));
+            }
+            paralelo = System.nanoTime();
+            largada.countDown();
+            for (Future<?> escritor : escritores) {
+                escritor.get(60, TimeUnit.SECONDS);
+            }
+            paralelo = System.nanoTime() - paralelo;
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(THREADS * TRANSACOES_POR_THREAD, gerenciador.getTransacoes().size());
+        // Limite folgado: só acusa contenção grave (threads se atrapalhando a ponto de
+        // ficar bem pior que uma thread só), não exige ganho, que depende dos núcleos
+        assertTrue(paralelo < sequencial * 4,
+            String.format("paralelo em %.1f ms contra sequencial em %.1f ms",
+                paralelo / 1_000_000.0, sequencial / 1_000_000.0));
+    }
+    
+    @Test
+    @DisplayName("Deve executar transferências cruzadas entre contas sem deadlock nem perda de saldo")
+    public void testTransferenciasCruzadas() throws Exception {
+        Usuario usuario = new UsuarioIndividual("Titular", "000.000.000-00", "titular@email.com");
+        ContaCorrente contaA = new ContaCorrente("A", usuario, 0.0);
+        ContaCorrente contaB = new ContaCorrente("B", usuario, 0.0);
+        contaA.depositar(1_000_000.0);
+        contaB.depositar(1_000_000.0);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                // Metade das threads transfere de A para B e a outra metade de B para A
+                ContaCorrente origem = i % 2 == 0 ? contaA : contaB;
+                ContaCorrente destino = i % 2 == 0 ? contaB : contaA;
+                tarefas.add(executor.submit(() -> {
+                    for (int j = 0; j < TRANSACOES_POR_THREAD; j++) {
+                        Transacao t = new Transacao(1.0, "Transferência", usuario, origem, destino);
+                        assertTrue(t.executar());
+                        if (j % 10 == 0) {
+                            assertTrue(t.estornar());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(2_000_000.0, contaA.consultarSaldo() + contaB.consultarSaldo(), 0.001);
+        assertEquals(1_000_000.0, contaA.consultarSaldo(), 0.001);
+    }
+    
+    @Test
+    @DisplayName("Depósitos e saques chamados direto na conta não devem perder atualizações")
+    public void testOperacoesDiretasNaConta() throws Exception {
+        Usuario usuario = new UsuarioIndividual("Teste", "000.000.000-00", "teste@email.com");
+        ContaDigital conta = new ContaDigital("D1", usuario, 0.0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                tarefas.add(executor.submit(() -> {
+                    for (int j = 0; j < TRANSACOES_POR_THREAD; j++) {
+                        conta.depositar(2.0);
+                        assertTrue(conta.sacar(1.0));
+                        assertTrue(conta.consultarSaldo() > 0);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(THREADS * TRANSACOES_POR_THREAD, conta.consultarSaldo(), 0.001);
+    }
+}
@@ -53,6 +53,37 @@ public class GerenciadorFinanceiroTest {
         assertEquals(usuario.getId(), encontrado.getId());
     }
     
+    @Test
+    @DisplayName("Deve buscar usuário por email")
+    public void testBuscarUsuarioPorEmail() {
+        gerenciador.adicionarUsuario(usuario);
+        
+        assertSame(usuario, gerenciador.buscarUsuarioPorEmail("teste@email.com"));
+        assertNull(gerenciador.buscarUsuarioPorEmail("outro@email.com"));
+        
+        gerenciador.atualizarEmailUsuario(usuario, "novo@email.com");
+        assertNull(gerenciador.buscarUsuarioPorEmail("teste@email.com"));
+        assertSame(usuario, gerenciador.buscarUsuarioPorEmail("novo@email.com"));
+    }
+    
+    @Test
+    @DisplayName("Deve manter os índices de busca após carregar e limpar os dados")
+    public void testIndicesAposCarregarELimpar() {
+        ContaCorrente conta = new ContaCorrente("777", usuario, 0.0);
+        gerenciador.carregarEstado(List.of(usuario), List.of(conta), null, null, null);
+        
+        assertSame(usuario, gerenciador.buscarUsuarioPorId(usuario.getId()));
+        assertSame(conta, gerenciador.buscarContaPorNumero("777"));
+        
+        // Novos usuários não podem repetir o id de um usuário carregado
+        Usuario novo = new UsuarioIndividual("Novo", "111.111.111-11", "novo@email.com");
+        assertNotEquals(usuario.getId(), novo.getId());
+        
+        gerenciador.limparDados();
+        assertNull(gerenciador.buscarUsuarioPorId(usuario.getId()));
+        assertNull(gerenciador.buscarContaPorNumero("777"));
+    }
+    
     @Test
     @DisplayName("Deve adicionar conta corretamente")
     public void testAdicionarConta() {
@@ -146,4 +177,163 @@ public class GerenciadorFinanceiroTest {
         
         assertEquals(3000.0, saldoTotal, 0.01);
     }
+    
+    @Test
+    @DisplayName("Deve manter os totais do usuário ao lançar e estornar transações")
+    public void testTotaisDoUsuario() throws Exception {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 500.0);
+        gerenciador.adicionarConta(conta);
+        
+        Transacao receita = new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 3000.0, "Salário", usuario, conta);
+        Transacao despesa = new Transacao(TipoTransacao.DESPESA, Categoria.MORADIA, 1200.0, "Aluguel", usuario, conta);
+        gerenciador.adicionarTransacao(receita);
+        gerenciador.adicionarTransacao(despesa);
+        
+        assertEquals(3000.0, gerenciador.calcularTotalReceitas(usuario), 0.01);
+        assertEquals(1200.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertEquals(2, gerenciador.getTransacoesDoUsuario(usuario).size());
+        
+        gerenciador.estornarTransacao(despesa);
+        
+        assertEquals(0.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertEquals(2, gerenciador.getTransacoesDoUsuario(usuario).size());
+        
+        Usuario outro = new UsuarioIndividual("Outro", "222.222.222-22", "outro@email.com");
+        assertTrue(gerenciador.getTransacoesDoUsuario(outro).isEmpty());
+        assertEquals(0.0, gerenciador.calcularTotalReceitas(outro), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve atualizar e buscar orçamentos pelo mês, categoria e responsável")
+    public void testIndiceDeOrcamentos() {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 500.0);
+        conta.depositar(1000.0);
+        Usuario outro = new UsuarioIndividual("Outro", "222.222.222-22", "outro@email.com");
+        
+        Orcamento doMes = new Orcamento("Mercado", Categoria.ALIMENTACAO, 500.0, YearMonth.now(), usuario);
+        Orcamento mesPassado = new Orcamento("Mercado", Categoria.ALIMENTACAO, 500.0, YearMonth.now().minusMonths(1), usuario);
+        Orcamento doOutro = new Orcamento("Lazer", Categoria.LAZER, 300.0, YearMonth.now(), outro);
+        gerenciador.adicionarOrcamento(mesPassado);
+        gerenciador.adicionarOrcamento(doMes);
+        gerenciador.adicionarOrcamento(doOutro);
+        
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 200.0, "Feira", usuario, conta));
+        
+        assertEquals(200.0, doMes.getValorGasto(), 0.01);
+        assertEquals(0.0, mesPassado.getValorGasto(), 0.01);
+        assertSame(doMes, gerenciador.buscarOrcamentoPorCategoria(usuario, Categoria.ALIMENTACAO));
+        assertSame(mesPassado, gerenciador.buscarOrcamento(usuario, Categoria.ALIMENTACAO, YearMonth.now().minusMonths(1)));
+        assertNull(gerenciador.buscarOrcamentoPorCategoria(usuario, Categoria.LAZER));
+        assertSame(doOutro, gerenciador.buscarOrcamentoPorCategoria(outro, Categoria.LAZER));
+    }
+    
+    @Test
+    @DisplayName("Deve gerar todas as recorrências vencidas de uma só vez")
+    public void testProcessarRecorrencias() {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 500.0);
+        Transacao salario = new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário", usuario, conta);
+        salario.setData(LocalDate.now().minusMonths(5));
+        salario.setRecorrente(true);
+        gerenciador.adicionarTransacao(salario);
+        
+        List<Transacao> geradas = gerenciador.processarRecorrencias();
+        
+        assertEquals(5, geradas.size());
+        assertEquals(salario.getData().plusMonths(1), geradas.get(0).getData());
+        assertEquals(6, gerenciador.getTransacoes().size());
+        assertEquals(6000.0, conta.consultarSaldo(), 0.01);
+        
+        // Uma segunda passada não duplica ocorrências já lançadas
+        assertTrue(gerenciador.processarRecorrencias().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Deve incluir transações em lote aplicando saldos e orçamentos por grupo")
+    public void testAdicionarTransacoesEmLote() {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        ContaCorrente semSaldo = new ContaCorrente("999", usuario, 0.0);
+        Orcamento orcamento = new Orcamento("Mercado", Categoria.ALIMENTACAO, 1000.0, YearMonth.now(), usuario);
+        gerenciador.adicionarOrcamento(orcamento);
+        
+        List<Transacao> lote = new ArrayList<>();
+        lote.add(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 2000.0, "Salário", usuario, conta));
+        lote.add(new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 150.0, "Feira", usuario, conta));
+        lote.add(new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 50.0, "Padaria", usuario, conta));
+        lote.add(new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, -10.0, "Inválida", usuario, conta));
+        lote.add(new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 80.0, "Sem saldo", usuario, semSaldo));
+        
+        ResultadoLote resultado = gerenciador.adicionarTransacoes(lote);
+        
+        assertEquals(3, resultado.getQuantidadeAceitas());
+        assertEquals(2, resultado.getQuantidadeFalhas());
+        assertEquals(3, resultado.getFalhas().get(0).getIndice());
+        assertEquals(4, resultado.getFalhas().get(1).getIndice());
+        assertEquals(1800.0, conta.consultarSaldo(), 0.01);
+        assertEquals(0.0, semSaldo.consultarSaldo(), 0.01);
+        assertEquals(200.0, orcamento.getValorGasto(), 0.01);
+        assertEquals(3, gerenciador.getTransacoes().size());
+        assertEquals(200.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve devolver instantâneos somente leitura que não veem alterações posteriores")
+    public void testInstantaneosSemCopia() {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 500.0);
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 100.0, "Primeira", usuario, conta));
+        
+        long versao = gerenciador.getVersao();
+        List<Transacao> instantaneo = gerenciador.getTransacoes();
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 100.0, "Segunda", usuario, conta));
+        
+        assertEquals(1, instantaneo.size());
+        assertEquals(2, gerenciador.getTransacoes().size());
+        assertTrue(gerenciador.getVersao() > versao);
+        assertThrows(UnsupportedOperationException.class, () -> instantaneo.add(null));
+        assertThrows(UnsupportedOperationException.class, () -> gerenciador.getUsuarios().add(usuario));
+    }
+    
+    @Test
+    @DisplayName("Deve consultar transações por período em ordem de data")
+    public void testTransacoesPorPeriodo() {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 5000.0);
+        LocalDate hoje = LocalDate.now();
+        for (int dias : new int[] {40, 3, 10, 0, 20}) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 10.0, "Dia " + dias, usuario, conta);
+            t.setData(hoje.minusDays(dias));
+            gerenciador.adicionarTransacao(t);
+        }
+        
+        List<Transacao> periodo = gerenciador.getTransacoesPorPeriodo(hoje.minusDays(20), hoje.minusDays(3));
+        
+        assertEquals(3, periodo.size());
+        assertEquals(hoje.minusDays(20), periodo.get(0).getData());
+        assertEquals(hoje.minusDays(3), periodo.get(2).getData());
+        assertTrue(gerenciador.getTransacoesPorPeriodo(hoje, hoje.minusDays(1)).isEmpty());
+        assertEquals(1, gerenciador.getTransacoesDoDia(hoje).size());
+        
+        gerenciador.limparDados();
+        assertTrue(gerenciador.getTransacoesPorPeriodo(hoje.minusDays(40), hoje).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Deve buscar e estornar transação pelo id atualizando orçamento e totais")
+    public void testEstornarTransacaoPorId() throws Exception {
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1000.0);
+        Orcamento orcamento = new Orcamento("Mercado", Categoria.ALIMENTACAO, 500.0, YearMonth.now(), usuario);
+        gerenciador.adicionarOrcamento(orcamento);
+        Transacao feira = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 120.0, "Feira", usuario, conta);
+        gerenciador.adicionarTransacao(feira);
+        
+        assertSame(feira, gerenciador.buscarTransacaoPorId(feira.getId()));
+        assertTrue(gerenciador.estornarTransacao(feira.getId()));
+        
+        assertTrue(feira.isEstornada());
+        assertEquals(0.0, conta.consultarSaldo(), 0.01);
+        assertEquals(0.0, orcamento.getValorGasto(), 0.01);
+        assertEquals(0.0, gerenciador.calcularTotalDespesas(usuario), 0.01);
+        assertThrows(IllegalArgumentException.class, () -> gerenciador.estornarTransacao(-1));
+        
+        gerenciador.limparDados();
+        assertNull(gerenciador.buscarTransacaoPorId(feira.getId()));
+    }
 }
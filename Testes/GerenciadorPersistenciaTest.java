@@ -0,0 +1,479 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GerenciadorPersistenciaTest {
+    
+    @TempDir
+    Path diretorio;
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+    }
+    
+    // Simula o encerramento do programa e uma nova carga a partir dos arquivos
+    private GerenciadorPersistencia reiniciar() throws Exception {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        return persistencia;
+    }
+    
+    @Test
+    @DisplayName("Deve reproduzir o diário e recompor saldos, orçamentos, estornos e metas")
+    public void testReproduzirDiario() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        Cofrinho cofrinho = new Cofrinho("C1", usuario, "Viagem", 1000.0);
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarConta(cofrinho);
+        Orcamento orcamento = new Orcamento("Mercado", Categoria.ALIMENTACAO, 500.0, YearMonth.now(), usuario);
+        gerenciador.adicionarOrcamento(orcamento);
+        Meta meta = new Meta("Reserva", Categoria.OUTROS, 1000.0, LocalDate.now().plusMonths(6), usuario);
+        gerenciador.adicionarMeta(meta);
+        
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário", usuario, conta));
+        Transacao feira = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 120.0, "Feira", usuario, conta);
+        gerenciador.adicionarTransacao(feira);
+        Transacao padaria = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 30.0, "Padaria", usuario, conta);
+        gerenciador.adicionarTransacao(padaria);
+        gerenciador.estornarTransacao(padaria.getId());
+        gerenciador.adicionarAnexo(feira, "nota.pdf");
+        gerenciador.adicionarTransacoes(List.of(
+            new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 50.0, "Cinema", usuario, conta),
+            new Transacao(TipoTransacao.RECEITA, Categoria.OUTROS, 20.0, "Reembolso", usuario, conta)));
+        gerenciador.sacarDaConta(conta, 100.0);
+        gerenciador.depositarEmConta(cofrinho, 100.0);
+        gerenciador.contribuirMeta(meta, 250.0);
+        persistencia.salvarDados(gerenciador);
+        
+        // Só o diário foi gravado; o snapshot não é reescrito a cada salvamento
+        assertFalse(Files.exists(diretorio.resolve("dados_sistema.ser")));
+        
+        reiniciar();
+        
+        ContaFinanceira contaCarregada = gerenciador.buscarContaPorNumero("12345");
+        assertEquals(750.0, contaCarregada.consultarSaldo(), 0.01);
+        assertEquals(100.0, gerenciador.buscarContaPorNumero("C1").consultarSaldo(), 0.01);
+        assertEquals(5, gerenciador.getTransacoes().size());
+        assertTrue(gerenciador.buscarTransacaoPorId(padaria.getId()).isEstornada());
+        assertEquals(List.of("nota.pdf"), gerenciador.buscarTransacaoPorId(feira.getId()).getAnexos());
+        assertEquals(120.0, gerenciador.getOrcamentos().get(0).getValorGasto(), 0.01);
+        assertEquals(250.0, gerenciador.getMetas().get(0).getValorAtual(), 0.01);
+        Usuario titular = gerenciador.buscarUsuarioPorId(usuario.getId());
+        assertSame(titular, contaCarregada.getTitular());
+        assertEquals(170.0, gerenciador.calcularTotalDespesas(titular), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve reproduzir o diário de lançamentos concorrentes na ordem em que mudaram o saldo")
+    public void testReproduzirDiarioConcorrente() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        gerenciador.adicionarConta(conta);
+        
+        // Sem cheque especial: cada despesa só passa se uma receita de outra thread
+        // já entrou no saldo, então a reprodução falha se o diário inverter a ordem
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    for (int j = 0; j < 2000; j++) {
+                        gerenciador.adicionarTransacoes(List.of(
+                            new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, "Receita " + j, usuario, conta)));
+                    }
+                    return null;
+                }));
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    for (int j = 0; j < 2000; j++) {
+                        try {
+                            gerenciador.adicionarTransacao(
+                                new Transacao(TipoTransacao.DESPESA, Categoria.OUTROS, 1.0, "Despesa " + j, usuario, conta));
+                        } catch (RuntimeException e) {
+                            // Saldo insuficiente naquele instante
+                        }
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double saldo = conta.consultarSaldo();
+        int quantidade = gerenciador.getTransacoes().size();
+        persistencia.salvarDados(gerenciador);
+        
+        reiniciar();
+        
+        assertEquals(saldo, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.001);
+        assertEquals(quantidade, gerenciador.getTransacoes().size());
+    }
+    
+    @Test
+    @DisplayName("Deve acrescentar ao diário apenas o que mudou desde o último salvamento")
+    public void testSalvarCustaApenasAlteracao() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        gerenciador.adicionarConta(conta);
+        for (int i = 0; i < 500; i++) {
+            gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 10.0, "Receita " + i, usuario, conta));
+        }
+        persistencia.salvarDados(gerenciador);
+        long antes = Files.size(diretorio.resolve("dados_sistema.diario"));
+        
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 10.0, "Mais uma", usuario, conta));
+        persistencia.salvarDados(gerenciador);
+        long depois = Files.size(diretorio.resolve("dados_sistema.diario"));
+        
+        assertTrue(depois - antes < 200, "registro de uma transação ocupou " + (depois - antes) + " bytes");
+    }
+    
+    @Test
+    @DisplayName("Deve compactar em snapshot novo e ignorar diário de geração anterior")
+    public void testCompactacao() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 300.0, "Salário", usuario, conta));
+        persistencia.salvarDados(gerenciador);
+        Path diario = diretorio.resolve("dados_sistema.diario");
+        byte[] diarioAntigo = Files.readAllBytes(diario);
+        
+        persistencia.compactar(gerenciador);
+        
+        assertTrue(Files.exists(diretorio.resolve("dados_sistema.ser")));
+        assertEquals(1, persistencia.getDiario().getGeracao());
+        assertEquals(0, persistencia.getDiario().getRegistros());
+        
+        // Queda entre a troca do snapshot e o reinício do diário: o diário velho não pode ser reaplicado
+        Files.write(diario, diarioAntigo);
+        reiniciar();
+        
+        assertEquals(1, gerenciador.getTransacoes().size());
+        assertEquals(300.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve descartar registro incompleto no fim do diário")
+    public void testRegistroIncompleto() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        gerenciador.adicionarUsuario(usuario);
+        persistencia.salvarDados(gerenciador);
+        Path diario = diretorio.resolve("dados_sistema.diario");
+        Files.write(diario, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+        
+        GerenciadorPersistencia recarregada = reiniciar();
+        
+        assertEquals(1, gerenciador.getUsuarios().size());
+        assertEquals(1, recarregada.getDiario().getRegistros());
+        
+        // Novos registros continuam logo após o último válido
+        gerenciador.adicionarUsuario(new UsuarioIndividual("Outro", "111.111.111-11", "outro@email.com"));
+        recarregada.salvarDados(gerenciador);
+        reiniciar();
+        assertEquals(2, gerenciador.getUsuarios().size());
+    }
+    
+    @Test
+    @DisplayName("Deve manter o modo simples gravando o snapshot completo")
+    public void testModoSimples() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 50.0, "Salário", usuario, conta));
+        persistencia.salvarDados(gerenciador);
+        gerenciador.limparDados();
+        
+        persistencia.carregarDados(gerenciador);
+        
+        assertEquals(1, gerenciador.getTransacoes().size());
+        assertFalse(Files.exists(diretorio.resolve("dados_sistema.diario")));
+    }
+    
+    @Test
+    @DisplayName("Deve gravar o snapshot binário e restaurar contas, grupos e transações")
+    public void testSnapshotBinario() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        UsuarioIndividual membro = new UsuarioIndividual("Membro", "111.111.111-11", "membro@email.com");
+        Grupo grupo = new Grupo("Família", "familia@email.com", (UsuarioIndividual) usuario);
+        grupo.adicionarMembro(membro);
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarUsuario(membro);
+        gerenciador.adicionarUsuario(grupo);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 500.0);
+        CartaoCredito cartao = new CartaoCredito("4444", usuario, 2000.0, LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 15));
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarConta(cartao);
+        gerenciador.adicionarConta(new CarteiraInvestimento("INV1", grupo, "Renda Fixa"));
+        
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário", usuario, conta));
+        Transacao mercado = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 300.0, "Mercado", usuario, cartao);
+        mercado.setSubcategoria("Supermercado");
+        gerenciador.adicionarTransacao(mercado);
+        gerenciador.adicionarAnexo(mercado, "nota.pdf");
+        Transacao aluguel = new Transacao(TipoTransacao.DESPESA, Categoria.MORADIA, 800.0, "Aluguel", grupo, conta);
+        aluguel.setRecorrente(true);
+        gerenciador.adicionarTransacao(aluguel);
+        gerenciador.estornarTransacao(aluguel.getId());
+        gerenciador.adicionarOrcamento(new Orcamento("Mercado", Categoria.ALIMENTACAO, 500.0, YearMonth.of(2024, 1), usuario));
+        persistencia.salvarDados(gerenciador);
+        
+        byte[] inicio = Arrays.copyOf(Files.readAllBytes(diretorio.resolve("dados_sistema.ser")), 4);
+        assertArrayEquals("FINB".getBytes(), inicio);
+        
+        gerenciador.limparDados();
+        persistencia.carregarDados(gerenciador);
+        
+        assertEquals(3, gerenciador.getUsuarios().size());
+        Grupo grupoCarregado = (Grupo) gerenciador.buscarUsuarioPorId(grupo.getId());
+        assertEquals(2, grupoCarregado.getMembros().length);
+        assertSame(gerenciador.buscarUsuarioPorId(usuario.getId()), grupoCarregado.getAdministrador());
+        assertSame(gerenciador.buscarUsuarioPorId(membro.getId()), grupoCarregado.getMembros()[1]);
+        
+        assertEquals(1000.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+        CartaoCredito cartaoCarregado = (CartaoCredito) gerenciador.buscarContaPorNumero("4444");
+        assertEquals(300.0, cartaoCarregado.getFaturaAtual(), 0.01);
+        assertEquals(1700.0, cartaoCarregado.getLimiteDisponivel(), 0.01);
+        assertEquals(LocalDate.of(2024, 1, 15), cartaoCarregado.getDataVencimento());
+        assertSame(grupoCarregado, gerenciador.buscarContaPorNumero("INV1").getTitular());
+        
+        Transacao mercadoCarregado = gerenciador.buscarTransacaoPorId(mercado.getId());
+        assertEquals("Supermercado", mercadoCarregado.getSubcategoria());
+        assertEquals(List.of("nota.pdf"), mercadoCarregado.getAnexos());
+        assertSame(cartaoCarregado, mercadoCarregado.getContaOrigem());
+        Transacao aluguelCarregado = gerenciador.buscarTransacaoPorId(aluguel.getId());
+        assertTrue(aluguelCarregado.isEstornada());
+        assertTrue(aluguelCarregado.isRecorrente());
+        assertEquals(YearMonth.of(2024, 1), gerenciador.getOrcamentos().get(0).getMesReferencia());
+        
+        // Novas entidades não podem repetir ids restaurados
+        Transacao nova = new Transacao(TipoTransacao.RECEITA, Categoria.OUTROS, 1.0, "Nova", usuario, conta);
+        assertTrue(nova.getId() > aluguel.getId());
+    }
+    
+    @Test
+    @DisplayName("Deve gerar snapshot bem menor que a serialização Java para os mesmos dados")
+    public void testSnapshotMenorQueSerializacao() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1_000_000.0);
+        gerenciador.adicionarConta(conta);
+        List<Transacao> lote = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 10.0 + i % 50, "Compra " + (i % 200), usuario, conta);
+            t.setData(LocalDate.of(2023, 1, 1).plusDays(i % 365));
+            lote.add(t);
+        }
+        gerenciador.adicionarTransacoes(lote);
+        
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.salvarDados(gerenciador);
+        long tamanhoBinario = Files.size(diretorio.resolve("dados_sistema.ser"));
+        
+        ByteArrayOutputStream serializado = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(serializado)) {
+            oos.writeObject(new ArrayList<>(gerenciador.getUsuarios()));
+            oos.writeObject(new ArrayList<>(gerenciador.getContas()));
+            oos.writeObject(new ArrayList<>(gerenciador.getTransacoes()));
+        }
+        
+        gerenciador.limparDados();
+        persistencia.carregarDados(gerenciador);
+        
+        assertEquals(20000, gerenciador.getTransacoes().size());
+        // Em torno de 30 bytes por transação
+        assertTrue(tamanhoBinario < 20000 * 40, "binário com " + tamanhoBinario + " bytes");
+        assertTrue(tamanhoBinario * 3 < serializado.size(),
+            "binário com " + tamanhoBinario + " bytes contra " + serializado.size());
+    }
+    
+    @Test
+    @DisplayName("Deve separar o snapshot por mês e restaurar as transações na ordem original")
+    public void testSnapshotSegmentadoPorMes() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1_000_000.0);
+        gerenciador.adicionarConta(conta);
+        // Datas fora de ordem: cada mês recebe posições espalhadas pela lista
+        List<Transacao> lote = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 1.0 + i % 7, "Compra " + (i % 30), usuario, conta);
+            t.setData(LocalDate.of(2022, 1, 1).plusDays((i * 37L) % 900));
+            lote.add(t);
+        }
+        gerenciador.adicionarTransacoes(lote);
+        gerenciador.adicionarOrcamento(new Orcamento("Lazer", Categoria.LAZER, 500.0, YearMonth.of(2023, 6), usuario));
+        List<Integer> ids = gerenciador.getTransacoes().stream().map(Transacao::getId).toList();
+        
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.salvarDados(gerenciador);
+        gerenciador.limparDados();
+        persistencia.carregarDados(gerenciador);
+        
+        assertEquals(ids, gerenciador.getTransacoes().stream().map(Transacao::getId).toList());
+        assertEquals("Compra 7", gerenciador.buscarTransacaoPorId(ids.get(7)).getDescricao());
+        assertSame(gerenciador.buscarContaPorNumero("12345"), gerenciador.getTransacoes().get(2999).getContaOrigem());
+        assertEquals(1, gerenciador.getOrcamentos().size());
+    }
+    
+    @Test
+    @DisplayName("Deve recusar snapshot com segmento corrompido")
+    public void testSegmentoCorrompido() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1000.0);
+        gerenciador.adicionarConta(conta);
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1000.0, "Salário", usuario, conta));
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.salvarDados(gerenciador);
+        
+        Path arquivo = diretorio.resolve("dados_sistema.ser");
+        byte[] bytes = Files.readAllBytes(arquivo);
+        bytes[bytes.length - 20] ^= 0x5A;
+        Files.write(arquivo, bytes);
+        
+        // Tudo é conferido antes da primeira entidade: o estado atual não é tocado
+        IOException erro = assertThrows(IOException.class, () -> persistencia.carregarDados(gerenciador));
+        assertTrue(erro.getMessage().contains("corrompido"), erro.getMessage());
+        assertEquals(1, gerenciador.getTransacoes().size());
+        assertSame(usuario, gerenciador.getUsuarios().get(0));
+    }
+    
+    @Test
+    @DisplayName("Deve gravar só os meses alterados como diferença e consolidar quando ela cresce")
+    public void testSnapshotDiferenca() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1_000_000.0);
+        gerenciador.adicionarConta(conta);
+        List<Transacao> lote = new ArrayList<>();
+        for (int i = 0; i < 2400; i++) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.LAZER, 10.0, "Compra " + i, usuario, conta);
+            t.setData(LocalDate.of(2022, 1, 1).plusMonths(i / 100));
+            lote.add(t);
+        }
+        gerenciador.adicionarTransacoes(lote);
+        Meta meta = new Meta("Viagem", Categoria.LAZER, 1000.0, LocalDate.of(2030, 1, 1), usuario);
+        gerenciador.adicionarMeta(meta);
+        
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.salvarDados(gerenciador);
+        Path completo = diretorio.resolve("dados_sistema.ser");
+        Path diferenca = diretorio.resolve("dados_sistema.delta");
+        byte[] bytesCompleto = Files.readAllBytes(completo);
+        
+        // Um estorno num mês antigo, uma contribuição e uma transação nova
+        gerenciador.estornarTransacao(lote.get(150).getId());
+        gerenciador.contribuirMeta(meta, 100.0);
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 500.0, "Salário", usuario, conta));
+        persistencia.salvarDados(gerenciador);
+        
+        assertArrayEquals(bytesCompleto, Files.readAllBytes(completo));
+        assertTrue(Files.size(diferenca) * 10 < bytesCompleto.length,
+            "diferença com " + Files.size(diferenca) + " bytes contra " + bytesCompleto.length);
+        
+        gerenciador.limparDados();
+        persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.carregarDados(gerenciador);
+        assertEquals(2401, gerenciador.getTransacoes().size());
+        assertTrue(gerenciador.buscarTransacaoPorId(lote.get(150).getId()).isEstornada());
+        assertFalse(gerenciador.buscarTransacaoPorId(lote.get(151).getId()).isEstornada());
+        assertEquals(100.0, gerenciador.getMetas().get(0).getValorAtual(), 0.01);
+        assertEquals("Salário", gerenciador.getTransacoes().get(2400).getDescricao());
+        
+        // Sobre a mesma base: a diferença acumula o que veio da anterior
+        Usuario carregado = gerenciador.buscarUsuarioPorId(usuario.getId());
+        ContaFinanceira contaCarregada = gerenciador.buscarContaPorNumero("12345");
+        gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.OUTROS, 1.0, "Pix", carregado, contaCarregada));
+        persistencia.salvarDados(gerenciador);
+        assertArrayEquals(bytesCompleto, Files.readAllBytes(completo));
+        
+        gerenciador.limparDados();
+        persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.carregarDados(gerenciador);
+        assertEquals(2402, gerenciador.getTransacoes().size());
+        assertTrue(gerenciador.buscarTransacaoPorId(lote.get(150).getId()).isEstornada());
+        
+        // Mudanças espalhadas por quase todos os meses: consolida num completo novo
+        for (int i = 0; i < 2400; i += 100) {
+            gerenciador.adicionarAnexo(gerenciador.getTransacoes().get(i), "nota" + i + ".pdf");
+        }
+        persistencia.salvarDados(gerenciador);
+        assertFalse(Files.exists(diferenca));
+        
+        gerenciador.limparDados();
+        new GerenciadorPersistencia(diretorio, false).carregarDados(gerenciador);
+        assertEquals(2402, gerenciador.getTransacoes().size());
+        assertEquals(List.of("nota2300.pdf"), gerenciador.getTransacoes().get(2300).getAnexos());
+    }
+    
+    @Test
+    @DisplayName("Deve carregar entregando as transações ao gerenciador e informar o progresso")
+    public void testCargaComProgresso() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 1_000_000.0);
+        gerenciador.adicionarConta(conta);
+        List<Transacao> lote = new ArrayList<>();
+        for (int i = 0; i < 25000; i++) {
+            Transacao t = new Transacao(TipoTransacao.DESPESA, Categoria.ALIMENTACAO, 5.0, "Compra " + i, usuario, conta);
+            t.setData(LocalDate.of(2023, 1, 1).plusDays(i % 365));
+            lote.add(t);
+        }
+        gerenciador.adicionarTransacoes(lote);
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        persistencia.salvarDados(gerenciador);
+        
+        gerenciador.limparDados();
+        List<Integer> avisos = new ArrayList<>();
+        persistencia.carregarDados(gerenciador, (carregadas, total) -> {
+            assertEquals(25000, total);
+            avisos.add(carregadas);
+        });
+        
+        assertEquals(List.of(10000, 20000, 25000), avisos);
+        assertEquals(25000, gerenciador.getTransacoes().size());
+        // Índices montados durante a carga
+        assertEquals("Compra 7", gerenciador.buscarTransacaoPorId(lote.get(7).getId()).getDescricao());
+        assertEquals(69, gerenciador.getTransacoesDoDia(LocalDate.of(2023, 1, 1)).size());
+        assertEquals(125000.0, gerenciador.calcularTotalDespesas(gerenciador.buscarUsuarioPorId(usuario.getId())), 0.01);
+    }
+}
@@ -0,0 +1,228 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import Strategy.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportadorExtratoTest {
+    
+    @TempDir
+    Path diretorio;
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    private ContaCorrente conta;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+        conta = new ContaCorrente("12345", usuario, 1000.0);
+        gerenciador.adicionarUsuario(usuario);
+        gerenciador.adicionarConta(conta);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.limparDados();
+    }
+    
+    @Test
+    @DisplayName("Deve importar CSV em vários blocos, na ordem do arquivo, com categorias e erros por linha")
+    public void testImportarCsv() throws Exception {
+        StringBuilder csv = new StringBuilder("Data;Histórico;Valor;Categoria;Subcategoria\n");
+        csv.append("05/01/2024;Salário Empresa X;\"5.000,00\";;\n");
+        csv.append("06/01/2024;Supermercado Bom Preço;-320,45;;\n");
+        csv.append("07/01/2024;Posto Shell Gasolina;-150,00;;\n");
+        csv.append("08/01/2024;Compra qualquer;-10,00;LAZER;Cinema\n");
+        csv.append("32/01/2024;Data errada;-1,00;;\n");
+        csv.append("09/01/2024;Valor errado;abc;;\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append(String.format("2024-02-%02d;Lançamento %d;-1,50;;\n", i % 28 + 1, i));
+        }
+        Path arquivo = diretorio.resolve("extrato.csv");
+        Files.writeString(arquivo, csv, StandardCharsets.UTF_8);
+        
+        ImportadorExtrato importador = new ImportadorExtrato(gerenciador, new MapeamentoCategorias(), 64);
+        ImportadorExtrato.Resultado resultado = importador.importar(arquivo, conta);
+        
+        assertEquals(206, resultado.getRegistros());
+        assertEquals(204, resultado.getImportadas());
+        assertEquals(2, resultado.getRejeitadas());
+        assertTrue(resultado.getErros().get(0).startsWith("Linha 6:"), resultado.getErros().toString());
+        assertTrue(resultado.getErros().get(1).startsWith("Linha 7:"), resultado.getErros().toString());
+        
+        List<Transacao> transacoes = gerenciador.getTransacoes();
+        assertEquals(204, transacoes.size());
+        for (int i = 1; i < transacoes.size(); i++) {
+            assertTrue(transacoes.get(i).getId() > transacoes.get(i - 1).getId());
+        }
+        assertEquals("Lançamento 199", transacoes.get(203).getDescricao());
+        
+        Transacao salario = transacoes.get(0);
+        assertEquals(TipoTransacao.RECEITA, salario.getTipo());
+        assertEquals(Categoria.SALARIO, salario.getCategoria());
+        assertEquals(5000.0, salario.getValor(), 0.001);
+        assertEquals(LocalDate.of(2024, 1, 5), salario.getData());
+        assertEquals("Supermercado", transacoes.get(1).getSubcategoria());
+        assertEquals(Categoria.TRANSPORTE, transacoes.get(2).getCategoria());
+        assertEquals("Combustível", transacoes.get(2).getSubcategoria());
+        assertEquals(Categoria.LAZER, transacoes.get(3).getCategoria());
+        assertEquals("Cinema", transacoes.get(3).getSubcategoria());
+        assertEquals(Categoria.OUTROS, transacoes.get(4).getCategoria());
+        
+        assertEquals(5000.0 - 320.45 - 150.0 - 10.0 - 300.0, conta.consultarSaldo(), 0.001);
+        
+        // Despesas sem regra que case entram nas sugestões e na listagem como as demais
+        Map<Categoria, Double> gastos = new SugestaoEconomia().analisarGastosPorCategoria(transacoes);
+        // "Lançamento 99" cai na regra do "99" (Uber/Taxi)
+        assertEquals(199 * 1.5, gastos.get(Categoria.OUTROS), 0.001);
+        assertTrue(transacoes.get(4).toString().contains("Outros"));
+    }
+    
+    @Test
+    @DisplayName("Deve importar OFX e rejeitar o que passa do limite da conta")
+    public void testImportarOfx() throws Exception {
+        StringBuilder ofx = new StringBuilder("OFXHEADER:100\nDATA:OFXSGML\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS>\n<BANKTRANLIST>\n");
+        String[][] lancamentos = {
+            {"20240310120000[-3:BRT]", "-45.90", "NETFLIX.COM"},
+            {"20240311", "-2000.00", "TRANSF ENVIADA"},
+            {"20240312", "800.00", "PIX RECEBIDO"},
+        };
+        for (int i = 0; i < lancamentos.length; i++) {
+            String[] l = lancamentos[i];
+            ofx.append("<STMTTRN>\n<TRNTYPE>OTHER\n<DTPOSTED>").append(l[0]).append("\n<TRNAMT>").append(l[1])
+                .append("\n<FITID>").append(i).append("\n<MEMO>").append(l[2]).append("\n</STMTTRN>\n");
+        }
+        ofx.append("</BANKTRANLIST>\n</STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n");
+        Path arquivo = diretorio.resolve("extrato.ofx");
+        Files.writeString(arquivo, ofx, StandardCharsets.ISO_8859_1);
+        
+        ImportadorExtrato.Resultado resultado = new ImportadorExtrato(gerenciador).importar(arquivo, conta);
+        
+        assertEquals(3, resultado.getRegistros());
+        assertEquals(2, resultado.getImportadas());
+        assertEquals(1, resultado.getErros().size());
+        assertTrue(resultado.getErros().get(0).startsWith("Linha 13:"), resultado.getErros().toString());
+        List<Transacao> transacoes = gerenciador.getTransacoes();
+        assertEquals("Streaming", transacoes.get(0).getSubcategoria());
+        assertEquals(LocalDate.of(2024, 3, 10), transacoes.get(0).getData());
+        assertEquals(Categoria.OUTROS, transacoes.get(1).getCategoria());
+        assertEquals(800.0 - 45.90, conta.consultarSaldo(), 0.001);
+    }
+    
+    @Test
+    @DisplayName("Reimportar extrato sobreposto não deve duplicar, nem depois de recarregar os dados")
+    public void testReimportacao() throws Exception {
+        Path primeiro = diretorio.resolve("janeiro.csv");
+        Files.writeString(primeiro, "data;descricao;valor\n"
+            + "10/01/2024;Café;-5,00\n"
+            + "10/01/2024;Café;-5,00\n"
+            + "11/01/2024;Mercado;-50,00\n");
+        Path sobreposto = diretorio.resolve("janeiro_completo.csv");
+        Files.writeString(sobreposto, "data;descricao;valor\n"
+            + "10/01/2024;Café;-5,00\n"
+            + "10/01/2024;Café;-5,00\n"
+            + "10/01/2024;Café;-5,00\n"
+            + "11/01/2024;Mercado;-50,00\n"
+            + "12/01/2024;Farmácia;-30,00\n");
+        
+        ImportadorExtrato importador = new ImportadorExtrato(gerenciador);
+        assertEquals(3, importador.importar(primeiro, conta).getImportadas());
+        ImportadorExtrato.Resultado repetido = importador.importar(primeiro, conta);
+        assertEquals(0, repetido.getImportadas());
+        assertEquals(3, repetido.getDuplicadas());
+        
+        // Só o terceiro café e a farmácia são novos
+        ImportadorExtrato.Resultado resultado = importador.importar(sobreposto, conta);
+        assertEquals(2, resultado.getImportadas());
+        assertEquals(3, resultado.getDuplicadas());
+        assertEquals(5, gerenciador.getTransacoes().size());
+        assertEquals(-95.0, conta.consultarSaldo(), 0.001);
+        
+        // Com blocos pequenos as repetições caem em blocos diferentes e contam igual
+        ImportadorExtrato emBlocos = new ImportadorExtrato(gerenciador, new MapeamentoCategorias(), 32);
+        assertEquals(5, emBlocos.importar(sobreposto, conta).getDuplicadas());
+        
+        // As chaves voltam pelo snapshot e depois pelo diário
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.salvarDados(gerenciador);
+        persistencia = recarregar();
+        assertEquals(5, gerenciador.getChavesImportacao().getQuantidade());
+        assertEquals(0, importador.importar(sobreposto, gerenciador.buscarContaPorNumero("12345")).getImportadas());
+        
+        Path fevereiro = diretorio.resolve("fevereiro.csv");
+        Files.writeString(fevereiro, "data;descricao;valor\n01/02/2024;Padaria;-8,00\n");
+        assertEquals(1, importador.importar(fevereiro, gerenciador.buscarContaPorNumero("12345")).getImportadas());
+        persistencia.salvarDados(gerenciador);
+        assertTrue(persistencia.getDiario().getRegistros() > 0);
+        recarregar();
+        assertEquals(6, gerenciador.getChavesImportacao().getQuantidade());
+        assertEquals(0, importador.importar(fevereiro, gerenciador.buscarContaPorNumero("12345")).getImportadas());
+        assertEquals(6, gerenciador.getTransacoes().size());
+        gerenciador.setOuvinte(null);
+    }
+    
+    private GerenciadorPersistencia recarregar() throws Exception {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        return persistencia;
+    }
+    
+    @Test
+    @DisplayName("O filtro de Bloom deve poupar a tabela nas chaves que não estão no conjunto")
+    public void testChavesImportacao() {
+        ChavesImportacao chaves = gerenciador.getChavesImportacao();
+        long[] lote = new long[50000];
+        List<Transacao> transacoes = new ArrayList<>();
+        for (int i = 0; i < lote.length; i++) {
+            lote[i] = ImportadorExtrato.hash("linha " + i);
+            Transacao t = new Transacao(TipoTransacao.RECEITA, Categoria.OUTROS, 1.0, "Linha " + i, usuario, conta);
+            t.setData(LocalDate.of(2024, 1, 1));
+            transacoes.add(t);
+        }
+        ResultadoLote resultado = gerenciador.adicionarTransacoes(transacoes, lote);
+        assertEquals(lote.length, resultado.getQuantidadeAceitas());
+        assertEquals(lote.length, chaves.getQuantidade());
+        
+        long antes = chaves.getConsultasNaTabela();
+        for (int i = 0; i < lote.length; i++) {
+            assertTrue(chaves.contem(lote[i]));
+            assertFalse(chaves.contem(ImportadorExtrato.hash("outra " + i)));
+        }
+        // Todas as presentes vão à tabela; das ausentes, só os falsos positivos
+        long falsosPositivos = chaves.getConsultasNaTabela() - antes - lote.length;
+        assertTrue(falsosPositivos < lote.length / 100, "falsos positivos: " + falsosPositivos);
+        
+        ResultadoLote repetido = gerenciador.adicionarTransacoes(transacoes.subList(0, 10), Arrays.copyOf(lote, 10));
+        assertEquals(10, repetido.getQuantidadeDuplicadas());
+        assertTrue(repetido.isSucessoTotal());
+    }
+    
+    @Test
+    @DisplayName("Regras do usuário devem vir antes das padrão e valer só para o lado certo")
+    public void testMapeamento() {
+        MapeamentoCategorias mapeamento = new MapeamentoCategorias();
+        assertEquals(Categoria.MORADIA, mapeamento.classificar("Conta de gás", TipoTransacao.DESPESA).categoria());
+        assertEquals(Categoria.TRANSPORTE, mapeamento.classificar("GASOLINA POSTO", TipoTransacao.DESPESA).categoria());
+        assertEquals(Categoria.OUTROS, mapeamento.classificar("Salário", TipoTransacao.DESPESA).categoria());
+        
+        mapeamento.adicionarRegra("Padaria do Zé", Categoria.ALIMENTACAO, "Restaurante");
+        assertEquals("Restaurante", mapeamento.classificar("PADARIA DO ZE 123", TipoTransacao.DESPESA).subcategoria());
+        assertEquals(Categoria.SAUDE, mapeamento.buscarCategoria("saúde"));
+        assertThrows(IllegalArgumentException.class,
+            () -> mapeamento.adicionarRegra("x", Categoria.LAZER, "Supermercado"));
+    }
+}
@@ -5,6 +5,7 @@ import Enums.*;
 import Factory.*;
 import Relatorios.*;
 import java.io.File;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.*;
@@ -58,6 +59,18 @@ public class RelatoriosTest {
         assertTrue(relatorio.contains("Total de Despesas:"));
     }
 
+    @Test
+    public void testListaCopiadaSemCache() {
+        // A lista não informa versões: sem meses fechados nem relatórios guardados
+        assertNull(gerenciadorRelatorios.getFechamentos());
+        assertNull(gerenciadorRelatorios.getCache());
+
+        transacoes.add(criarTransacao("Depois", 70.0, TipoTransacao.DESPESA, LocalDate.of(2023, 1, 12), Categoria.LAZER));
+        assertFalse(gerenciadorRelatorios.gerarRelatorioComparativoCategoria(dataInicio, dataFim).contains("170"));
+        gerenciadorRelatorios.atualizarTransacoes(transacoes);
+        assertTrue(gerenciadorRelatorios.gerarRelatorioComparativoCategoria(dataInicio, dataFim).contains("170"));
+    }
+
     @Test
     public void testGerarRelatorioComparativoCategoria() {
         String relatorio = gerenciadorRelatorios.gerarRelatorioComparativoCategoria(dataInicio, dataFim);
@@ -101,6 +114,38 @@ public class RelatoriosTest {
         assertTrue(relatorio.contains("Saldo Final:"));
     }
 
+    @Test
+    public void testAcumuladorRelatorio() {
+        transacoes.add(criarTransacao("Sem categoria", 40.0, TipoTransacao.DESPESA, LocalDate.of(2023, 1, 28), null));
+        gerenciadorRelatorios.atualizarTransacoes(transacoes);
+        AcumuladorRelatorio totais = AcumuladorRelatorio.de(new IndicePorData(transacoes), dataInicio, dataFim);
+        
+        assertEquals(6, totais.getQuantidade());
+        assertEquals(6000.0, totais.getTotal(TipoTransacao.RECEITA), 0.001);
+        assertEquals(2440.0, totais.getTotal(TipoTransacao.DESPESA), 0.001);
+        assertEquals(3560.0, totais.getSaldo(), 0.001);
+        assertEquals(4, totais.getQuantidade(TipoTransacao.DESPESA));
+        assertEquals(40.0, totais.getMenor(TipoTransacao.DESPESA), 0.001);
+        assertEquals(1500.0, totais.getMaior(TipoTransacao.DESPESA), 0.001);
+        assertEquals(2, totais.getQuantidade(TipoTransacao.RECEITA, Categoria.SALARIO));
+        assertEquals(1000.0, totais.getMenor(TipoTransacao.RECEITA, Categoria.SALARIO), 0.001);
+        assertEquals(40.0, totais.getTotal(TipoTransacao.DESPESA, null), 0.001);
+        assertEquals(0.0, totais.getMaior(TipoTransacao.TRANSFERENCIA), 0.001);
+        assertEquals(List.of(Categoria.MORADIA, Categoria.ALIMENTACAO, Categoria.LAZER),
+            totais.getCategoriasPorTotal(TipoTransacao.DESPESA));
+        
+        AcumuladorRelatorio fevereiro = AcumuladorRelatorio.de(new IndicePorData(transacoes),
+            LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 28));
+        totais.juntar(fevereiro);
+        assertEquals(7, totais.getQuantidade());
+        assertEquals(300.0, totais.getTotal(TipoTransacao.DESPESA, Categoria.LAZER), 0.001);
+        assertEquals(200.0, totais.getMaior(TipoTransacao.DESPESA, Categoria.LAZER), 0.001);
+        
+        // A despesa sem categoria entra no total do período, mas não na tabela por categoria
+        String relatorio = gerenciadorRelatorios.gerarRelatorioCompleto(dataInicio, dataFim, 0.0);
+        assertTrue(relatorio.contains(String.format("Total Despesas:    R$ %.2f", 2440.0)), relatorio);
+    }
+    
     @Test
     public void testExportarRelatorioPorPeriodo(@TempDir Path tempDir) throws Exception {
         File arquivo = tempDir.resolve("relatorio_periodo.txt").toFile();
@@ -145,6 +190,46 @@ public class RelatoriosTest {
         assertTrue(conteudo.contains("RELATORIO DE EVOLUCAO DE SALDO"));
     }
     
+    @Test
+    public void testEscreverEmFluxo(@TempDir Path tempDir) throws Exception {
+        List<Transacao> muitas = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            muitas.add(criarTransacao("Linha " + i, 1.0 + i % 7, i % 3 == 0 ? TipoTransacao.RECEITA : TipoTransacao.DESPESA,
+                LocalDate.of(2020, 1, 1).plusDays(i), Categoria.OUTROS));
+        }
+        GerenciadorRelatorios relatorios = new GerenciadorRelatorios(muitas);
+        LocalDate inicio = LocalDate.of(2020, 1, 1);
+        LocalDate fim = LocalDate.of(2028, 12, 31);
+        
+        // As linhas chegam à saída uma a uma, sem o relatório ser montado antes
+        int[] maiorTrecho = {0};
+        StringBuilder recebido = new StringBuilder();
+        relatorios.escreverRelatorioPorPeriodo(inicio, fim, new Appendable() {
+            @Override
+            public Appendable append(CharSequence texto) {
+                maiorTrecho[0] = Math.max(maiorTrecho[0], texto.length());
+                recebido.append(texto);
+                return this;
+            }
+            @Override
+            public Appendable append(CharSequence texto, int de, int ate) {
+                return append(texto.subSequence(de, ate));
+            }
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        });
+        assertTrue(maiorTrecho[0] < 100, "trecho de " + maiorTrecho[0]);
+        assertEquals(relatorios.gerarRelatorioPorPeriodo(inicio, fim), recebido.toString());
+        assertTrue(recebido.toString().contains("Linha 2999"));
+        
+        Path arquivo = tempDir.resolve("evolucao.txt");
+        relatorios.exportarRelatorioEvolucaoSaldo(inicio, fim, 10.0, arquivo.toString());
+        assertEquals(relatorios.gerarRelatorioEvolucaoSaldo(inicio, fim, 10.0) + System.lineSeparator(),
+            Files.readString(arquivo, Charset.defaultCharset()));
+    }
+    
     @Test
     public void testRelatorioVazio() {
         GerenciadorRelatorios gerenciadorVazio = new GerenciadorRelatorios(new ArrayList<>());
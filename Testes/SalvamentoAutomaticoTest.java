@@ -0,0 +1,151 @@
+package Testes;
+
+import Entidades.*;
+import Enums.*;
+import Gerenciadores.*;
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalvamentoAutomaticoTest {
+    
+    @TempDir
+    Path diretorio;
+    
+    private GerenciadorFinanceiro gerenciador;
+    private Usuario usuario;
+    
+    @BeforeEach
+    public void setUp() {
+        gerenciador = GerenciadorFinanceiro.getInstancia();
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        usuario = new UsuarioIndividual("Teste User", "000.000.000-00", "teste@email.com");
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+    }
+    
+    private GerenciadorPersistencia carregar() throws Exception {
+        gerenciador.setOuvinte(null);
+        gerenciador.limparDados();
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, true);
+        persistencia.carregarDados(gerenciador);
+        return persistencia;
+    }
+    
+    @Test
+    @DisplayName("Deve juntar vários pedidos seguidos em poucos salvamentos")
+    public void testPedidosAgrupados() throws Exception {
+        GerenciadorPersistencia persistencia = carregar();
+        try (SalvamentoAutomatico salvamento = new SalvamentoAutomatico(gerenciador, persistencia, Duration.ofHours(1))) {
+            gerenciador.adicionarUsuario(usuario);
+            ContaCorrente conta = new ContaCorrente("12345", usuario, 1000.0);
+            gerenciador.adicionarConta(conta);
+            for (int i = 0; i < 200; i++) {
+                gerenciador.adicionarTransacao(new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 10.0,
+                    "Receita " + i, usuario, conta));
+                salvamento.solicitar();
+            }
+            salvamento.descarregarEAguardar();
+            
+            assertFalse(salvamento.isPendente());
+            assertTrue(salvamento.getSalvamentos() < 200, "salvamentos: " + salvamento.getSalvamentos());
+            
+            // Sem nada novo, um pedido não grava de novo
+            long salvos = salvamento.getSalvamentos();
+            salvamento.descarregarEAguardar();
+            assertEquals(salvos, salvamento.getSalvamentos());
+        }
+        
+        carregar();
+        assertEquals(200, gerenciador.getTransacoes().size());
+        assertEquals(2000.0, gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.01);
+    }
+    
+    @Test
+    @DisplayName("Deve salvar sozinho no intervalo configurado")
+    public void testSalvamentoPeriodico() throws Exception {
+        GerenciadorPersistencia persistencia = carregar();
+        try (SalvamentoAutomatico salvamento = new SalvamentoAutomatico(gerenciador, persistencia, Duration.ofMillis(20))) {
+            gerenciador.adicionarUsuario(usuario);
+            long limite = System.currentTimeMillis() + 5000;
+            while (salvamento.isPendente() && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertFalse(salvamento.isPendente());
+        }
+        
+        carregar();
+        assertEquals(1, gerenciador.getUsuarios().size());
+    }
+    
+    @Test
+    @DisplayName("Deve capturar no modo simples snapshots com saldo coerente com as transações mesmo com escritas em andamento")
+    public void testSalvarComEscritasConcorrentes() throws Exception {
+        gerenciador.adicionarUsuario(usuario);
+        ContaCorrente conta = new ContaCorrente("12345", usuario, 0.0);
+        gerenciador.adicionarConta(conta);
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio, false);
+        
+        // Salva como a thread do salvamento automático, enquanto outras lançam receitas
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        List<Future<?>> escritores = new ArrayList<>();
+        List<Path> copias = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                escritores.add(executor.submit(() -> {
+                    while (escrevendo.get()) {
+                        gerenciador.adicionarTransacao(
+                            new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 1.0, "Receita", usuario, conta));
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 20; i++) {
+                persistencia.salvarDados(gerenciador);
+                Path copia = Files.createDirectory(diretorio.resolve("copia" + i));
+                for (String nome : List.of("dados_sistema.ser", "dados_sistema.delta")) {
+                    if (Files.exists(diretorio.resolve(nome))) {
+                        Files.copy(diretorio.resolve(nome), copia.resolve(nome));
+                    }
+                }
+                copias.add(copia);
+            }
+        } finally {
+            escrevendo.set(false);
+            for (Future<?> escritor : escritores) {
+                escritor.get(60, TimeUnit.SECONDS);
+            }
+            executor.shutdownNow();
+        }
+        
+        for (Path copia : copias) {
+            gerenciador.limparDados();
+            new GerenciadorPersistencia(copia, false).carregarDados(gerenciador);
+            assertEquals(gerenciador.getTransacoes().size(),
+                gerenciador.buscarContaPorNumero("12345").consultarSaldo(), 0.001, "snapshot " + copia.getFileName());
+        }
+    }
+    
+    @Test
+    @DisplayName("Deve informar o erro de gravação ao descarregar")
+    public void testErroAoDescarregar() throws Exception {
+        GerenciadorPersistencia persistencia = new GerenciadorPersistencia(diretorio.resolve("inexistente"), false);
+        SalvamentoAutomatico salvamento = new SalvamentoAutomatico(gerenciador, persistencia, Duration.ofHours(1));
+        gerenciador.adicionarUsuario(usuario);
+        
+        assertThrows(IOException.class, salvamento::close);
+        assertTrue(salvamento.isPendente());
+    }
+}
@@ -11,6 +11,15 @@ import org.junit.platform.suite.api.Suite;
     OrcamentoTest.class,
     CofrinhoTest.class,
     GerenciadorFinanceiroTest.class,
+    GerenciadorFinanceiroConcorrenciaTest.class,
+    GerenciadorPersistenciaTest.class,
+    ArquivoTransacoesTest.class,
+    AcervoMensalTest.class,
+    ImportadorExtratoTest.class,
+    FechamentosMensaisTest.class,
+    CacheRelatoriosTest.class,
+    FormatacaoTest.class,
+    SalvamentoAutomaticoTest.class,
     RelatoriosTest.class,
     CartaoCreditoTest.class,
     CarteiraInvestimentoTest.class,
@@ -99,6 +99,11 @@ public class TransacaoTest {
         transacao.removerAnexo(anexo);
         
         assertEquals(0, transacao.getAnexos().size());
+        
+        // Remover o que não existe não conta como alteração
+        int versao = transacao.getVersaoAlteracao();
+        assertFalse(transacao.removerAnexo(anexo));
+        assertEquals(versao, transacao.getVersaoAlteracao());
     }
     
     @Test
@@ -177,4 +182,22 @@ public class TransacaoTest {
         
         assertEquals("Restaurante", transacao.getSubcategoria());
     }
+    
+    @Test
+    @DisplayName("Deve restaurar transação sem consumir ids do contador")
+    public void testRestaurarNaoConsomeId() {
+        Transacao anterior = new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 10.0, "Base", usuario, conta);
+        LocalDate data = LocalDate.of(2024, 3, 15);
+        
+        for (int i = 0; i < 5; i++) {
+            Transacao restaurada = Transacao.restaurar(anterior.getId(), TipoTransacao.DESPESA, Categoria.LAZER,
+                                                       30.0, data, "Cinema", usuario, conta, true);
+            assertEquals(anterior.getId(), restaurada.getId());
+            assertEquals(data, restaurada.getData());
+            assertTrue(restaurada.isEstornada());
+        }
+        
+        Transacao proxima = new Transacao(TipoTransacao.RECEITA, Categoria.SALARIO, 10.0, "Próxima", usuario, conta);
+        assertEquals(anterior.getId() + 1, proxima.getId());
+    }
 }